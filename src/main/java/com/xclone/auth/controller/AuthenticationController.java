@@ -11,6 +11,7 @@ import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.security.SecurityRequirements;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import lombok.extern.slf4j.Slf4j;
@@ -73,6 +74,8 @@ public class AuthenticationController {
    * user in. Assigns a new access and refresh token as part of response.
    *
    * @param request HTTP request object
+   * @param httpRequest servlet request, used for the client address; behind a trusted proxy this is
+   *     the forwarded address
    * @param response HTTP response object
    * @return {@link AuthResponse} dto
    */
@@ -86,12 +89,15 @@ public class AuthenticationController {
         @ApiResponse(responseCode = "200", description = "Ok", useReturnTypeSchema = true),
         @ApiResponse(responseCode = "400", ref = "#/components/responses/BadRequestError"),
         @ApiResponse(responseCode = "401", ref = "#/components/responses/UnauthorizedError"),
+        @ApiResponse(responseCode = "429", description = "Too many login attempts"),
       })
   @SecurityRequirements()
   @PostMapping(value = "/login", produces = MediaType.APPLICATION_JSON_VALUE)
   public ResponseEntity<AuthResponse> login(
-      @RequestBody @Valid LoginRequest request, HttpServletResponse response) {
-    AuthTokens authTokens = authenticationService.login(request);
+      @RequestBody @Valid LoginRequest request,
+      HttpServletRequest httpRequest,
+      HttpServletResponse response) {
+    AuthTokens authTokens = authenticationService.login(request, httpRequest.getRemoteAddr());
     setRefreshTokenCookie(response, authTokens.refreshToken());
     return ResponseEntity.ok(authTokens.toAuthResponse());
   }
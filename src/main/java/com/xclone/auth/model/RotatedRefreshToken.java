@@ -0,0 +1,9 @@
+package com.xclone.auth.model;
+
+/**
+ * Outcome of an atomic refresh token rotation.
+ *
+ * @param tokenId opaque identifier of the newly issued refresh token
+ * @param previous metadata of the consumed refresh token
+ */
+public record RotatedRefreshToken(String tokenId, RefreshTokenData previous) {}
@@ -0,0 +1,76 @@
+package com.xclone.auth.repository;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.xclone.auth.model.RefreshTokenData;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Versioned binary encoding of {@link RefreshTokenData} as stored in Redis.
+ *
+ * <p>Version 1 is 25 bytes: a version byte, the owner's UUID as 16 big-endian bytes, then {@code
+ * createdAt} and {@code expiresAt} as unsigned 32-bit epoch seconds. The equivalent Jackson JSON is
+ * around 120 bytes. The owner occupies bytes 2-17 (1-based), which the rotation and deletion
+ * scripts rely on to check it against the expected owner without decoding the rest.
+ *
+ * <p>Entries written before this format are JSON objects, recognised by their leading brace and
+ * still decoded, so existing sessions survive the migration.
+ */
+final class RefreshTokenCodec {
+  static final byte VERSION_1 = 1;
+  static final int VERSION_1_LENGTH = 1 + 16 + 4 + 4;
+
+  private final ObjectMapper objectMapper;
+
+  RefreshTokenCodec(ObjectMapper objectMapper) {
+    this.objectMapper = objectMapper;
+  }
+
+  /** Encodes token metadata in the current format. */
+  byte[] encode(RefreshTokenData metadata) {
+    return ByteBuffer.allocate(VERSION_1_LENGTH)
+        .put(VERSION_1)
+        .put(uuidBytes(metadata.userId()))
+        .putInt((int) metadata.createdAt().getEpochSecond())
+        .putInt((int) metadata.expiresAt().getEpochSecond())
+        .array();
+  }
+
+  /**
+   * Decodes token metadata in the current or the legacy JSON format.
+   *
+   * @throws IllegalArgumentException if the value is in neither format
+   */
+  RefreshTokenData decode(byte[] value) {
+    if (value.length == VERSION_1_LENGTH && value[0] == VERSION_1) {
+      ByteBuffer buffer = ByteBuffer.wrap(value, 1, VERSION_1_LENGTH - 1);
+      UUID userId = new UUID(buffer.getLong(), buffer.getLong());
+      Instant createdAt = Instant.ofEpochSecond(Integer.toUnsignedLong(buffer.getInt()));
+      Instant expiresAt = Instant.ofEpochSecond(Integer.toUnsignedLong(buffer.getInt()));
+      return new RefreshTokenData(userId.toString(), createdAt, expiresAt);
+    }
+    if (value.length > 0 && value[0] == '{') {
+      try {
+        return objectMapper.readValue(value, RefreshTokenData.class);
+      } catch (IOException e) {
+        throw new IllegalArgumentException("Corrupted legacy refresh token entry", e);
+      }
+    }
+    throw new IllegalArgumentException("Unknown refresh token encoding");
+  }
+
+  /**
+   * Returns the 16 big-endian bytes of a UUID string.
+   *
+   * @throws IllegalArgumentException if the string is not a UUID
+   */
+  static byte[] uuidBytes(String uuid) {
+    UUID parsed = UUID.fromString(uuid);
+    return ByteBuffer.allocate(16)
+        .putLong(parsed.getMostSignificantBits())
+        .putLong(parsed.getLeastSignificantBits())
+        .array();
+  }
+}
@@ -1,54 +1,195 @@
 package com.xclone.auth.repository;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.xclone.auth.model.RefreshTokenData;
 import com.xclone.config.AuthProperties;
 import com.xclone.exception.custom.InvalidRefreshTokenException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
 import java.util.Optional;
-import java.util.concurrent.TimeUnit;
-import org.springframework.data.redis.core.StringRedisTemplate;
+import java.util.Set;
+import java.util.UUID;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations.TypedTuple;
+import org.springframework.data.redis.core.script.RedisScript;
 import org.springframework.stereotype.Repository;
 
 /**
  * Repository responsible for persisting and retrieving refresh token metadata in Redis.
  *
- * <p>Each token is stored under a key of the form: {@code refresh_token:{uuid}}
+ * <p>A refresh token id is a version 8 UUID whose first two bytes are the first two bytes of its
+ * owner's UUID and whose other bits are random, so the id does not name its owner. Each token is
+ * stored under the binary key {@code rt:} followed by its hash tag and the 16 bytes of its id,
+ * encoded by {@link RefreshTokenCodec}. Entries are stored with a TTL equal to the configured
+ * refresh token lifetime.
  *
- * <p>Entries are stored with a TTL equal to the configured refresh token lifetime.
+ * <p>Every user also has an index {@code ut:} followed by their hash tag and the 16 bytes of their
+ * UUID: a sorted set of their token ids (16 bytes each), scored by expiry. The hash tag, the first
+ * two bytes of the UUID in hex within braces, is the same for a user's index and for every token id
+ * they are issued, so that they all lie in one Redis Cluster slot. Each write below updates the
+ * token and the index in one server-side script that declares both keys, and trims index members
+ * that have expired. This keeps "log out everywhere" and session listing independent of the total
+ * number of tokens in Redis.
+ *
+ * <p>Rotation runs as a single server-side script, so a token can be consumed at most once even
+ * when the same refresh request races on several nodes. Rotating or deleting a token needs its
+ * owner's index key, so the caller reads the owner from the token first; the scripts then check the
+ * owner stored in the token against it.
+ *
+ * <p>Tokens issued before this format are JSON. Those with a version 8 id live under {@code
+ * refresh_token:{tag}uuid}, indexed under {@code user_tokens:{tag}userId}; older ones have a random
+ * (version 4) id, live under {@code refresh_token:uuid} and are not indexed. They are still found,
+ * rotated into the current format, revoked and listed; a version 8 id is only looked up as JSON
+ * when it has no binary entry. They are consumed with {@code GETDEL}, so still at most once. No new
+ * legacy entries are written, so the legacy paths can be removed one refresh token lifetime after
+ * deployment.
  */
 @Repository
 public class RefreshTokenRepository {
-  private final StringRedisTemplate redisTemplate;
+  private static final byte[] TOKEN_PREFIX = bytes("rt:");
+  private static final byte[] INDEX_PREFIX = bytes("ut:");
+  private static final String LEGACY_TOKEN_PREFIX = "refresh_token:";
+  private static final String LEGACY_INDEX_PREFIX = "user_tokens:";
+  private static final int REVOKE_ATTEMPTS = 5;
+  private static final int TOKEN_ID_VERSION = 8;
+
+  /**
+   * Stores KEYS[1] and indexes it under KEYS[2]. ARGV: value, TTL in seconds, token id, expiry and
+   * current time in epoch seconds.
+   */
+  private static final RedisScript<Long> SAVE_SCRIPT =
+      RedisScript.of(
+          """
+          redis.call('SET', KEYS[1], ARGV[1], 'EX', ARGV[2])
+          redis.call('ZADD', KEYS[2], ARGV[4], ARGV[3])
+          redis.call('ZREMRANGEBYSCORE', KEYS[2], '-inf', ARGV[5])
+          redis.call('EXPIRE', KEYS[2], ARGV[2])
+          return 1
+          """,
+          Long.class);
+
+  /**
+   * Consumes the token at KEYS[1] if it belongs to the owner ARGV[7], stores KEYS[2] and moves the
+   * owner's index KEYS[3] entry across. ARGV: new value, TTL in seconds, old and new token ids, new
+   * expiry and current time in epoch seconds, owner. Returns the consumed entry, or false if the
+   * token does not exist.
+   */
+  private static final RedisScript<byte[]> ROTATE_SCRIPT =
+      RedisScript.of(
+          """
+          local previous = redis.call('GET', KEYS[1])
+          if not previous or string.sub(previous, 2, 17) ~= ARGV[7] then
+            return false
+          end
+          redis.call('DEL', KEYS[1])
+          redis.call('SET', KEYS[2], ARGV[1], 'EX', ARGV[2])
+          redis.call('ZREM', KEYS[3], ARGV[3])
+          redis.call('ZADD', KEYS[3], ARGV[5], ARGV[4])
+          redis.call('ZREMRANGEBYSCORE', KEYS[3], '-inf', ARGV[6])
+          redis.call('EXPIRE', KEYS[3], ARGV[2])
+          return previous
+          """,
+          byte[].class);
+
+  /**
+   * Deletes the token at KEYS[1] if it belongs to the owner ARGV[2], and its entry ARGV[1] in the
+   * owner's index KEYS[2].
+   */
+  private static final RedisScript<Long> DELETE_SCRIPT =
+      RedisScript.of(
+          """
+          local value = redis.call('GET', KEYS[1])
+          if not value or string.sub(value, 2, 17) ~= ARGV[2] then
+            return 0
+          end
+          redis.call('DEL', KEYS[1])
+          redis.call('ZREM', KEYS[2], ARGV[1])
+          return 1
+          """,
+          Long.class);
+
+  /**
+   * Deletes the index KEYS[1] and the tokens KEYS[2..n], provided the index lists exactly the token
+   * ids ARGV. Returns the number of tokens deleted, or -1 if the index changed since it was read.
+   */
+  private static final RedisScript<Long> DELETE_ALL_SCRIPT =
+      RedisScript.of(
+          """
+          local members = redis.call('ZRANGE', KEYS[1], 0, -1)
+          if #members ~= #ARGV then
+            return -1
+          end
+          local listed = {}
+          for _, tokenId in ipairs(ARGV) do
+            listed[tokenId] = true
+          end
+          for _, tokenId in ipairs(members) do
+            if not listed[tokenId] then
+              return -1
+            end
+          end
+          for _, key in ipairs(KEYS) do
+            redis.call('DEL', key)
+          end
+          return #members
+          """,
+          Long.class);
+
+  private final RedisTemplate<byte[], byte[]> redisTemplate;
   private final AuthProperties authProperties;
-  private final ObjectMapper objectMapper;
+  private final RefreshTokenCodec codec;
 
   public RefreshTokenRepository(
-      StringRedisTemplate redisTemplate, AuthProperties authProperties, ObjectMapper objectMapper) {
-    this.redisTemplate = redisTemplate;
+      RedisTemplate<byte[], byte[]> binaryRedisTemplate,
+      AuthProperties authProperties,
+      ObjectMapper objectMapper) {
+    this.redisTemplate = binaryRedisTemplate;
     this.authProperties = authProperties;
-    this.objectMapper = objectMapper;
+    this.codec = new RefreshTokenCodec(objectMapper);
   }
 
   /**
-   * Writes the new refresh token to the redis database.
+   * Creates the id of a new refresh token of a user: a random version 8 UUID carrying the owner's
+   * hash tag.
    *
-   * @param tokenId opaque refresh token id
+   * @param userId UUID string of the owner
+   * @return the opaque token id
+   */
+  public static String newTokenId(String userId) {
+    UUID random = UUID.randomUUID();
+    long tag = UUID.fromString(userId).getMostSignificantBits() & 0xffff000000000000L;
+    long mostSigBits =
+        tag
+            | (random.getMostSignificantBits() & 0x0000ffffffff0fffL)
+            | ((long) TOKEN_ID_VERSION << 12);
+    return new UUID(mostSigBits, random.getLeastSignificantBits()).toString();
+  }
+
+  /**
+   * Writes the new refresh token to the redis database and adds it to its owner's index.
+   *
+   * @param tokenId opaque refresh token id from {@link #newTokenId(String)}
    * @param metadata refresh token metadata
    */
   public void save(String tokenId, RefreshTokenData metadata) {
-    try {
-      String serializedData = objectMapper.writeValueAsString(metadata);
-      this.redisTemplate
-          .opsForValue()
-          .set(
-              key(tokenId),
-              serializedData,
-              authProperties.getRefreshTokenDurationSeconds(),
-              TimeUnit.SECONDS);
-    } catch (JsonProcessingException e) {
-      throw new RuntimeException("Failed to serialize token data", e);
+    TokenId id = TokenId.parse(tokenId).orElseThrow(() -> malformed(tokenId));
+    UUID owner = UUID.fromString(metadata.userId());
+    if (!id.isTaggedFor(owner)) {
+      throw new IllegalArgumentException("Token " + tokenId + " is not tagged for its owner");
     }
+    this.redisTemplate.execute(
+        SAVE_SCRIPT,
+        List.of(id.key(), indexKey(owner)),
+        codec.encode(metadata),
+        ttlSeconds(),
+        id.tokenBytes(),
+        bytes(metadata.expiresAt().getEpochSecond()),
+        bytes(Instant.now().getEpochSecond()));
   }
 
   /**
@@ -56,26 +197,333 @@ public class RefreshTokenRepository {
    *
    * @param tokenId opaque refresh token id
    * @return refresh token metadata
+   * @throws InvalidRefreshTokenException if the token does not exist
    */
   public RefreshTokenData find(String tokenId) {
-    String tokenData =
-        Optional.ofNullable(this.redisTemplate.opsForValue().get(key(tokenId)))
-            .orElseThrow(
-                () ->
-                    new InvalidRefreshTokenException(
-                        String.format("Token with an ID of %s does not exist", tokenId)));
-    try {
-      return objectMapper.readValue(tokenData, RefreshTokenData.class);
-    } catch (JsonProcessingException e) {
-      throw new RuntimeException("Corrupted token data in Redis for key: " + key(tokenId), e);
+    return read(tokenId)
+        .orElseThrow(
+            () ->
+                new InvalidRefreshTokenException(
+                    String.format("Token with an ID of %s does not exist", tokenId)));
+  }
+
+  /** Reads a token in the current or the legacy format. */
+  private Optional<RefreshTokenData> read(String tokenId) {
+    Optional<byte[]> value =
+        TokenId.parse(tokenId).map(id -> this.redisTemplate.opsForValue().get(id.key()));
+    if (value.isEmpty()) {
+      value = legacyKey(tokenId).map(key -> this.redisTemplate.opsForValue().get(key));
+    }
+    return value.map(this::decode);
+  }
+
+  /**
+   * Atomically consumes a refresh token and stores its successor for the same user, in one round
+   * trip. The owner's index is updated in the same call.
+   *
+   * @param tokenId opaque id of the token being consumed
+   * @param newTokenId opaque id of the token being issued, from {@link #newTokenId(String)} for the
+   *     owner of {@code tokenId}
+   * @param metadata the new token; its user id must be the owner of {@code tokenId}, as read with
+   *     {@link #find(String)}
+   * @return metadata of the consumed token, or empty if it did not exist or belongs to another user
+   */
+  public Optional<RefreshTokenData> rotate(
+      String tokenId, String newTokenId, RefreshTokenData metadata) {
+    TokenId newId = TokenId.parse(newTokenId).orElseThrow(() -> malformed(newTokenId));
+    UUID owner = UUID.fromString(metadata.userId());
+    if (!newId.isTaggedFor(owner)) {
+      throw new IllegalArgumentException("Token " + newTokenId + " is not tagged for its owner");
+    }
+    Optional<TokenId> id = TokenId.parse(tokenId);
+    if (id.isEmpty()) {
+      return rotateLegacy(tokenId, newTokenId, metadata);
+    }
+    if (!id.get().isTaggedFor(owner)) {
+      return Optional.empty();
+    }
+    byte[] previous =
+        this.redisTemplate.execute(
+            ROTATE_SCRIPT,
+            List.of(id.get().key(), newId.key(), indexKey(owner)),
+            codec.encode(metadata),
+            ttlSeconds(),
+            id.get().tokenBytes(),
+            newId.tokenBytes(),
+            bytes(metadata.expiresAt().getEpochSecond()),
+            bytes(Instant.now().getEpochSecond()),
+            uuidBytes(owner));
+    if (previous == null) {
+      return rotateLegacy(tokenId, newTokenId, metadata);
+    }
+    return Optional.of(decode(previous));
+  }
+
+  /** Consumes a legacy token and saves its successor; the successor must name the same owner. */
+  private Optional<RefreshTokenData> rotateLegacy(
+      String tokenId, String newTokenId, RefreshTokenData issued) {
+    Optional<RefreshTokenData> previous = consumeLegacy(tokenId);
+    if (previous.isEmpty()) {
+      return previous;
+    }
+    if (!previous.get().userId().equals(issued.userId())) {
+      throw new IllegalArgumentException("Token " + newTokenId + " is for another owner");
     }
+    save(newTokenId, issued);
+    return previous;
   }
 
+  /**
+   * Deletes a refresh token and removes it from its owner's index. The token is read first to find
+   * its owner.
+   *
+   * @param tokenId opaque refresh token id
+   */
   public void delete(String tokenId) {
-    this.redisTemplate.delete(key(tokenId));
+    Optional<TokenId> id = TokenId.parse(tokenId);
+    Optional<UUID> owner =
+        id.map(i -> this.redisTemplate.opsForValue().get(i.key()))
+            .map(value -> UUID.fromString(decode(value).userId()));
+    if (owner.isEmpty()) {
+      consumeLegacy(tokenId);
+      return;
+    }
+    this.redisTemplate.execute(
+        DELETE_SCRIPT,
+        List.of(id.get().key(), indexKey(owner.get())),
+        id.get().tokenBytes(),
+        uuidBytes(owner.get()));
+  }
+
+  /** Deletes a legacy token and its index entry, returning its metadata if it existed. */
+  private Optional<RefreshTokenData> consumeLegacy(String tokenId) {
+    Optional<byte[]> key = legacyKey(tokenId);
+    if (key.isEmpty()) {
+      return Optional.empty();
+    }
+    Optional<RefreshTokenData> previous =
+        Optional.ofNullable(this.redisTemplate.opsForValue().getAndDelete(key.get()))
+            .map(this::decode);
+    previous.ifPresent(
+        data ->
+            this.redisTemplate
+                .opsForZSet()
+                .remove(legacyIndexKey(UUID.fromString(data.userId())), bytes(tokenId)));
+    return previous;
+  }
+
+  /**
+   * Deletes every refresh token of a user, however many sessions they hold. The index is read, then
+   * it and the tokens it lists are deleted in one script, which is retried if a token was issued in
+   * between.
+   *
+   * @param userId UUID string of the user
+   * @return number of tokens revoked
+   */
+  public long deleteAllForUser(String userId) {
+    UUID owner = UUID.fromString(userId);
+    byte[] index = indexKey(owner);
+    long revoked = -1;
+    for (int attempt = 0; attempt < REVOKE_ATTEMPTS && revoked < 0; attempt++) {
+      Set<byte[]> members = this.redisTemplate.opsForZSet().range(index, 0, -1);
+      List<byte[]> tokenIds = members == null ? List.of() : List.copyOf(members);
+      List<byte[]> keys = new ArrayList<>(tokenIds.size() + 1);
+      keys.add(index);
+      tokenIds.forEach(tokenId -> keys.add(concat(tokenPrefix(owner), tokenId)));
+      Long deleted =
+          this.redisTemplate.execute(
+              DELETE_ALL_SCRIPT, keys, (Object[]) tokenIds.toArray(new byte[0][]));
+      revoked = deleted == null ? 0 : deleted;
+    }
+    if (revoked < 0) {
+      throw new IllegalStateException("Refresh tokens of " + userId + " kept changing");
+    }
+    return revoked + deleteAllLegacy(owner);
+  }
+
+  /** Deletes a user's legacy tokens; none are issued any more, so the index cannot change. */
+  private long deleteAllLegacy(UUID owner) {
+    byte[] index = legacyIndexKey(owner);
+    Set<byte[]> members = this.redisTemplate.opsForZSet().range(index, 0, -1);
+    List<byte[]> keys = new ArrayList<>();
+    if (members != null) {
+      members.forEach(tokenId -> keys.add(concat(legacyTokenPrefix(owner), tokenId)));
+    }
+    keys.add(index);
+    this.redisTemplate.delete(keys);
+    return keys.size() - 1;
+  }
+
+  /**
+   * Lists a user's live refresh tokens, most recently issued first.
+   *
+   * @param userId UUID string of the user
+   * @param offset number of sessions to skip
+   * @param limit maximum number of sessions to return
+   * @return metadata of the user's sessions in this page
+   */
+  public List<RefreshTokenData> findAllForUser(String userId, int offset, int limit) {
+    long now = Instant.now().getEpochSecond();
+    UUID owner = UUID.fromString(userId);
+    List<TypedTuple<byte[]>> keys = new ArrayList<>();
+    collect(keys, indexKey(owner), tokenPrefix(owner), now, offset + limit);
+    collect(keys, legacyIndexKey(owner), legacyTokenPrefix(owner), now, offset + limit);
+    List<byte[]> page =
+        keys.stream()
+            .sorted(Comparator.comparing(TypedTuple<byte[]>::getScore).reversed())
+            .skip(offset)
+            .limit(limit)
+            .map(TypedTuple::getValue)
+            .toList();
+    if (page.isEmpty()) {
+      return List.of();
+    }
+    List<byte[]> values = this.redisTemplate.opsForValue().multiGet(page);
+    if (values == null) {
+      return List.of();
+    }
+    // Tokens may expire between the two reads; skip the gaps
+    return values.stream().filter(Objects::nonNull).map(this::decode).toList();
+  }
+
+  /** Adds the token keys of the newest live index members, with their expiry as score. */
+  private void collect(
+      List<TypedTuple<byte[]>> keys, byte[] index, byte[] prefix, long now, int count) {
+    Set<TypedTuple<byte[]>> members =
+        this.redisTemplate
+            .opsForZSet()
+            .reverseRangeByScoreWithScores(index, now, Double.POSITIVE_INFINITY, 0, count);
+    if (members == null) {
+      return;
+    }
+    for (TypedTuple<byte[]> member : members) {
+      keys.add(TypedTuple.of(concat(prefix, member.getValue()), member.getScore()));
+    }
+  }
+
+  private RefreshTokenData decode(byte[] value) {
+    try {
+      return codec.decode(value);
+    } catch (IllegalArgumentException e) {
+      throw new RuntimeException("Corrupted token data in Redis", e);
+    }
+  }
+
+  private byte[] ttlSeconds() {
+    return bytes(authProperties.getRefreshTokenDurationSeconds());
+  }
+
+  private static IllegalArgumentException malformed(String tokenId) {
+    return new IllegalArgumentException("Malformed refresh token id: " + tokenId);
+  }
+
+  /**
+   * A refresh token id in the current format.
+   *
+   * @param token the token's UUID
+   */
+  private record TokenId(UUID token) {
+    /** Parses a version 8 id; random (version 4) ids are legacy and are not parsed. */
+    static Optional<TokenId> parse(String tokenId) {
+      try {
+        UUID token = UUID.fromString(tokenId);
+        return token.version() == TOKEN_ID_VERSION
+            ? Optional.of(new TokenId(token))
+            : Optional.empty();
+      } catch (IllegalArgumentException e) {
+        return Optional.empty();
+      }
+    }
+
+    boolean isTaggedFor(UUID owner) {
+      return tag(token) == tag(owner);
+    }
+
+    byte[] tokenBytes() {
+      return uuidBytes(token);
+    }
+
+    byte[] key() {
+      return concat(tokenPrefix(token), tokenBytes());
+    }
+  }
+
+  /**
+   * Returns the Redis key of a refresh token.
+   *
+   * @param tokenId opaque refresh token id from {@link #newTokenId(String)}
+   * @return the binary key
+   */
+  public static byte[] key(String tokenId) {
+    return TokenId.parse(tokenId).orElseThrow(() -> malformed(tokenId)).key();
+  }
+
+  /**
+   * Returns the Redis key of a user's token index.
+   *
+   * @param userId UUID string of the user
+   * @return the binary key
+   */
+  public static byte[] indexKey(String userId) {
+    return indexKey(UUID.fromString(userId));
+  }
+
+  private static byte[] indexKey(UUID owner) {
+    return concat(concat(INDEX_PREFIX, hashTag(owner)), uuidBytes(owner));
+  }
+
+  /** Prefix of the keys of tokens tagged like the given token or owner id. */
+  private static byte[] tokenPrefix(UUID tagged) {
+    return concat(TOKEN_PREFIX, hashTag(tagged));
+  }
+
+  /** The first two bytes of the UUID, shared by an owner and their token ids. */
+  private static long tag(UUID id) {
+    return id.getMostSignificantBits() >>> 48;
+  }
+
+  /** The tag as hex in braces, which Redis Cluster hashes alone. */
+  private static byte[] hashTag(UUID id) {
+    return bytes(String.format("{%04x}", tag(id)));
+  }
+
+  /** The JSON key a token id was stored under before this format, if it is a UUID at all. */
+  private static Optional<byte[]> legacyKey(String tokenId) {
+    UUID token;
+    try {
+      token = UUID.fromString(tokenId);
+    } catch (IllegalArgumentException e) {
+      return Optional.empty();
+    }
+    return Optional.of(
+        token.version() == TOKEN_ID_VERSION
+            ? concat(legacyTokenPrefix(token), bytes(tokenId))
+            : bytes(LEGACY_TOKEN_PREFIX + tokenId));
+  }
+
+  private static byte[] legacyIndexKey(UUID owner) {
+    return concat(concat(bytes(LEGACY_INDEX_PREFIX), hashTag(owner)), bytes(owner.toString()));
+  }
+
+  private static byte[] legacyTokenPrefix(UUID tagged) {
+    return concat(bytes(LEGACY_TOKEN_PREFIX), hashTag(tagged));
+  }
+
+  private static byte[] uuidBytes(UUID id) {
+    return RefreshTokenCodec.uuidBytes(id.toString());
+  }
+
+  private static byte[] concat(byte[] prefix, byte[] suffix) {
+    byte[] key = Arrays.copyOf(prefix, prefix.length + suffix.length);
+    System.arraycopy(suffix, 0, key, prefix.length, suffix.length);
+    return key;
+  }
+
+  private static byte[] bytes(String value) {
+    return value.getBytes(StandardCharsets.UTF_8);
   }
 
-  private String key(String tokenId) {
-    return "refresh_token:" + tokenId;
+  private static byte[] bytes(long value) {
+    return bytes(String.valueOf(value));
   }
 }
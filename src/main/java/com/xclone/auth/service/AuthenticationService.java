@@ -4,19 +4,26 @@ import com.xclone.auth.dto.AuthTokens;
 import com.xclone.auth.dto.LoginRequest;
 import com.xclone.auth.dto.SignupRequest;
 import com.xclone.auth.model.RefreshTokenData;
+import com.xclone.auth.model.RotatedRefreshToken;
 import com.xclone.exception.custom.AccountNotActiveException;
 import com.xclone.exception.custom.DuplicateHandleException;
+import com.xclone.exception.custom.HashingCapacityExceededException;
 import com.xclone.exception.custom.InvalidRefreshTokenException;
+import com.xclone.exception.custom.TooManyLoginAttemptsException;
 import com.xclone.security.jwt.JwtTokenProvider;
+import com.xclone.security.password.PasswordHasher;
+import com.xclone.security.throttle.LoginThrottle;
+import com.xclone.user.event.UserChangedEvent;
+import com.xclone.user.event.UserChangedEvent.ChangeType;
 import com.xclone.user.model.entity.User;
 import com.xclone.user.model.enums.UserStatus;
 import com.xclone.user.repository.UserRepository;
 import jakarta.validation.Valid;
 import java.util.UUID;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
 /** Coordinates business layers to perform route logic. */
@@ -25,18 +32,24 @@ import org.springframework.stereotype.Service;
 public class AuthenticationService {
   private final JwtTokenProvider jwtTokenProvider;
   private final UserRepository userRepository;
-  private final PasswordEncoder passwordEncoder;
+  private final PasswordHasher passwordHasher;
   private final RefreshTokenService refreshTokenService;
+  private final LoginThrottle loginThrottle;
+  private final ApplicationEventPublisher eventPublisher;
 
   public AuthenticationService(
       JwtTokenProvider jwtTokenProvider,
       UserRepository userRepository,
-      PasswordEncoder passwordEncoder,
-      RefreshTokenService refreshTokenService) {
+      PasswordHasher passwordHasher,
+      RefreshTokenService refreshTokenService,
+      LoginThrottle loginThrottle,
+      ApplicationEventPublisher eventPublisher) {
     this.jwtTokenProvider = jwtTokenProvider;
     this.userRepository = userRepository;
-    this.passwordEncoder = passwordEncoder;
+    this.passwordHasher = passwordHasher;
     this.refreshTokenService = refreshTokenService;
+    this.loginThrottle = loginThrottle;
+    this.eventPublisher = eventPublisher;
   }
 
   /**
@@ -45,18 +58,24 @@ public class AuthenticationService {
    * <p>This method:
    *
    * <ul>
+   *   <li>Rejects the attempt if the handle or client IP is over its login limit
    *   <li>Validates handle uniqueness
    *   <li>Hashes the raw password before persistence
+   *   <li>Re-encodes the stored hash if its bcrypt cost differs from the current one
    *   <li>Generates a signed JWT access token
    *   <li>Generates and stores a refresh token in Redis
    * </ul>
    *
    * @param request validated login request payload
+   * @param clientIp remote address of the client, used for throttling
    * @return authentication tokens and user metadata
+   * @throws TooManyLoginAttemptsException if the handle or client IP is throttled
    * @throws BadCredentialsException if the user does not exist or the password does not match
+   * @throws HashingCapacityExceededException if the password hashing pool is saturated
    */
-  public AuthTokens login(@Valid LoginRequest request) {
+  public AuthTokens login(@Valid LoginRequest request, String clientIp) {
     log.info("login service called. Validating request.");
+    loginThrottle.acquire(request.handle(), clientIp);
     User user =
         this.userRepository
             .findByHandle(request.handle())
@@ -67,13 +86,13 @@ public class AuthenticationService {
                 });
 
     // Verify password
-    if (!passwordEncoder.matches(request.password(), user.getPasswordHash())) {
+    if (!passwordHasher.matches(request.password(), user.getPasswordHash())) {
       log.warn("login attempted for with an invalid password");
       throw new BadCredentialsException("Invalid credentials");
     }
+    rehashIfCostChanged(user, request.password());
 
-    String accessToken =
-        jwtTokenProvider.createToken(user.getId().toString(), user.getRole().toString());
+    String accessToken = jwtTokenProvider.createToken(user);
     String refreshToken = refreshTokenService.createToken(user.getId().toString());
     log.info("login successful for user {}", user.getId());
     return new AuthTokens(
@@ -84,6 +103,29 @@ public class AuthenticationService {
         user.getProfileImage());
   }
 
+  /**
+   * Re-encodes the password of a user whose stored hash predates the current bcrypt cost. Only
+   * possible at login, while the raw password is at hand. A saturated hashing pool skips the rehash
+   * rather than failing the login; it is retried on a later login.
+   *
+   * <p>The hash is replaced by a targeted update that leaves the user's version alone, rather than
+   * by saving the loaded entity, which could fail the login on a concurrent profile edit. If the
+   * hash changed since it was loaded, the rehash is dropped.
+   */
+  private void rehashIfCostChanged(User user, String rawPassword) {
+    if (!passwordHasher.needsRehash(user.getPasswordHash())) {
+      return;
+    }
+    try {
+      String rehashed = passwordHasher.encode(rawPassword);
+      if (userRepository.replacePasswordHash(user.getId(), user.getPasswordHash(), rehashed) > 0) {
+        log.info("password hash of user {} re-encoded with the current cost", user.getId());
+      }
+    } catch (HashingCapacityExceededException e) {
+      log.debug("skipped password rehash for user {}: hashing pool saturated", user.getId());
+    }
+  }
+
   /**
    * Registers a new user account and issues authentication tokens.
    *
@@ -92,7 +134,7 @@ public class AuthenticationService {
    * <ul>
    *   <li>Validates handle uniqueness
    *   <li>Hashes the raw password before persistence
-   *   <li>Persists the new {@link User}
+   *   <li>Persists the new {@link User} and publishes a {@link UserChangedEvent}
    *   <li>Generates a signed JWT access token
    *   <li>Generates and stores a refresh token in Redis
    * </ul>
@@ -100,6 +142,7 @@ public class AuthenticationService {
    * @param request validated signup request payload
    * @return authentication tokens and user metadata
    * @throws DuplicateHandleException if the handle already exists
+   * @throws HashingCapacityExceededException if the password hashing pool is saturated
    */
   public AuthTokens signup(@Valid SignupRequest request) {
     if (userRepository.existsByHandle(request.handle())) {
@@ -110,7 +153,7 @@ public class AuthenticationService {
     // Create new User
     User newUser = new User();
     newUser.setHandle(request.handle());
-    newUser.setPasswordHash(passwordEncoder.encode(request.password()));
+    newUser.setPasswordHash(passwordHasher.encode(request.password()));
     // Display name is defaulted to handle if not provided
     if (request.displayName() == null) {
       log.info("display name is set as the handle as display name not provided");
@@ -120,10 +163,10 @@ public class AuthenticationService {
       newUser.setDisplayName(request.displayName());
     }
     User savedUser = userRepository.save(newUser);
+    eventPublisher.publishEvent(new UserChangedEvent(savedUser.getId(), ChangeType.CREATED));
 
     // Create access token
-    String accessToken =
-        jwtTokenProvider.createToken(savedUser.getId().toString(), savedUser.getRole().toString());
+    String accessToken = jwtTokenProvider.createToken(savedUser);
 
     // Create refresh token
     String refreshToken = refreshTokenService.createToken(savedUser.getId().toString());
@@ -184,10 +227,10 @@ public class AuthenticationService {
    * <p>This method:
    *
    * <ul>
-   *   <li>Ensures the refresh token exists and is not expired
+   *   <li>Atomically consumes the refresh token and stores its successor, failing if the token does
+   *       not exist or has expired
    *   <li>Validates the associated user exists
-   *   <li>Ensures the user account is {@link UserStatus#ACTIVE}
-   *   <li>Rotates the refresh token (old token removed, new token stored)
+   *   <li>Ensures the user account is {@link UserStatus#ACTIVE}, otherwise revokes the successor
    *   <li>Generates a new signed JWT access token
    * </ul>
    *
@@ -198,15 +241,19 @@ public class AuthenticationService {
    */
   public AuthTokens refresh(String refreshTokenId) {
     log.debug("refresh service called. Validating refresh request");
-    RefreshTokenData tokenData = refreshTokenService.getToken(refreshTokenId);
-    // Check if token expired
-    if (tokenData == null || tokenData.isExpired()) {
-      log.warn("refresh token attempted with an invalid refresh token");
-      throw new InvalidRefreshTokenException("Invalid refresh token");
-    }
+    // Consumes the token and issues its successor in one round trip
+    RotatedRefreshToken rotated =
+        refreshTokenService
+            .rotateToken(refreshTokenId)
+            .orElseThrow(
+                () -> {
+                  log.warn("refresh token attempted with an invalid refresh token");
+                  return new InvalidRefreshTokenException("Invalid refresh token");
+                });
+    String newRefreshTokenId = rotated.tokenId();
 
     // Validates user exists for security
-    String userId = tokenData.userId();
+    String userId = rotated.previous().userId();
     User user =
         userRepository
             .findById(UUID.fromString(userId))
@@ -214,23 +261,19 @@ public class AuthenticationService {
                 () -> {
                   log.warn("Refresh attempted for non-existent user: {}", userId);
                   // Clean up orphaned token
-                  refreshTokenService.removeToken(refreshTokenId);
+                  refreshTokenService.removeToken(newRefreshTokenId);
                   return new UsernameNotFoundException("User not found");
                 });
-    // TODO: Check if user_tokens:user_id contains the refreshTokenId for security
 
     // Check user status (user status has SUSPENDED and DELETED statuses)
     if (user.getStatus() != UserStatus.ACTIVE) {
       log.warn("Refresh attempted for {} user: {}", user.getStatus(), user.getId());
-      refreshTokenService.removeToken(refreshTokenId);
+      refreshTokenService.removeToken(newRefreshTokenId);
       throw new AccountNotActiveException("Account not active");
     }
 
-    // Rotate token once validated
-    String newRefreshTokenId = refreshTokenService.rotateToken(refreshTokenId);
     // Create access token
-    String newAccessToken =
-        jwtTokenProvider.createToken(user.getId().toString(), user.getRole().toString());
+    String newAccessToken = jwtTokenProvider.createToken(user);
     log.info("refreshToken rotated successfully for user {}", userId);
     return new AuthTokens(
         newRefreshTokenId,
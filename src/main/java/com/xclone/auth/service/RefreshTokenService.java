@@ -1,13 +1,19 @@
 package com.xclone.auth.service;
 
 import com.xclone.auth.model.RefreshTokenData;
+import com.xclone.auth.model.RotatedRefreshToken;
 import com.xclone.auth.repository.RefreshTokenRepository;
 import com.xclone.config.AuthProperties;
 import com.xclone.exception.custom.InvalidRefreshTokenException;
-import java.util.UUID;
+import com.xclone.user.event.UserDeactivatedEvent;
+import java.util.List;
+import java.util.Optional;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
 
 /** Provides redis CRUD for refresh tokens. */
+@Slf4j
 @Service
 public class RefreshTokenService {
   private final RefreshTokenRepository refreshTokenRepository;
@@ -19,18 +25,14 @@ public class RefreshTokenService {
     this.authProperties = authProperties;
   }
 
-  private String generateOpaqueKey() {
-    return UUID.randomUUID().toString();
-  }
-
   /**
-   * Creates a UUID string (tokenId) and stores token metadata ({@link RefreshTokenData}) in Redis.
-   * TODO: to refactor this javadoc comment.
+   * Creates a token id tagged for its owner and stores token metadata ({@link RefreshTokenData}) in
+   * Redis.
    *
-   * @return UUID string (tokenId)
+   * @return opaque token id
    */
   public String createToken(String userId) {
-    String tokenId = generateOpaqueKey();
+    String tokenId = RefreshTokenRepository.newTokenId(userId);
     RefreshTokenData metadata = RefreshTokenData.create(userId, this.authProperties);
     this.refreshTokenRepository.save(tokenId, metadata);
     return tokenId;
@@ -43,26 +45,66 @@ public class RefreshTokenService {
   /**
    * Rotates a valid refresh token.
    *
-   * <p>The existing token must be valid and not expired. A new token is generated and stored, and
-   * the old token is removed.
+   * <p>The existing token is consumed and a new token for the same user is stored in a single
+   * atomic Redis operation, so concurrent rotations of one token cannot both succeed. The token is
+   * read first for its owner, which its id does not reveal.
    *
    * @param tokenId existing refresh token identifier
-   * @return new refresh token identifier
-   * @throws InvalidRefreshTokenException if the token is invalid or expired
+   * @return the new token identifier and the consumed token's metadata, or empty if the token does
+   *     not exist or has expired
    */
-  public String rotateToken(String tokenId) {
-    RefreshTokenData token = this.refreshTokenRepository.find(tokenId);
-    if (token.isExpired()) {
-      throw new InvalidRefreshTokenException("Refresh token is invalid");
+  public Optional<RotatedRefreshToken> rotateToken(String tokenId) {
+    String owner;
+    try {
+      owner = refreshTokenRepository.find(tokenId).userId();
+    } catch (InvalidRefreshTokenException e) {
+      return Optional.empty();
+    }
+    String newTokenId = RefreshTokenRepository.newTokenId(owner);
+    RefreshTokenData metadata = RefreshTokenData.create(owner, authProperties);
+    Optional<RefreshTokenData> previous =
+        this.refreshTokenRepository.rotate(tokenId, newTokenId, metadata);
+    if (previous.isEmpty()) {
+      return Optional.empty();
+    }
+    if (previous.get().isExpired()) {
+      removeToken(newTokenId);
+      return Optional.empty();
     }
-    String newTokenId = generateOpaqueKey();
-    RefreshTokenData metadata = RefreshTokenData.create(token.userId(), authProperties);
-    this.refreshTokenRepository.save(newTokenId, metadata);
-    removeToken(tokenId);
-    return newTokenId;
+    return Optional.of(new RotatedRefreshToken(newTokenId, previous.get()));
   }
 
   public void removeToken(String refreshTokenId) {
     this.refreshTokenRepository.delete(refreshTokenId);
   }
+
+  /**
+   * Revokes every refresh token of a user ("log out everywhere") in one server-side script.
+   *
+   * @param userId UUID string of the user
+   * @return number of sessions revoked
+   */
+  public long removeAllTokens(String userId) {
+    long revoked = this.refreshTokenRepository.deleteAllForUser(userId);
+    log.info("revoked {} refresh tokens of user {}", revoked, userId);
+    return revoked;
+  }
+
+  /**
+   * Lists a page of a user's active sessions, most recently issued first.
+   *
+   * @param userId UUID string of the user
+   * @param offset number of sessions to skip
+   * @param limit maximum number of sessions to return
+   * @return metadata of the sessions in this page
+   */
+  public List<RefreshTokenData> getSessions(String userId, int offset, int limit) {
+    return this.refreshTokenRepository.findAllForUser(userId, offset, limit);
+  }
+
+  /** Revokes every session of a suspended or deleted user once the change has committed. */
+  @TransactionalEventListener(fallbackExecution = true)
+  public void onUserDeactivated(UserDeactivatedEvent event) {
+    removeAllTokens(event.userId().toString());
+  }
 }
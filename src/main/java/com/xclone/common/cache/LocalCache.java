@@ -0,0 +1,270 @@
+package com.xclone.common.cache;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+import java.util.function.ToIntFunction;
+import org.dataloader.annotations.VisibleForTesting;
+
+/**
+ * Bounded, in-process cache where every entry lives for at most a fixed time-to-live.
+ *
+ * <p>Entries are held in least-recently-used order and the eldest entries are evicted once {@code
+ * maxSize} is exceeded. By default every entry counts as one towards {@code maxSize}; caches of
+ * values that vary widely in size pass a weigher instead, so that {@code maxSize} bounds their
+ * total weight. Expired entries are dropped lazily on read. A {@link ReentrantLock} guards the map
+ * rather than {@code synchronized} so that virtual threads are never pinned while waiting.
+ *
+ * <p>Publishes {@code cache.gets} (tagged {@code result=hit|miss}), {@code cache.evictions} and
+ * {@code cache.size} meters, each tagged with the cache name, mirroring Micrometer's standard cache
+ * metric names.
+ *
+ * @param <K> key type
+ * @param <V> value type
+ */
+public class LocalCache<K, V> {
+  private final int maxSize;
+  private final ToIntFunction<? super V> weigher;
+  private final long ttlNanos;
+  private final LongSupplier clock;
+  private final ReentrantLock lock = new ReentrantLock();
+  private final LinkedHashMap<K, Entry<V>> entries;
+  private final AtomicLong invalidations = new AtomicLong();
+  private long weight;
+
+  private final Counter hits;
+  private final Counter misses;
+  private final Counter evictions;
+
+  /**
+   * Creates a cache and registers its meters.
+   *
+   * @param name cache name used as the {@code cache} tag on every meter
+   * @param maxSize maximum number of entries held at once
+   * @param ttl time-to-live applied to every entry
+   * @param meterRegistry registry the cache meters are published to
+   */
+  public LocalCache(String name, int maxSize, Duration ttl, MeterRegistry meterRegistry) {
+    this(name, maxSize, ttl, meterRegistry, value -> 1, System::nanoTime);
+  }
+
+  /**
+   * Creates a cache bounded by the total weight of its values and registers its meters.
+   *
+   * @param name cache name used as the {@code cache} tag on every meter
+   * @param maxWeight maximum total weight of the entries held at once
+   * @param ttl time-to-live applied to every entry
+   * @param meterRegistry registry the cache meters are published to
+   * @param weigher weight of a value; at least 1
+   */
+  public LocalCache(
+      String name,
+      int maxWeight,
+      Duration ttl,
+      MeterRegistry meterRegistry,
+      ToIntFunction<? super V> weigher) {
+    this(name, maxWeight, ttl, meterRegistry, weigher, System::nanoTime);
+  }
+
+  @VisibleForTesting
+  LocalCache(
+      String name, int maxSize, Duration ttl, MeterRegistry meterRegistry, LongSupplier clock) {
+    this(name, maxSize, ttl, meterRegistry, value -> 1, clock);
+  }
+
+  @VisibleForTesting
+  LocalCache(
+      String name,
+      int maxSize,
+      Duration ttl,
+      MeterRegistry meterRegistry,
+      ToIntFunction<? super V> weigher,
+      LongSupplier clock) {
+    this.maxSize = maxSize;
+    this.weigher = weigher;
+    this.ttlNanos = ttl.toNanos();
+    this.clock = clock;
+    this.entries = new LinkedHashMap<>(16, 0.75f, true);
+    this.hits = meterRegistry.counter("cache.gets", "cache", name, "result", "hit");
+    this.misses = meterRegistry.counter("cache.gets", "cache", name, "result", "miss");
+    this.evictions = meterRegistry.counter("cache.evictions", "cache", name);
+    Gauge.builder("cache.size", this, LocalCache::size).tag("cache", name).register(meterRegistry);
+  }
+
+  /**
+   * Returns the cached value for {@code key}, or {@code null} if it is absent or expired.
+   *
+   * @param key cache key
+   * @return cached value or {@code null}
+   */
+  public V get(K key) {
+    lock.lock();
+    try {
+      Entry<V> entry = entries.get(key);
+      if (entry == null) {
+        misses.increment();
+        return null;
+      }
+      if (entry.expiresAtNanos() - clock.getAsLong() <= 0) {
+        remove(key);
+        evictions.increment();
+        misses.increment();
+        return null;
+      }
+      hits.increment();
+      return entry.value();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Returns the cached value for {@code key}, loading and caching it on a miss. The loader runs
+   * outside the lock; a {@code null} result is returned but not cached.
+   *
+   * <p>If the cache is invalidated while the loader runs, the loaded value is returned to the
+   * caller but not stored, so a read that raced a write cannot repopulate the cache with stale
+   * data.
+   *
+   * @param key cache key
+   * @param loader computes the value on a miss
+   * @return cached or freshly loaded value
+   */
+  public V get(K key, Function<? super K, ? extends V> loader) {
+    V cached = get(key);
+    if (cached != null) {
+      return cached;
+    }
+    long stamp = invalidationStamp();
+    V loaded = loader.apply(key);
+    if (loaded != null) {
+      putIfNotInvalidated(key, loaded, stamp);
+    }
+    return loaded;
+  }
+
+  /**
+   * Returns a stamp that changes whenever an entry is invalidated. Callers that load values
+   * themselves take a stamp before loading and store the result with {@link #putIfNotInvalidated},
+   * as {@link #get(Object, Function)} does.
+   *
+   * @return the current invalidation stamp
+   */
+  public long invalidationStamp() {
+    return invalidations.get();
+  }
+
+  /**
+   * Stores {@code value} under {@code key} unless the cache has been invalidated since {@code
+   * stamp} was taken, in which case the value may already be stale.
+   *
+   * @param key cache key
+   * @param value value to cache
+   * @param stamp stamp taken with {@link #invalidationStamp()} before the value was loaded
+   */
+  public void putIfNotInvalidated(K key, V value, long stamp) {
+    lock.lock();
+    try {
+      if (stamp == invalidations.get()) {
+        store(key, value, ttlNanos);
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Stores {@code value} under {@code key}, replacing any existing entry.
+   *
+   * @param key cache key
+   * @param value value to cache
+   */
+  public void put(K key, V value) {
+    put(key, value, ttlNanos);
+  }
+
+  /**
+   * Stores {@code value} under {@code key} for at most {@code ttl}. The cache-wide time-to-live
+   * still applies when it is shorter, e.g. when an entry must not outlive the data it was derived
+   * from.
+   *
+   * @param key cache key
+   * @param value value to cache
+   * @param ttl upper bound on the entry's lifetime
+   */
+  public void put(K key, V value, Duration ttl) {
+    put(key, value, Math.min(ttlNanos, ttl.toNanos()));
+  }
+
+  private void put(K key, V value, long entryTtlNanos) {
+    lock.lock();
+    try {
+      store(key, value, entryTtlNanos);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /** Stores an entry, then evicts the least recently used entries while over the bound. */
+  private void store(K key, V value, long entryTtlNanos) {
+    int entryWeight = Math.max(1, weigher.applyAsInt(value));
+    Entry<V> previous =
+        entries.put(key, new Entry<>(value, clock.getAsLong() + entryTtlNanos, entryWeight));
+    weight += entryWeight - (previous == null ? 0 : previous.weight());
+    Iterator<Entry<V>> eldest = entries.values().iterator();
+    while (weight > maxSize && eldest.hasNext()) {
+      weight -= eldest.next().weight();
+      eldest.remove();
+      evictions.increment();
+    }
+  }
+
+  private void remove(K key) {
+    Entry<V> removed = entries.remove(key);
+    if (removed != null) {
+      weight -= removed.weight();
+    }
+  }
+
+  /** Removes the entry for {@code key}, if present. */
+  public void invalidate(K key) {
+    lock.lock();
+    try {
+      invalidations.incrementAndGet();
+      remove(key);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /** Removes every entry. */
+  public void invalidateAll() {
+    lock.lock();
+    try {
+      invalidations.incrementAndGet();
+      entries.clear();
+      weight = 0;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /** Number of entries currently held, including expired entries not yet dropped. */
+  public int size() {
+    lock.lock();
+    try {
+      return entries.size();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private record Entry<V>(V value, long expiresAtNanos, int weight) {}
+}
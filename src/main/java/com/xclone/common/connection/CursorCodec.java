@@ -0,0 +1,120 @@
+package com.xclone.common.connection;
+
+import com.xclone.config.ConnectionProperties;
+import com.xclone.exception.custom.InvalidCursorException;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.Base64;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import org.springframework.stereotype.Component;
+
+/**
+ * Turns connection sort keys into opaque cursors and back.
+ *
+ * <p>A cursor is the URL-safe Base64 encoding of a version byte, the key as written by its {@link
+ * CursorType}, and a truncated HMAC-SHA256 tag over the version, the cursor type name and the key.
+ * Clients can read the key but cannot alter it, nor replay a cursor against another connection,
+ * without the tag failing to verify.
+ */
+@Component
+public class CursorCodec {
+  private static final byte VERSION = 1;
+  private static final int TAG_LENGTH = 16;
+  private static final String ALGORITHM = "HmacSHA256";
+  private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+
+  private final SecretKeySpec key;
+
+  /** Constructor; derives the signing key from {@link ConnectionProperties#getCursorSecret()}. */
+  public CursorCodec(ConnectionProperties properties) {
+    String secret = properties.getCursorSecret();
+    if (secret == null || secret.isBlank()) {
+      throw new IllegalStateException("app.connection.cursor-secret must be set");
+    }
+    this.key = new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), ALGORITHM);
+  }
+
+  /**
+   * Encodes {@code key} as a signed cursor of the given type.
+   *
+   * @param type the connection the cursor belongs to
+   * @param key sort key of the edge
+   * @return opaque cursor string
+   */
+  public <K> String encode(CursorType<K> type, K key) {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream(48);
+    bytes.write(VERSION);
+    try {
+      type.write(key, new DataOutputStream(bytes));
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    byte[] payload = bytes.toByteArray();
+    byte[] cursor = Arrays.copyOf(payload, payload.length + TAG_LENGTH);
+    System.arraycopy(tag(type, payload), 0, cursor, payload.length, TAG_LENGTH);
+    return ENCODER.encodeToString(cursor);
+  }
+
+  /**
+   * Decodes a cursor issued by {@link #encode} for the same type.
+   *
+   * @param type the connection the cursor is expected to belong to
+   * @param cursor cursor string supplied by the client
+   * @param argument name of the argument the cursor was passed in, reported on failure
+   * @return the sort key carried by the cursor
+   * @throws InvalidCursorException if the cursor is malformed, was tampered with, or belongs to
+   *     another connection
+   */
+  public <K> K decode(CursorType<K> type, String cursor, String argument) {
+    byte[] bytes;
+    try {
+      bytes = Base64.getUrlDecoder().decode(cursor);
+    } catch (IllegalArgumentException e) {
+      throw invalid(argument);
+    }
+    if (bytes.length <= 1 + TAG_LENGTH || bytes[0] != VERSION) {
+      throw invalid(argument);
+    }
+    byte[] payload = Arrays.copyOf(bytes, bytes.length - TAG_LENGTH);
+    byte[] expected = Arrays.copyOf(tag(type, payload), TAG_LENGTH);
+    if (!MessageDigest.isEqual(expected, Arrays.copyOfRange(bytes, payload.length, bytes.length))) {
+      throw invalid(argument);
+    }
+    ByteArrayInputStream in = new ByteArrayInputStream(payload, 1, payload.length - 1);
+    K decoded;
+    try {
+      decoded = type.read(new DataInputStream(in));
+    } catch (IOException e) {
+      throw invalid(argument);
+    }
+    if (in.available() != 0) {
+      throw invalid(argument);
+    }
+    return decoded;
+  }
+
+  private byte[] tag(CursorType<?> type, byte[] payload) {
+    try {
+      Mac mac = Mac.getInstance(ALGORITHM);
+      mac.init(key);
+      mac.update(type.name().getBytes(StandardCharsets.UTF_8));
+      mac.update((byte) 0);
+      return mac.doFinal(payload);
+    } catch (GeneralSecurityException e) {
+      throw new IllegalStateException("HmacSHA256 unavailable", e);
+    }
+  }
+
+  private static InvalidCursorException invalid(String argument) {
+    return new InvalidCursorException("Invalid cursor", argument);
+  }
+}
@@ -0,0 +1,71 @@
+package com.xclone.common.connection;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * The sort key of one kind of keyset-paginated connection and how it is written into a cursor.
+ *
+ * <p>The {@link #name()} is signed into every cursor, so a cursor issued by one connection is
+ * rejected by another even if their keys happen to have the same layout. Keys must identify a
+ * single row, typically by ending with the row id.
+ *
+ * @param <K> sort key type
+ */
+public interface CursorType<K> {
+  /** Name distinguishing this connection's cursors from every other connection's. */
+  String name();
+
+  /** Writes the fields of {@code key}. */
+  void write(K key, DataOutput out) throws IOException;
+
+  /**
+   * Reads a key written by {@link #write}. Implementations should reject values that {@link #write}
+   * could not have produced by throwing {@link IOException}.
+   */
+  K read(DataInput in) throws IOException;
+
+  /**
+   * Cursor type for connections ordered by a timestamp and then by id, such as posts, followers and
+   * notifications.
+   *
+   * @param name name distinguishing the connection
+   * @return a cursor type for {@link TimeIdKey}s
+   */
+  static CursorType<TimeIdKey> timeId(String name) {
+    return new CursorType<>() {
+      @Override
+      public String name() {
+        return name;
+      }
+
+      @Override
+      public void write(TimeIdKey key, DataOutput out) throws IOException {
+        out.writeLong(key.at().getEpochSecond());
+        out.writeInt(key.at().getNano());
+        out.writeLong(key.id().getMostSignificantBits());
+        out.writeLong(key.id().getLeastSignificantBits());
+      }
+
+      @Override
+      public TimeIdKey read(DataInput in) throws IOException {
+        long seconds = in.readLong();
+        int nanos = in.readInt();
+        if (nanos < 0 || nanos > 999_999_999) {
+          throw new IOException("nanos out of range");
+        }
+        Instant at;
+        try {
+          at = Instant.ofEpochSecond(seconds, nanos);
+        } catch (DateTimeException e) {
+          throw new IOException(e);
+        }
+        return new TimeIdKey(at, new UUID(in.readLong(), in.readLong()));
+      }
+    };
+  }
+}
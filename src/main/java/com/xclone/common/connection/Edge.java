@@ -0,0 +1,10 @@
+package com.xclone.common.connection;
+
+/**
+ * A row of a connection page together with the cursor addressing its position.
+ *
+ * @param node the row
+ * @param cursor opaque cursor of the row, see {@link CursorCodec}
+ * @param <T> row type
+ */
+public record Edge<T>(T node, String cursor) {}
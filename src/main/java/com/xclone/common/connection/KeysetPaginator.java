@@ -0,0 +1,105 @@
+package com.xclone.common.connection;
+
+import com.xclone.config.ConnectionProperties;
+import java.util.List;
+import java.util.function.Function;
+import org.springframework.stereotype.Component;
+
+/**
+ * Keyset (cursor) pagination for Relay connections.
+ *
+ * <p>Resolvers turn the Relay arguments into a {@link PageRequest} with {@link #request}, query
+ * {@link PageRequest#fetchSize()} rows strictly after (or, paging backward, before) the request's
+ * cursor in the connection's order, and hand the rows to {@link #page} to build the edges and
+ * {@link PageInfo}. Because each page seeks from the previous page's last key rather than skipping
+ * an offset, every page costs the same as the first, and rows inserted meanwhile neither repeat nor
+ * go missing.
+ */
+@Component
+public class KeysetPaginator {
+  private static final String AFTER = "after";
+  private static final String BEFORE = "before";
+
+  private final CursorCodec cursorCodec;
+  private final ConnectionProperties properties;
+
+  /** Constructor; assigns components for internal use. */
+  public KeysetPaginator(CursorCodec cursorCodec, ConnectionProperties properties) {
+    this.cursorCodec = cursorCodec;
+    this.properties = properties;
+  }
+
+  /**
+   * Validates the Relay paging arguments of a connection field. Pages are read forward unless only
+   * {@code last} is given; the cursor argument of the other direction is then ignored. Page sizes
+   * are clamped to {@link ConnectionProperties#getMaxPageSize()}.
+   *
+   * @param type the connection being paged
+   * @param first forward page size, or {@code null}
+   * @param after cursor to read forward from, or {@code null} for the start
+   * @param last backward page size, or {@code null}
+   * @param before cursor to read backward from, or {@code null} for the end
+   * @return the page to query
+   * @throws com.xclone.exception.custom.InvalidCursorException if the cursor in use was not issued
+   *     for this connection
+   */
+  public <K> PageRequest<K> request(
+      CursorType<K> type, Integer first, String after, Integer last, String before) {
+    if (last != null && first == null) {
+      K cursor = before == null ? null : cursorCodec.decode(type, before, BEFORE);
+      return new PageRequest<>(PageRequest.Direction.BACKWARD, pageSize(last), cursor);
+    }
+    K cursor = after == null ? null : cursorCodec.decode(type, after, AFTER);
+    return new PageRequest<>(PageRequest.Direction.FORWARD, pageSize(first), cursor);
+  }
+
+  /**
+   * Validates the arguments of a connection field that only pages forward.
+   *
+   * @see #request(CursorType, Integer, String, Integer, String)
+   */
+  public <K> PageRequest<K> forward(CursorType<K> type, Integer first, String after) {
+    return request(type, first, after, null, null);
+  }
+
+  /**
+   * Builds a page from the rows queried for {@code request}, in query order: the connection's order
+   * for a forward request and the reverse for a backward one. Up to {@link PageRequest#fetchSize()}
+   * rows are expected; a row beyond the limit only signals that another page exists.
+   *
+   * <p>The opposite direction is reported to have a page whenever the request started from a
+   * cursor. That row is not re-checked, as it may since have been deleted.
+   *
+   * @param type the connection being paged
+   * @param request the request the rows were queried for
+   * @param rows queried rows
+   * @param keyOf extracts the sort key of a row
+   * @return the page, in the connection's order
+   */
+  public <T, K> Page<T> page(
+      CursorType<K> type, PageRequest<K> request, List<T> rows, Function<? super T, K> keyOf) {
+    boolean more = rows.size() > request.limit();
+    List<T> window = more ? rows.subList(0, request.limit()) : rows;
+    if (!request.isForward()) {
+      window = window.reversed();
+    }
+    List<Edge<T>> edges =
+        window.stream()
+            .map(row -> new Edge<>(row, cursorCodec.encode(type, keyOf.apply(row))))
+            .toList();
+    boolean fromCursor = request.cursor() != null;
+    PageInfo pageInfo =
+        new PageInfo(
+            request.isForward() ? more : fromCursor,
+            request.isForward() ? fromCursor : more,
+            edges.isEmpty() ? null : edges.getFirst().cursor(),
+            edges.isEmpty() ? null : edges.getLast().cursor());
+    return new Page<>(edges, pageInfo);
+  }
+
+  private int pageSize(Integer requested) {
+    return requested == null
+        ? properties.getDefaultPageSize()
+        : Math.clamp(requested, 1, properties.getMaxPageSize());
+  }
+}
@@ -0,0 +1,33 @@
+package com.xclone.common.connection;
+
+import java.util.List;
+import java.util.function.BiFunction;
+
+/**
+ * One page of a connection: its edges in connection order and the page metadata.
+ *
+ * @param edges rows of the page with their cursors
+ * @param pageInfo whether further pages exist, and the cursors to fetch them from
+ * @param <T> row type
+ */
+public record Page<T>(List<Edge<T>> edges, PageInfo pageInfo) {
+
+  /** A page without rows or further pages. */
+  public static <T> Page<T> empty() {
+    return new Page<>(List.of(), new PageInfo(false, false, null, null));
+  }
+
+  /**
+   * Converts the edges into a connection's own edge type.
+   *
+   * @param edgeFactory builds an edge from a row and its cursor
+   * @return converted edges, in order
+   */
+  public <E> List<E> mapEdges(BiFunction<? super T, String, E> edgeFactory) {
+    return edges.stream().map(edge -> edgeFactory.apply(edge.node(), edge.cursor())).toList();
+  }
+
+  public int size() {
+    return edges.size();
+  }
+}
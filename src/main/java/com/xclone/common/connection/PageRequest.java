@@ -0,0 +1,34 @@
+package com.xclone.common.connection;
+
+/**
+ * A validated page request against a keyset-ordered connection.
+ *
+ * <p>A forward request reads the {@link #limit()} rows after {@link #cursor()} in the connection's
+ * order; a backward request reads the rows before it, and must be queried in the reverse order so
+ * that the rows nearest the cursor come first. Either way one extra row, {@link #fetchSize()}, is
+ * queried to find out whether more rows exist beyond the page.
+ *
+ * @param direction which side of the cursor to read
+ * @param limit number of rows in the page
+ * @param cursor decoded sort key to page from, or {@code null} to start at the connection's end
+ * @param <K> sort key type
+ */
+public record PageRequest<K>(Direction direction, int limit, K cursor) {
+
+  /** Side of the cursor a page is read from. */
+  public enum Direction {
+    /** Rows after the cursor, from {@code first} and {@code after}. */
+    FORWARD,
+    /** Rows before the cursor, from {@code last} and {@code before}. */
+    BACKWARD
+  }
+
+  /** Number of rows to query: the page plus one to detect a further page. */
+  public int fetchSize() {
+    return limit + 1;
+  }
+
+  public boolean isForward() {
+    return direction == Direction.FORWARD;
+  }
+}
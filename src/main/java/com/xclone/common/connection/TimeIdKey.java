@@ -0,0 +1,16 @@
+package com.xclone.common.connection;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Keyset position in a connection ordered by a timestamp, with the row id breaking ties.
+ *
+ * @param at timestamp of the row, e.g. its creation time
+ * @param id id of the row
+ */
+public record TimeIdKey(Instant at, UUID id) {
+  /** Position before every row of a newest-first connection: later than any stored timestamp. */
+  public static final TimeIdKey LATEST =
+      new TimeIdKey(Instant.parse("9999-12-31T23:59:59.999999Z"), new UUID(-1L, -1L));
+}
@@ -0,0 +1,83 @@
+package com.xclone.common.connection;
+
+import com.xclone.common.cache.LocalCache;
+import com.xclone.config.CacheProperties;
+import com.xclone.config.ConnectionProperties;
+import graphql.schema.DataFetchingFieldSelectionSet;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Duration;
+import java.util.function.LongSupplier;
+import org.springframework.stereotype.Component;
+
+/**
+ * Computes the {@code totalCount} of connections, only when a client asks for it.
+ *
+ * <p>Resolvers check {@link #isRequested} against their field's selection set and skip the count
+ * query altogether when {@code totalCount} is not selected. Totals of at least {@link
+ * ConnectionProperties#getExactCountThreshold()} are cached per connection and owner, so a popular
+ * account's follower count is not recounted on every page; such totals are approximate by up to the
+ * cache TTL. Smaller totals are cheap to count and always exact.
+ */
+@Component
+public class TotalCounter {
+  static final String FIELD = "totalCount";
+
+  private final long exactCountThreshold;
+  private final LocalCache<CountKey, Long> counts;
+
+  /** Constructor; assigns components for internal use and creates the count cache. */
+  public TotalCounter(
+      ConnectionProperties connectionProperties,
+      CacheProperties cacheProperties,
+      MeterRegistry meterRegistry) {
+    this.exactCountThreshold = connectionProperties.getExactCountThreshold();
+    CacheProperties.Spec spec = cacheProperties.getConnectionCount();
+    this.counts =
+        new LocalCache<>(
+            "connection-count",
+            spec.getMaxSize(),
+            Duration.ofSeconds(spec.getTtlSeconds()),
+            meterRegistry);
+  }
+
+  /**
+   * Whether a connection field's selection set includes {@code totalCount}.
+   *
+   * @param selectionSet selection set of the connection field, or {@code null} outside GraphQL
+   * @return {@code true} if the total should be computed
+   */
+  public static boolean isRequested(DataFetchingFieldSelectionSet selectionSet) {
+    return selectionSet != null && selectionSet.contains(FIELD);
+  }
+
+  /**
+   * Returns the total for a connection, from the cache if a large total was counted recently.
+   *
+   * @param type the connection being counted
+   * @param scope what the connection belongs to, e.g. the followed user's id; must implement {@code
+   *     equals}
+   * @param exactCount runs the count query
+   * @return the total, saturated at {@link Integer#MAX_VALUE}
+   */
+  public int count(CursorType<?> type, Object scope, LongSupplier exactCount) {
+    CountKey key = new CountKey(type.name(), scope);
+    Long cached = counts.get(key);
+    long total = cached != null ? cached : exactCount.getAsLong();
+    if (cached == null && total >= exactCountThreshold) {
+      counts.put(key, total);
+    }
+    return (int) Math.min(total, Integer.MAX_VALUE);
+  }
+
+  /**
+   * Drops a cached total, e.g. after a write that changed it noticeably.
+   *
+   * @param type the connection
+   * @param scope what the connection belongs to
+   */
+  public void invalidate(CursorType<?> type, Object scope) {
+    counts.invalidate(new CountKey(type.name(), scope));
+  }
+
+  private record CountKey(String connection, Object scope) {}
+}
@@ -23,4 +23,44 @@ public class AuthProperties {
    * local dev.
    */
   private boolean secureCookies = true;
+
+  /**
+   * Whether access tokens carry handle, status and security epoch claims so that requests are
+   * authenticated from the token alone, without a database read. Revocation then relies on the
+   * per-user security epoch mirrored from Redis. Default: false
+   */
+  private boolean statelessPrincipal = false;
+
+  /**
+   * Number of threads hashing and matching passwords. Values below 1 use the number of available
+   * processors. Default: 0
+   */
+  private int passwordHashThreads = 0;
+
+  /**
+   * Maximum number of hashing requests waiting for a thread; further requests are rejected with a
+   * 503. Default: 64
+   */
+  private int passwordHashQueueCapacity = 64;
+
+  /**
+   * Fixed bcrypt cost for new password hashes. Values below 4 use the cost shared through Redis,
+   * calibrated against {@code passwordHashTargetMillis} by the first node to start. Default: 0
+   */
+  private int passwordHashCost = 0;
+
+  /** Latency budget for one password hash on one core when calibrating. Default: 50 ms */
+  private int passwordHashTargetMillis = 50;
+
+  /** Lowest bcrypt cost calibration may choose, whatever the hardware. Default: 10 */
+  private int passwordHashMinCost = 10;
+
+  /** Length of the sliding window login attempts are counted over. Default: 60 seconds */
+  private int loginThrottleWindowSeconds = 60;
+
+  /** Login attempts allowed per handle from one client IP within the window. Default: 10 */
+  private int loginMaxAttemptsPerHandleAndIp = 10;
+
+  /** Login attempts allowed per client IP within the window. Default: 50 */
+  private int loginMaxAttemptsPerIp = 50;
 }
@@ -0,0 +1,26 @@
+package com.xclone.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Configuration properties for the in-memory user autocomplete index. Binds properties with the
+ * prefix {@code app.autocomplete} from the application configuration into a strongly typed object.
+ */
+@Configuration
+@ConfigurationProperties(prefix = "app.autocomplete")
+@Data
+public class AutocompleteProperties {
+  /**
+   * Whether the index is loaded and used. When disabled, or until loading finishes, suggestions are
+   * served from the database. Default: true
+   */
+  private boolean enabled = true;
+
+  /**
+   * Number of user changes held beside the indexed snapshot before they are merged into a new one.
+   * Every lookup scans the pending changes. Default: 10000
+   */
+  private int compactThreshold = 10000;
+}
@@ -0,0 +1,72 @@
+package com.xclone.config;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Configuration properties for in-process caches. Binds properties with the prefix {@code
+ * app.cache} from the application configuration into a strongly typed object.
+ */
+@Configuration
+@ConfigurationProperties(prefix = "app.cache")
+@Data
+public class CacheProperties {
+  /**
+   * Authenticated principals keyed by user id. The TTL bounds how long another node may serve a
+   * principal after a change it was not told about. Default: 10000 entries, 60 seconds
+   */
+  private Spec principal = new Spec(10000, 60);
+
+  /**
+   * Access tokens whose signature has already been verified, keyed by token digest. Entries never
+   * outlive the token itself. Default: 10000 entries, 900 seconds
+   */
+  private Spec verifiedToken = new Spec(10000, 900);
+
+  /**
+   * Login throttle keys (handle or client IP) known to be over their limit, so that further
+   * attempts are rejected without asking Redis. Entries expire when the window frees a slot; the
+   * TTL is only an upper bound. Default: 10000 entries, 3600 seconds
+   */
+  private Spec loginBlock = new Spec(10000, 3600);
+
+  /**
+   * Connection totals of at least {@link ConnectionProperties#getExactCountThreshold()}, keyed by
+   * connection and owner. Such totals may lag behind the data by up to the TTL. Default: 10000
+   * entries, 30 seconds
+   */
+  private Spec connectionCount = new Spec(10000, 30);
+
+  /**
+   * Public user profiles held on each node, keyed by user id; also sizes the handle-to-id map.
+   * Changes made on other nodes arrive over Redis pub/sub, so the TTL only bounds staleness when a
+   * message is lost. Default: 10000 entries, 60 seconds
+   */
+  private Spec profile = new Spec(10000, 60);
+
+  /** Lifetime in seconds of profiles in the shared Redis cache. Default: 3600 */
+  private int sharedProfileTtlSeconds = 3600;
+
+  /**
+   * Sets of the users each viewer follows, keyed by viewer id, answering {@code User.isFollowing}.
+   * The size bounds the followed ids held across all sets, at 16 bytes each, not the number of
+   * viewers. Follows made on other nodes arrive over Redis pub/sub, so the TTL only bounds
+   * staleness when a message is lost. Default: 1000000 ids (about 16 MB), 300 seconds
+   */
+  private Spec followingSet = new Spec(1_000_000, 300);
+
+  /** Size and lifetime settings for a single cache. */
+  @Data
+  @NoArgsConstructor
+  @AllArgsConstructor
+  public static class Spec {
+    /** Maximum number of entries held at once, or total weight for caches that weigh them. */
+    private int maxSize;
+
+    /** Lifetime of an entry in seconds. */
+    private int ttlSeconds;
+  }
+}
@@ -0,0 +1,32 @@
+package com.xclone.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Configuration properties for Relay connection paging. Binds properties with the prefix {@code
+ * app.connection} from the application configuration into a strongly typed object.
+ */
+@Configuration
+@ConfigurationProperties(prefix = "app.connection")
+@Data
+public class ConnectionProperties {
+  /**
+   * Secret used to sign pagination cursors, so that clients cannot forge a position. Rotating it
+   * invalidates every cursor issued so far.
+   */
+  private String cursorSecret;
+
+  /** Page size used when a client gives neither {@code first} nor {@code last}. Default: 20 */
+  private int defaultPageSize = 20;
+
+  /** Largest page size a client may request; larger requests are clamped. Default: 50 */
+  private int maxPageSize = 50;
+
+  /**
+   * Totals below this are counted on every request that selects {@code totalCount}; larger ones are
+   * cached, see {@link CacheProperties#getConnectionCount()}. Default: 1000
+   */
+  private long exactCountThreshold = 1000;
+}
@@ -0,0 +1,26 @@
+package com.xclone.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Configuration properties for the in-memory follow graph. Binds properties with the prefix {@code
+ * app.follow-graph} from the application configuration into a strongly typed object.
+ */
+@Configuration
+@ConfigurationProperties(prefix = "app.follow-graph")
+@Data
+public class FollowGraphProperties {
+  /**
+   * Whether the graph is loaded and kept up to date. When disabled, or until loading finishes,
+   * graph queries must be answered from the database. Default: true
+   */
+  private boolean enabled = true;
+
+  /**
+   * Number of changed follows held beside the graph snapshot before they are merged into a new one.
+   * Default: 10000
+   */
+  private int compactThreshold = 10000;
+}
@@ -0,0 +1,36 @@
+package com.xclone.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Configuration properties for follows and the follower counters. Binds properties with the prefix
+ * {@code app.follow} from the application configuration into a strongly typed object.
+ */
+@Configuration
+@ConfigurationProperties(prefix = "app.follow")
+@Data
+public class FollowProperties {
+  /**
+   * Maximum number of counter rows written per JDBC batch when pending increments are flushed.
+   * Default: 500
+   */
+  private int counterBatchSize = 500;
+
+  /** Number of users recounted per statement by the reconciliation job. Default: 1000 */
+  private int reconcileChunkSize = 1000;
+
+  /**
+   * Milliseconds the reconciliation job waits for every node to flush its pending increments before
+   * recounting a chunk. Chunks whose flush is not confirmed in time are skipped until the next run.
+   * Default: 5000
+   */
+  private long reconcileFlushTimeoutMs = 5000;
+
+  /**
+   * Largest number of followed users cached as a set per viewer. Viewers who follow more are
+   * answered with one membership query per page instead. Default: 5000
+   */
+  private int followingSetMaxSize = 5000;
+}
@@ -0,0 +1,32 @@
+package com.xclone.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Configuration properties for follow suggestions. Binds properties with the prefix {@code
+ * app.follow-suggestions} from the application configuration into a strongly typed object.
+ */
+@Configuration
+@ConfigurationProperties(prefix = "app.follow-suggestions")
+@Data
+public class FollowSuggestionProperties {
+  /** Whether suggestions are scored. When disabled no users are suggested. Default: true */
+  private boolean enabled = true;
+
+  /** Number of suggestions kept per viewer. Default: 20 */
+  private int perUser = 20;
+
+  /**
+   * Number of viewers whose suggestions are kept and rescored on each refresh; further viewers are
+   * scored on every request. Each costs about 300 bytes. Default: 100000
+   */
+  private int maxViewers = 100_000;
+
+  /**
+   * Seconds since a viewer last asked for suggestions after which they are no longer rescored on
+   * each refresh. Default: 86400 (1 day)
+   */
+  private long viewerTtlSeconds = 86_400;
+}
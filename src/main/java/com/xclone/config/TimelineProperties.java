@@ -0,0 +1,54 @@
+package com.xclone.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Configuration properties for the home timelines kept in Redis. Binds properties with the prefix
+ * {@code app.timeline} from the application configuration into a strongly typed object.
+ */
+@Configuration
+@ConfigurationProperties(prefix = "app.timeline")
+@Data
+public class TimelineProperties {
+  /**
+   * Number of posts kept per home timeline; older posts are trimmed and paged from the database.
+   * Default: 800
+   */
+  private int maxSize = 800;
+
+  /** Seconds an unread home timeline is kept before it expires. Default: 1209600 (14 days) */
+  private long ttlSeconds = 1_209_600;
+
+  /** Number of follower timelines written per pipelined Redis round trip. Default: 500 */
+  private int fanoutBatchSize = 500;
+
+  /** Number of threads fanning out new posts. Default: 2 */
+  private int fanoutThreads = 2;
+
+  /**
+   * Number of fan-outs waiting for a thread before further ones are set aside for retry. Default:
+   * 10000
+   */
+  private int fanoutQueueCapacity = 10_000;
+
+  /** Number of fan-outs set aside for retry before further ones are dropped. Default: 100000 */
+  private int fanoutRetryCapacity = 100_000;
+
+  /** Number of an account's newest posts added to a timeline when it is followed. Default: 50 */
+  private int backfillSize = 50;
+
+  /**
+   * Number of followers from which an account's posts are no longer fanned out to its followers'
+   * timelines, but kept in an author timeline and merged into their feeds when read. 0 fans out
+   * every post. Default: 10000
+   */
+  private long pullFollowerThreshold = 10_000;
+
+  /**
+   * Number of followers below which a pulled account's posts are fanned out again; capped at {@link
+   * #pullFollowerThreshold}. Default: 8000
+   */
+  private long pullExitFollowerThreshold = 8_000;
+}
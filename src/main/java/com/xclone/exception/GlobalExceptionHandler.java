@@ -2,7 +2,9 @@ package com.xclone.exception;
 
 import com.xclone.exception.custom.AccountNotActiveException;
 import com.xclone.exception.custom.DuplicateHandleException;
+import com.xclone.exception.custom.HashingCapacityExceededException;
 import com.xclone.exception.custom.InvalidRefreshTokenException;
+import com.xclone.exception.custom.TooManyLoginAttemptsException;
 import com.xclone.exception.dto.ErrorResponse;
 import com.xclone.exception.dto.FieldError;
 import com.xclone.exception.dto.ValidationErrorResponse;
@@ -84,6 +86,40 @@ public class GlobalExceptionHandler
         .body(new ErrorResponse(ex.getMessage()));
   }
 
+  /**
+   * Handles {@link HashingCapacityExceededException} by returning a 503 (Service Unavailable)
+   * response with a {@code Retry-After} header, so that clients back off during a login burst.
+   *
+   * @param ex the thrown exception
+   * @param request the current web request
+   * @return a {@link ResponseEntity} containing the error details
+   */
+  @ExceptionHandler(HashingCapacityExceededException.class)
+  public ResponseEntity<ErrorResponse> handleHashingCapacityExceededException(
+      HashingCapacityExceededException ex, WebRequest request) {
+    log.warn("Password hashing saturated - Path: {}", request.getDescription(false));
+    return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE.value())
+        .header(HttpHeaders.RETRY_AFTER, "1")
+        .body(new ErrorResponse(ex.getMessage()));
+  }
+
+  /**
+   * Handles {@link TooManyLoginAttemptsException} by returning a 429 (Too Many Requests) response
+   * with a {@code Retry-After} header set to when the window admits another attempt.
+   *
+   * @param ex the thrown exception
+   * @param request the current web request
+   * @return a {@link ResponseEntity} containing the error details
+   */
+  @ExceptionHandler(TooManyLoginAttemptsException.class)
+  public ResponseEntity<ErrorResponse> handleTooManyLoginAttemptsException(
+      TooManyLoginAttemptsException ex, WebRequest request) {
+    log.debug("Login throttled - Path: {}", request.getDescription(false));
+    return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS.value())
+        .header(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getRetryAfterSeconds()))
+        .body(new ErrorResponse(ex.getMessage()));
+  }
+
   /**
    * Handles {@link BadCredentialsException} {@link UsernameNotFoundException} by returning a 401
    * (Unauthorized) response containing the error message.
@@ -1,6 +1,10 @@
 package com.xclone.exception;
 
 import com.xclone.exception.custom.DuplicateHandleException;
+import com.xclone.exception.custom.PostNotFoundException;
+import com.xclone.exception.custom.ProfileVersionConflictException;
+import com.xclone.exception.custom.SelfFollowException;
+import com.xclone.exception.custom.UserNotFoundException;
 import com.xclone.exception.dto.FieldError;
 import jakarta.validation.ConstraintViolation;
 import jakarta.validation.ConstraintViolationException;
@@ -46,6 +50,47 @@ public class GraphQlErrorMapper {
     return List.of(new FieldError("handle", ex.getMessage()));
   }
 
+  /**
+   * Maps a {@link ProfileVersionConflictException} raised for the {@code expectedVersion} argument
+   * of a profile edit.
+   *
+   * @param ex exception whose message is used as the field-level error message
+   * @return a list with a single {@link FieldError} for {@code expectedVersion}
+   */
+  public static List<FieldError> fromVersionConflict(ProfileVersionConflictException ex) {
+    return List.of(new FieldError("expectedVersion", ex.getMessage()));
+  }
+
+  /**
+   * Maps a {@link UserNotFoundException} raised for the {@code userId} argument of a mutation.
+   *
+   * @param ex exception whose message is used as the field-level error message
+   * @return a list with a single {@link FieldError} for {@code userId}
+   */
+  public static List<FieldError> fromUserNotFound(UserNotFoundException ex) {
+    return List.of(new FieldError("userId", ex.getMessage()));
+  }
+
+  /**
+   * Maps a {@link SelfFollowException} raised for the {@code userId} argument of a mutation.
+   *
+   * @param ex exception whose message is used as the field-level error message
+   * @return a list with a single {@link FieldError} for {@code userId}
+   */
+  public static List<FieldError> fromSelfFollow(SelfFollowException ex) {
+    return List.of(new FieldError("userId", ex.getMessage()));
+  }
+
+  /**
+   * Maps a {@link PostNotFoundException} raised for the {@code id} argument of a post query.
+   *
+   * @param ex exception whose message is used as the field-level error message
+   * @return a list with a single {@link FieldError} for {@code id}
+   */
+  public static List<FieldError> fromPostNotFound(PostNotFoundException ex) {
+    return List.of(new FieldError("id", ex.getMessage()));
+  }
+
   private static String getFieldName(ConstraintViolation<?> violation) {
     // extract last path segment
     String path = violation.getPropertyPath().toString();
@@ -1,5 +1,6 @@
 package com.xclone.exception;
 
+import com.xclone.exception.custom.InvalidCursorException;
 import com.xclone.exception.dto.FieldError;
 import graphql.ErrorType;
 import graphql.GraphQLError;
@@ -54,6 +55,23 @@ public class GraphQlExceptionHandler {
     return field;
   }
 
+  /**
+   * Handles {@link InvalidCursorException} thrown for a tampered or foreign {@code after} or {@code
+   * before} argument.
+   *
+   * @param ex exception describing the rejected cursor
+   * @return a {@link ErrorType#ValidationError} carrying the exception message and argument name
+   */
+  @org.springframework.graphql.data.method.annotation.GraphQlExceptionHandler(
+      InvalidCursorException.class)
+  public GraphQLError handleInvalidCursorException(InvalidCursorException ex) {
+    return GraphQLError.newError()
+        .message(ex.getMessage())
+        .errorType(ErrorType.ValidationError)
+        .extensions(Map.of("field", ex.getArgument()))
+        .build();
+  }
+
   /**
    * Handles unexpected exceptions by returning a generic {@link ErrorType#DataFetchingException}
    * protocol error, and logs the exception class, message, and full stack trace.
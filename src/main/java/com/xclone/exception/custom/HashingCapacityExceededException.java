@@ -0,0 +1,11 @@
+package com.xclone.exception.custom;
+
+/**
+ * Thrown when the password hashing pool and its queue are full, so the request is shed immediately
+ * instead of waiting for a hashing thread.
+ */
+public class HashingCapacityExceededException extends RuntimeException {
+  public HashingCapacityExceededException(String message) {
+    super(message);
+  }
+}
@@ -0,0 +1,18 @@
+package com.xclone.exception.custom;
+
+import lombok.Getter;
+
+/**
+ * Thrown when a pagination cursor supplied by a client cannot be decoded, was tampered with, or was
+ * issued by a different connection.
+ */
+@Getter
+public class InvalidCursorException extends RuntimeException {
+  /** Name of the argument carrying the cursor, e.g. {@code after}. */
+  private final String argument;
+
+  public InvalidCursorException(String message, String argument) {
+    super(message);
+    this.argument = argument;
+  }
+}
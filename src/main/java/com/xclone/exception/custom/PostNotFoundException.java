@@ -0,0 +1,8 @@
+package com.xclone.exception.custom;
+
+/** Thrown to indicate that a request referenced a post that does not exist or is not visible. */
+public class PostNotFoundException extends RuntimeException {
+  public PostNotFoundException(String message) {
+    super(message);
+  }
+}
@@ -0,0 +1,8 @@
+package com.xclone.exception.custom;
+
+/** Thrown to indicate that a profile edit was made against a version that is no longer current. */
+public class ProfileVersionConflictException extends RuntimeException {
+  public ProfileVersionConflictException(String message) {
+    super(message);
+  }
+}
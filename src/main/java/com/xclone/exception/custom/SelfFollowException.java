@@ -0,0 +1,8 @@
+package com.xclone.exception.custom;
+
+/** Thrown to indicate that a user attempted to follow or unfollow themselves. */
+public class SelfFollowException extends RuntimeException {
+  public SelfFollowException(String message) {
+    super(message);
+  }
+}
@@ -0,0 +1,18 @@
+package com.xclone.exception.custom;
+
+import lombok.Getter;
+
+/**
+ * Thrown when a handle or client IP has exhausted its login attempts for the current window. The
+ * attempt is rejected before the password is checked.
+ */
+@Getter
+public class TooManyLoginAttemptsException extends RuntimeException {
+  /** Seconds until the window admits another attempt. */
+  private final long retryAfterSeconds;
+
+  public TooManyLoginAttemptsException(String message, long retryAfterSeconds) {
+    super(message);
+    this.retryAfterSeconds = retryAfterSeconds;
+  }
+}
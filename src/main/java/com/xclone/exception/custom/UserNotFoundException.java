@@ -0,0 +1,8 @@
+package com.xclone.exception.custom;
+
+/** Thrown to indicate that a mutation referenced a user that does not exist. */
+public class UserNotFoundException extends RuntimeException {
+  public UserNotFoundException(String message) {
+    super(message);
+  }
+}
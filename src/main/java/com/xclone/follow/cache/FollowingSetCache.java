@@ -0,0 +1,144 @@
+package com.xclone.follow.cache;
+
+import com.xclone.common.cache.LocalCache;
+import com.xclone.config.CacheProperties;
+import com.xclone.config.FollowProperties;
+import com.xclone.follow.event.FollowChangedEvent;
+import com.xclone.follow.repository.FollowRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * Per-viewer cache of the users each viewer follows, answering {@code User.isFollowing} for a whole
+ * page without a query per row.
+ *
+ * <p>A viewer's followed users are loaded with one query on first use and held in a {@link
+ * LocalCache} as a compact {@link FollowingSet}. The cache is bounded by the total number of
+ * followed ids it holds rather than by viewers, so its memory stays at about 16 bytes per id
+ * however many users the cached viewers follow. Viewers following more than {@link
+ * FollowProperties#getFollowingSetMaxSize()} users are cached as {@link FollowingSet#OVERFLOW}
+ * instead, and each page is answered with one membership query.
+ *
+ * <p>Once a follow or unfollow commits, the follower's set is dropped and their id is published on
+ * the {@code following_set_invalidated} channel so that every other node drops it too. A set loaded
+ * while the change was being made is not stored. If Redis is unavailable, other nodes serve their
+ * copy until it expires.
+ */
+@Slf4j
+@Component
+public class FollowingSetCache implements MessageListener {
+  static final String CHANNEL = "following_set_invalidated";
+
+  private final FollowRepository followRepository;
+  private final RedisTemplate<byte[], byte[]> redisTemplate;
+  private final RedisMessageListenerContainer listenerContainer;
+  private final LocalCache<UUID, FollowingSet> sets;
+  private final int maxSetSize;
+
+  /** Constructor; assigns components for internal use and creates the cache. */
+  public FollowingSetCache(
+      FollowRepository followRepository,
+      RedisTemplate<byte[], byte[]> binaryRedisTemplate,
+      RedisMessageListenerContainer listenerContainer,
+      CacheProperties cacheProperties,
+      FollowProperties followProperties,
+      MeterRegistry meterRegistry) {
+    this.followRepository = followRepository;
+    this.redisTemplate = binaryRedisTemplate;
+    this.listenerContainer = listenerContainer;
+    CacheProperties.Spec spec = cacheProperties.getFollowingSet();
+    this.sets =
+        new LocalCache<>(
+            "following-set",
+            spec.getMaxSize(),
+            Duration.ofSeconds(spec.getTtlSeconds()),
+            meterRegistry,
+            FollowingSet::size);
+    this.maxSetSize = followProperties.getFollowingSetMaxSize();
+  }
+
+  @PostConstruct
+  void subscribe() {
+    listenerContainer.addMessageListener(this, new ChannelTopic(CHANNEL));
+  }
+
+  /**
+   * Returns which of the given users the viewer follows.
+   *
+   * @param viewerId the viewing user
+   * @param userIds users shown to the viewer
+   * @return the subset of {@code userIds} the viewer follows
+   */
+  public Set<UUID> followedAmong(UUID viewerId, Collection<UUID> userIds) {
+    Set<UUID> followed = new HashSet<>();
+    if (userIds.isEmpty()) {
+      return followed;
+    }
+    long stamp = sets.invalidationStamp();
+    FollowingSet set = sets.get(viewerId);
+    if (set == null) {
+      set = load(viewerId);
+      sets.putIfNotInvalidated(viewerId, set, stamp);
+    }
+    if (set.isOverflow()) {
+      followed.addAll(followRepository.findFollowedAmong(viewerId, userIds));
+      return followed;
+    }
+    for (UUID userId : userIds) {
+      if (set.contains(userId)) {
+        followed.add(userId);
+      }
+    }
+    return followed;
+  }
+
+  private FollowingSet load(UUID viewerId) {
+    List<UUID> ids = followRepository.findFollowingIds(viewerId, maxSetSize + 1);
+    return ids.size() > maxSetSize ? FollowingSet.OVERFLOW : FollowingSet.of(ids);
+  }
+
+  /** Drops the follower's set on every node once a follow or unfollow has committed. */
+  @TransactionalEventListener(fallbackExecution = true)
+  public void onFollowChanged(FollowChangedEvent event) {
+    sets.invalidate(event.followerId());
+    try {
+      redisTemplate.convertAndSend(CHANNEL, uuidBytes(event.followerId()));
+    } catch (RuntimeException e) {
+      log.warn("Following set invalidation not published: {}", e.getMessage());
+    }
+  }
+
+  /** Drops a set changed on any node, including this one. */
+  @Override
+  public void onMessage(Message message, byte[] pattern) {
+    byte[] body = message.getBody();
+    if (body.length != 16) {
+      log.warn("Ignoring malformed following set invalidation of {} bytes", body.length);
+      return;
+    }
+    ByteBuffer buffer = ByteBuffer.wrap(body);
+    sets.invalidate(new UUID(buffer.getLong(), buffer.getLong()));
+  }
+
+  private static byte[] uuidBytes(UUID id) {
+    return ByteBuffer.allocate(16)
+        .putLong(id.getMostSignificantBits())
+        .putLong(id.getLeastSignificantBits())
+        .array();
+  }
+}
@@ -0,0 +1,189 @@
+package com.xclone.follow.controller;
+
+import com.xclone.common.connection.TotalCounter;
+import com.xclone.exception.GraphQlErrorMapper;
+import com.xclone.exception.custom.SelfFollowException;
+import com.xclone.exception.custom.UserNotFoundException;
+import com.xclone.follow.counter.FollowCounts;
+import com.xclone.follow.service.FollowService;
+import com.xclone.security.jwt.JwtAuthenticationFilter;
+import com.xclone.security.user.CustomUserDetails;
+import com.xclone.user.dto.UserProfile;
+import com.xclone.user.dto.connection.UserConnection;
+import com.xclone.user.dto.mutation.UserResponse;
+import graphql.schema.DataFetchingFieldSelectionSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.ToLongFunction;
+import org.springframework.graphql.data.method.annotation.Argument;
+import org.springframework.graphql.data.method.annotation.BatchMapping;
+import org.springframework.graphql.data.method.annotation.MutationMapping;
+import org.springframework.graphql.data.method.annotation.QueryMapping;
+import org.springframework.graphql.data.method.annotation.SchemaMapping;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.stereotype.Controller;
+
+/**
+ * GraphQL controller resolving the follow mutations and the follow fields of the {@code User} type.
+ * Counts of all users in a response are read with one batched lookup.
+ */
+@Controller
+public class FollowController {
+  private final FollowService followService;
+
+  /** Constructor; assigns components for internal use. */
+  public FollowController(FollowService followService) {
+    this.followService = followService;
+  }
+
+  /**
+   * Makes the authenticated user follow {@code userId}.
+   *
+   * @param userDetails authenticated user; populated as part of the security chain with {@link
+   *     JwtAuthenticationFilter}
+   * @param userId UUID of the user to follow
+   * @return the followed user, or errors-as-data if the follow is not allowed
+   */
+  @MutationMapping
+  public UserResponse followUser(
+      @AuthenticationPrincipal CustomUserDetails userDetails, @Argument UUID userId) {
+    try {
+      return new UserResponse("200", true, followService.follow(userDetails.getId(), userId), null);
+    } catch (SelfFollowException ex) {
+      return new UserResponse("400", false, null, GraphQlErrorMapper.fromSelfFollow(ex));
+    } catch (UserNotFoundException ex) {
+      return new UserResponse("404", false, null, GraphQlErrorMapper.fromUserNotFound(ex));
+    }
+  }
+
+  /**
+   * Makes the authenticated user stop following {@code userId}.
+   *
+   * @param userDetails authenticated user; populated as part of the security chain with {@link
+   *     JwtAuthenticationFilter}
+   * @param userId UUID of the user to unfollow
+   * @return the unfollowed user, or errors-as-data if the unfollow is not allowed
+   */
+  @MutationMapping
+  public UserResponse unfollowUser(
+      @AuthenticationPrincipal CustomUserDetails userDetails, @Argument UUID userId) {
+    try {
+      return new UserResponse(
+          "200", true, followService.unfollow(userDetails.getId(), userId), null);
+    } catch (SelfFollowException ex) {
+      return new UserResponse("400", false, null, GraphQlErrorMapper.fromSelfFollow(ex));
+    } catch (UserNotFoundException ex) {
+      return new UserResponse("404", false, null, GraphQlErrorMapper.fromUserNotFound(ex));
+    }
+  }
+
+  /**
+   * Resolves {@code User.followers}. Followers are only counted when {@code totalCount} is
+   * selected.
+   *
+   * @param user the user whose followers are listed
+   * @param first page size
+   * @param after end cursor of the previous page
+   * @param selectionSet fields selected on the returned connection
+   * @return a page of followers, most recent first
+   */
+  @SchemaMapping(typeName = "User")
+  public UserConnection followers(
+      UserProfile user,
+      @Argument Integer first,
+      @Argument String after,
+      DataFetchingFieldSelectionSet selectionSet) {
+    return followService.getFollowers(
+        user.id(), first, after, TotalCounter.isRequested(selectionSet));
+  }
+
+  /**
+   * Resolves {@code User.following}. Followed users are only counted when {@code totalCount} is
+   * selected.
+   *
+   * @param user the user whose followed users are listed
+   * @param first page size
+   * @param after end cursor of the previous page
+   * @param selectionSet fields selected on the returned connection
+   * @return a page of followed users, most recently followed first
+   */
+  @SchemaMapping(typeName = "User")
+  public UserConnection following(
+      UserProfile user,
+      @Argument Integer first,
+      @Argument String after,
+      DataFetchingFieldSelectionSet selectionSet) {
+    return followService.getFollowing(
+        user.id(), first, after, TotalCounter.isRequested(selectionSet));
+  }
+
+  /**
+   * Resolves {@code suggestedUsers} from the authenticated user's follow suggestions.
+   *
+   * @param userDetails authenticated user; populated as part of the security chain with {@link
+   *     JwtAuthenticationFilter}
+   * @param first page size
+   * @param after end cursor of the previous page
+   * @param selectionSet fields selected on the returned connection
+   * @return a page of suggested users, best first
+   */
+  @QueryMapping
+  public UserConnection suggestedUsers(
+      @AuthenticationPrincipal CustomUserDetails userDetails,
+      @Argument Integer first,
+      @Argument String after,
+      DataFetchingFieldSelectionSet selectionSet) {
+    return followService.getSuggestedUsers(
+        userDetails.getId(), first, after, TotalCounter.isRequested(selectionSet));
+  }
+
+  /**
+   * Resolves {@code User.isFollowing} for every user in the response with one lookup of the
+   * authenticated user's following set.
+   *
+   * @param users users in the response
+   * @param authentication the authenticated user
+   * @return whether the authenticated user follows each user
+   */
+  @BatchMapping(typeName = "User")
+  public Map<UserProfile, Boolean> isFollowing(
+      List<UserProfile> users, Authentication authentication) {
+    Map<UserProfile, Boolean> result = new LinkedHashMap<>();
+    if (authentication == null
+        || !(authentication.getPrincipal() instanceof CustomUserDetails viewer)) {
+      users.forEach(user -> result.put(user, false));
+      return result;
+    }
+    Set<UUID> followed =
+        followService.getFollowedAmong(
+            viewer.getId(), users.stream().map(UserProfile::id).distinct().toList());
+    users.forEach(user -> result.put(user, followed.contains(user.id())));
+    return result;
+  }
+
+  @BatchMapping(typeName = "User")
+  public Map<UserProfile, Integer> followerCount(List<UserProfile> users) {
+    return counts(users, FollowCounts::followers);
+  }
+
+  @BatchMapping(typeName = "User")
+  public Map<UserProfile, Integer> followingCount(List<UserProfile> users) {
+    return counts(users, FollowCounts::following);
+  }
+
+  private Map<UserProfile, Integer> counts(
+      List<UserProfile> users, ToLongFunction<FollowCounts> count) {
+    Map<UUID, FollowCounts> counts =
+        followService.getCounts(users.stream().map(UserProfile::id).toList());
+    Map<UserProfile, Integer> result = new LinkedHashMap<>();
+    for (UserProfile user : users) {
+      long value = count.applyAsLong(counts.get(user.id()));
+      result.put(user, Math.clamp(value, 0, Integer.MAX_VALUE));
+    }
+    return result;
+  }
+}
@@ -0,0 +1,386 @@
+package com.xclone.follow.counter;
+
+import com.xclone.config.FollowProperties;
+import com.xclone.follow.event.FollowChangedEvent;
+import com.xclone.follow.model.entity.UserCounters;
+import com.xclone.follow.repository.UserCountersRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Write-behind follower and following counters, read in constant time per user from the {@code
+ * user_counters} table.
+ *
+ * <p>Committed follows and unfollows are coalesced in memory as per-user increments, so that a
+ * burst of follows of one account becomes a single row update. A scheduled job flushes the pending
+ * increments as one JDBC batch of additive upserts, in user id order so that concurrent flushes
+ * from several nodes lock rows in the same order. Increments that fail to flush are kept for the
+ * next attempt. Reads add this node's unflushed increments to the stored totals.
+ *
+ * <p>Readers see a flushed increment in the table or in memory, never both: a flush commits its
+ * batch and stops adding it to reads under a write lock that reads hold across the table read.
+ *
+ * <p>Increments held in memory are lost if the node stops abruptly, so a second job recounts every
+ * user's follows in chunks and corrects counters that drifted. Only one node reconciles at a time:
+ * the job holds a session-level Postgres advisory lock for its whole run, and nodes that do not get
+ * it skip the run. Before each chunk is recounted, every node is asked over {@value #FLUSH_CHANNEL}
+ * to flush its pending increments and acknowledges by incrementing the key named in the request;
+ * the chunk is skipped if fewer nodes than received the request acknowledge within {@link
+ * FollowProperties#getReconcileFlushTimeoutMs()}. A follow committed between the acknowledgement
+ * and the recount is still counted twice, once by the recount and again when its node flushes it,
+ * until the next reconciliation corrects it.
+ *
+ * <p>Publishes {@code follow.counters.pending} (users with unflushed increments), {@code
+ * follow.counters.flushed} (counter rows written) and {@code follow.counters.corrected} (counters
+ * fixed by reconciliation).
+ */
+@Slf4j
+@Component
+public class FollowCounters implements MessageListener {
+  private static final UUID NIL = new UUID(0, 0);
+  private static final long FLUSH_POLL_MS = 10;
+
+  static final String FLUSH_CHANNEL = "follow_counters_flush";
+  static final String ACK_PREFIX = "follow_counters_flushed:";
+
+  /** Acknowledges a flush request in key KEYS[1], which expires after ARGV[1] milliseconds. */
+  static final RedisScript<Long> ACK_SCRIPT =
+      RedisScript.of(
+          """
+          local acks = redis.call('INCR', KEYS[1])
+          redis.call('PEXPIRE', KEYS[1], ARGV[1])
+          return acks
+          """,
+          Long.class);
+
+  /** Key of the advisory lock held while reconciling; "fcounter" in ASCII. */
+  static final long RECONCILE_LOCK = 0x66636f756e746572L;
+
+  /** Adds the increments of one user to their counters, creating the row if needed. */
+  static final String UPSERT =
+      """
+      INSERT INTO user_counters (user_id, follower_count, following_count) VALUES (?, ?, ?)
+      ON CONFLICT (user_id) DO UPDATE SET
+        follower_count = user_counters.follower_count + EXCLUDED.follower_count,
+        following_count = user_counters.following_count + EXCLUDED.following_count
+      """;
+
+  private final UserCountersRepository countersRepository;
+  private final JdbcTemplate jdbcTemplate;
+  private final PlatformTransactionManager transactionManager;
+  private final TransactionTemplate transaction;
+  private final StringRedisTemplate redisTemplate;
+  private final RedisMessageListenerContainer listenerContainer;
+  private final FollowProperties properties;
+  private final ConcurrentHashMap<UUID, FollowCounts> pending = new ConcurrentHashMap<>();
+  private final ReentrantLock flushLock = new ReentrantLock();
+
+  /** Held for reading across a read of the table and of the increments not yet committed to it. */
+  private final ReentrantReadWriteLock visibility = new ReentrantReadWriteLock();
+
+  private volatile Map<UUID, FollowCounts> flushing = Map.of();
+  private final Counter flushed;
+  private final Counter corrected;
+
+  /** Constructor; assigns components for internal use and registers the counter meters. */
+  public FollowCounters(
+      UserCountersRepository countersRepository,
+      JdbcTemplate jdbcTemplate,
+      PlatformTransactionManager transactionManager,
+      StringRedisTemplate redisTemplate,
+      RedisMessageListenerContainer listenerContainer,
+      FollowProperties properties,
+      MeterRegistry meterRegistry) {
+    this.countersRepository = countersRepository;
+    this.jdbcTemplate = jdbcTemplate;
+    this.transactionManager = transactionManager;
+    this.transaction = new TransactionTemplate(transactionManager);
+    this.redisTemplate = redisTemplate;
+    this.listenerContainer = listenerContainer;
+    this.properties = properties;
+    Gauge.builder("follow.counters.pending", pending, Map::size).register(meterRegistry);
+    this.flushed = meterRegistry.counter("follow.counters.flushed");
+    this.corrected = meterRegistry.counter("follow.counters.corrected");
+  }
+
+  @PostConstruct
+  void subscribe() {
+    listenerContainer.addMessageListener(this, new ChannelTopic(FLUSH_CHANNEL));
+  }
+
+  /**
+   * Returns the follower and following totals of the given users.
+   *
+   * @param userIds the users' ids
+   * @return counts keyed by user id, with an entry for every id
+   */
+  public Map<UUID, FollowCounts> getCounts(Collection<UUID> userIds) {
+    Map<UUID, FollowCounts> counts = new HashMap<>();
+    visibility.readLock().lock();
+    try {
+      for (UserCounters row : countersRepository.findAllById(userIds)) {
+        counts.put(
+            row.getUserId(), new FollowCounts(row.getFollowerCount(), row.getFollowingCount()));
+      }
+      Map<UUID, FollowCounts> inFlight = flushing;
+      for (UUID id : userIds) {
+        FollowCounts stored = counts.getOrDefault(id, FollowCounts.ZERO);
+        counts.put(id, stored.plus(inFlight.get(id)).plus(pending.get(id)));
+      }
+    } finally {
+      visibility.readLock().unlock();
+    }
+    return counts;
+  }
+
+  /** Records the increments of a committed follow or unfollow. */
+  @TransactionalEventListener(fallbackExecution = true)
+  public void onFollowChanged(FollowChangedEvent event) {
+    long delta = event.followed() ? 1 : -1;
+    pending.merge(event.followingId(), new FollowCounts(delta, 0), FollowCounts::sum);
+    pending.merge(event.followerId(), new FollowCounts(0, delta), FollowCounts::sum);
+  }
+
+  /** Writes the pending increments to the database. */
+  @Scheduled(fixedDelayString = "${app.follow.counter-flush-interval-ms:1000}")
+  @PreDestroy
+  public void flush() {
+    flushLock.lock();
+    try {
+      flushPending();
+    } finally {
+      flushLock.unlock();
+    }
+  }
+
+  /** Flushes on behalf of the reconciling node, and acknowledges in the key the request names. */
+  @Override
+  public void onMessage(Message message, byte[] pattern) {
+    String ackKey = new String(message.getBody(), StandardCharsets.UTF_8);
+    if (!ackKey.startsWith(ACK_PREFIX)) {
+      log.warn("Ignoring malformed follow counter flush request");
+      return;
+    }
+    boolean flushedAll;
+    flushLock.lock();
+    try {
+      flushedAll = flushPending();
+    } finally {
+      flushLock.unlock();
+    }
+    if (!flushedAll) {
+      return;
+    }
+    try {
+      redisTemplate.execute(
+          ACK_SCRIPT, List.of(ackKey), String.valueOf(2 * properties.getReconcileFlushTimeoutMs()));
+    } catch (RuntimeException e) {
+      log.warn("Follow counter flush not acknowledged, Redis unavailable: {}", e.getMessage());
+    }
+  }
+
+  /** Writes the pending increments and returns whether all of them were written. */
+  private boolean flushPending() {
+    Map<UUID, FollowCounts> batch = new HashMap<>();
+    visibility.writeLock().lock();
+    try {
+      for (UUID id : pending.keySet()) {
+        FollowCounts delta = pending.remove(id);
+        if (delta != null) {
+          batch.put(id, delta);
+        }
+      }
+      flushing = batch;
+    } finally {
+      visibility.writeLock().unlock();
+    }
+    if (batch.isEmpty()) {
+      return true;
+    }
+    List<Map.Entry<UUID, FollowCounts>> rows = new ArrayList<>(batch.entrySet());
+    rows.sort(Map.Entry.comparingByKey(Comparator.comparing(UUID::toString)));
+    TransactionStatus status =
+        transactionManager.getTransaction(TransactionDefinition.withDefaults());
+    try {
+      jdbcTemplate.batchUpdate(
+          UPSERT,
+          rows,
+          properties.getCounterBatchSize(),
+          (statement, row) -> {
+            statement.setObject(1, row.getKey());
+            statement.setLong(2, row.getValue().followers());
+            statement.setLong(3, row.getValue().following());
+          });
+      commitVisibly(status);
+      flushed.increment(rows.size());
+      return true;
+    } catch (RuntimeException e) {
+      if (!status.isCompleted()) {
+        transactionManager.rollback(status);
+      }
+      log.warn("Follow counters not flushed, retrying with the next flush: {}", e.getMessage());
+      visibility.writeLock().lock();
+      try {
+        batch.forEach((id, delta) -> pending.merge(id, delta, FollowCounts::sum));
+        flushing = Map.of();
+      } finally {
+        visibility.writeLock().unlock();
+      }
+      return false;
+    }
+  }
+
+  /** Commits a flush and stops adding its increments to reads, in one step for readers. */
+  private void commitVisibly(TransactionStatus status) {
+    visibility.writeLock().lock();
+    try {
+      transactionManager.commit(status);
+      flushing = Map.of();
+    } finally {
+      visibility.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Recounts every user's follows and corrects counters that drifted, e.g. through increments lost
+   * when a node stopped. Every node flushes its pending increments before each chunk is recounted.
+   * Skipped if another node is already reconciling.
+   */
+  @Scheduled(
+      initialDelayString = "${app.follow.reconcile-interval-ms:3600000}",
+      fixedDelayString = "${app.follow.reconcile-interval-ms:3600000}")
+  public void reconcile() {
+    jdbcTemplate.execute(
+        (ConnectionCallback<Void>)
+            connection -> {
+              if (!advisoryLock(connection, "pg_try_advisory_lock")) {
+                log.debug("Follow counters are being reconciled by another node, skipped");
+                return null;
+              }
+              try {
+                reconcileAll();
+              } finally {
+                advisoryLock(connection, "pg_advisory_unlock");
+              }
+              return null;
+            });
+  }
+
+  /** Calls an advisory lock function on the connection, which holds the lock until released. */
+  private static boolean advisoryLock(Connection connection, String function) throws SQLException {
+    try (PreparedStatement statement = connection.prepareStatement("SELECT " + function + "(?)")) {
+      statement.setLong(1, RECONCILE_LOCK);
+      try (ResultSet result = statement.executeQuery()) {
+        return result.next() && result.getBoolean(1);
+      }
+    }
+  }
+
+  private void reconcileAll() {
+    final long started = System.nanoTime();
+    long fixed = 0;
+    UUID after = NIL;
+    List<UUID> chunk;
+    do {
+      chunk = countersRepository.findUserIdsAfter(after, properties.getReconcileChunkSize());
+      if (chunk.isEmpty()) {
+        break;
+      }
+      fixed += recount(chunk);
+      after = chunk.getLast();
+    } while (chunk.size() == properties.getReconcileChunkSize());
+    corrected.increment(fixed);
+    log.info(
+        "Follow counters reconciled: {} corrected in {} ms",
+        fixed,
+        (System.nanoTime() - started) / 1_000_000);
+  }
+
+  private int recount(List<UUID> userIds) {
+    if (!flushEverywhere()) {
+      log.warn("Follow counters of {} users not reconciled, flush not confirmed", userIds.size());
+      return 0;
+    }
+    flushLock.lock();
+    try {
+      flushPending();
+      Integer fixed = transaction.execute(status -> countersRepository.recount(userIds));
+      return fixed == null ? 0 : fixed;
+    } finally {
+      flushLock.unlock();
+    }
+  }
+
+  /**
+   * Asks every node to flush its pending increments, and waits until as many nodes acknowledge as
+   * received the request.
+   *
+   * @return whether every node flushed in time
+   */
+  private boolean flushEverywhere() {
+    String ackKey = ACK_PREFIX + UUID.randomUUID();
+    long receivers;
+    try {
+      Long received = redisTemplate.convertAndSend(FLUSH_CHANNEL, ackKey);
+      receivers = received == null ? 0 : received;
+    } catch (RuntimeException e) {
+      log.warn("Follow counter flush not requested, Redis unavailable: {}", e.getMessage());
+      return false;
+    }
+    long deadline =
+        System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(properties.getReconcileFlushTimeoutMs());
+    try {
+      while (true) {
+        String acks = redisTemplate.opsForValue().get(ackKey);
+        if (acks != null && Long.parseLong(acks) >= receivers) {
+          return true;
+        }
+        if (System.nanoTime() - deadline > 0) {
+          return false;
+        }
+        TimeUnit.MILLISECONDS.sleep(FLUSH_POLL_MS);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return false;
+    } catch (RuntimeException e) {
+      log.warn("Follow counter flush not confirmed, Redis unavailable: {}", e.getMessage());
+      return false;
+    }
+  }
+}
@@ -0,0 +1,24 @@
+package com.xclone.follow.counter;
+
+/**
+ * A user's follower and following totals, or a change to them.
+ *
+ * @param followers number of users following the user
+ * @param following number of users the user follows
+ */
+public record FollowCounts(long followers, long following) {
+  public static final FollowCounts ZERO = new FollowCounts(0, 0);
+
+  /** Returns the sum of both changes, or {@code null} if they cancel out, for {@code Map.merge}. */
+  static FollowCounts sum(FollowCounts a, FollowCounts b) {
+    FollowCounts sum = a.plus(b);
+    return sum.equals(ZERO) ? null : sum;
+  }
+
+  FollowCounts plus(FollowCounts other) {
+    if (other == null) {
+      return this;
+    }
+    return new FollowCounts(followers + other.followers, following + other.following);
+  }
+}
@@ -0,0 +1,13 @@
+package com.xclone.follow.event;
+
+import java.util.UUID;
+
+/**
+ * Published by {@link com.xclone.follow.service.FollowService} when a follow is created or removed.
+ * Not published for follows that already existed, or unfollows of users that were not followed.
+ *
+ * @param followerId UUID of the user who followed or unfollowed
+ * @param followingId UUID of the user who was followed or unfollowed
+ * @param followed {@code true} for a new follow, {@code false} for a removed one
+ */
+public record FollowChangedEvent(UUID followerId, UUID followingId, boolean followed) {}
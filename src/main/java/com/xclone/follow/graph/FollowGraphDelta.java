@@ -0,0 +1,52 @@
+package com.xclone.follow.graph;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Follows and unfollows recorded since a {@link FollowGraphSnapshot} was built, which override it.
+ * Holds the latest state of each changed follow, indexed by both users so that a lookup only visits
+ * the changes touching the users it reads.
+ *
+ * <p>Written under the index's write lock; read without locking.
+ */
+final class FollowGraphDelta {
+  private final ConcurrentHashMap<Edge, Boolean> edges = new ConcurrentHashMap<>();
+  private final ConcurrentHashMap<UUID, Set<Edge>> byUser = new ConcurrentHashMap<>();
+
+  void record(UUID followerId, UUID followingId, boolean followed) {
+    Edge edge = new Edge(followerId, followingId);
+    edges.put(edge, followed);
+    byUser.computeIfAbsent(followerId, id -> ConcurrentHashMap.newKeySet()).add(edge);
+    byUser.computeIfAbsent(followingId, id -> ConcurrentHashMap.newKeySet()).add(edge);
+  }
+
+  /** Latest recorded state of a follow, or {@code null} if it has not changed. */
+  Boolean state(UUID followerId, UUID followingId) {
+    return edges.get(new Edge(followerId, followingId));
+  }
+
+  /** Changed follows in which the user is the follower or the followed user. */
+  Set<Edge> touching(UUID userId) {
+    return byUser.getOrDefault(userId, Set.of());
+  }
+
+  /** Latest state of every changed follow. */
+  Map<Edge, Boolean> edges() {
+    return edges;
+  }
+
+  int size() {
+    return edges.size();
+  }
+
+  /**
+   * A follow of {@code followingId} by {@code followerId}.
+   *
+   * @param followerId the following user
+   * @param followingId the followed user
+   */
+  record Edge(UUID followerId, UUID followingId) {}
+}
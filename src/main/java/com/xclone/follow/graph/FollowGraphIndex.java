@@ -0,0 +1,485 @@
+package com.xclone.follow.graph;
+
+import com.xclone.config.FollowGraphProperties;
+import com.xclone.follow.event.FollowChangedEvent;
+import com.xclone.follow.graph.FollowGraphDelta.Edge;
+import com.xclone.follow.repository.FollowEdgeRow;
+import com.xclone.follow.repository.FollowRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+import java.util.stream.Stream;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * In-process copy of the follow graph, answering graph questions such as mutual follows and
+ * followers-you-know without joins over {@code follows}.
+ *
+ * <p>The bulk of the graph is an immutable {@link FollowGraphSnapshot} loaded from the database
+ * once the application is ready. Committed follows and unfollows arrive as {@link
+ * FollowChangedEvent}s and are recorded in a {@link FollowGraphDelta} that overrides the snapshot;
+ * once it holds {@link FollowGraphProperties#getCompactThreshold()} follows, a scheduled job merges
+ * it into a new snapshot off the request path. Until the first load completes {@link #isReady()} is
+ * {@code false} and callers must query the database instead.
+ *
+ * <p>Each local change is also published on the {@code follow_graph_changed} channel, and changes
+ * published by other nodes are recorded the same way. As messages can be lost while Redis is
+ * unavailable, and follows deleted with their users publish none, the snapshot is also rebuilt from
+ * the database on a schedule.
+ *
+ * <p>Lookups that touch no changed follows read only the snapshot's arrays; the others also visit
+ * the changes recorded for the users involved.
+ *
+ * <p>Publishes {@code follow.graph.users}, {@code follow.graph.edges}, {@code follow.graph.memory}
+ * (bytes held by the snapshot), {@code follow.graph.memory.per.million.edges} and {@code
+ * follow.graph.pending} (changes not yet merged).
+ */
+@Slf4j
+@Component
+public class FollowGraphIndex implements MessageListener {
+  static final String CHANNEL = "follow_graph_changed";
+  private static final int MESSAGE_LENGTH = 49;
+
+  private final FollowRepository followRepository;
+  private final RedisTemplate<byte[], byte[]> redisTemplate;
+  private final RedisMessageListenerContainer listenerContainer;
+  private final FollowGraphProperties properties;
+  private final TransactionTemplate readOnlyTransaction;
+  private final ReentrantLock writeLock = new ReentrantLock();
+  // Held while a new snapshot is built, so that compactions and reloads never overlap
+  private final ReentrantLock rebuildLock = new ReentrantLock();
+  // Identifies this node's messages, which it has already recorded
+  private final UUID nodeId = UUID.randomUUID();
+  private volatile Layers layers =
+      new Layers(FollowGraphSnapshot.EMPTY, new FollowGraphDelta(), new FollowGraphDelta());
+  private volatile boolean ready;
+
+  /** Constructor; assigns components for internal use and registers the graph meters. */
+  public FollowGraphIndex(
+      FollowRepository followRepository,
+      RedisTemplate<byte[], byte[]> binaryRedisTemplate,
+      RedisMessageListenerContainer listenerContainer,
+      FollowGraphProperties properties,
+      PlatformTransactionManager transactionManager,
+      MeterRegistry meterRegistry) {
+    this.followRepository = followRepository;
+    this.redisTemplate = binaryRedisTemplate;
+    this.listenerContainer = listenerContainer;
+    this.properties = properties;
+    this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+    this.readOnlyTransaction.setReadOnly(true);
+    Gauge.builder("follow.graph.users", this, index -> index.layers.snapshot().size())
+        .register(meterRegistry);
+    Gauge.builder("follow.graph.edges", this, index -> index.layers.snapshot().edgeCount())
+        .register(meterRegistry);
+    Gauge.builder(
+            "follow.graph.memory", this, index -> index.layers.snapshot().memoryFootprintBytes())
+        .baseUnit("bytes")
+        .register(meterRegistry);
+    Gauge.builder(
+            "follow.graph.memory.per.million.edges",
+            this,
+            index -> bytesPerMillionEdges(index.layers.snapshot()))
+        .baseUnit("bytes")
+        .register(meterRegistry);
+    Gauge.builder("follow.graph.pending", this, FollowGraphIndex::pendingChanges)
+        .register(meterRegistry);
+  }
+
+  @PostConstruct
+  void subscribe() {
+    if (properties.isEnabled()) {
+      listenerContainer.addMessageListener(this, new ChannelTopic(CHANNEL));
+    }
+  }
+
+  /** Whether the graph has been loaded and can answer lookups. */
+  public boolean isReady() {
+    return ready;
+  }
+
+  /** The current snapshot, without the changes recorded since it was built. */
+  FollowGraphSnapshot snapshot() {
+    return layers.snapshot();
+  }
+
+  /**
+   * Whether one user follows another.
+   *
+   * @param followerId the following user
+   * @param followingId the followed user
+   * @return {@code true} if the follow exists
+   */
+  public boolean follows(UUID followerId, UUID followingId) {
+    return layers.follows(followerId, followingId);
+  }
+
+  /**
+   * Lists the users a user follows, in no particular order.
+   *
+   * @param userId the following user
+   * @return ids of the followed users
+   */
+  public List<UUID> following(UUID userId) {
+    return neighbours(userId, true);
+  }
+
+  /**
+   * Lists a user's followers, in no particular order.
+   *
+   * @param userId the followed user
+   * @return ids of the followers
+   */
+  public List<UUID> followers(UUID userId) {
+    return neighbours(userId, false);
+  }
+
+  /**
+   * Lists the users who follow a user and are followed back, in no particular order.
+   *
+   * @param userId the user
+   * @return ids of the user's mutual follows
+   */
+  public List<UUID> mutualFollows(UUID userId) {
+    return followedFollowers(userId, userId);
+  }
+
+  /**
+   * Lists the users the viewer follows who follow {@code userId}: the viewer's "followers you know"
+   * of that user. In no particular order.
+   *
+   * @param viewerId the viewing user
+   * @param userId the user being viewed
+   * @return ids of followers of {@code userId} that the viewer follows
+   */
+  public List<UUID> followedFollowers(UUID viewerId, UUID userId) {
+    Layers current = layers;
+    FollowGraphSnapshot snapshot = current.snapshot();
+    Set<UUID> result = new LinkedHashSet<>();
+    int viewer = snapshot.indexOf(viewerId);
+    int user = snapshot.indexOf(userId);
+    boolean changed = current.hasChanges(viewerId) || current.hasChanges(userId);
+    if (viewer >= 0 && user >= 0) {
+      snapshot.forEachFollowedFollower(
+          viewer,
+          user,
+          common -> {
+            UUID commonId = snapshot.idOf(common);
+            if (!changed
+                || (current.follows(viewerId, commonId) && current.follows(commonId, userId))) {
+              result.add(commonId);
+            }
+          });
+    }
+    if (changed) {
+      current.forEachChange(
+          viewerId,
+          edge -> {
+            if (edge.followerId().equals(viewerId)
+                && current.follows(viewerId, edge.followingId())
+                && current.follows(edge.followingId(), userId)) {
+              result.add(edge.followingId());
+            }
+          });
+      current.forEachChange(
+          userId,
+          edge -> {
+            if (edge.followingId().equals(userId)
+                && current.follows(edge.followerId(), userId)
+                && current.follows(viewerId, edge.followerId())) {
+              result.add(edge.followerId());
+            }
+          });
+    }
+    return new ArrayList<>(result);
+  }
+
+  private List<UUID> neighbours(UUID userId, boolean outgoing) {
+    Layers current = layers;
+    FollowGraphSnapshot snapshot = current.snapshot();
+    Set<UUID> result = new LinkedHashSet<>();
+    boolean changed = current.hasChanges(userId);
+    int user = snapshot.indexOf(userId);
+    if (user >= 0) {
+      IntConsumer sink =
+          other -> {
+            UUID otherId = snapshot.idOf(other);
+            if (!changed
+                || (outgoing
+                    ? current.follows(userId, otherId)
+                    : current.follows(otherId, userId))) {
+              result.add(otherId);
+            }
+          };
+      if (outgoing) {
+        snapshot.forEachFollowing(user, sink);
+      } else {
+        snapshot.forEachFollower(user, sink);
+      }
+    }
+    if (changed) {
+      current.forEachChange(
+          userId,
+          edge -> {
+            UUID self = outgoing ? edge.followerId() : edge.followingId();
+            UUID other = outgoing ? edge.followingId() : edge.followerId();
+            if (self.equals(userId) && current.follows(edge.followerId(), edge.followingId())) {
+              result.add(other);
+            }
+          });
+    }
+    return new ArrayList<>(result);
+  }
+
+  /** Starts loading the graph on a background thread so that startup is not delayed. */
+  @EventListener(ApplicationReadyEvent.class)
+  public void loadInBackground() {
+    if (properties.isEnabled()) {
+      Thread.ofPlatform().name("follow-graph-load").daemon().start(this::load);
+    }
+  }
+
+  void load() {
+    final long started = System.nanoTime();
+    FollowGraphSnapshot.Builder builder = new FollowGraphSnapshot.Builder();
+    try {
+      readFollows(builder);
+    } catch (RuntimeException e) {
+      log.error("Follow graph could not be loaded; graph queries will use the database", e);
+      return;
+    }
+    FollowGraphSnapshot snapshot = builder.build();
+    writeLock.lock();
+    try {
+      Layers current = layers;
+      layers = new Layers(snapshot, current.compacting(), current.changes());
+      ready = true;
+    } finally {
+      writeLock.unlock();
+    }
+    log.info(
+        "Follow graph loaded: {} users, {} follows, {} KiB ({} bytes per million follows) in {} ms",
+        snapshot.size(),
+        snapshot.edgeCount(),
+        snapshot.memoryFootprintBytes() / 1024,
+        (long) bytesPerMillionEdges(snapshot),
+        Duration.ofNanos(System.nanoTime() - started).toMillis());
+  }
+
+  private void readFollows(FollowGraphSnapshot.Builder builder) {
+    readOnlyTransaction.executeWithoutResult(
+        status -> {
+          try (Stream<FollowEdgeRow> rows = followRepository.streamEdges()) {
+            rows.forEach(row -> builder.add(row.getFollowerId(), row.getFollowingId()));
+          }
+        });
+  }
+
+  /** Records a committed follow or unfollow and publishes it to the other nodes. */
+  @TransactionalEventListener(fallbackExecution = true)
+  public void onFollowChanged(FollowChangedEvent event) {
+    if (!properties.isEnabled()) {
+      return;
+    }
+    record(event.followerId(), event.followingId(), event.followed());
+    byte[] message =
+        ByteBuffer.allocate(MESSAGE_LENGTH)
+            .putLong(nodeId.getMostSignificantBits())
+            .putLong(nodeId.getLeastSignificantBits())
+            .putLong(event.followerId().getMostSignificantBits())
+            .putLong(event.followerId().getLeastSignificantBits())
+            .putLong(event.followingId().getMostSignificantBits())
+            .putLong(event.followingId().getLeastSignificantBits())
+            .put((byte) (event.followed() ? 1 : 0))
+            .array();
+    try {
+      redisTemplate.convertAndSend(CHANNEL, message);
+    } catch (RuntimeException e) {
+      log.warn("Follow graph change not published: {}", e.getMessage());
+    }
+  }
+
+  /** Records a follow or unfollow committed on another node. */
+  @Override
+  public void onMessage(Message message, byte[] pattern) {
+    byte[] body = message.getBody();
+    if (body.length != MESSAGE_LENGTH) {
+      log.warn("Ignoring malformed follow graph change of {} bytes", body.length);
+      return;
+    }
+    ByteBuffer buffer = ByteBuffer.wrap(body);
+    UUID origin = new UUID(buffer.getLong(), buffer.getLong());
+    if (origin.equals(nodeId)) {
+      return;
+    }
+    UUID followerId = new UUID(buffer.getLong(), buffer.getLong());
+    UUID followingId = new UUID(buffer.getLong(), buffer.getLong());
+    record(followerId, followingId, buffer.get() == 1);
+  }
+
+  private void record(UUID followerId, UUID followingId, boolean followed) {
+    writeLock.lock();
+    try {
+      layers.changes().record(followerId, followingId, followed);
+    } finally {
+      writeLock.unlock();
+    }
+  }
+
+  /** Merges pending changes into a new snapshot once there are enough of them. */
+  @Scheduled(fixedDelayString = "${app.follow-graph.compact-interval-ms:60000}")
+  public void compactIfNeeded() {
+    if (ready && layers.changes().size() >= properties.getCompactThreshold()) {
+      compact();
+    }
+  }
+
+  /**
+   * Replaces the snapshot with one read from the database, dropping the changes recorded before the
+   * read started. Catches follows this node was never told about.
+   */
+  @Scheduled(
+      initialDelayString = "${app.follow-graph.reload-interval-ms:3600000}",
+      fixedDelayString = "${app.follow-graph.reload-interval-ms:3600000}")
+  public void reloadIfReady() {
+    if (ready) {
+      rebuild(true);
+    }
+  }
+
+  /**
+   * Builds a new snapshot from the current one and the pending changes. Changes recorded while the
+   * snapshot is built stay pending and keep overriding it.
+   */
+  void compact() {
+    rebuild(false);
+  }
+
+  /**
+   * Builds a new snapshot, either from the database or from the current one and the pending
+   * changes, which are all committed by the time the database is read. Changes recorded while the
+   * snapshot is built stay pending and keep overriding it. If the database cannot be read the
+   * snapshot is compacted instead.
+   */
+  private void rebuild(boolean fromDatabase) {
+    rebuildLock.lock();
+    try {
+      Layers frozen;
+      writeLock.lock();
+      try {
+        Layers current = layers;
+        frozen = new Layers(current.snapshot(), current.changes(), new FollowGraphDelta());
+        layers = frozen;
+      } finally {
+        writeLock.unlock();
+      }
+
+      FollowGraphSnapshot.Builder builder = new FollowGraphSnapshot.Builder();
+      boolean reloaded = false;
+      if (fromDatabase) {
+        try {
+          readFollows(builder);
+          reloaded = true;
+        } catch (RuntimeException e) {
+          log.warn("Follow graph not reloaded, compacting instead: {}", e.getMessage());
+          builder = new FollowGraphSnapshot.Builder();
+        }
+      }
+      if (!reloaded) {
+        FollowGraphDelta compacting = frozen.compacting();
+        frozen
+            .snapshot()
+            .copyTo(
+                builder,
+                (followerId, followingId) -> compacting.state(followerId, followingId) != null);
+        for (Map.Entry<Edge, Boolean> change : compacting.edges().entrySet()) {
+          if (change.getValue()) {
+            builder.add(change.getKey().followerId(), change.getKey().followingId());
+          }
+        }
+      }
+      FollowGraphSnapshot snapshot = builder.build();
+
+      writeLock.lock();
+      try {
+        layers = new Layers(snapshot, new FollowGraphDelta(), layers.changes());
+      } finally {
+        writeLock.unlock();
+      }
+      log.debug(
+          "Follow graph {}: {} users, {} follows",
+          reloaded ? "reloaded" : "compacted",
+          snapshot.size(),
+          snapshot.edgeCount());
+    } finally {
+      rebuildLock.unlock();
+    }
+  }
+
+  private int pendingChanges() {
+    Layers current = layers;
+    return current.compacting().size() + current.changes().size();
+  }
+
+  private static double bytesPerMillionEdges(FollowGraphSnapshot snapshot) {
+    return snapshot.edgeCount() == 0
+        ? 0
+        : snapshot.memoryFootprintBytes() * 1_000_000.0 / snapshot.edgeCount();
+  }
+
+  /**
+   * The graph state, replaced as a whole so that lookups see a consistent view without locking.
+   *
+   * @param snapshot follows loaded at the last load or compaction
+   * @param compacting changes being merged into the next snapshot; override {@code snapshot}
+   * @param changes changes recorded since; override both of the above
+   */
+  private record Layers(
+      FollowGraphSnapshot snapshot, FollowGraphDelta compacting, FollowGraphDelta changes) {
+
+    boolean follows(UUID followerId, UUID followingId) {
+      Boolean state = changes.state(followerId, followingId);
+      if (state == null) {
+        state = compacting.state(followerId, followingId);
+      }
+      if (state != null) {
+        return state;
+      }
+      int follower = snapshot.indexOf(followerId);
+      int following = snapshot.indexOf(followingId);
+      return follower >= 0 && following >= 0 && snapshot.follows(follower, following);
+    }
+
+    boolean hasChanges(UUID userId) {
+      return !changes.touching(userId).isEmpty() || !compacting.touching(userId).isEmpty();
+    }
+
+    void forEachChange(UUID userId, Consumer<Edge> action) {
+      compacting.touching(userId).forEach(action);
+      changes.touching(userId).forEach(action);
+    }
+  }
+}
@@ -0,0 +1,262 @@
+package com.xclone.follow.graph;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.BiPredicate;
+import java.util.function.IntConsumer;
+
+/**
+ * Immutable, read-optimized copy of the follow graph in compressed sparse row form.
+ *
+ * <p>Users are numbered densely in UUID order, so that a user's number is the position of their id
+ * in {@link #ids} and is found by binary search. The users each user follows are stored
+ * back-to-back in {@link #following}, with user {@code n}'s in {@code following[followingStart[n]]}
+ * to {@code following[followingStart[n + 1] - 1]}, sorted ascending; followers are stored the same
+ * way in the reverse direction. An edge costs 8 bytes, one int in each direction, and a user 24
+ * bytes, which keeps the graph in a few primitive arrays with no per-edge objects.
+ *
+ * <p>Only users with at least one follow, in either direction, are held.
+ */
+final class FollowGraphSnapshot {
+  static final FollowGraphSnapshot EMPTY = new Builder().build();
+
+  /**
+   * Intersections switch from a linear merge to binary searches of the longer list once it is this
+   * many times longer than the shorter one.
+   */
+  private static final int GALLOP_RATIO = 32;
+
+  /** User ids, sorted, as most and least significant halves; user {@code n} at {@code 2n}. */
+  private final long[] ids;
+
+  private final int[] followingStart;
+  private final int[] following;
+  private final int[] followerStart;
+  private final int[] followers;
+
+  private FollowGraphSnapshot(
+      long[] ids, int[] followingStart, int[] following, int[] followerStart, int[] followers) {
+    this.ids = ids;
+    this.followingStart = followingStart;
+    this.following = following;
+    this.followerStart = followerStart;
+    this.followers = followers;
+  }
+
+  /** Number of users held. */
+  int size() {
+    return ids.length / 2;
+  }
+
+  /** Number of follows held. */
+  int edgeCount() {
+    return following.length;
+  }
+
+  /** Approximate heap bytes held by the arrays of the snapshot. */
+  long memoryFootprintBytes() {
+    return 8L * ids.length
+        + 4L * (followingStart.length + following.length)
+        + 4L * (followerStart.length + followers.length)
+        + 5 * 16L;
+  }
+
+  /**
+   * Returns the number of a user, or {@code -1} if the user has no follows in the snapshot.
+   *
+   * @param userId the user
+   * @return the user's number, or {@code -1}
+   */
+  int indexOf(UUID userId) {
+    long msb = userId.getMostSignificantBits();
+    long lsb = userId.getLeastSignificantBits();
+    int low = 0;
+    int high = size() - 1;
+    while (low <= high) {
+      int mid = (low + high) >>> 1;
+      int cmp = Long.compare(ids[2 * mid], msb);
+      if (cmp == 0) {
+        cmp = Long.compare(ids[2 * mid + 1], lsb);
+      }
+      if (cmp < 0) {
+        low = mid + 1;
+      } else if (cmp > 0) {
+        high = mid - 1;
+      } else {
+        return mid;
+      }
+    }
+    return -1;
+  }
+
+  /** Returns the id of user number {@code user}. */
+  UUID idOf(int user) {
+    return new UUID(ids[2 * user], ids[2 * user + 1]);
+  }
+
+  /** Whether user number {@code follower} follows user number {@code followed}. */
+  boolean follows(int follower, int followed) {
+    return Arrays.binarySearch(
+            following, followingStart[follower], followingStart[follower + 1], followed)
+        >= 0;
+  }
+
+  /** Passes the number of each user {@code user} follows to {@code sink}, in ascending order. */
+  void forEachFollowing(int user, IntConsumer sink) {
+    for (int i = followingStart[user]; i < followingStart[user + 1]; i++) {
+      sink.accept(following[i]);
+    }
+  }
+
+  /** Passes the number of each follower of {@code user} to {@code sink}, in ascending order. */
+  void forEachFollower(int user, IntConsumer sink) {
+    for (int i = followerStart[user]; i < followerStart[user + 1]; i++) {
+      sink.accept(followers[i]);
+    }
+  }
+
+  /**
+   * Passes to {@code sink} each user that {@code viewer} follows and that follows {@code target}.
+   * With {@code viewer == target} these are the user's mutual follows.
+   *
+   * @param viewer number of the following user
+   * @param target number of the followed user
+   * @param sink receives matching user numbers, in ascending order
+   */
+  void forEachFollowedFollower(int viewer, int target, IntConsumer sink) {
+    intersect(
+        following,
+        followingStart[viewer],
+        followingStart[viewer + 1],
+        followers,
+        followerStart[target],
+        followerStart[target + 1],
+        sink);
+  }
+
+  private static void intersect(
+      int[] left,
+      int leftFrom,
+      int leftTo,
+      int[] right,
+      int rightFrom,
+      int rightTo,
+      IntConsumer sink) {
+    if (leftTo - leftFrom > rightTo - rightFrom) {
+      intersect(right, rightFrom, rightTo, left, leftFrom, leftTo, sink);
+      return;
+    }
+    if ((long) (leftTo - leftFrom) * GALLOP_RATIO < rightTo - rightFrom) {
+      int from = rightFrom;
+      for (int i = leftFrom; i < leftTo && from < rightTo; i++) {
+        int found = Arrays.binarySearch(right, from, rightTo, left[i]);
+        if (found >= 0) {
+          sink.accept(left[i]);
+          from = found + 1;
+        } else {
+          from = -found - 1;
+        }
+      }
+      return;
+    }
+    int i = leftFrom;
+    int j = rightFrom;
+    while (i < leftTo && j < rightTo) {
+      if (left[i] < right[j]) {
+        i++;
+      } else if (left[i] > right[j]) {
+        j++;
+      } else {
+        sink.accept(left[i]);
+        i++;
+        j++;
+      }
+    }
+  }
+
+  /**
+   * Adds every follow in this snapshot to {@code builder}, except those for which {@code
+   * overridden} returns {@code true}.
+   */
+  void copyTo(Builder builder, BiPredicate<UUID, UUID> overridden) {
+    for (int user = 0; user < size(); user++) {
+      UUID followerId = idOf(user);
+      for (int i = followingStart[user]; i < followingStart[user + 1]; i++) {
+        UUID followingId = idOf(following[i]);
+        if (!overridden.test(followerId, followingId)) {
+          builder.add(followerId, followingId);
+        }
+      }
+    }
+  }
+
+  /**
+   * Collects follows for a new snapshot. Each follow must be added at most once, and {@link
+   * #build()} called once.
+   */
+  static final class Builder {
+    private final Map<UUID, Integer> users = new HashMap<>();
+    private int[] from = new int[1024];
+    private int[] to = new int[1024];
+    private int edges;
+
+    void add(UUID followerId, UUID followingId) {
+      if (edges == from.length) {
+        from = Arrays.copyOf(from, edges * 2);
+        to = Arrays.copyOf(to, edges * 2);
+      }
+      from[edges] = users.computeIfAbsent(followerId, id -> users.size());
+      to[edges] = users.computeIfAbsent(followingId, id -> users.size());
+      edges++;
+    }
+
+    FollowGraphSnapshot build() {
+      UUID[] sorted = users.keySet().toArray(UUID[]::new);
+      Arrays.sort(sorted);
+      int[] rank = new int[sorted.length];
+      long[] ids = new long[sorted.length * 2];
+      for (int i = 0; i < sorted.length; i++) {
+        rank[users.get(sorted[i])] = i;
+        ids[2 * i] = sorted[i].getMostSignificantBits();
+        ids[2 * i + 1] = sorted[i].getLeastSignificantBits();
+      }
+      for (int i = 0; i < edges; i++) {
+        from[i] = rank[from[i]];
+        to[i] = rank[to[i]];
+      }
+      int[] followingStart = offsets(from, edges, sorted.length);
+      int[] followerStart = offsets(to, edges, sorted.length);
+      return new FollowGraphSnapshot(
+          ids,
+          followingStart,
+          adjacency(from, to, edges, followingStart),
+          followerStart,
+          adjacency(to, from, edges, followerStart));
+    }
+
+    private static int[] offsets(int[] source, int edgeCount, int userCount) {
+      int[] start = new int[userCount + 1];
+      for (int i = 0; i < edgeCount; i++) {
+        start[source[i] + 1]++;
+      }
+      for (int i = 0; i < userCount; i++) {
+        start[i + 1] += start[i];
+      }
+      return start;
+    }
+
+    private static int[] adjacency(int[] source, int[] target, int edgeCount, int[] start) {
+      int[] next = Arrays.copyOf(start, start.length - 1);
+      int[] adjacency = new int[edgeCount];
+      for (int i = 0; i < edgeCount; i++) {
+        adjacency[next[source[i]]++] = target[i];
+      }
+      for (int user = 0; user < next.length; user++) {
+        Arrays.sort(adjacency, start[user], start[user + 1]);
+      }
+      return adjacency;
+    }
+  }
+}
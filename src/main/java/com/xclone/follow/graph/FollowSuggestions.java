@@ -0,0 +1,256 @@
+package com.xclone.follow.graph;
+
+import com.xclone.config.FollowSuggestionProperties;
+import com.xclone.user.event.UserChangedEvent;
+import com.xclone.user.event.UserChangedEvent.ChangeType;
+import com.xclone.user.model.enums.UserStatus;
+import com.xclone.user.repository.UserRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * "Who to follow" suggestions: the users followed by the most of the users each user follows,
+ * excluding the user, users they already follow and inactive users.
+ *
+ * <p>Suggestions are scored with a {@link SecondDegreeScorer} over the {@link FollowGraphIndex}
+ * snapshot, only for users who ask for them. A viewer is scored on their first request, and then
+ * again by every refresh, on a background thread started every {@code
+ * app.follow-suggestions.refresh-interval-ms}, until they have not asked for {@link
+ * FollowSuggestionProperties#getViewerTtlSeconds()}; their query is then a map read. At most {@link
+ * FollowSuggestionProperties#getMaxViewers()} viewers are kept, so memory grows with the users
+ * asking rather than with the graph. Scoring a viewer takes microseconds, but the scorer's counts
+ * are as large as the snapshot, so one scorer is shared under a lock.
+ *
+ * <p>Follows and status changes made since a viewer was scored are applied when reading: users
+ * followed since, and users deactivated since, are left out. Users reactivated elsewhere in the
+ * cluster are suggested again from the next refresh. Users who joined the graph since have no
+ * suggestions until the next refresh, and the suggestions keep the snapshot they were scored from
+ * reachable until then. Until the graph is loaded and the first refresh completes, nobody has
+ * suggestions.
+ *
+ * <p>Publishes {@code follow.suggestions.viewers} (viewers whose suggestions are kept) and {@code
+ * follow.suggestions.refresh} (duration of each refresh).
+ */
+@Slf4j
+@Component
+public class FollowSuggestions {
+  private final FollowGraphIndex graphIndex;
+  private final UserRepository userRepository;
+  private final FollowSuggestionProperties properties;
+  private final Timer refreshTimer;
+  private final AtomicBoolean refreshing = new AtomicBoolean();
+  private final Map<UUID, Boolean> activeSinceRefresh = new ConcurrentHashMap<>();
+  private volatile Set<UUID> inactive = ConcurrentHashMap.newKeySet();
+  private volatile Scoring scoring;
+  private final Map<UUID, Long> lastRequested = new ConcurrentHashMap<>();
+  private final Map<UUID, Scored> scored = new ConcurrentHashMap<>();
+
+  /** Constructor; assigns components for internal use and registers the suggestion meters. */
+  public FollowSuggestions(
+      FollowGraphIndex graphIndex,
+      UserRepository userRepository,
+      FollowSuggestionProperties properties,
+      MeterRegistry meterRegistry) {
+    this.graphIndex = graphIndex;
+    this.userRepository = userRepository;
+    this.properties = properties;
+    this.refreshTimer = meterRegistry.timer("follow.suggestions.refresh");
+    Gauge.builder("follow.suggestions.viewers", scored, Map::size).register(meterRegistry);
+  }
+
+  /**
+   * A suggested user.
+   *
+   * @param userId the suggested user
+   * @param score number of the viewer's followed users who follow them
+   */
+  public record Suggestion(UUID userId, int score) {}
+
+  /**
+   * Returns the suggestions for a user, best first: highest score, then by id. Scores the user if
+   * they have not asked since the suggestions were last refreshed for them.
+   *
+   * @param viewerId the user to suggest to
+   * @return suggestions; empty before the first refresh
+   */
+  public List<Suggestion> suggestionsFor(UUID viewerId) {
+    boolean known = lastRequested.put(viewerId, System.nanoTime()) != null;
+    if (!known && lastRequested.size() > properties.getMaxViewers()) {
+      lastRequested.remove(viewerId);
+    }
+    Scoring current = scoring;
+    if (current == null) {
+      return List.of();
+    }
+    Scored viewer = scored.get(viewerId);
+    if (viewer == null) {
+      viewer = current.score(viewerId, properties.getPerUser());
+      if (lastRequested.containsKey(viewerId)) {
+        // A refresh running meanwhile may have scored the viewer on a newer snapshot
+        scored.putIfAbsent(viewerId, viewer);
+      }
+    }
+    Set<UUID> inactiveNow = inactive;
+    List<Suggestion> suggestions = new ArrayList<>(viewer.users().length);
+    for (int i = 0; i < viewer.users().length; i++) {
+      UUID userId = viewer.snapshot().idOf(viewer.users()[i]);
+      if (!inactiveNow.contains(userId) && !graphIndex.follows(viewerId, userId)) {
+        suggestions.add(new Suggestion(userId, viewer.scores()[i]));
+      }
+    }
+    return suggestions;
+  }
+
+  /** Returns whether a viewer's suggestions are kept, i.e. scored by every refresh. */
+  boolean isKept(UUID viewerId) {
+    return scored.containsKey(viewerId);
+  }
+
+  /** Starts a refresh on a background thread, unless one is running, so the scheduler is free. */
+  @Scheduled(
+      initialDelayString = "${app.follow-suggestions.refresh-interval-ms:600000}",
+      fixedDelayString = "${app.follow-suggestions.refresh-interval-ms:600000}")
+  public void refreshInBackground() {
+    if (properties.isEnabled() && graphIndex.isReady() && refreshing.compareAndSet(false, true)) {
+      Thread.ofPlatform()
+          .name("follow-suggestions")
+          .daemon()
+          .start(
+              () -> {
+                try {
+                  refresh();
+                } finally {
+                  refreshing.set(false);
+                }
+              });
+    }
+  }
+
+  void refresh() {
+    final long started = System.nanoTime();
+    final FollowGraphSnapshot snapshot = graphIndex.snapshot();
+    List<UUID> inactiveIds;
+    activeSinceRefresh.clear();
+    try {
+      inactiveIds = userRepository.findIdsByStatusNot(UserStatus.ACTIVE);
+    } catch (RuntimeException e) {
+      log.error("Follow suggestions not refreshed: inactive users could not be loaded", e);
+      return;
+    }
+    Set<UUID> refreshed = ConcurrentHashMap.newKeySet();
+    refreshed.addAll(inactiveIds);
+    inactive = refreshed;
+    activeSinceRefresh.forEach((userId, active) -> setActive(refreshed, userId, active));
+    BitSet excluded = new BitSet(snapshot.size());
+    for (UUID userId : inactiveIds) {
+      int user = snapshot.indexOf(userId);
+      if (user >= 0) {
+        excluded.set(user);
+      }
+    }
+    Scoring current = new Scoring(snapshot, new SecondDegreeScorer(snapshot, excluded));
+    scoring = current;
+
+    long ttlNanos = TimeUnit.SECONDS.toNanos(properties.getViewerTtlSeconds());
+    int viewers = 0;
+    for (Map.Entry<UUID, Long> viewer : lastRequested.entrySet()) {
+      if (started - viewer.getValue() >= ttlNanos) {
+        lastRequested.remove(viewer.getKey(), viewer.getValue());
+        scored.remove(viewer.getKey());
+      } else {
+        scored.put(viewer.getKey(), current.score(viewer.getKey(), properties.getPerUser()));
+        viewers++;
+      }
+    }
+
+    Duration took = Duration.ofNanos(System.nanoTime() - started);
+    refreshTimer.record(took);
+    log.info(
+        "Follow suggestions refreshed for {} recent viewers of {} users in {} ms",
+        viewers,
+        snapshot.size(),
+        took.toMillis());
+  }
+
+  /**
+   * Keeps the inactive users up to date between refreshes. Changes are also recorded until the next
+   * refresh replaces the inactive users, and are reapplied to the replacement so that a change
+   * committed while the refresh was loading them is not lost.
+   */
+  @TransactionalEventListener(fallbackExecution = true)
+  public void onUserChanged(UserChangedEvent event) {
+    if (event.type() != ChangeType.STATUS) {
+      return;
+    }
+    boolean active =
+        userRepository
+            .findById(event.userId())
+            .filter(user -> user.getStatus() == UserStatus.ACTIVE)
+            .isPresent();
+    activeSinceRefresh.put(event.userId(), active);
+    setActive(inactive, event.userId(), active);
+  }
+
+  private static void setActive(Set<UUID> inactive, UUID userId, boolean active) {
+    if (active) {
+      inactive.remove(userId);
+    } else {
+      inactive.add(userId);
+    }
+  }
+
+  /** A snapshot and the scorer over it, shared by the refresh and first requests. */
+  private static final class Scoring {
+    private final FollowGraphSnapshot snapshot;
+    private final SecondDegreeScorer scorer;
+    private final ReentrantLock lock = new ReentrantLock();
+
+    Scoring(FollowGraphSnapshot snapshot, SecondDegreeScorer scorer) {
+      this.snapshot = snapshot;
+      this.scorer = scorer;
+    }
+
+    Scored score(UUID viewerId, int perUser) {
+      int viewer = snapshot.indexOf(viewerId);
+      if (viewer < 0) {
+        return new Scored(snapshot, new int[0], new int[0]);
+      }
+      int[] users = new int[perUser];
+      int[] scores = new int[perUser];
+      int found;
+      lock.lock();
+      try {
+        found = scorer.score(viewer, perUser, users, scores);
+      } finally {
+        lock.unlock();
+      }
+      return new Scored(snapshot, Arrays.copyOf(users, found), Arrays.copyOf(scores, found));
+    }
+  }
+
+  /**
+   * Suggestions of one viewer.
+   *
+   * @param snapshot the snapshot scored; numbers users
+   * @param users suggested user numbers, best first
+   * @param scores score of each suggestion
+   */
+  private record Scored(FollowGraphSnapshot snapshot, int[] users, int[] scores) {}
+}
@@ -0,0 +1,124 @@
+package com.xclone.follow.graph;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Ranks follow suggestions for users of one {@link FollowGraphSnapshot} by the number of users they
+ * follow who follow each candidate.
+ *
+ * <p>Counts are accumulated in a dense array indexed by user number rather than a map, and only the
+ * entries touched for one user are read and reset afterwards, so scoring a user costs the sum of
+ * the following counts of the users they follow. The user and the users they already follow are
+ * marked in the same array and skipped. The best candidates are kept in a bounded heap instead of
+ * sorting them all. Not thread-safe; use one scorer per thread.
+ */
+final class SecondDegreeScorer {
+  private static final int EXCLUDED = -1;
+
+  private final FollowGraphSnapshot snapshot;
+  private final BitSet inactive;
+  private final int[] counts;
+  private int[] touched = new int[1024];
+  private int touchedCount;
+
+  /** Min-heap of the best candidates found so far, as keys ranked by {@link #score}. */
+  private long[] best = new long[0];
+
+  /**
+   * Creates a scorer for a snapshot.
+   *
+   * @param snapshot the graph to score
+   * @param inactive numbers of users never to suggest
+   */
+  SecondDegreeScorer(FollowGraphSnapshot snapshot, BitSet inactive) {
+    this.snapshot = snapshot;
+    this.inactive = inactive;
+    this.counts = new int[snapshot.size()];
+  }
+
+  /**
+   * Finds the best suggestions for a user: highest count first, then lowest user number.
+   *
+   * @param user number of the user to suggest to
+   * @param limit maximum number of suggestions
+   * @param users receives the suggested user numbers, best first
+   * @param scores receives the count of each suggestion
+   * @return number of suggestions written
+   */
+  int score(int user, int limit, int[] users, int[] scores) {
+    counts[user] = EXCLUDED;
+    snapshot.forEachFollowing(user, followed -> counts[followed] = EXCLUDED);
+    snapshot.forEachFollowing(
+        user, followed -> snapshot.forEachFollowing(followed, this::countCandidate));
+
+    if (best.length < limit) {
+      best = new long[limit];
+    }
+    int found = 0;
+    for (int i = 0; i < touchedCount; i++) {
+      int candidate = touched[i];
+      // Higher is better: the count, then the complement of the user number.
+      long key = (long) counts[candidate] << 32 | (Integer.MAX_VALUE - candidate);
+      counts[candidate] = 0;
+      if (found < limit) {
+        best[found++] = key;
+        siftUp(found - 1);
+      } else if (limit > 0 && key > best[0]) {
+        best[0] = key;
+        siftDown(found);
+      }
+    }
+    Arrays.sort(best, 0, found);
+    for (int i = 0; i < found; i++) {
+      long key = best[found - 1 - i];
+      users[i] = Integer.MAX_VALUE - (int) key;
+      scores[i] = (int) (key >>> 32);
+    }
+
+    touchedCount = 0;
+    counts[user] = 0;
+    snapshot.forEachFollowing(user, followed -> counts[followed] = 0);
+    return found;
+  }
+
+  private void siftUp(int index) {
+    long key = best[index];
+    while (index > 0 && best[(index - 1) / 2] > key) {
+      best[index] = best[(index - 1) / 2];
+      index = (index - 1) / 2;
+    }
+    best[index] = key;
+  }
+
+  private void siftDown(int size) {
+    long key = best[0];
+    int index = 0;
+    while (2 * index + 1 < size) {
+      int child = 2 * index + 1;
+      if (child + 1 < size && best[child + 1] < best[child]) {
+        child++;
+      }
+      if (best[child] >= key) {
+        break;
+      }
+      best[index] = best[child];
+      index = child;
+    }
+    best[index] = key;
+  }
+
+  private void countCandidate(int candidate) {
+    int count = counts[candidate];
+    if (count == EXCLUDED || inactive.get(candidate)) {
+      return;
+    }
+    if (count == 0) {
+      if (touchedCount == touched.length) {
+        touched = Arrays.copyOf(touched, touchedCount * 2);
+      }
+      touched[touchedCount++] = candidate;
+    }
+    counts[candidate] = count + 1;
+  }
+}
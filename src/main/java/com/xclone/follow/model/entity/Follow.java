@@ -0,0 +1,40 @@
+package com.xclone.follow.model.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.IdClass;
+import jakarta.persistence.Table;
+import java.time.Instant;
+import java.util.UUID;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.hibernate.annotations.Check;
+
+/**
+ * Entity for follows table; one row per user following another. Rows are written and removed by the
+ * native statements in {@link com.xclone.follow.repository.FollowRepository}.
+ */
+@Getter
+@Setter
+@Entity
+@Table(name = "follows")
+@IdClass(FollowId.class)
+@Check(name = "check_not_self_follow", constraints = "follower_id <> following_id")
+@NoArgsConstructor
+@AllArgsConstructor
+public class Follow {
+
+  @Id
+  @Column(name = "follower_id")
+  private UUID followerId;
+
+  @Id
+  @Column(name = "following_id")
+  private UUID followingId;
+
+  @Column(name = "created_at", nullable = false)
+  private Instant createdAt;
+}
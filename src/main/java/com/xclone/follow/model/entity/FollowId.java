@@ -0,0 +1,16 @@
+package com.xclone.follow.model.entity;
+
+import java.io.Serializable;
+import java.util.UUID;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/** Composite primary key of {@link Follow}. */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FollowId implements Serializable {
+  private UUID followerId;
+  private UUID followingId;
+}
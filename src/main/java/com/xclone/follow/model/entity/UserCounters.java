@@ -0,0 +1,38 @@
+package com.xclone.follow.model.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import java.util.UUID;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.hibernate.annotations.ColumnDefault;
+
+/**
+ * Entity for user_counters table; follower and following totals denormalized from {@code follows}
+ * so that profiles can show them without counting rows. Maintained by {@link
+ * com.xclone.follow.counter.FollowCounters}; a user without a row has no follows.
+ */
+@Getter
+@Setter
+@Entity
+@Table(name = "user_counters")
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserCounters {
+
+  @Id
+  @Column(name = "user_id")
+  private UUID userId;
+
+  @ColumnDefault("0")
+  @Column(name = "follower_count", nullable = false)
+  private long followerCount;
+
+  @ColumnDefault("0")
+  @Column(name = "following_count", nullable = false)
+  private long followingCount;
+}
@@ -0,0 +1,12 @@
+package com.xclone.follow.repository;
+
+import java.util.UUID;
+
+/** Projection of a follow as the pair of users it connects. */
+public interface FollowEdgeRow {
+  /** The following user. */
+  UUID getFollowerId();
+
+  /** The followed user. */
+  UUID getFollowingId();
+}
@@ -0,0 +1,157 @@
+package com.xclone.follow.repository;
+
+import com.xclone.follow.model.entity.Follow;
+import com.xclone.follow.model.entity.FollowId;
+import jakarta.persistence.QueryHint;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Repository to connect Follow entity to JPA.
+ *
+ * <p>Follows are created and removed with single idempotent statements that report whether a row
+ * changed, so that callers can tell a new follow from a repeated one without reading first.
+ *
+ * <p>Followers and following lists are paged newest first by {@code (created_at, user id)}. Each
+ * page is an index-only scan of the composite indexes in {@code db/indexes.sql}, read backward from
+ * the cursor, so its cost does not depend on the length of the list or the depth of the page.
+ */
+@Repository
+public interface FollowRepository extends JpaRepository<Follow, FollowId> {
+  /** Page of a user's followers after the keyset cursor, newest first. */
+  String FOLLOWERS_PAGE =
+      """
+      SELECT f.follower_id AS "userId", f.created_at AS "createdAt" FROM follows f
+      WHERE f.following_id = :userId AND (f.created_at, f.follower_id) < (:afterAt, :afterId)
+      ORDER BY f.created_at DESC, f.follower_id DESC
+      LIMIT :limit
+      """;
+
+  /** Page of the users a user follows after the keyset cursor, newest first. */
+  String FOLLOWING_PAGE =
+      """
+      SELECT f.following_id AS "userId", f.created_at AS "createdAt" FROM follows f
+      WHERE f.follower_id = :userId AND (f.created_at, f.following_id) < (:afterAt, :afterId)
+      ORDER BY f.created_at DESC, f.following_id DESC
+      LIMIT :limit
+      """;
+
+  /**
+   * Records that {@code followerId} follows {@code followingId}, if the followed user is active and
+   * not already followed.
+   *
+   * @param followerId the following user
+   * @param followingId the user to follow
+   * @return {@code 1} if a follow was created, {@code 0} if it already existed or the followed user
+   *     is not active
+   */
+  @Modifying
+  @Query(
+      nativeQuery = true,
+      value =
+          """
+          INSERT INTO follows (follower_id, following_id, created_at)
+          SELECT :followerId, u.id, now() FROM users u
+          WHERE u.id = :followingId AND u.status = 'ACTIVE'
+          ON CONFLICT DO NOTHING
+          """)
+  int follow(@Param("followerId") UUID followerId, @Param("followingId") UUID followingId);
+
+  /**
+   * Removes the follow of {@code followingId} by {@code followerId}, if there is one.
+   *
+   * @param followerId the following user
+   * @param followingId the user to unfollow
+   * @return {@code 1} if a follow was removed, otherwise {@code 0}
+   */
+  @Modifying
+  @Query(
+      nativeQuery = true,
+      value = "DELETE FROM follows WHERE follower_id = :followerId AND following_id = :followingId")
+  int unfollow(@Param("followerId") UUID followerId, @Param("followingId") UUID followingId);
+
+  /**
+   * Selects the followers of a user after the keyset cursor, newest first.
+   *
+   * @param userId the followed user
+   * @param afterAt follow time of the cursor
+   * @param afterId follower id of the cursor
+   * @param limit maximum number of rows to return
+   * @return followers and when they followed
+   */
+  @Transactional(readOnly = true)
+  @Query(nativeQuery = true, value = FOLLOWERS_PAGE)
+  List<FollowRow> findFollowersPage(
+      @Param("userId") UUID userId,
+      @Param("afterAt") Instant afterAt,
+      @Param("afterId") UUID afterId,
+      @Param("limit") int limit);
+
+  /**
+   * Selects the users a user follows after the keyset cursor, newest first.
+   *
+   * @param userId the following user
+   * @param afterAt follow time of the cursor
+   * @param afterId followed user id of the cursor
+   * @param limit maximum number of rows to return
+   * @return followed users and when they were followed
+   */
+  @Transactional(readOnly = true)
+  @Query(nativeQuery = true, value = FOLLOWING_PAGE)
+  List<FollowRow> findFollowingPage(
+      @Param("userId") UUID userId,
+      @Param("afterAt") Instant afterAt,
+      @Param("afterId") UUID afterId,
+      @Param("limit") int limit);
+
+  /**
+   * Selects up to {@code limit} ids of the users {@code followerId} follows, in no particular
+   * order.
+   *
+   * @param followerId the following user
+   * @param limit maximum number of ids to return
+   * @return followed user ids
+   */
+  @Transactional(readOnly = true)
+  @Query(
+      nativeQuery = true,
+      value = "SELECT f.following_id FROM follows f WHERE f.follower_id = :followerId LIMIT :limit")
+  List<UUID> findFollowingIds(@Param("followerId") UUID followerId, @Param("limit") int limit);
+
+  /**
+   * Selects which of the given users {@code followerId} follows.
+   *
+   * @param followerId the following user
+   * @param userIds candidate followed users
+   * @return the subset of {@code userIds} that is followed
+   */
+  @Transactional(readOnly = true)
+  @Query(
+      nativeQuery = true,
+      value =
+          "SELECT f.following_id FROM follows f "
+              + "WHERE f.follower_id = :followerId AND f.following_id IN :userIds")
+  List<UUID> findFollowedAmong(
+      @Param("followerId") UUID followerId, @Param("userIds") Collection<UUID> userIds);
+
+  /**
+   * Streams every follow, for loading the in-memory follow graph. Must be consumed inside a
+   * transaction.
+   *
+   * @return all follows; must be closed
+   */
+  @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "10000"))
+  @Query("SELECT f.followerId AS followerId, f.followingId AS followingId FROM Follow f")
+  Stream<FollowEdgeRow> streamEdges();
+}
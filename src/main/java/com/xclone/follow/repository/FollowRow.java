@@ -0,0 +1,13 @@
+package com.xclone.follow.repository;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/** Projection of one entry of a followers or following list. */
+public interface FollowRow {
+  /** The follower, or the followed user, depending on the list. */
+  UUID getUserId();
+
+  /** When the follow was created. */
+  Instant getCreatedAt();
+}
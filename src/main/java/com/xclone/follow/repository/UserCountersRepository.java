@@ -0,0 +1,69 @@
+package com.xclone.follow.repository;
+
+import com.xclone.follow.model.entity.UserCounters;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Repository to connect UserCounters entity to JPA. Counter increments are batched by {@link
+ * com.xclone.follow.counter.FollowCounters} rather than issued here; this repository reads the
+ * counters and recounts them from {@code follows} for reconciliation.
+ */
+@Repository
+public interface UserCountersRepository extends JpaRepository<UserCounters, UUID> {
+
+  /**
+   * Returns the ids of up to {@code limit} users after {@code afterId} in id order, for walking the
+   * users table in chunks.
+   *
+   * @param afterId last id of the previous chunk; the nil UUID to start
+   * @param limit maximum number of ids to return
+   * @return user ids in ascending order
+   */
+  @Query(
+      nativeQuery = true,
+      value = "SELECT u.id FROM users u WHERE u.id > :afterId ORDER BY u.id LIMIT :limit")
+  List<UUID> findUserIdsAfter(@Param("afterId") UUID afterId, @Param("limit") int limit);
+
+  /**
+   * Returns the users with at least {@code threshold} followers, whose posts are pulled into their
+   * followers' feeds rather than fanned out.
+   *
+   * @param threshold minimum number of followers
+   * @return user ids, in no particular order
+   */
+  @Query(
+      nativeQuery = true,
+      value = "SELECT c.user_id FROM user_counters c WHERE c.follower_count >= :threshold")
+  List<UUID> findUserIdsWithFollowersAtLeast(@Param("threshold") long threshold);
+
+  /**
+   * Recounts the follows of the given users and overwrites their counters where they differ.
+   *
+   * @param userIds users to recount
+   * @return number of counters that were created or corrected
+   */
+  @Modifying
+  @Query(
+      nativeQuery = true,
+      value =
+          """
+          INSERT INTO user_counters (user_id, follower_count, following_count)
+          SELECT u.id,
+                 (SELECT count(*) FROM follows f WHERE f.following_id = u.id),
+                 (SELECT count(*) FROM follows f WHERE f.follower_id = u.id)
+          FROM users u WHERE u.id IN :userIds
+          ON CONFLICT (user_id) DO UPDATE SET
+            follower_count = EXCLUDED.follower_count,
+            following_count = EXCLUDED.following_count
+          WHERE (user_counters.follower_count, user_counters.following_count)
+              IS DISTINCT FROM (EXCLUDED.follower_count, EXCLUDED.following_count)
+          """)
+  int recount(@Param("userIds") Collection<UUID> userIds);
+}
@@ -0,0 +1,238 @@
+package com.xclone.follow.service;
+
+import com.xclone.common.connection.CursorType;
+import com.xclone.common.connection.Edge;
+import com.xclone.common.connection.KeysetPaginator;
+import com.xclone.common.connection.Page;
+import com.xclone.common.connection.PageRequest;
+import com.xclone.common.connection.TimeIdKey;
+import com.xclone.exception.custom.SelfFollowException;
+import com.xclone.exception.custom.UserNotFoundException;
+import com.xclone.follow.cache.FollowingSetCache;
+import com.xclone.follow.counter.FollowCounters;
+import com.xclone.follow.counter.FollowCounts;
+import com.xclone.follow.event.FollowChangedEvent;
+import com.xclone.follow.graph.FollowSuggestions;
+import com.xclone.follow.graph.FollowSuggestions.Suggestion;
+import com.xclone.follow.repository.FollowRepository;
+import com.xclone.follow.repository.FollowRow;
+import com.xclone.user.dto.UserProfile;
+import com.xclone.user.dto.connection.UserConnection;
+import com.xclone.user.dto.connection.UserEdge;
+import com.xclone.user.service.UserService;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+/** Coordinates resolver logic for follows between users. */
+@Service
+public class FollowService {
+  /** Cursors of the {@code User.followers} connection. */
+  static final CursorType<TimeIdKey> FOLLOWERS = CursorType.timeId("Followers");
+
+  /** Cursors of the {@code User.following} connection. */
+  static final CursorType<TimeIdKey> FOLLOWING = CursorType.timeId("Following");
+
+  private final FollowRepository followRepository;
+  private final FollowCounters followCounters;
+  private final FollowingSetCache followingSets;
+  private final FollowSuggestions followSuggestions;
+  private final UserService userService;
+  private final KeysetPaginator paginator;
+  private final ApplicationEventPublisher eventPublisher;
+
+  /** Constructor; assigns components for internal use. */
+  public FollowService(
+      FollowRepository followRepository,
+      FollowCounters followCounters,
+      FollowingSetCache followingSets,
+      FollowSuggestions followSuggestions,
+      UserService userService,
+      KeysetPaginator paginator,
+      ApplicationEventPublisher eventPublisher) {
+    this.followRepository = followRepository;
+    this.followCounters = followCounters;
+    this.followingSets = followingSets;
+    this.followSuggestions = followSuggestions;
+    this.userService = userService;
+    this.paginator = paginator;
+    this.eventPublisher = eventPublisher;
+  }
+
+  /**
+   * Makes {@code followerId} follow {@code followingId}. Idempotent: following a user that is
+   * already followed, or that is no longer active, changes nothing. Publishes a {@link
+   * FollowChangedEvent} if a follow was created.
+   *
+   * @param followerId UUID of the authenticated user
+   * @param followingId UUID of the user to follow
+   * @return the followed user's profile
+   * @throws SelfFollowException if both ids are the same
+   * @throws UserNotFoundException if no user has {@code followingId}
+   */
+  @Transactional
+  public UserProfile follow(UUID followerId, UUID followingId) {
+    UserProfile followed = findTarget(followerId, followingId);
+    if (followRepository.follow(followerId, followingId) == 1) {
+      eventPublisher.publishEvent(new FollowChangedEvent(followerId, followingId, true));
+    }
+    return followed;
+  }
+
+  /**
+   * Makes {@code followerId} stop following {@code followingId}. Idempotent: unfollowing a user
+   * that is not followed changes nothing. Publishes a {@link FollowChangedEvent} if a follow was
+   * removed.
+   *
+   * @param followerId UUID of the authenticated user
+   * @param followingId UUID of the user to unfollow
+   * @return the unfollowed user's profile
+   * @throws SelfFollowException if both ids are the same
+   * @throws UserNotFoundException if no user has {@code followingId}
+   */
+  @Transactional
+  public UserProfile unfollow(UUID followerId, UUID followingId) {
+    UserProfile unfollowed = findTarget(followerId, followingId);
+    if (followRepository.unfollow(followerId, followingId) == 1) {
+      eventPublisher.publishEvent(new FollowChangedEvent(followerId, followingId, false));
+    }
+    return unfollowed;
+  }
+
+  private UserProfile findTarget(UUID followerId, UUID followingId) {
+    if (followerId.equals(followingId)) {
+      throw new SelfFollowException("You cannot follow yourself");
+    }
+    UserProfile target = userService.getUserById(followingId);
+    if (target == null) {
+      throw new UserNotFoundException("User not found");
+    }
+    return target;
+  }
+
+  /**
+   * Returns the follower and following totals of the given users from the denormalized counters.
+   *
+   * @param userIds the users' ids
+   * @return counts keyed by user id, with an entry for every id
+   */
+  public Map<UUID, FollowCounts> getCounts(Collection<UUID> userIds) {
+    return followCounters.getCounts(userIds);
+  }
+
+  /**
+   * Returns which of the given users the viewer follows, from the viewer's cached following set.
+   *
+   * @param viewerId the authenticated user
+   * @param userIds users shown to the viewer
+   * @return the subset of {@code userIds} the viewer follows
+   */
+  public Set<UUID> getFollowedAmong(UUID viewerId, Collection<UUID> userIds) {
+    return followingSets.followedAmong(viewerId, userIds);
+  }
+
+  /**
+   * Pages through the users following {@code userId}, most recent follow first. The total is read
+   * from the follower counter rather than counted.
+   *
+   * @param userId the followed user
+   * @param first page size
+   * @param after end cursor of the previous page
+   * @param countTotal whether to fill in {@code totalCount}
+   * @return a page of followers
+   */
+  public UserConnection getFollowers(UUID userId, Integer first, String after, boolean countTotal) {
+    Integer totalCount = countTotal ? count(userId, FollowCounts::followers) : null;
+    return page(FOLLOWERS, userId, first, after, followRepository::findFollowersPage, totalCount);
+  }
+
+  /**
+   * Pages through the users {@code userId} follows, most recent follow first. The total is read
+   * from the following counter rather than counted.
+   *
+   * @param userId the following user
+   * @param first page size
+   * @param after end cursor of the previous page
+   * @param countTotal whether to fill in {@code totalCount}
+   * @return a page of followed users
+   */
+  public UserConnection getFollowing(UUID userId, Integer first, String after, boolean countTotal) {
+    Integer totalCount = countTotal ? count(userId, FollowCounts::following) : null;
+    return page(FOLLOWING, userId, first, after, followRepository::findFollowingPage, totalCount);
+  }
+
+  private UserConnection page(
+      CursorType<TimeIdKey> type,
+      UUID userId,
+      Integer first,
+      String after,
+      PageQuery query,
+      Integer totalCount) {
+    PageRequest<TimeIdKey> request = paginator.forward(type, first, after);
+    TimeIdKey cursor = request.cursor() == null ? TimeIdKey.LATEST : request.cursor();
+    List<FollowRow> rows = query.find(userId, cursor.at(), cursor.id(), request.fetchSize());
+    Page<FollowRow> page =
+        paginator.page(
+            type, request, rows, row -> new TimeIdKey(row.getCreatedAt(), row.getUserId()));
+    return toUserConnection(page, FollowRow::getUserId, totalCount);
+  }
+
+  /**
+   * Pages through the users suggested to the viewer, best first, from {@link FollowSuggestions}.
+   * Users the viewer has followed since suggestions were computed are left out.
+   *
+   * @param viewerId the authenticated user
+   * @param first page size
+   * @param after end cursor of the previous page
+   * @param countTotal whether to fill in {@code totalCount}
+   * @return a page of suggested users
+   */
+  public UserConnection getSuggestedUsers(
+      UUID viewerId, Integer first, String after, boolean countTotal) {
+    PageRequest<SuggestionKey> request = paginator.forward(SuggestionKey.TYPE, first, after);
+    SuggestionKey cursor = request.cursor();
+    List<Suggestion> suggestions = followSuggestions.suggestionsFor(viewerId);
+    List<Suggestion> rows =
+        suggestions.stream()
+            .filter(suggestion -> cursor == null || cursor.isBefore(suggestion))
+            .limit(request.fetchSize())
+            .toList();
+    Page<Suggestion> page = paginator.page(SuggestionKey.TYPE, request, rows, SuggestionKey::of);
+    return toUserConnection(page, Suggestion::userId, countTotal ? suggestions.size() : null);
+  }
+
+  private <T> UserConnection toUserConnection(
+      Page<T> page, Function<T, UUID> userIdOf, Integer totalCount) {
+    Map<UUID, UserProfile> profiles =
+        userService.getUsersByIds(
+            page.edges().stream().map(edge -> userIdOf.apply(edge.node())).toList());
+    List<UserEdge> edges = new ArrayList<>(page.size());
+    for (Edge<T> edge : page.edges()) {
+      UserProfile profile = profiles.get(userIdOf.apply(edge.node()));
+      if (profile != null) {
+        edges.add(new UserEdge(profile, edge.cursor()));
+      }
+    }
+    return new UserConnection(edges, page.pageInfo(), totalCount);
+  }
+
+  private int count(UUID userId, ToLongFunction<FollowCounts> count) {
+    long value = count.applyAsLong(followCounters.getCounts(List.of(userId)).get(userId));
+    return Math.clamp(value, 0, Integer.MAX_VALUE);
+  }
+
+  /** One of the followers or following page queries of {@link FollowRepository}. */
+  @FunctionalInterface
+  private interface PageQuery {
+    List<FollowRow> find(UUID userId, Instant afterAt, UUID afterId, int limit);
+  }
+}
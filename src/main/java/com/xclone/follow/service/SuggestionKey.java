@@ -0,0 +1,53 @@
+package com.xclone.follow.service;
+
+import com.xclone.common.connection.CursorType;
+import com.xclone.follow.graph.FollowSuggestions.Suggestion;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.UUID;
+
+/**
+ * Keyset position in a user's follow suggestions: the score and id of the last suggestion returned.
+ * Suggestions are ordered by score, highest first, then by id.
+ *
+ * @param score score of the suggestion
+ * @param id user id of the suggestion, breaking ties
+ */
+record SuggestionKey(int score, UUID id) {
+  /** Cursors of the {@code suggestedUsers} connection. */
+  static final CursorType<SuggestionKey> TYPE =
+      new CursorType<>() {
+        @Override
+        public String name() {
+          return "SuggestedUsers";
+        }
+
+        @Override
+        public void write(SuggestionKey key, DataOutput out) throws IOException {
+          out.writeInt(key.score());
+          out.writeLong(key.id().getMostSignificantBits());
+          out.writeLong(key.id().getLeastSignificantBits());
+        }
+
+        @Override
+        public SuggestionKey read(DataInput in) throws IOException {
+          int score = in.readInt();
+          UUID id = new UUID(in.readLong(), in.readLong());
+          if (score < 0) {
+            throw new IOException("score out of range");
+          }
+          return new SuggestionKey(score, id);
+        }
+      };
+
+  static SuggestionKey of(Suggestion suggestion) {
+    return new SuggestionKey(suggestion.score(), suggestion.userId());
+  }
+
+  /** Whether {@code suggestion} comes after this position. */
+  boolean isBefore(Suggestion suggestion) {
+    return suggestion.score() < score
+        || (suggestion.score() == score && suggestion.userId().compareTo(id) > 0);
+  }
+}
@@ -0,0 +1,38 @@
+package com.xclone.infrastructure;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+/**
+ * Redis pub/sub configuration. Provides the shared listener container that components use to
+ * subscribe to cross-node notifications. The container only opens a subscription once a listener
+ * has been registered.
+ */
+@Configuration
+public class RedisMessagingConfig {
+
+  /**
+   * Creates the listener container shared by every Redis pub/sub subscriber. Messages are
+   * dispatched on virtual threads when {@code spring.threads.virtual.enabled} is set, as Spring
+   * Boot does not configure this container's executor itself.
+   *
+   * @param connectionFactory Redis connection factory
+   * @param virtualThreads whether the application runs in virtual-thread mode
+   * @return the listener container
+   */
+  @Bean
+  public RedisMessageListenerContainer redisMessageListenerContainer(
+      RedisConnectionFactory connectionFactory,
+      @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+    RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+    container.setConnectionFactory(connectionFactory);
+    SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("redis-listener-");
+    executor.setVirtualThreads(virtualThreads);
+    container.setTaskExecutor(executor);
+    return container;
+  }
+}
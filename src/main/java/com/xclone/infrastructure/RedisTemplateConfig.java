@@ -0,0 +1,34 @@
+package com.xclone.infrastructure;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+/**
+ * Redis templates beyond the auto-configured string template. Compact binary entries (e.g. refresh
+ * tokens) are read and written as raw bytes, with no serializer in between.
+ */
+@Configuration
+public class RedisTemplateConfig {
+
+  /**
+   * Creates a template whose keys, values and hash entries are raw byte arrays.
+   *
+   * @param connectionFactory Redis connection factory
+   * @return the binary template
+   */
+  @Bean
+  public RedisTemplate<byte[], byte[]> binaryRedisTemplate(
+      RedisConnectionFactory connectionFactory) {
+    RedisTemplate<byte[], byte[]> template = new RedisTemplate<>();
+    template.setConnectionFactory(connectionFactory);
+    template.setEnableDefaultSerializer(false);
+    template.setKeySerializer(RedisSerializer.byteArray());
+    template.setValueSerializer(RedisSerializer.byteArray());
+    template.setHashKeySerializer(RedisSerializer.byteArray());
+    template.setHashValueSerializer(RedisSerializer.byteArray());
+    return template;
+  }
+}
@@ -0,0 +1,13 @@
+package com.xclone.infrastructure;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Enables {@link org.springframework.scheduling.annotation.Scheduled} background jobs. Defined
+ * separately from the main application class to improve test isolation in MockMvc-based test
+ * suites.
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {}
@@ -0,0 +1,98 @@
+package com.xclone.post.controller;
+
+import com.xclone.exception.GraphQlErrorMapper;
+import com.xclone.exception.custom.PostNotFoundException;
+import com.xclone.post.dto.PostView;
+import com.xclone.post.dto.connection.PostConnection;
+import com.xclone.post.dto.mutation.PostResponse;
+import com.xclone.post.dto.request.CreatePostInput;
+import com.xclone.post.service.PostService;
+import com.xclone.security.jwt.JwtAuthenticationFilter;
+import com.xclone.security.user.CustomUserDetails;
+import com.xclone.user.dto.UserProfile;
+import jakarta.validation.ConstraintViolationException;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import org.dataloader.DataLoader;
+import org.springframework.graphql.data.method.annotation.Argument;
+import org.springframework.graphql.data.method.annotation.MutationMapping;
+import org.springframework.graphql.data.method.annotation.QueryMapping;
+import org.springframework.graphql.data.method.annotation.SchemaMapping;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.stereotype.Controller;
+
+/**
+ * GraphQL controller resolving queries and mutations for the {@link
+ * com.xclone.post.model.entity.Post} model. Authors are resolved through the user {@code
+ * DataLoader}, so a page of posts loads its authors together.
+ */
+@Controller
+public class PostController {
+  private final PostService postService;
+
+  /** Constructor; assigns components for internal use. */
+  public PostController(PostService postService) {
+    this.postService = postService;
+  }
+
+  /**
+   * Creates a post by the authenticated user.
+   *
+   * <p>Business exceptions are mapped with {@link GraphQlErrorMapper} in the style of
+   * "errors-as-data".
+   *
+   * @param userDetails authenticated user; populated as part of the security chain with {@link
+   *     JwtAuthenticationFilter}
+   * @param input DTO containing the post's content
+   * @return the created post
+   */
+  @MutationMapping
+  public PostResponse createPost(
+      @AuthenticationPrincipal CustomUserDetails userDetails, @Argument CreatePostInput input) {
+    try {
+      PostView post = postService.createPost(userDetails.getId(), input);
+      return new PostResponse("200", true, "Post created", post, null);
+    } catch (ConstraintViolationException ex) {
+      return new PostResponse(
+          "400", false, "Invalid post", null, GraphQlErrorMapper.fromConstraintViolations(ex));
+    }
+  }
+
+  /**
+   * Returns an active post.
+   *
+   * @param id UUID of the post
+   * @return the post, or errors-as-data if there is no such post
+   */
+  @QueryMapping
+  public PostResponse getPost(@Argument UUID id) {
+    try {
+      return new PostResponse("200", true, "Post found", postService.getPost(id), null);
+    } catch (PostNotFoundException ex) {
+      return new PostResponse(
+          "404", false, ex.getMessage(), null, GraphQlErrorMapper.fromPostNotFound(ex));
+    }
+  }
+
+  /**
+   * Resolves {@code feed}, the authenticated user's home timeline.
+   *
+   * @param userDetails authenticated user; populated as part of the security chain with {@link
+   *     JwtAuthenticationFilter}
+   * @param first page size
+   * @param after end cursor of the previous page
+   * @return a page of posts, newest first
+   */
+  @QueryMapping
+  public PostConnection feed(
+      @AuthenticationPrincipal CustomUserDetails userDetails,
+      @Argument Integer first,
+      @Argument String after) {
+    return postService.getFeed(userDetails.getId(), first, after);
+  }
+
+  @SchemaMapping(typeName = "Post")
+  public CompletableFuture<UserProfile> author(PostView post, DataLoader<UUID, UserProfile> users) {
+    return users.load(post.authorId());
+  }
+}
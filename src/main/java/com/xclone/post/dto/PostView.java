@@ -0,0 +1,45 @@
+package com.xclone.post.dto;
+
+import com.xclone.post.model.enums.PostStatus;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.UUID;
+
+/**
+ * Immutable public-facing projection of a {@link com.xclone.post.model.entity.Post} entity, mapping
+ * to the {@code Post} type in the GraphQL schema. The author is resolved from {@code authorId}
+ * through the user {@code DataLoader}.
+ *
+ * @param id UUID of the post
+ * @param authorId UUID of the user who wrote the post
+ * @param messageContent the text of the post
+ * @param status visibility of the post
+ * @param createdAt datetime of post creation
+ * @param updatedAt datetime of last update of the post
+ */
+public record PostView(
+    UUID id,
+    UUID authorId,
+    String messageContent,
+    PostStatus status,
+    OffsetDateTime createdAt,
+    OffsetDateTime updatedAt) {
+
+  /** Creates a view from stored column values, converting timestamps to UTC. */
+  public PostView(
+      UUID id,
+      UUID authorId,
+      String messageContent,
+      PostStatus status,
+      Instant createdAt,
+      Instant updatedAt) {
+    this(
+        id,
+        authorId,
+        messageContent,
+        status,
+        createdAt.atOffset(ZoneOffset.UTC),
+        updatedAt == null ? null : updatedAt.atOffset(ZoneOffset.UTC));
+  }
+}
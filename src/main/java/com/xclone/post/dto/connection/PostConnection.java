@@ -0,0 +1,14 @@
+package com.xclone.post.dto.connection;
+
+import com.xclone.common.connection.PageInfo;
+import java.util.List;
+
+/**
+ * Response DTO representing a page of Post models.
+ *
+ * @param edges list of unique post models
+ * @param pageInfo metadata about the statefulness of edges
+ * @param totalCount number of posts in the whole connection, or {@code null} if the client did not
+ *     select it or it is not counted
+ */
+public record PostConnection(List<PostEdge> edges, PageInfo pageInfo, Integer totalCount) {}
@@ -0,0 +1,12 @@
+package com.xclone.post.dto.connection;
+
+import com.xclone.post.dto.PostView;
+
+/**
+ * Wraps a {@link PostView} node with its cursor for use in a Relay-style connection.
+ *
+ * @param node the post at this position in the connection
+ * @param cursor opaque string identifying this edge's position, see {@link
+ *     com.xclone.common.connection.CursorCodec}
+ */
+public record PostEdge(PostView node, String cursor) {}
@@ -0,0 +1,19 @@
+package com.xclone.post.dto.mutation;
+
+import com.xclone.common.mutation.MutationResponse;
+import com.xclone.exception.dto.FieldError;
+import com.xclone.post.dto.PostView;
+import java.util.List;
+
+/**
+ * Response DTO representing the result of reading or mutating a Post.
+ *
+ * @param code HTTP status code
+ * @param success {@code true} if the request completed without errors
+ * @param message human-readable summary of the outcome
+ * @param post nullable post that was read or written
+ * @param errors nullable list of errors. Populated if a request fails due to business logic
+ */
+public record PostResponse(
+    String code, Boolean success, String message, PostView post, List<FieldError> errors)
+    implements MutationResponse {}
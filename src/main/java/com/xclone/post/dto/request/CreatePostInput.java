@@ -0,0 +1,15 @@
+package com.xclone.post.dto.request;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Size;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Represents a create post request.
+ *
+ * @param messageContent the text of the post
+ * @param mentionedUserIds users tagged in the post; not stored yet
+ */
+public record CreatePostInput(
+    @NotBlank @Size(max = 280) String messageContent, List<UUID> mentionedUserIds) {}
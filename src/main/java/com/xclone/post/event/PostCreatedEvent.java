@@ -0,0 +1,13 @@
+package com.xclone.post.event;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Published by {@link com.xclone.post.service.PostService} when a post is created.
+ *
+ * @param postId UUID of the new post
+ * @param authorId UUID of the user who wrote it
+ * @param createdAt when the post was created
+ */
+public record PostCreatedEvent(UUID postId, UUID authorId, Instant createdAt) {}
@@ -0,0 +1,12 @@
+package com.xclone.post.event;
+
+import java.util.UUID;
+
+/**
+ * Published by {@link com.xclone.post.timeline.HighFollowerAccounts} when an account's posts are no
+ * longer pulled into its followers' feeds, so that its recent posts are backfilled into their home
+ * timelines.
+ *
+ * @param authorId UUID of the account
+ */
+public record PullEndedEvent(UUID authorId) {}
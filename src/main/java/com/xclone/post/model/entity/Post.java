@@ -0,0 +1,77 @@
+package com.xclone.post.model.entity;
+
+import com.xclone.post.dto.PostView;
+import com.xclone.post.model.enums.PostStatus;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.Table;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.UUID;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Entity for posts table. Comments reference their parent post and reposts and quotes the quoted
+ * post; neither is created yet.
+ */
+@Getter
+@Setter
+@Entity
+@Table(name = "posts")
+@NoArgsConstructor
+public class Post {
+
+  @Id
+  @GeneratedValue(strategy = GenerationType.UUID)
+  private UUID id;
+
+  @Column(name = "author_id", nullable = false)
+  private UUID authorId;
+
+  @Column(name = "message_content", columnDefinition = "TEXT")
+  private String messageContent;
+
+  @Enumerated(EnumType.STRING)
+  @Column(nullable = false)
+  private PostStatus status = PostStatus.ACTIVE;
+
+  @Column(name = "parent_id")
+  private UUID parentId;
+
+  @Column(name = "quoted_post_id")
+  private UUID quotedPostId;
+
+  @Column(name = "created_at", nullable = false, updatable = false)
+  private Instant createdAt;
+
+  @Column(name = "updated_at")
+  private Instant updatedAt;
+
+  /**
+   * Stamps the creation time, truncated to the microsecond precision of the column so that the
+   * copies of it in home timelines order and page exactly like the stored posts.
+   */
+  @PrePersist
+  void onCreate() {
+    createdAt = Instant.now().truncatedTo(ChronoUnit.MICROS);
+  }
+
+  /**
+   * Projects this entity to a {@link PostView} for use in GraphQL responses. Timestamps are
+   * converted from {@link Instant} to {@link OffsetDateTime} at UTC.
+   *
+   * @return immutable public-facing projection of this post
+   */
+  public PostView toPostView() {
+    return new PostView(id, authorId, messageContent, status, createdAt, updatedAt);
+  }
+}
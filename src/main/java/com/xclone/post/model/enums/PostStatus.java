@@ -0,0 +1,8 @@
+package com.xclone.post.model.enums;
+
+/** Enum for Post visibility status; mirrors the {@code Status} enum of the GraphQL schema. */
+public enum PostStatus {
+  ACTIVE,
+  DELETED,
+  HIDDEN,
+}
@@ -0,0 +1,99 @@
+package com.xclone.post.repository;
+
+import com.xclone.post.model.entity.Post;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Repository to connect Post entity to JPA.
+ *
+ * <p>Home timelines are served from Redis by {@link com.xclone.post.timeline.TimelineStore}; the
+ * queries here fill them. All read the newest active top-level posts of an author through {@code
+ * idx_posts_author_created} in {@code db/indexes.sql}.
+ */
+@Repository
+public interface PostRepository extends JpaRepository<Post, UUID> {
+
+  /**
+   * Selects an author's newest active top-level posts, for backfilling the timeline of a new
+   * follower.
+   *
+   * @param authorId the author
+   * @param limit maximum number of posts to return
+   * @return posts and when they were created, newest first
+   */
+  @Transactional(readOnly = true)
+  @Query(
+      nativeQuery = true,
+      value =
+          """
+          SELECT p.id AS "id", p.created_at AS "createdAt" FROM posts p
+          WHERE p.author_id = :authorId AND p.status = 'ACTIVE' AND p.parent_id IS NULL
+          ORDER BY p.created_at DESC
+          LIMIT :limit
+          """)
+  List<PostRow> findRecentByAuthor(@Param("authorId") UUID authorId, @Param("limit") int limit);
+
+  /**
+   * Selects a page of an author's active top-level posts after the keyset cursor, newest first.
+   * Used to rebuild author timelines missing from Redis and to page past them.
+   *
+   * @param authorId the author
+   * @param afterAt creation time of the cursor
+   * @param afterId post id of the cursor
+   * @param limit maximum number of posts to return
+   * @return posts and when they were created, newest first
+   */
+  @Transactional(readOnly = true)
+  @Query(
+      nativeQuery = true,
+      value =
+          """
+          SELECT p.id AS "id", p.created_at AS "createdAt" FROM posts p
+          WHERE p.author_id = :authorId AND p.status = 'ACTIVE' AND p.parent_id IS NULL
+            AND (p.created_at, p.id) < (:afterAt, :afterId)
+          ORDER BY p.created_at DESC, p.id DESC
+          LIMIT :limit
+          """)
+  List<PostRow> findAuthorPage(
+      @Param("authorId") UUID authorId,
+      @Param("afterAt") Instant afterAt,
+      @Param("afterId") UUID afterId,
+      @Param("limit") int limit);
+
+  /**
+   * Selects a page of a user's home timeline after the keyset cursor, newest first: the active
+   * top-level posts of the user and of the users they follow. Used to rebuild timelines missing
+   * from Redis, and to serve them while Redis is unavailable.
+   *
+   * @param userId the timeline's owner
+   * @param afterAt creation time of the cursor
+   * @param afterId post id of the cursor
+   * @param limit maximum number of posts to return
+   * @return posts and when they were created, newest first
+   */
+  @Transactional(readOnly = true)
+  @Query(
+      nativeQuery = true,
+      value =
+          """
+          SELECT p.id AS "id", p.created_at AS "createdAt" FROM posts p
+          WHERE p.status = 'ACTIVE' AND p.parent_id IS NULL
+            AND (p.author_id = :userId OR p.author_id IN (
+              SELECT f.following_id FROM follows f WHERE f.follower_id = :userId))
+            AND (p.created_at, p.id) < (:afterAt, :afterId)
+          ORDER BY p.created_at DESC, p.id DESC
+          LIMIT :limit
+          """)
+  List<PostRow> findTimelinePage(
+      @Param("userId") UUID userId,
+      @Param("afterAt") Instant afterAt,
+      @Param("afterId") UUID afterId,
+      @Param("limit") int limit);
+}
@@ -0,0 +1,13 @@
+package com.xclone.post.repository;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/** Projection of a post as the entry it makes in a home timeline. */
+public interface PostRow {
+  /** The post. */
+  UUID getId();
+
+  /** When the post was created; orders timelines. */
+  Instant getCreatedAt();
+}
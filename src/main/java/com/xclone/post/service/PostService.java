@@ -0,0 +1,120 @@
+package com.xclone.post.service;
+
+import com.xclone.common.connection.CursorType;
+import com.xclone.common.connection.Edge;
+import com.xclone.common.connection.KeysetPaginator;
+import com.xclone.common.connection.Page;
+import com.xclone.common.connection.PageRequest;
+import com.xclone.common.connection.TimeIdKey;
+import com.xclone.exception.custom.PostNotFoundException;
+import com.xclone.post.dto.PostView;
+import com.xclone.post.dto.connection.PostConnection;
+import com.xclone.post.dto.connection.PostEdge;
+import com.xclone.post.dto.request.CreatePostInput;
+import com.xclone.post.event.PostCreatedEvent;
+import com.xclone.post.model.entity.Post;
+import com.xclone.post.model.enums.PostStatus;
+import com.xclone.post.repository.PostRepository;
+import com.xclone.post.timeline.FeedReader;
+import com.xclone.post.timeline.TimelineEntry;
+import jakarta.validation.Valid;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.validation.annotation.Validated;
+
+/** Coordinates resolver logic for the Post GraphQL model and the home feed. */
+@Service
+@Validated
+public class PostService {
+  /** Cursors of the {@code feed} connection. */
+  static final CursorType<TimeIdKey> FEED = CursorType.timeId("Feed");
+
+  private final PostRepository postRepository;
+  private final FeedReader feedReader;
+  private final KeysetPaginator paginator;
+  private final ApplicationEventPublisher eventPublisher;
+
+  /** Constructor; assigns components for internal use. */
+  public PostService(
+      PostRepository postRepository,
+      FeedReader feedReader,
+      KeysetPaginator paginator,
+      ApplicationEventPublisher eventPublisher) {
+    this.postRepository = postRepository;
+    this.feedReader = feedReader;
+    this.paginator = paginator;
+    this.eventPublisher = eventPublisher;
+  }
+
+  /**
+   * Creates a top-level post and publishes a {@link PostCreatedEvent}, which fans it out to the
+   * home timelines of the author's followers once committed.
+   *
+   * @param authorId UUID of the authenticated user
+   * @param input DTO containing the post's content
+   * @return the created post
+   */
+  @Transactional
+  public PostView createPost(UUID authorId, @Valid CreatePostInput input) {
+    Post post = new Post();
+    post.setAuthorId(authorId);
+    post.setMessageContent(input.messageContent());
+    post = postRepository.save(post);
+    eventPublisher.publishEvent(new PostCreatedEvent(post.getId(), authorId, post.getCreatedAt()));
+    return post.toPostView();
+  }
+
+  /**
+   * Fetches an active post.
+   *
+   * @param id the post's id
+   * @return the post
+   * @throws PostNotFoundException if no active post has the id
+   */
+  public PostView getPost(UUID id) {
+    return postRepository
+        .findById(id)
+        .filter(post -> post.getStatus() == PostStatus.ACTIVE)
+        .map(Post::toPostView)
+        .orElseThrow(() -> new PostNotFoundException("Post not found"));
+  }
+
+  /**
+   * Pages through the viewer's home feed, newest first: their own posts and those of the users they
+   * follow.
+   *
+   * <p>A page is one read of the viewer's timelines through the {@link FeedReader}, which merges in
+   * the posts of followed high-follower accounts, and one batch read of the posts on it. Posts
+   * deleted or hidden since they were added to a timeline are left out. The feed is not counted, so
+   * {@code totalCount} is always {@code null}.
+   *
+   * @param viewerId the authenticated user
+   * @param first page size
+   * @param after end cursor of the previous page
+   * @return a page of posts
+   */
+  public PostConnection getFeed(UUID viewerId, Integer first, String after) {
+    PageRequest<TimeIdKey> request = paginator.forward(FEED, first, after);
+    List<TimelineEntry> entries = feedReader.read(viewerId, request.cursor(), request.fetchSize());
+    Page<TimelineEntry> page = paginator.page(FEED, request, entries, TimelineEntry::key);
+
+    Map<UUID, Post> posts = new HashMap<>();
+    postRepository
+        .findAllById(page.edges().stream().map(edge -> edge.node().postId()).toList())
+        .forEach(post -> posts.put(post.getId(), post));
+    List<PostEdge> edges = new ArrayList<>(page.size());
+    for (Edge<TimelineEntry> edge : page.edges()) {
+      Post post = posts.get(edge.node().postId());
+      if (post != null && post.getStatus() == PostStatus.ACTIVE) {
+        edges.add(new PostEdge(post.toPostView(), edge.cursor()));
+      }
+    }
+    return new PostConnection(edges, page.pageInfo(), null);
+  }
+}
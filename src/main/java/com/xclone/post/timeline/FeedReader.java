@@ -0,0 +1,170 @@
+package com.xclone.post.timeline;
+
+import com.xclone.common.connection.TimeIdKey;
+import com.xclone.config.TimelineProperties;
+import com.xclone.follow.cache.FollowingSetCache;
+import com.xclone.post.repository.PostRepository;
+import com.xclone.post.repository.PostRow;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+/**
+ * Reads home feeds: the viewer's home timeline, into which posts are pushed by {@link
+ * TimelineFanout}, merged with the author timelines of the {@link HighFollowerAccounts} they
+ * follow, whose posts are pulled or still being drained.
+ *
+ * <p>A page reads every timeline involved from the {@link TimelineStore} in one pipelined round
+ * trip; the followed high-follower accounts come from the viewer's cached following set. Timelines
+ * missing from Redis are rebuilt from the database first. A timeline that has had older posts
+ * trimmed continues in the database once exhausted, and while Redis is unavailable the whole feed
+ * is read from the database. The timelines are then combined with {@link TimelineMerge}.
+ *
+ * <p>Publishes {@code feed.merge.duration} and {@code feed.merge.timelines} (timelines merged per
+ * page), for pages that merge pulled posts.
+ */
+@Slf4j
+@Component
+public class FeedReader {
+  private final TimelineStore timelineStore;
+  private final PostRepository postRepository;
+  private final FollowingSetCache followingSets;
+  private final HighFollowerAccounts highFollowerAccounts;
+  private final TimelineProperties properties;
+  private final Timer mergeDuration;
+  private final DistributionSummary mergedTimelines;
+
+  /** Constructor; assigns components for internal use and registers the merge meters. */
+  public FeedReader(
+      TimelineStore timelineStore,
+      PostRepository postRepository,
+      FollowingSetCache followingSets,
+      HighFollowerAccounts highFollowerAccounts,
+      TimelineProperties properties,
+      MeterRegistry meterRegistry) {
+    this.timelineStore = timelineStore;
+    this.postRepository = postRepository;
+    this.followingSets = followingSets;
+    this.highFollowerAccounts = highFollowerAccounts;
+    this.properties = properties;
+    this.mergeDuration = Timer.builder("feed.merge.duration").register(meterRegistry);
+    this.mergedTimelines =
+        DistributionSummary.builder("feed.merge.timelines").register(meterRegistry);
+  }
+
+  /**
+   * Reads a page of the viewer's feed.
+   *
+   * @param viewerId the feed's owner
+   * @param after position of the last post of the previous page, or {@code null} for the first page
+   * @param limit maximum number of posts to return
+   * @return the posts, newest first
+   */
+  public List<TimelineEntry> read(UUID viewerId, TimeIdKey after, int limit) {
+    List<UUID> pulled = pulledAuthors(viewerId);
+    List<TimelinePage> pages;
+    try {
+      pages = timelineStore.pages(viewerId, pulled, after, limit);
+      if (pages.contains(null)) {
+        rebuildMissing(viewerId, pulled, pages);
+        pages = timelineStore.pages(viewerId, pulled, after, limit);
+      }
+    } catch (RuntimeException e) {
+      log.warn(
+          "home timelines unavailable, reading the feed from the database: {}", e.getMessage());
+      return findTimelinePage(viewerId, after, limit);
+    }
+
+    List<List<TimelineEntry>> timelines = new ArrayList<>(pages.size());
+    timelines.add(
+        complete(
+            pages.getFirst(), after, limit, (cursor, n) -> findTimelinePage(viewerId, cursor, n)));
+    for (int i = 0; i < pulled.size(); i++) {
+      UUID authorId = pulled.get(i);
+      timelines.add(
+          complete(
+              pages.get(i + 1), after, limit, (cursor, n) -> findAuthorPage(authorId, cursor, n)));
+    }
+    if (timelines.size() == 1) {
+      return timelines.getFirst();
+    }
+    long started = System.nanoTime();
+    List<TimelineEntry> merged = TimelineMerge.merge(timelines, limit);
+    mergeDuration.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+    mergedTimelines.record(timelines.size());
+    return merged;
+  }
+
+  private List<UUID> pulledAuthors(UUID viewerId) {
+    Set<UUID> highFollowers = highFollowerAccounts.mergedIds();
+    if (highFollowers.isEmpty()) {
+      return List.of();
+    }
+    return List.copyOf(followingSets.followedAmong(viewerId, highFollowers));
+  }
+
+  /**
+   * Rebuilds the timelines that were not in Redis. Each is created before it is read from the
+   * database, so that posts added meanwhile are either read or added to it. One post more than a
+   * timeline holds is read, so that it is marked as truncated if there are older posts.
+   */
+  private void rebuildMissing(UUID viewerId, List<UUID> pulled, List<TimelinePage> pages) {
+    int size = properties.getMaxSize() + 1;
+    if (pages.getFirst() == null) {
+      timelineStore.create(viewerId);
+      timelineStore.push(List.of(viewerId), findTimelinePage(viewerId, null, size));
+    }
+    for (int i = 0; i < pulled.size(); i++) {
+      if (pages.get(i + 1) == null) {
+        UUID authorId = pulled.get(i);
+        timelineStore.createAuthor(authorId);
+        timelineStore.pushAuthor(authorId, findAuthorPage(authorId, null, size));
+      }
+    }
+  }
+
+  /**
+   * Returns the posts of a page, continued in the database if the timeline ran out before {@code
+   * limit} posts and older posts were trimmed from it, or read from the database if it is missing.
+   */
+  private static List<TimelineEntry> complete(
+      TimelinePage page, TimeIdKey after, int limit, PageQuery query) {
+    if (page == null) {
+      return query.find(after, limit);
+    }
+    List<TimelineEntry> entries = page.entries();
+    if (entries.size() < limit && page.truncated()) {
+      TimeIdKey last = entries.isEmpty() ? after : entries.getLast().key();
+      entries = new ArrayList<>(entries);
+      entries.addAll(query.find(last, limit - entries.size()));
+    }
+    return entries;
+  }
+
+  private List<TimelineEntry> findTimelinePage(UUID viewerId, TimeIdKey after, int limit) {
+    TimeIdKey cursor = after == null ? TimeIdKey.LATEST : after;
+    return toEntries(postRepository.findTimelinePage(viewerId, cursor.at(), cursor.id(), limit));
+  }
+
+  private List<TimelineEntry> findAuthorPage(UUID authorId, TimeIdKey after, int limit) {
+    TimeIdKey cursor = after == null ? TimeIdKey.LATEST : after;
+    return toEntries(postRepository.findAuthorPage(authorId, cursor.at(), cursor.id(), limit));
+  }
+
+  private static List<TimelineEntry> toEntries(List<PostRow> rows) {
+    return rows.stream().map(row -> new TimelineEntry(row.getId(), row.getCreatedAt())).toList();
+  }
+
+  /** Reads a timeline from the database after a position. */
+  @FunctionalInterface
+  private interface PageQuery {
+    List<TimelineEntry> find(TimeIdKey after, int limit);
+  }
+}
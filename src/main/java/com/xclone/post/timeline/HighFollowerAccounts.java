@@ -0,0 +1,151 @@
+package com.xclone.post.timeline;
+
+import com.xclone.config.TimelineProperties;
+import com.xclone.follow.repository.UserCountersRepository;
+import com.xclone.post.event.PullEndedEvent;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * The accounts with many followers, whose posts are pulled into their followers' feeds when read
+ * instead of being fanned out when written.
+ *
+ * <p>An account enters the set once it has {@link TimelineProperties#getPullFollowerThreshold()}
+ * followers, and only leaves it once it has fewer than {@link
+ * TimelineProperties#getPullExitFollowerThreshold()}, so that an account hovering around the
+ * threshold does not switch back and forth. The first refresh after startup cannot tell which
+ * accounts in between had entered, so it takes all of them: pulling an account whose posts were
+ * pushed only merges posts its followers already have.
+ *
+ * <p>Posts an account had fanned out before entering stay in its followers' timelines and are
+ * deduplicated when merged. Posts it wrote while pulled are only in its author timeline, so an
+ * account that leaves is drained: its author timeline is still merged into feeds, while its new
+ * posts are fanned out, until its newest {@link TimelineProperties#getMaxSize()} posts have been
+ * backfilled into its followers' timelines. A {@link PullEndedEvent} asks {@link TimelineFanout}
+ * for the backfill, which reports back with {@link #drained} or {@link #drainFailed}; failed
+ * backfills are requested again on the next refresh.
+ *
+ * <p>The set is small and read on every post and feed read, so it is held in memory and re-read
+ * from the follower counters by a scheduled job. Publishes {@code timeline.pull.authors} and {@code
+ * timeline.pull.draining}.
+ */
+@Slf4j
+@Component
+public class HighFollowerAccounts {
+  private final UserCountersRepository countersRepository;
+  private final TimelineProperties properties;
+  private final ApplicationEventPublisher eventPublisher;
+
+  /** Draining accounts, mapped to whether their backfill has been requested and not failed. */
+  private final Map<UUID, Boolean> draining = new ConcurrentHashMap<>();
+
+  private volatile Set<UUID> ids = Set.of();
+  private volatile Set<UUID> mergedIds = Set.of();
+  private volatile boolean loaded;
+
+  /** Constructor; assigns components for internal use and registers the set's meters. */
+  public HighFollowerAccounts(
+      UserCountersRepository countersRepository,
+      TimelineProperties properties,
+      ApplicationEventPublisher eventPublisher,
+      MeterRegistry meterRegistry) {
+    this.countersRepository = countersRepository;
+    this.properties = properties;
+    this.eventPublisher = eventPublisher;
+    Gauge.builder("timeline.pull.authors", this, accounts -> accounts.ids.size())
+        .register(meterRegistry);
+    Gauge.builder("timeline.pull.draining", draining, Map::size).register(meterRegistry);
+  }
+
+  /** Whether the account's posts are pulled rather than fanned out. */
+  public boolean contains(UUID userId) {
+    return ids.contains(userId);
+  }
+
+  /** Returns every account whose author timeline is merged into feeds, including draining ones. */
+  public Set<UUID> mergedIds() {
+    return mergedIds;
+  }
+
+  /** Re-reads the accounts over the thresholds from the follower counters. */
+  @Scheduled(fixedDelayString = "${app.timeline.high-follower-refresh-interval-ms:60000}")
+  public synchronized void refresh() {
+    long enter = properties.getPullFollowerThreshold();
+    Set<UUID> next;
+    if (enter <= 0) {
+      next = Set.of();
+    } else {
+      long exit = Math.min(properties.getPullExitFollowerThreshold(), enter);
+      try {
+        next = read(enter, exit);
+      } catch (RuntimeException e) {
+        log.warn(
+            "High-follower accounts not refreshed, keeping {}: {}", ids.size(), e.getMessage());
+        return;
+      }
+    }
+    for (UUID id : ids) {
+      if (!next.contains(id)) {
+        draining.put(id, false);
+      }
+    }
+    next.forEach(draining::remove);
+    ids = next;
+    loaded = true;
+    updateMergedIds();
+    draining.forEach(
+        (id, requested) -> {
+          if (!requested && draining.replace(id, false, true)) {
+            eventPublisher.publishEvent(new PullEndedEvent(id));
+          }
+        });
+  }
+
+  /**
+   * Returns the accounts over the enter threshold, and those in the set still over the exit one.
+   */
+  private Set<UUID> read(long enter, long exit) {
+    Set<UUID> overExit = Set.copyOf(countersRepository.findUserIdsWithFollowersAtLeast(exit));
+    if (!loaded || exit == enter) {
+      return overExit;
+    }
+    Set<UUID> next = new HashSet<>(countersRepository.findUserIdsWithFollowersAtLeast(enter));
+    for (UUID id : ids) {
+      if (overExit.contains(id)) {
+        next.add(id);
+      }
+    }
+    return Set.copyOf(next);
+  }
+
+  /** Stops merging a draining account once its posts have been backfilled. */
+  public void drained(UUID userId) {
+    if (draining.remove(userId) != null) {
+      updateMergedIds();
+    }
+  }
+
+  /** Keeps merging a draining account whose backfill failed, and retries it on the next refresh. */
+  public void drainFailed(UUID userId) {
+    draining.replace(userId, true, false);
+  }
+
+  private synchronized void updateMergedIds() {
+    if (draining.isEmpty()) {
+      mergedIds = ids;
+      return;
+    }
+    Set<UUID> merged = new HashSet<>(ids);
+    merged.addAll(draining.keySet());
+    mergedIds = Set.copyOf(merged);
+  }
+}
@@ -0,0 +1,51 @@
+package com.xclone.post.timeline;
+
+import com.xclone.common.connection.TimeIdKey;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.UUID;
+
+/**
+ * A post in a home timeline.
+ *
+ * @param postId the post
+ * @param createdAt when the post was created, to the microsecond; orders the timeline
+ */
+public record TimelineEntry(UUID postId, Instant createdAt) {
+  /**
+   * Newest first, then by post id descending, comparing ids as unsigned bytes like PostgreSQL and
+   * Redis do.
+   */
+  static final Comparator<TimelineEntry> NEWEST_FIRST =
+      Comparator.comparing(TimelineEntry::createdAt)
+          .thenComparing(
+              (TimelineEntry entry) -> entry.postId(),
+              (a, b) -> {
+                int high =
+                    Long.compareUnsigned(a.getMostSignificantBits(), b.getMostSignificantBits());
+                return high != 0
+                    ? high
+                    : Long.compareUnsigned(
+                        a.getLeastSignificantBits(), b.getLeastSignificantBits());
+              })
+          .reversed();
+
+  /** Returns the keyset position of this entry in a newest-first connection. */
+  public TimeIdKey key() {
+    return new TimeIdKey(createdAt, postId);
+  }
+
+  /** Score of the entry in its Redis sorted set: microseconds since the epoch. */
+  long score() {
+    return toMicros(createdAt);
+  }
+
+  static long toMicros(Instant instant) {
+    return instant.getEpochSecond() * 1_000_000 + instant.getNano() / 1_000;
+  }
+
+  static Instant fromMicros(long micros) {
+    return Instant.ofEpochSecond(
+        Math.floorDiv(micros, 1_000_000), Math.floorMod(micros, 1_000_000) * 1_000L);
+  }
+}
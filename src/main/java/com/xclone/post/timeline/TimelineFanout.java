@@ -0,0 +1,279 @@
+package com.xclone.post.timeline;
+
+import com.xclone.common.connection.TimeIdKey;
+import com.xclone.config.TimelineProperties;
+import com.xclone.follow.event.FollowChangedEvent;
+import com.xclone.follow.repository.FollowRepository;
+import com.xclone.follow.repository.FollowRow;
+import com.xclone.post.event.PostCreatedEvent;
+import com.xclone.post.event.PullEndedEvent;
+import com.xclone.post.repository.PostRepository;
+import com.xclone.post.repository.PostRow;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * Fans out-on-write: adds every new post to the home timelines of its author and their followers in
+ * the {@link TimelineStore}. Posts of {@link HighFollowerAccounts} are only added to the author's
+ * own home and author timelines, and are pulled into their followers' feeds by {@link FeedReader}
+ * instead, so that one post does not become millions of writes.
+ *
+ * <p>Once a post commits, its fan-out is queued on a dedicated pool of {@link
+ * TimelineProperties#getFanoutThreads()} threads, so that creating a post does not wait for Redis.
+ * The threads are virtual when {@code spring.threads.virtual.enabled} is set; the pool size still
+ * bounds how many fan-outs hold a database connection at once. Followers are paged from the
+ * database newest first, and each page of {@link TimelineProperties#getFanoutBatchSize()} timelines
+ * is written with one pipelined round trip. If more than {@link
+ * TimelineProperties#getFanoutQueueCapacity()} fan-outs are waiting, further ones are set aside in
+ * a retry queue and resubmitted as the pool catches up, so that a backlog never runs on the thread
+ * creating a post or following an account. Fan-outs run in any order, so requeueing is safe. Once
+ * {@link TimelineProperties#getFanoutRetryCapacity()} fan-outs are set aside, further ones are
+ * dropped and logged, and the affected timelines catch up once they expire and are rebuilt.
+ *
+ * <p>Following an account adds its newest {@link TimelineProperties#getBackfillSize()} posts to the
+ * follower's timeline, unless they are pulled; unfollowing removes the account's posts again. Both
+ * are queued on the same pool, and apply whether the follow exists when they run, so that a follow
+ * and unfollow overtaking each other still leave the timeline matching the database. An account
+ * that stops being pulled has its newest {@link TimelineProperties#getMaxSize()} posts pushed to
+ * all of its followers, on the same pool, before its author timeline stops being merged. Each node
+ * backfills the accounts it saw leave; the writes are idempotent. Timelines are only written if
+ * they exist; missing ones are rebuilt from the database when read. If Redis is unavailable the
+ * write is skipped and logged, and the affected timelines catch up once they expire and are
+ * rebuilt.
+ *
+ * <p>Publishes {@code timeline.fanout.queue.depth}, {@code timeline.fanout.retry.depth}, {@code
+ * timeline.fanout.dropped}, {@code timeline.fanout.duration} (per post, tagged {@code mode} {@code
+ * push} or {@code pull}), {@code timeline.fanout.timelines} (timelines written per post) and {@code
+ * timeline.fanout.writes} (timelines written in total).
+ */
+@Slf4j
+@Component
+public class TimelineFanout {
+  private final TimelineStore timelineStore;
+  private final FollowRepository followRepository;
+  private final PostRepository postRepository;
+  private final HighFollowerAccounts highFollowerAccounts;
+  private final TimelineProperties properties;
+  private final ThreadPoolExecutor executor;
+  private final BlockingQueue<Runnable> retries;
+  private final Counter dropped;
+  private final Timer pushDuration;
+  private final Timer pullDuration;
+  private final DistributionSummary timelinesPerPost;
+  private final Counter writes;
+
+  /**
+   * Constructor; starts the fan-out pool and registers its meters.
+   *
+   * @param virtualThreads whether the application runs in virtual-thread mode
+   */
+  public TimelineFanout(
+      TimelineStore timelineStore,
+      FollowRepository followRepository,
+      PostRepository postRepository,
+      HighFollowerAccounts highFollowerAccounts,
+      TimelineProperties properties,
+      MeterRegistry meterRegistry,
+      @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+    this.timelineStore = timelineStore;
+    this.followRepository = followRepository;
+    this.postRepository = postRepository;
+    this.highFollowerAccounts = highFollowerAccounts;
+    this.properties = properties;
+    this.retries = new LinkedBlockingQueue<>(properties.getFanoutRetryCapacity());
+    this.dropped = meterRegistry.counter("timeline.fanout.dropped");
+    this.executor =
+        new ThreadPoolExecutor(
+            properties.getFanoutThreads(),
+            properties.getFanoutThreads(),
+            0L,
+            TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(properties.getFanoutQueueCapacity()),
+            virtualThreads
+                ? Thread.ofVirtual().name("timeline-fanout-", 1).factory()
+                : Thread.ofPlatform().name("timeline-fanout-", 1).daemon().factory(),
+            this::setAside);
+    Gauge.builder("timeline.fanout.queue.depth", executor, e -> e.getQueue().size())
+        .register(meterRegistry);
+    Gauge.builder("timeline.fanout.retry.depth", retries, BlockingQueue::size)
+        .register(meterRegistry);
+    this.pushDuration = fanoutTimer(meterRegistry, "push");
+    this.pullDuration = fanoutTimer(meterRegistry, "pull");
+    this.timelinesPerPost =
+        DistributionSummary.builder("timeline.fanout.timelines").register(meterRegistry);
+    this.writes = meterRegistry.counter("timeline.fanout.writes");
+  }
+
+  private static Timer fanoutTimer(MeterRegistry meterRegistry, String mode) {
+    return Timer.builder("timeline.fanout.duration").tag("mode", mode).register(meterRegistry);
+  }
+
+  /** Finishes the queued fan-outs before shutdown, for at most ten seconds. */
+  @PreDestroy
+  void shutdown() throws InterruptedException {
+    executor.shutdown();
+    if (!executor.awaitTermination(10, TimeUnit.SECONDS)) {
+      log.warn("Timeline fan-out stopped with {} fan-outs queued", executor.getQueue().size());
+    }
+    if (!retries.isEmpty()) {
+      log.warn("Timeline fan-out stopped with {} fan-outs set aside", retries.size());
+    }
+  }
+
+  /** Rejection policy of the pool: keeps a fan-out for {@link #retryRejected()}. */
+  private void setAside(Runnable fanout, ThreadPoolExecutor pool) {
+    if (pool.isShutdown()) {
+      return;
+    }
+    if (!retries.offer(fanout)) {
+      dropped.increment();
+      log.warn("Timeline fan-out dropped, {} fan-outs already set aside", retries.size());
+    }
+  }
+
+  /** Resubmits the fan-outs set aside, as far as the pool's queue has room for them. */
+  @Scheduled(fixedDelayString = "${app.timeline.fanout-retry-interval-ms:1000}")
+  void retryRejected() {
+    Runnable fanout;
+    while (executor.getQueue().remainingCapacity() > 0 && (fanout = retries.poll()) != null) {
+      executor.execute(fanout);
+    }
+  }
+
+  /** Queues the fan-out of a committed post. */
+  @TransactionalEventListener(fallbackExecution = true)
+  public void onPostCreated(PostCreatedEvent event) {
+    executor.execute(() -> fanOut(event));
+  }
+
+  void fanOut(PostCreatedEvent event) {
+    long started = System.nanoTime();
+    List<TimelineEntry> entry = List.of(new TimelineEntry(event.postId(), event.createdAt()));
+    int written = write(() -> timelineStore.push(List.of(event.authorId()), entry), 1);
+    boolean pulled = highFollowerAccounts.contains(event.authorId());
+    if (pulled) {
+      write(() -> timelineStore.pushAuthor(event.authorId(), entry), 1);
+    } else {
+      written += pushToFollowers(event.authorId(), entry);
+    }
+    timelinesPerPost.record(written);
+    (pulled ? pullDuration : pushDuration)
+        .record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+  }
+
+  private int pushToFollowers(UUID authorId, List<TimelineEntry> entry) {
+    int written = 0;
+    TimeIdKey cursor = TimeIdKey.LATEST;
+    List<FollowRow> followers;
+    do {
+      followers =
+          followRepository.findFollowersPage(
+              authorId, cursor.at(), cursor.id(), properties.getFanoutBatchSize());
+      if (followers.isEmpty()) {
+        break;
+      }
+      List<FollowRow> batch = followers;
+      written +=
+          write(
+              () -> timelineStore.push(batch.stream().map(FollowRow::getUserId).toList(), entry),
+              batch.size());
+      FollowRow last = followers.getLast();
+      cursor = new TimeIdKey(last.getCreatedAt(), last.getUserId());
+    } while (followers.size() == properties.getFanoutBatchSize());
+    return written;
+  }
+
+  /** Queues the backfill of an account whose posts are no longer pulled. */
+  @EventListener
+  public void onPullEnded(PullEndedEvent event) {
+    executor.execute(() -> backfillFollowers(event.authorId()));
+  }
+
+  /**
+   * Pushes the account's newest posts to every follower, then lets {@link HighFollowerAccounts}
+   * stop merging its author timeline. A home timeline lacking any older post of the account then
+   * holds enough newer posts that the older one was trimmed, and is read from the database.
+   */
+  void backfillFollowers(UUID authorId) {
+    try {
+      List<TimelineEntry> posts =
+          postRepository.findRecentByAuthor(authorId, properties.getMaxSize()).stream()
+              .map(TimelineFanout::toEntry)
+              .toList();
+      if (!posts.isEmpty()) {
+        pushToFollowers(authorId, posts);
+      }
+    } catch (RuntimeException e) {
+      log.warn("Posts of {} not backfilled, still merged into feeds: {}", authorId, e.getMessage());
+      highFollowerAccounts.drainFailed(authorId);
+      return;
+    }
+    highFollowerAccounts.drained(authorId);
+  }
+
+  /** Queues the update of the follower's timeline to a committed follow or unfollow. */
+  @TransactionalEventListener(fallbackExecution = true)
+  public void onFollowChanged(FollowChangedEvent event) {
+    executor.execute(() -> applyFollowChange(event));
+  }
+
+  /**
+   * Adds the newest posts of a followed account to, or removes its posts from, the timeline,
+   * depending on whether the follow still exists rather than on the event.
+   */
+  void applyFollowChange(FollowChangedEvent event) {
+    UUID followerId = event.followerId();
+    UUID followingId = event.followingId();
+    try {
+      if (followRepository.findFollowedAmong(followerId, List.of(followingId)).isEmpty()) {
+        List<UUID> posts =
+            postRepository.findRecentByAuthor(followingId, properties.getMaxSize()).stream()
+                .map(PostRow::getId)
+                .toList();
+        write(() -> timelineStore.remove(followerId, posts), 1);
+      } else if (!highFollowerAccounts.contains(followingId)) {
+        List<TimelineEntry> posts =
+            postRepository.findRecentByAuthor(followingId, properties.getBackfillSize()).stream()
+                .map(TimelineFanout::toEntry)
+                .toList();
+        write(() -> timelineStore.push(List.of(followerId), posts), 1);
+      }
+    } catch (RuntimeException e) {
+      log.warn("Timeline of {} not updated to a follow change: {}", followerId, e.getMessage());
+    }
+  }
+
+  private static TimelineEntry toEntry(PostRow row) {
+    return new TimelineEntry(row.getId(), row.getCreatedAt());
+  }
+
+  /** Runs a timeline write and returns the number of timelines written. */
+  private int write(Runnable write, int timelines) {
+    try {
+      write.run();
+      writes.increment(timelines);
+      return timelines;
+    } catch (RuntimeException e) {
+      log.warn(
+          "home timelines unavailable, {} timelines not written: {}", timelines, e.getMessage());
+      return 0;
+    }
+  }
+}
@@ -0,0 +1,56 @@
+package com.xclone.post.timeline;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Merges timelines sorted {@link TimelineEntry#NEWEST_FIRST} into one, with a heap holding the next
+ * entry of every timeline: {@code O(limit * log k)} for {@code k} timelines. A post in several
+ * timelines, e.g. fanned out before its author crossed the pull threshold, is kept once.
+ */
+final class TimelineMerge {
+  private TimelineMerge() {}
+
+  /**
+   * Merges sorted timelines.
+   *
+   * @param timelines timelines, each sorted newest first
+   * @param limit maximum number of entries to return
+   * @return the newest {@code limit} distinct entries of all timelines, newest first
+   */
+  static List<TimelineEntry> merge(List<List<TimelineEntry>> timelines, int limit) {
+    PriorityQueue<Head> heads = new PriorityQueue<>(Math.max(1, timelines.size()));
+    for (List<TimelineEntry> timeline : timelines) {
+      if (!timeline.isEmpty()) {
+        heads.add(new Head(timeline, 0));
+      }
+    }
+    List<TimelineEntry> merged = new ArrayList<>(limit);
+    TimelineEntry last = null;
+    while (merged.size() < limit && !heads.isEmpty()) {
+      Head head = heads.poll();
+      TimelineEntry entry = head.entry();
+      if (last == null || !last.postId().equals(entry.postId())) {
+        merged.add(entry);
+        last = entry;
+      }
+      if (head.index() + 1 < head.timeline().size()) {
+        heads.add(new Head(head.timeline(), head.index() + 1));
+      }
+    }
+    return merged;
+  }
+
+  /** The next entry of a timeline. */
+  private record Head(List<TimelineEntry> timeline, int index) implements Comparable<Head> {
+    TimelineEntry entry() {
+      return timeline.get(index);
+    }
+
+    @Override
+    public int compareTo(Head other) {
+      return TimelineEntry.NEWEST_FIRST.compare(entry(), other.entry());
+    }
+  }
+}
@@ -0,0 +1,12 @@
+package com.xclone.post.timeline;
+
+import java.util.List;
+
+/**
+ * A page read from a home timeline in Redis.
+ *
+ * @param entries the posts, newest first
+ * @param truncated whether older posts have been trimmed from the timeline, so that pages past its
+ *     end continue in the database
+ */
+public record TimelinePage(List<TimelineEntry> entries, boolean truncated) {}
@@ -0,0 +1,292 @@
+package com.xclone.post.timeline;
+
+import com.xclone.common.connection.TimeIdKey;
+import com.xclone.config.TimelineProperties;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+/**
+ * Timelines in Redis, capped at {@link TimelineProperties#getMaxSize()} posts. Home timelines hold,
+ * for every recently active user, the ids of the newest posts of the users they follow and their
+ * own, except those of high-follower accounts. Author timelines hold the newest posts of one
+ * high-follower account, which are merged into its followers' feeds when read; see {@link
+ * FeedReader}.
+ *
+ * <p>Each timeline is a sorted set under {@code tl:} (home) or {@code ta:} (author) followed by the
+ * 16 bytes of the owner's UUID. Members are the 16 bytes of a post's UUID, scored by its creation
+ * time in microseconds since the epoch, which a double holds exactly. An empty member marks the
+ * timeline as built, scored 0 until older posts are first trimmed and -1 after: posts are only
+ * added to timelines that exist, so that timelines of inactive users are not kept alive by fan-out,
+ * and a missing timeline is rebuilt from the database when it is next read. Reads extend the expiry
+ * of the timeline to {@link TimelineProperties#getTtlSeconds()}.
+ *
+ * <p>Methods throw Redis exceptions to the caller, which decides whether to fall back to the
+ * database.
+ */
+@Component
+public class TimelineStore {
+  private static final byte[] HOME_PREFIX = "tl:".getBytes(StandardCharsets.UTF_8);
+  private static final byte[] AUTHOR_PREFIX = "ta:".getBytes(StandardCharsets.UTF_8);
+
+  /**
+   * Adds the ARGV[2..] score and member pairs to KEYS[1] if it exists, then trims it to the newest
+   * ARGV[1] posts and the marker, scoring the marker -1 if posts were trimmed. Returns the number
+   * of posts added.
+   */
+  static final RedisScript<Long> PUSH_SCRIPT =
+      RedisScript.of(
+          """
+          if redis.call('EXISTS', KEYS[1]) == 0 then return 0 end
+          local added = redis.call('ZADD', KEYS[1], unpack(ARGV, 2))
+          if redis.call('ZREMRANGEBYRANK', KEYS[1], 1, -(tonumber(ARGV[1]) + 1)) > 0 then
+            redis.call('ZADD', KEYS[1], -1, '')
+          end
+          return added
+          """,
+          Long.class);
+
+  /**
+   * Reads up to ARGV[2] posts of KEYS[1] with their scores, newest first, after the post ARGV[3]
+   * scored ARGV[4], or from the start if ARGV[3] is empty. If the cursor post has been trimmed or
+   * removed, continues from its score. The posts are preceded by the score of the marker. Returns
+   * nil if the timeline does not exist and otherwise extends its expiry to ARGV[1] milliseconds.
+   */
+  @SuppressWarnings("unchecked")
+  static final RedisScript<List<Object>> PAGE_SCRIPT =
+      (RedisScript<List<Object>>)
+          (RedisScript<?>)
+              RedisScript.of(
+                  """
+          if redis.call('PEXPIRE', KEYS[1], ARGV[1]) == 0 then return false end
+          local count = tonumber(ARGV[2])
+          local page
+          local rank = ARGV[3] ~= '' and redis.call('ZREVRANK', KEYS[1], ARGV[3])
+          if ARGV[3] == '' then
+            page = redis.call('ZREVRANGEBYSCORE', KEYS[1], '+inf', '(0',
+              'WITHSCORES', 'LIMIT', 0, count)
+          elseif rank then
+            page = redis.call('ZREVRANGE', KEYS[1], rank + 1, rank + count, 'WITHSCORES')
+          else
+            page = redis.call('ZREVRANGEBYSCORE', KEYS[1], '(' .. ARGV[4], '(0',
+              'WITHSCORES', 'LIMIT', 0, count)
+          end
+          table.insert(page, 1, redis.call('ZSCORE', KEYS[1], '') or '0')
+          return page
+          """,
+                  List.class);
+
+  /** Creates KEYS[1] with only the marker, unless it exists, expiring in ARGV[1] milliseconds. */
+  static final RedisScript<Long> CREATE_SCRIPT =
+      RedisScript.of(
+          """
+          redis.call('ZADD', KEYS[1], 'NX', 0, '')
+          return redis.call('PEXPIRE', KEYS[1], ARGV[1])
+          """,
+          Long.class);
+
+  private static final byte[] PUSH_SOURCE =
+      PUSH_SCRIPT.getScriptAsString().getBytes(StandardCharsets.UTF_8);
+  private static final byte[] PAGE_SOURCE =
+      PAGE_SCRIPT.getScriptAsString().getBytes(StandardCharsets.UTF_8);
+
+  private final RedisTemplate<byte[], byte[]> redisTemplate;
+  private final byte[] maxSize;
+  private final byte[] ttlMillis;
+
+  /** Constructor; assigns components for internal use. */
+  public TimelineStore(
+      RedisTemplate<byte[], byte[]> binaryRedisTemplate, TimelineProperties properties) {
+    this.redisTemplate = binaryRedisTemplate;
+    this.maxSize = ascii(properties.getMaxSize());
+    this.ttlMillis = ascii(properties.getTtlSeconds() * 1000);
+  }
+
+  /**
+   * Reads a page of a user's home timeline, newest first.
+   *
+   * @param ownerId the timeline's owner
+   * @param after position of the last post of the previous page, or {@code null} for the first page
+   * @param count maximum number of posts to return
+   * @return the posts, or {@code null} if the timeline is not in Redis
+   */
+  public TimelinePage page(UUID ownerId, TimeIdKey after, int count) {
+    return pages(ownerId, List.of(), after, count).getFirst();
+  }
+
+  /**
+   * Reads a page of a user's home timeline and the same page of several author timelines, newest
+   * first, in one pipelined round trip.
+   *
+   * @param ownerId the home timeline's owner
+   * @param authorIds the authors whose timelines are read
+   * @param after position of the last post of the previous page, or {@code null} for the first page
+   * @param count maximum number of posts to return per timeline
+   * @return the home timeline's page, followed by the page of each author in order; {@code null}
+   *     for timelines that are not in Redis
+   */
+  public List<TimelinePage> pages(UUID ownerId, List<UUID> authorIds, TimeIdKey after, int count) {
+    byte[] cursorMember = after == null ? new byte[0] : uuidBytes(after.id());
+    byte[] cursorScore = after == null ? new byte[0] : ascii(TimelineEntry.toMicros(after.at()));
+    byte[] limit = ascii(count);
+    List<byte[]> keys = new ArrayList<>(1 + authorIds.size());
+    keys.add(homeKey(ownerId));
+    authorIds.forEach(authorId -> keys.add(authorKey(authorId)));
+    List<Object> replies =
+        redisTemplate.executePipelined(
+            (RedisCallback<Object>)
+                connection -> {
+                  connection.scriptingCommands().scriptLoad(PAGE_SOURCE);
+                  for (byte[] key : keys) {
+                    connection
+                        .scriptingCommands()
+                        .evalSha(
+                            PAGE_SCRIPT.getSha1(),
+                            ReturnType.MULTI,
+                            1,
+                            key,
+                            ttlMillis,
+                            limit,
+                            cursorMember,
+                            cursorScore);
+                  }
+                  return null;
+                });
+    List<TimelinePage> pages = new ArrayList<>(keys.size());
+    for (Object reply : replies.subList(1, replies.size())) {
+      pages.add(reply == null ? null : toPage((List<?>) reply));
+    }
+    return pages;
+  }
+
+  private static TimelinePage toPage(List<?> reply) {
+    List<TimelineEntry> entries = new ArrayList<>(reply.size() / 2);
+    for (int i = 1; i + 1 < reply.size(); i += 2) {
+      byte[] member = (byte[]) reply.get(i);
+      if (member.length != 16) {
+        continue;
+      }
+      ByteBuffer buffer = ByteBuffer.wrap(member);
+      entries.add(
+          new TimelineEntry(
+              new UUID(buffer.getLong(), buffer.getLong()),
+              TimelineEntry.fromMicros((long) parseScore(reply.get(i + 1)))));
+    }
+    return new TimelinePage(entries, parseScore(reply.getFirst()) < 0);
+  }
+
+  /**
+   * Creates an empty home timeline for the user, unless one exists, so that posts fanned out from
+   * now on are added to it. Called before the timeline is rebuilt from the database.
+   *
+   * @param ownerId the timeline's owner
+   */
+  public void create(UUID ownerId) {
+    redisTemplate.execute(CREATE_SCRIPT, List.of(homeKey(ownerId)), ttlMillis);
+  }
+
+  /**
+   * Creates an empty author timeline, unless one exists, so that the author's posts from now on are
+   * added to it. Called before the timeline is rebuilt from the database.
+   *
+   * @param authorId the author
+   */
+  public void createAuthor(UUID authorId) {
+    redisTemplate.execute(CREATE_SCRIPT, List.of(authorKey(authorId)), ttlMillis);
+  }
+
+  /**
+   * Adds posts to the home timelines of several users, in one pipelined round trip. Timelines that
+   * do not exist are left alone, and every timeline is trimmed to its newest posts.
+   *
+   * @param ownerIds the timelines' owners
+   * @param entries the posts to add
+   */
+  public void push(Collection<UUID> ownerIds, List<TimelineEntry> entries) {
+    pushToKeys(ownerIds.stream().map(TimelineStore::homeKey).toList(), entries);
+  }
+
+  /**
+   * Adds posts to an author timeline, if it exists, and trims it to its newest posts.
+   *
+   * @param authorId the author
+   * @param entries the posts to add
+   */
+  public void pushAuthor(UUID authorId, List<TimelineEntry> entries) {
+    pushToKeys(List.of(authorKey(authorId)), entries);
+  }
+
+  private void pushToKeys(List<byte[]> keys, List<TimelineEntry> entries) {
+    if (keys.isEmpty() || entries.isEmpty()) {
+      return;
+    }
+    byte[][] keysAndArgs = new byte[2 + 2 * entries.size()][];
+    keysAndArgs[1] = maxSize;
+    for (int i = 0; i < entries.size(); i++) {
+      keysAndArgs[2 + 2 * i] = ascii(entries.get(i).score());
+      keysAndArgs[3 + 2 * i] = uuidBytes(entries.get(i).postId());
+    }
+    redisTemplate.executePipelined(
+        (RedisCallback<Object>)
+            connection -> {
+              connection.scriptingCommands().scriptLoad(PUSH_SOURCE);
+              for (byte[] key : keys) {
+                byte[][] call = keysAndArgs.clone();
+                call[0] = key;
+                connection
+                    .scriptingCommands()
+                    .evalSha(PUSH_SCRIPT.getSha1(), ReturnType.INTEGER, 1, call);
+              }
+              return null;
+            });
+  }
+
+  /**
+   * Removes posts from a user's home timeline.
+   *
+   * @param ownerId the timeline's owner
+   * @param postIds the posts to remove
+   */
+  public void remove(UUID ownerId, Collection<UUID> postIds) {
+    if (!postIds.isEmpty()) {
+      redisTemplate
+          .opsForZSet()
+          .remove(homeKey(ownerId), postIds.stream().map(TimelineStore::uuidBytes).toArray());
+    }
+  }
+
+  private static double parseScore(Object score) {
+    return Double.parseDouble(new String((byte[]) score, StandardCharsets.US_ASCII));
+  }
+
+  private static byte[] ascii(long value) {
+    return Long.toString(value).getBytes(StandardCharsets.US_ASCII);
+  }
+
+  static byte[] homeKey(UUID ownerId) {
+    return key(HOME_PREFIX, ownerId);
+  }
+
+  static byte[] authorKey(UUID authorId) {
+    return key(AUTHOR_PREFIX, authorId);
+  }
+
+  private static byte[] key(byte[] prefix, UUID id) {
+    return ByteBuffer.allocate(prefix.length + 16).put(prefix).put(uuidBytes(id)).array();
+  }
+
+  private static byte[] uuidBytes(UUID id) {
+    return ByteBuffer.allocate(16)
+        .putLong(id.getMostSignificantBits())
+        .putLong(id.getLeastSignificantBits())
+        .array();
+  }
+}
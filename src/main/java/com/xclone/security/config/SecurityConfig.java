@@ -1,14 +1,20 @@
 package com.xclone.security.config;
 
+import com.xclone.config.AuthProperties;
 import com.xclone.security.jwt.JwtAuthenticationFilter;
+import com.xclone.security.password.BcryptCostCalibrator;
+import com.xclone.security.password.PasswordHashCost;
+import com.xclone.security.password.SharedPasswordHashCost;
 import io.swagger.v3.oas.annotations.OpenAPIDefinition;
 import io.swagger.v3.oas.annotations.enums.SecuritySchemeType;
 import io.swagger.v3.oas.annotations.info.Info;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.security.SecurityScheme;
 import jakarta.servlet.http.HttpServletResponse;
+import java.time.Duration;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configurers.AbstractHttpConfigurer;
 import org.springframework.security.config.http.SessionCreationPolicy;
@@ -30,9 +36,27 @@ public class SecurityConfig {
     this.jwtAuthenticationFilter = jwtAuthenticationFilter;
   }
 
+  /**
+   * Resolves the bcrypt cost for new hashes: the configured cost if set, otherwise the cost shared
+   * through Redis, which the first node to start calibrated against the configured latency target.
+   */
+  @Bean
+  public PasswordHashCost passwordHashCost(
+      AuthProperties authProperties, StringRedisTemplate redisTemplate) {
+    if (authProperties.getPasswordHashCost() >= 4) {
+      return new PasswordHashCost(authProperties.getPasswordHashCost());
+    }
+    return SharedPasswordHashCost.resolve(
+        redisTemplate,
+        () ->
+            BcryptCostCalibrator.calibrate(
+                Duration.ofMillis(authProperties.getPasswordHashTargetMillis()),
+                authProperties.getPasswordHashMinCost()));
+  }
+
   @Bean
-  public PasswordEncoder passwordEncoder() {
-    return new BCryptPasswordEncoder();
+  public PasswordEncoder passwordEncoder(PasswordHashCost passwordHashCost) {
+    return new BCryptPasswordEncoder(passwordHashCost.value());
   }
 
   /**
@@ -0,0 +1,31 @@
+package com.xclone.security.jwt;
+
+import java.time.Instant;
+
+/**
+ * Verified claims of a JWT access token, produced once per request by {@link
+ * JwtTokenProvider#verify(String)} and carried as the authentication details in the security
+ * context.
+ *
+ * <p>{@code handle}, {@code status} and {@code epoch} are only present on tokens issued in
+ * stateless principal mode.
+ *
+ * @param userId UUID string of the user the token was issued to
+ * @param role role granted at issue time (USER, ADMIN)
+ * @param expiresAt instant the token expires
+ * @param handle nullable handle of the user at issue time
+ * @param status nullable account status at issue time
+ * @param epoch nullable security epoch of the user at issue time
+ */
+public record AccessTokenClaims(
+    String userId, String role, Instant expiresAt, String handle, String status, Long epoch) {
+
+  /**
+   * Whether the token carries every claim needed to build the principal without a database read.
+   *
+   * @return {@code true} if handle, status and epoch claims are present
+   */
+  public boolean isSelfContained() {
+    return handle != null && status != null && epoch != null && role != null;
+  }
+}
@@ -7,6 +7,7 @@ import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import java.io.IOException;
+import java.util.Optional;
 import org.jspecify.annotations.NonNull;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -35,13 +36,14 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
       @NonNull FilterChain filterChain)
       throws ServletException, IOException {
     String token = extractTokenFromHeader(request);
-    if (jwtTokenProvider.validToken(token)) {
-      String userId = jwtTokenProvider.getUserIdFromToken(token);
-      // UserDetails service next
-      CustomUserDetails userDetails = jwtUserDetailsService.getUserById(userId);
-      // Set authentication in SecurityContext
+    Optional<AccessTokenClaims> claims = jwtTokenProvider.verify(token);
+    // UserDetails service next; a revoked token resolves to no principal
+    CustomUserDetails userDetails = claims.map(jwtUserDetailsService::getPrincipal).orElse(null);
+    if (userDetails != null) {
+      // Set authentication in SecurityContext, carrying the verified claims as details
       UsernamePasswordAuthenticationToken auth =
           new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
+      auth.setDetails(claims.get());
       SecurityContextHolder.getContext().setAuthentication(auth);
     }
     filterChain.doFilter(request, response);
@@ -52,6 +54,6 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
     if (header == null || !header.startsWith("Bearer ") || header.length() < 8) {
       return null;
     }
-    return request.getHeader("Authorization").substring(this.bearer.length());
+    return header.substring(this.bearer.length());
   }
 }
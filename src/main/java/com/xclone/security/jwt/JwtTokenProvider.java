@@ -1,28 +1,92 @@
 package com.xclone.security.jwt;
 
+import com.xclone.common.cache.LocalCache;
 import com.xclone.config.AuthProperties;
+import com.xclone.config.CacheProperties;
 import com.xclone.config.JwtProperties;
+import com.xclone.security.revocation.SecurityEpochStore;
+import com.xclone.user.model.entity.User;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
 import java.util.Date;
+import java.util.Optional;
 import javax.crypto.SecretKey;
 import lombok.extern.slf4j.Slf4j;
 import org.dataloader.annotations.VisibleForTesting;
 import org.springframework.stereotype.Component;
 
-/** Generates and validates JWT tokens. */
+/**
+ * Generates and validates JWT tokens.
+ *
+ * <p>A single immutable {@link JwtParser} is shared by every verification. Access tokens that pass
+ * {@link #verify(String)} are remembered by their SHA-256 digest until they expire, so a client
+ * repeating the same token skips signature verification and claim parsing.
+ */
 @Slf4j
 @Component
 public class JwtTokenProvider {
   private final SecretKey jwtSigningKey;
   private final AuthProperties authProperties;
   private final JwtProperties jwtProperties;
+  private final SecurityEpochStore securityEpochStore;
+  private final JwtParser jwtParser;
+  private final LocalCache<String, AccessTokenClaims> verifiedTokens;
 
+  /** Constructor; builds the shared parser and the verified-token cache. */
   public JwtTokenProvider(
-      SecretKey jwtSigningKey, AuthProperties authProperties, JwtProperties jwtProperties) {
+      SecretKey jwtSigningKey,
+      AuthProperties authProperties,
+      JwtProperties jwtProperties,
+      SecurityEpochStore securityEpochStore,
+      CacheProperties cacheProperties,
+      MeterRegistry meterRegistry) {
     this.jwtSigningKey = jwtSigningKey;
     this.authProperties = authProperties;
     this.jwtProperties = jwtProperties;
+    this.securityEpochStore = securityEpochStore;
+    this.jwtParser = Jwts.parser().verifyWith(jwtSigningKey).build();
+    CacheProperties.Spec spec = cacheProperties.getVerifiedToken();
+    this.verifiedTokens =
+        new LocalCache<>(
+            "verified-token",
+            spec.getMaxSize(),
+            Duration.ofSeconds(spec.getTtlSeconds()),
+            meterRegistry);
+  }
+
+  /**
+   * Creates a JWT access token for the user. In stateless principal mode the token also carries the
+   * user's handle, status and current security epoch, so that requests can be authenticated without
+   * loading the user. The epoch is read from Redis, not this node's mirror, so the token is not
+   * rejected by nodes that have already applied a bump this node has yet to see.
+   *
+   * @param user the authenticated user
+   * @return Signed JWT string
+   */
+  public String createToken(User user) {
+    if (!authProperties.isStatelessPrincipal()) {
+      return createToken(user.getId().toString(), user.getRole().toString());
+    }
+    Date now = new Date();
+    return Jwts.builder()
+        .subject(user.getId().toString())
+        .issuer(jwtProperties.getIssuer())
+        .issuedAt(now)
+        .expiration(expirationFrom(now))
+        .claim("role", user.getRole().toString())
+        .claim("handle", user.getHandle())
+        .claim("status", user.getStatus().toString())
+        .claim("epoch", securityEpochStore.issueEpoch(user.getId()))
+        .signWith(this.jwtSigningKey)
+        .compact();
   }
 
   /**
@@ -35,9 +99,7 @@ public class JwtTokenProvider {
    */
   public String createToken(String userId, String role) {
     Date now = new Date();
-    Date expiration =
-        new Date(now.getTime() + this.authProperties.getAccessTokenDurationSeconds() * 1000L);
-    return createToken(userId, role, now, expiration);
+    return createToken(userId, role, now, expirationFrom(now));
   }
 
   /**
@@ -61,41 +123,84 @@ public class JwtTokenProvider {
         .compact();
   }
 
+  private Date expirationFrom(Date now) {
+    return new Date(now.getTime() + this.authProperties.getAccessTokenDurationSeconds() * 1000L);
+  }
+
   /** Parses and validates a JWT token. */
   public Claims parseToken(String jws) {
-    return Jwts.parser().verifyWith(this.jwtSigningKey).build().parseSignedClaims(jws).getPayload();
+    return jwtParser.parseSignedClaims(jws).getPayload();
   }
 
   /** Extracts user ID from token. */
   public String getUserIdFromToken(String jws) {
-    return Jwts.parser()
-        .verifyWith(this.jwtSigningKey)
-        .build()
-        .parseSignedClaims(jws)
-        .getPayload()
-        .getSubject();
+    return parseToken(jws).getSubject();
   }
 
   /** Validates a JWT Token. */
   public boolean validToken(String jws) {
+    return verify(jws).isPresent();
+  }
+
+  /**
+   * Verifies an access token once and returns its claims. The signature, issuer and expiry are
+   * checked on the first sighting of a token; later calls with the same token are answered from the
+   * verified-token cache until the token expires.
+   *
+   * @param jws signed JWT string; may be {@code null}
+   * @return the verified claims, or empty if the token is missing, invalid or expired
+   */
+  public Optional<AccessTokenClaims> verify(String jws) {
+    if (jws == null || jws.isBlank()) {
+      return Optional.empty();
+    }
+    String digest = digest(jws);
+    AccessTokenClaims cached = verifiedTokens.get(digest);
+    Instant now = Instant.now();
+    if (cached != null && cached.expiresAt().isAfter(now)) {
+      return Optional.of(cached);
+    }
+
+    AccessTokenClaims claims;
     try {
-      Claims claims = parseToken(jws);
+      Claims payload = parseToken(jws);
 
       // Validate issuer
-      if (!jwtProperties.getIssuer().equals(claims.getIssuer())) {
+      if (!jwtProperties.getIssuer().equals(payload.getIssuer())) {
         log.warn(
             "Invalid issuer: expected={}, actual={}",
             jwtProperties.getIssuer(),
-            claims.getIssuer());
-        return false;
+            payload.getIssuer());
+        return Optional.empty();
       }
-
-      // Validate expiration
-      return claims.getExpiration().after(new Date());
-
+      claims =
+          new AccessTokenClaims(
+              payload.getSubject(),
+              payload.get("role", String.class),
+              payload.getExpiration().toInstant(),
+              payload.get("handle", String.class),
+              payload.get("status", String.class),
+              payload.get("epoch", Long.class));
     } catch (Exception e) {
       log.debug("Token validation failed: {}", e.getMessage());
-      return false;
+      return Optional.empty();
+    }
+
+    // Validate expiration
+    if (!claims.expiresAt().isAfter(now)) {
+      return Optional.empty();
+    }
+    verifiedTokens.put(digest, claims, Duration.between(now, claims.expiresAt()));
+    return Optional.of(claims);
+  }
+
+  private static String digest(String jws) {
+    try {
+      byte[] hash =
+          MessageDigest.getInstance("SHA-256").digest(jws.getBytes(StandardCharsets.US_ASCII));
+      return Base64.getEncoder().encodeToString(hash);
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 is not available", e);
     }
   }
 }
@@ -0,0 +1,62 @@
+package com.xclone.security.password;
+
+import java.time.Duration;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.security.crypto.bcrypt.BCrypt;
+
+/**
+ * Picks the bcrypt cost whose single-hash latency on this machine stays within a target.
+ *
+ * <p>Each cost increment doubles the work, so timing a cheap probe cost is enough to extrapolate
+ * every other cost. The probe is warmed up and the fastest of several runs is used, which discounts
+ * JIT compilation and scheduling noise.
+ */
+@Slf4j
+public final class BcryptCostCalibrator {
+  static final int MIN_COST = 4;
+  static final int MAX_COST = 31;
+  private static final int PROBE_COST = 6;
+  private static final int PROBE_RUNS = 5;
+
+  private BcryptCostCalibrator() {}
+
+  /**
+   * Benchmarks bcrypt and returns the highest cost hashing within {@code target} on one core.
+   *
+   * @param target latency budget for one hash
+   * @param floor lowest acceptable cost; wins over the target on slow hardware
+   * @return the calibrated cost
+   */
+  public static PasswordHashCost calibrate(Duration target, int floor) {
+    String salt = BCrypt.gensalt(PROBE_COST);
+    BCrypt.hashpw("calibration", salt);
+    long bestNanos = Long.MAX_VALUE;
+    for (int i = 0; i < PROBE_RUNS; i++) {
+      long start = System.nanoTime();
+      BCrypt.hashpw("calibration", salt);
+      bestNanos = Math.min(bestNanos, System.nanoTime() - start);
+    }
+    int cost = costWithin(target.toNanos(), Math.max(bestNanos, 1), Math.max(floor, MIN_COST));
+    log.info(
+        "bcrypt calibrated to cost {} (probe cost {} took {} us, target {} ms)",
+        cost,
+        PROBE_COST,
+        bestNanos / 1000,
+        target.toMillis());
+    return new PasswordHashCost(cost);
+  }
+
+  static int costWithin(long targetNanos, long probeNanos, int floor) {
+    int cost = PROBE_COST;
+    long estimate = probeNanos;
+    while (cost > MIN_COST && estimate > targetNanos) {
+      cost--;
+      estimate /= 2;
+    }
+    while (cost < MAX_COST && estimate * 2 <= targetNanos) {
+      cost++;
+      estimate *= 2;
+    }
+    return Math.min(Math.max(cost, floor), MAX_COST);
+  }
+}
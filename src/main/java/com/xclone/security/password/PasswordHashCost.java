@@ -0,0 +1,51 @@
+package com.xclone.security.password;
+
+import java.util.OptionalInt;
+
+/**
+ * The bcrypt cost (log2 of the key-expansion rounds) new password hashes are created with, chosen
+ * once for the cluster by {@link BcryptCostCalibrator} and shared by {@link SharedPasswordHashCost}
+ * unless fixed in configuration.
+ *
+ * @param value bcrypt cost between 4 and 31
+ */
+public record PasswordHashCost(int value) {
+  /** Constructor; rejects costs bcrypt does not support. */
+  public PasswordHashCost {
+    if (value < BcryptCostCalibrator.MIN_COST || value > BcryptCostCalibrator.MAX_COST) {
+      throw new IllegalArgumentException("bcrypt cost must be between 4 and 31: " + value);
+    }
+  }
+
+  /**
+   * Reads the cost of an encoded bcrypt hash such as {@code $2a$10$...}.
+   *
+   * @param encodedPassword stored hash; may be {@code null}
+   * @return the cost, or empty if the value is not a bcrypt hash
+   */
+  public static OptionalInt of(String encodedPassword) {
+    if (encodedPassword == null
+        || encodedPassword.length() < 7
+        || encodedPassword.charAt(0) != '$'
+        || encodedPassword.charAt(3) != '$'
+        || encodedPassword.charAt(6) != '$') {
+      return OptionalInt.empty();
+    }
+    try {
+      return OptionalInt.of(Integer.parseInt(encodedPassword.substring(4, 6)));
+    } catch (NumberFormatException e) {
+      return OptionalInt.empty();
+    }
+  }
+
+  /**
+   * Whether a stored hash was created with a different cost and should be replaced on next login.
+   *
+   * @param encodedPassword stored hash
+   * @return {@code true} if the hash is bcrypt with a cost other than this one
+   */
+  public boolean differsFrom(String encodedPassword) {
+    OptionalInt cost = of(encodedPassword);
+    return cost.isPresent() && cost.getAsInt() != value;
+  }
+}
@@ -0,0 +1,152 @@
+package com.xclone.security.password;
+
+import com.xclone.config.AuthProperties;
+import com.xclone.exception.custom.HashingCapacityExceededException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+
+/**
+ * Runs password hashing and matching on a dedicated, bounded worker pool.
+ *
+ * <p>Bcrypt is deliberately CPU-bound; running it on request threads lets a login burst occupy
+ * every servlet thread and starve cheap reads. Here at most {@code passwordHashThreads} hashes run
+ * at once and at most {@code passwordHashQueueCapacity} wait. Further requests are rejected
+ * immediately with {@link HashingCapacityExceededException} rather than queueing behind work that
+ * would outlive the client's patience.
+ *
+ * <p>The pool always uses platform threads, also in virtual-thread mode: CPU-bound hashing on
+ * virtual threads would hold the carrier threads every other virtual thread is scheduled on.
+ *
+ * <p>Publishes {@code password.hash.queue.depth}, {@code password.hash.active}, {@code
+ * password.hash.duration{operation}} and {@code password.hash.rejected} to size the pool against
+ * the core count.
+ */
+@Slf4j
+@Component
+public class PasswordHasher {
+  private final PasswordEncoder passwordEncoder;
+  private final PasswordHashCost passwordHashCost;
+  private final ThreadPoolExecutor executor;
+  private final Timer encodeTimer;
+  private final Timer matchTimer;
+  private final Counter rejected;
+
+  /** Constructor; starts the hashing pool and registers its meters. */
+  public PasswordHasher(
+      PasswordEncoder passwordEncoder,
+      PasswordHashCost passwordHashCost,
+      AuthProperties authProperties,
+      MeterRegistry meterRegistry) {
+    this.passwordEncoder = passwordEncoder;
+    this.passwordHashCost = passwordHashCost;
+    int threads =
+        authProperties.getPasswordHashThreads() > 0
+            ? authProperties.getPasswordHashThreads()
+            : Runtime.getRuntime().availableProcessors();
+    AtomicInteger threadIds = new AtomicInteger();
+    this.executor =
+        new ThreadPoolExecutor(
+            threads,
+            threads,
+            0L,
+            TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(authProperties.getPasswordHashQueueCapacity()),
+            runnable -> {
+              Thread thread = new Thread(runnable, "password-hash-" + threadIds.incrementAndGet());
+              thread.setDaemon(true);
+              return thread;
+            },
+            new ThreadPoolExecutor.AbortPolicy());
+
+    Gauge.builder("password.hash.queue.depth", executor, e -> e.getQueue().size())
+        .register(meterRegistry);
+    Gauge.builder("password.hash.active", executor, ThreadPoolExecutor::getActiveCount)
+        .register(meterRegistry);
+    this.encodeTimer =
+        Timer.builder("password.hash.duration").tag("operation", "encode").register(meterRegistry);
+    this.matchTimer =
+        Timer.builder("password.hash.duration").tag("operation", "match").register(meterRegistry);
+    this.rejected = Counter.builder("password.hash.rejected").register(meterRegistry);
+    log.info(
+        "password hashing pool started with {} threads and a queue of {}",
+        threads,
+        authProperties.getPasswordHashQueueCapacity());
+  }
+
+  /**
+   * Hashes a raw password on the hashing pool.
+   *
+   * @param rawPassword the password to hash
+   * @return the encoded password
+   * @throws HashingCapacityExceededException if the pool and its queue are full
+   */
+  public String encode(CharSequence rawPassword) {
+    return submit(() -> encodeTimer.record(() -> passwordEncoder.encode(rawPassword)));
+  }
+
+  /**
+   * Checks a raw password against a stored hash on the hashing pool.
+   *
+   * @param rawPassword the password supplied by the client
+   * @param encodedPassword the stored hash
+   * @return {@code true} if the password matches
+   * @throws HashingCapacityExceededException if the pool and its queue are full
+   */
+  public boolean matches(CharSequence rawPassword, String encodedPassword) {
+    return submit(
+        () -> matchTimer.record(() -> passwordEncoder.matches(rawPassword, encodedPassword)));
+  }
+
+  /**
+   * Whether a stored hash was created with a cost other than the current one and should be replaced
+   * after the next successful match. Covers both upgrades and downgrades.
+   *
+   * @param encodedPassword the stored hash
+   * @return {@code true} if the hash should be re-encoded
+   */
+  public boolean needsRehash(String encodedPassword) {
+    return passwordHashCost.differsFrom(encodedPassword);
+  }
+
+  private <T> T submit(Callable<T> task) {
+    Future<T> future;
+    try {
+      future = executor.submit(task);
+    } catch (RejectedExecutionException e) {
+      rejected.increment();
+      log.warn("password hashing pool saturated; rejecting request");
+      throw new HashingCapacityExceededException("Server is busy, please retry shortly");
+    }
+    try {
+      return future.get();
+    } catch (InterruptedException e) {
+      future.cancel(true);
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while waiting for password hashing", e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException cause) {
+        throw cause;
+      }
+      throw new IllegalStateException("Password hashing failed", e.getCause());
+    }
+  }
+
+  @PreDestroy
+  void shutdown() {
+    executor.shutdown();
+  }
+}
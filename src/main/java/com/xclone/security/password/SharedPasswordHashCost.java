@@ -0,0 +1,60 @@
+package com.xclone.security.password;
+
+import java.util.function.Supplier;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+/**
+ * Keeps one calibrated bcrypt cost for the whole cluster in Redis.
+ *
+ * <p>Nodes on different hardware would otherwise calibrate different costs, and a user logging in
+ * on alternating nodes would be rehashed back and forth. The first node to start calibrates and
+ * stores its cost; every later node adopts the stored cost. The key never expires, so changing the
+ * cost takes deleting {@value #COST_KEY} or configuring the cost explicitly. If Redis is
+ * unavailable at startup the node falls back to its own calibration.
+ */
+@Slf4j
+public final class SharedPasswordHashCost {
+  static final String COST_KEY = "password_hash_cost";
+
+  private SharedPasswordHashCost() {}
+
+  /**
+   * Returns the cost stored in Redis, calibrating and storing one if there is none yet.
+   *
+   * @param redisTemplate Redis client
+   * @param calibrate calibrates a cost on this node
+   * @return the cluster's cost, or this node's calibration if Redis is unavailable
+   */
+  public static PasswordHashCost resolve(
+      StringRedisTemplate redisTemplate, Supplier<PasswordHashCost> calibrate) {
+    String stored;
+    try {
+      stored = redisTemplate.opsForValue().get(COST_KEY);
+    } catch (RuntimeException e) {
+      log.warn("bcrypt cost not shared, Redis unavailable: {}", e.getMessage());
+      return calibrate.get();
+    }
+    if (stored != null) {
+      return stored(stored);
+    }
+    PasswordHashCost calibrated = calibrate.get();
+    try {
+      String value = String.valueOf(calibrated.value());
+      if (Boolean.TRUE.equals(redisTemplate.opsForValue().setIfAbsent(COST_KEY, value))) {
+        return calibrated;
+      }
+      stored = redisTemplate.opsForValue().get(COST_KEY);
+    } catch (RuntimeException e) {
+      log.warn("bcrypt cost not shared, Redis unavailable: {}", e.getMessage());
+      return calibrated;
+    }
+    return stored != null ? stored(stored) : calibrated;
+  }
+
+  private static PasswordHashCost stored(String value) {
+    PasswordHashCost cost = new PasswordHashCost(Integer.parseInt(value));
+    log.info("bcrypt cost {} adopted from {}", cost.value(), COST_KEY);
+    return cost;
+  }
+}
@@ -0,0 +1,235 @@
+package com.xclone.security.revocation;
+
+import com.xclone.config.AuthProperties;
+import com.xclone.user.event.UserChangedEvent;
+import com.xclone.user.event.UserChangedEvent.ChangeType;
+import jakarta.annotation.PostConstruct;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * Tracks a per-user security epoch used to revoke self-contained access tokens.
+ *
+ * <p>Epochs live in the Redis hash {@code security_epochs} (user id to counter). Every node mirrors
+ * the hash in memory so that checking a token costs no network round trip. A bump increments the
+ * counter and publishes {@code userId:epoch} on the {@code security_epoch_changed} channel in one
+ * script call; other nodes apply it within milliseconds. Tokens are issued with the epoch read from
+ * Redis, so that a node whose mirror lags never issues a token the other nodes reject.
+ *
+ * <p>A periodic resync covers messages lost while a node was disconnected. Each bump also takes the
+ * next number from the counter {@code {security_epochs}:seq} and records it as the user's score in
+ * the sorted set {@code {security_epochs}:log}, so a resync only reads the users bumped since the
+ * last number it saw. The hash is read whole only on the first resync, or if the counter went
+ * backwards after Redis lost data. The hash tags keep all three keys in one cluster slot. If Redis
+ * is unavailable at startup, the node starts with an empty mirror and loads it on the next resync.
+ *
+ * <p>An access token is only honoured while its epoch claim is at least the user's current epoch.
+ * Only active when {@link AuthProperties#isStatelessPrincipal()} is set.
+ */
+@Slf4j
+@Component
+public class SecurityEpochStore implements MessageListener {
+  static final String EPOCHS_KEY = "security_epochs";
+  static final String LOG_KEY = "{security_epochs}:log";
+  static final String SEQUENCE_KEY = "{security_epochs}:seq";
+  static final String CHANNEL = "security_epoch_changed";
+
+  private static final List<String> KEYS = List.of(EPOCHS_KEY, LOG_KEY, SEQUENCE_KEY);
+
+  private static final RedisScript<Long> BUMP_SCRIPT =
+      RedisScript.of(
+          """
+          local epoch = redis.call('HINCRBY', KEYS[1], ARGV[1], 1)
+          redis.call('ZADD', KEYS[2], redis.call('INCR', KEYS[3]), ARGV[1])
+          redis.call('PUBLISH', ARGV[2], ARGV[1] .. ':' .. epoch)
+          return epoch
+          """,
+          Long.class);
+
+  /**
+   * Returns the current sequence number followed by the id and epoch of every user bumped after
+   * sequence number ARGV[1].
+   */
+  @SuppressWarnings("unchecked")
+  private static final RedisScript<List<String>> CHANGED_SINCE_SCRIPT =
+      (RedisScript<List<String>>)
+          (RedisScript<?>)
+              RedisScript.of(
+                  """
+                  local sequence = tonumber(redis.call('GET', KEYS[3]) or '0')
+                  local result = {tostring(sequence)}
+                  if sequence < tonumber(ARGV[1]) then
+                    return result
+                  end
+                  local users = redis.call('ZRANGEBYSCORE', KEYS[2], '(' .. ARGV[1], sequence)
+                  for _, user in ipairs(users) do
+                    result[#result + 1] = user
+                    result[#result + 1] = redis.call('HGET', KEYS[1], user) or '0'
+                  end
+                  return result
+                  """,
+                  List.class);
+
+  private final StringRedisTemplate redisTemplate;
+  private final RedisMessageListenerContainer listenerContainer;
+  private final AuthProperties authProperties;
+  private final Map<UUID, Long> epochs = new ConcurrentHashMap<>();
+
+  /** Last sequence number applied by {@link #resync()}, or -1 before the first full load. */
+  private volatile long appliedSequence = -1;
+
+  /** Constructor; assigns components for internal use. */
+  public SecurityEpochStore(
+      StringRedisTemplate redisTemplate,
+      RedisMessageListenerContainer listenerContainer,
+      AuthProperties authProperties) {
+    this.redisTemplate = redisTemplate;
+    this.listenerContainer = listenerContainer;
+    this.authProperties = authProperties;
+  }
+
+  @PostConstruct
+  void subscribe() {
+    if (!authProperties.isStatelessPrincipal()) {
+      return;
+    }
+    listenerContainer.addMessageListener(this, new ChannelTopic(CHANNEL));
+    resync();
+  }
+
+  /**
+   * Returns the user's current epoch from the local mirror; users never revoked are at epoch 0.
+   *
+   * @param userId UUID of the user
+   * @return the current security epoch
+   */
+  public long currentEpoch(UUID userId) {
+    return epochs.getOrDefault(userId, 0L);
+  }
+
+  /**
+   * Returns the epoch to embed in a token issued now, read from Redis rather than the local mirror.
+   * Falls back to the mirror if Redis is unavailable.
+   *
+   * @param userId UUID of the user
+   * @return the current security epoch
+   */
+  public long issueEpoch(UUID userId) {
+    try {
+      Object stored = redisTemplate.opsForHash().get(EPOCHS_KEY, userId.toString());
+      if (stored != null) {
+        epochs.merge(userId, Long.parseLong(stored.toString()), Math::max);
+      }
+    } catch (RuntimeException e) {
+      log.warn("security epochs unavailable, issuing the mirrored epoch: {}", e.getMessage());
+    }
+    return currentEpoch(userId);
+  }
+
+  /**
+   * Increments the user's epoch, invalidating every self-contained access token issued before the
+   * call, and notifies the other nodes.
+   *
+   * @param userId UUID of the user
+   * @return the new security epoch
+   */
+  public long bump(UUID userId) {
+    Long epoch = redisTemplate.execute(BUMP_SCRIPT, KEYS, userId.toString(), CHANNEL);
+    long bumped = epoch == null ? currentEpoch(userId) + 1 : epoch;
+    epochs.merge(userId, bumped, Math::max);
+    log.info("security epoch of user {} bumped to {}", userId, bumped);
+    return bumped;
+  }
+
+  @Override
+  public void onMessage(Message message, byte[] pattern) {
+    String body = new String(message.getBody(), StandardCharsets.UTF_8);
+    int separator = body.lastIndexOf(':');
+    try {
+      UUID userId = UUID.fromString(body.substring(0, separator));
+      long epoch = Long.parseLong(body.substring(separator + 1));
+      epochs.merge(userId, epoch, Math::max);
+    } catch (RuntimeException e) {
+      log.warn("Ignoring malformed security epoch message: {}", body);
+    }
+  }
+
+  /**
+   * Applies the epochs bumped since the last resync, covering pub/sub messages missed by this node.
+   * Loads every epoch the first time, and whenever the sequence counter went backwards.
+   */
+  @Scheduled(fixedDelayString = "${app.auth.security-epoch-resync-ms:60000}")
+  public void resync() {
+    if (!authProperties.isStatelessPrincipal()) {
+      return;
+    }
+    try {
+      if (appliedSequence < 0 || !resyncChanged()) {
+        resyncAll();
+      }
+    } catch (RuntimeException e) {
+      log.warn("security epochs unavailable, resync skipped: {}", e.getMessage());
+    }
+  }
+
+  /**
+   * Applies the users bumped after {@link #appliedSequence}.
+   *
+   * @return false if the counter is behind the applied sequence, so a full load is needed
+   */
+  private boolean resyncChanged() {
+    List<String> changed =
+        redisTemplate.execute(CHANGED_SINCE_SCRIPT, KEYS, Long.toString(appliedSequence));
+    if (changed == null || changed.isEmpty()) {
+      return true;
+    }
+    long sequence = Long.parseLong(changed.getFirst());
+    if (sequence < appliedSequence) {
+      return false;
+    }
+    for (int i = 1; i + 1 < changed.size(); i += 2) {
+      apply(changed.get(i), changed.get(i + 1));
+    }
+    appliedSequence = sequence;
+    log.debug("security epochs resynced: {} users changed", (changed.size() - 1) / 2);
+    return true;
+  }
+
+  private void resyncAll() {
+    String stored = redisTemplate.opsForValue().get(SEQUENCE_KEY);
+    long sequence = stored == null ? 0 : Long.parseLong(stored);
+    Map<Object, Object> all = redisTemplate.opsForHash().entries(EPOCHS_KEY);
+    all.forEach((userId, epoch) -> apply(userId.toString(), epoch.toString()));
+    appliedSequence = sequence;
+    log.info("security epochs loaded: {} users", all.size());
+  }
+
+  private void apply(String userId, String epoch) {
+    epochs.merge(UUID.fromString(userId), Long.parseLong(epoch), Math::max);
+  }
+
+  /**
+   * Revokes outstanding tokens once a status or role change has committed, as both are embedded in
+   * self-contained tokens. Profile changes and account creation do not revoke.
+   */
+  @TransactionalEventListener(fallbackExecution = true)
+  public void onUserChanged(UserChangedEvent event) {
+    if (authProperties.isStatelessPrincipal()
+        && (event.type() == ChangeType.STATUS || event.type() == ChangeType.ROLE)) {
+      bump(event.userId());
+    }
+  }
+}
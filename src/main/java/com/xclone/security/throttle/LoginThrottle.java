@@ -0,0 +1,179 @@
+package com.xclone.security.throttle;
+
+import com.xclone.common.cache.LocalCache;
+import com.xclone.config.AuthProperties;
+import com.xclone.config.CacheProperties;
+import com.xclone.exception.custom.TooManyLoginAttemptsException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+/**
+ * Sliding-window limiter for login attempts, keyed by handle and client IP together, and by client
+ * IP alone.
+ *
+ * <p>The per-handle limit counts attempts on a handle from one IP, so that someone guessing a
+ * password from elsewhere cannot lock the account's owner out. Guessing one handle's password from
+ * many addresses is bounded by the per-IP limit and the cost of bcrypt. The client IP is the
+ * address forwarded by a trusted proxy, see {@code server.forward-headers-strategy}.
+ *
+ * <p>Each key is a Redis sorted set of attempt timestamps under {@code
+ * login_attempts:{<ip>}:handle:<handle>} or {@code login_attempts:{<ip>}}; the IP is the hash tag,
+ * so both keys of an attempt share a cluster slot. One script call trims both windows, rejects the
+ * attempt if either is full and otherwise records it in both, so concurrent nodes cannot overshoot
+ * a limit.
+ *
+ * <p>When Redis rejects a key, the node remembers it until the window frees a slot; further
+ * attempts on that handle from that IP, or from that IP at all, are turned away locally without a
+ * Redis round trip. If Redis is unavailable the limiter fails open, as locking every user out is
+ * worse than an unthrottled burst that the bounded hashing pool still absorbs.
+ *
+ * <p>Publishes {@code auth.login.attempts{result,source}}.
+ */
+@Slf4j
+@Component
+public class LoginThrottle {
+  @SuppressWarnings("unchecked")
+  private static final RedisScript<List<Long>> ATTEMPT_SCRIPT =
+      (RedisScript<List<Long>>)
+          (RedisScript<?>)
+              RedisScript.of(
+                  """
+          local now = tonumber(ARGV[1])
+          local window = tonumber(ARGV[2])
+          local retry = {}
+          local rejected = false
+          for i, key in ipairs(KEYS) do
+            redis.call('ZREMRANGEBYSCORE', key, '-inf', now - window)
+            retry[i] = 0
+            if redis.call('ZCARD', key) >= tonumber(ARGV[2 + i]) then
+              local oldest = redis.call('ZRANGE', key, 0, 0, 'WITHSCORES')
+              retry[i] = math.max(1, tonumber(oldest[2]) + window - now)
+              rejected = true
+            end
+          end
+          if not rejected then
+            for _, key in ipairs(KEYS) do
+              redis.call('ZADD', key, now, ARGV[5])
+              redis.call('PEXPIRE', key, window)
+            end
+          end
+          return retry
+          """,
+                  List.class);
+
+  private final StringRedisTemplate redisTemplate;
+  private final AuthProperties authProperties;
+  private final LocalCache<String, Instant> blockedKeys;
+  private final Counter admitted;
+  private final Counter rejectedLocally;
+  private final Counter rejectedByRedis;
+
+  /** Constructor; builds the local block list and registers the attempt meters. */
+  public LoginThrottle(
+      StringRedisTemplate redisTemplate,
+      AuthProperties authProperties,
+      CacheProperties cacheProperties,
+      MeterRegistry meterRegistry) {
+    this.redisTemplate = redisTemplate;
+    this.authProperties = authProperties;
+    CacheProperties.Spec spec = cacheProperties.getLoginBlock();
+    this.blockedKeys =
+        new LocalCache<>(
+            "login-block",
+            spec.getMaxSize(),
+            Duration.ofSeconds(spec.getTtlSeconds()),
+            meterRegistry);
+    this.admitted = attempts(meterRegistry, "admitted", "redis");
+    this.rejectedLocally = attempts(meterRegistry, "rejected", "local");
+    this.rejectedByRedis = attempts(meterRegistry, "rejected", "redis");
+  }
+
+  private static Counter attempts(MeterRegistry meterRegistry, String result, String source) {
+    return Counter.builder("auth.login.attempts")
+        .tag("result", result)
+        .tag("source", source)
+        .register(meterRegistry);
+  }
+
+  /**
+   * Records a login attempt, or rejects it if the handle from this client IP, or the client IP, has
+   * used up its window. Must be called before any password hashing.
+   *
+   * @param handle handle the client is logging in as
+   * @param clientIp remote address of the client
+   * @throws TooManyLoginAttemptsException if either limit is exhausted
+   */
+  public void acquire(String handle, String clientIp) {
+    String ipKey = "login_attempts:{" + clientIp + "}";
+    String handleKey = ipKey + ":handle:" + handle;
+    Instant now = Instant.now();
+
+    Instant blockedUntil = latest(blockedKeys.get(handleKey), blockedKeys.get(ipKey));
+    if (blockedUntil != null && blockedUntil.isAfter(now)) {
+      rejectedLocally.increment();
+      throw rejection(Duration.between(now, blockedUntil));
+    }
+
+    List<Long> retryAfterMillis;
+    try {
+      retryAfterMillis =
+          redisTemplate.execute(
+              ATTEMPT_SCRIPT,
+              List.of(handleKey, ipKey),
+              String.valueOf(now.toEpochMilli()),
+              String.valueOf(authProperties.getLoginThrottleWindowSeconds() * 1000L),
+              String.valueOf(authProperties.getLoginMaxAttemptsPerHandleAndIp()),
+              String.valueOf(authProperties.getLoginMaxAttemptsPerIp()),
+              UUID.randomUUID().toString());
+    } catch (RuntimeException e) {
+      log.warn("login throttle unavailable, admitting attempt: {}", e.getMessage());
+      admitted.increment();
+      return;
+    }
+
+    Duration handleRetry = block(handleKey, retryAfterMillis, 0, now);
+    Duration ipRetry = block(ipKey, retryAfterMillis, 1, now);
+    if (handleRetry.isZero() && ipRetry.isZero()) {
+      admitted.increment();
+      return;
+    }
+    rejectedByRedis.increment();
+    log.warn("login throttled for handle {} from {}", handle, clientIp);
+    throw rejection(handleRetry.compareTo(ipRetry) > 0 ? handleRetry : ipRetry);
+  }
+
+  /** Blocks an exhausted key locally until its window frees a slot; returns the wait. */
+  private Duration block(String key, List<Long> retryAfterMillis, int index, Instant now) {
+    if (retryAfterMillis == null || retryAfterMillis.size() <= index) {
+      return Duration.ZERO;
+    }
+    long millis = retryAfterMillis.get(index);
+    if (millis <= 0) {
+      return Duration.ZERO;
+    }
+    Duration retryAfter = Duration.ofMillis(millis);
+    blockedKeys.put(key, now.plus(retryAfter), retryAfter);
+    return retryAfter;
+  }
+
+  private static Instant latest(Instant first, Instant second) {
+    if (first == null) {
+      return second;
+    }
+    return second == null || first.isAfter(second) ? first : second;
+  }
+
+  private static TooManyLoginAttemptsException rejection(Duration retryAfter) {
+    long seconds = Math.max(1, (retryAfter.toMillis() + 999) / 1000);
+    return new TooManyLoginAttemptsException(
+        "Too many login attempts, please retry later", seconds);
+  }
+}
@@ -6,6 +6,7 @@ import com.xclone.user.model.enums.UserStatus;
 import java.io.Serial;
 import java.util.Collection;
 import java.util.List;
+import java.util.UUID;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -13,42 +14,80 @@ import org.springframework.security.core.userdetails.UserDetails;
 /**
  * Adapts the {@link User} entity to Spring Security's {@link UserDetails} interface. This allows
  * Spring Security to authenticate users without coupling security concerns to our domain model.
+ *
+ * <p>A principal is either backed by a loaded {@link User} or, in stateless principal mode, built
+ * from access token claims alone; in the latter case {@link #getUser()} returns {@code null}.
  */
 public class CustomUserDetails implements UserDetails {
   @Serial private static final long serialVersionUID = 1L;
+  private final UUID id;
+  private final String handle;
+  private final UserStatus status;
+  private final UserRole role;
   private final transient User user;
 
   public CustomUserDetails(User user) {
+    this(user.getId(), user.getHandle(), user.getStatus(), user.getRole(), user);
+  }
+
+  private CustomUserDetails(UUID id, String handle, UserStatus status, UserRole role, User user) {
+    this.id = id;
+    this.handle = handle;
+    this.status = status;
+    this.role = role;
     this.user = user;
   }
 
+  /**
+   * Builds a principal from verified access token claims without loading the user.
+   *
+   * @param id UUID of the user
+   * @param handle the user's handle at token issue time
+   * @param status the user's account status at token issue time
+   * @param role the user's role at token issue time
+   * @return a principal with no backing {@link User}
+   */
+  public static CustomUserDetails fromClaims(
+      UUID id, String handle, UserStatus status, UserRole role) {
+    return new CustomUserDetails(id, handle, status, role, null);
+  }
+
   @Override
   public String getPassword() {
-    return user.getPasswordHash();
+    return user == null ? null : user.getPasswordHash();
   }
 
   @Override
   public String getUsername() {
-    return user.getId().toString();
+    return id.toString();
+  }
+
+  public UUID getId() {
+    return this.id;
+  }
+
+  public String getHandle() {
+    return this.handle;
   }
 
+  /** Returns the backing user, or {@code null} if this principal was built from token claims. */
   public User getUser() {
     return this.user;
   }
 
   @Override
   public boolean isAccountNonExpired() {
-    return user.getStatus() == UserStatus.ACTIVE;
+    return status == UserStatus.ACTIVE;
   }
 
   @Override
   public boolean isAccountNonLocked() {
-    return user.getStatus() != UserStatus.SUSPENDED;
+    return status != UserStatus.SUSPENDED;
   }
 
   @Override
   public Collection<? extends GrantedAuthority> getAuthorities() {
-    if (this.user.getRole() == UserRole.ADMIN) {
+    if (this.role == UserRole.ADMIN) {
       return List.of(new SimpleGrantedAuthority("ROLE_ADMIN"));
     }
     return List.of(new SimpleGrantedAuthority("ROLE_USER"));
@@ -1,36 +1,107 @@
 package com.xclone.security.user;
 
+import com.xclone.common.cache.LocalCache;
+import com.xclone.config.AuthProperties;
+import com.xclone.config.CacheProperties;
+import com.xclone.security.jwt.AccessTokenClaims;
 import com.xclone.security.jwt.JwtAuthenticationFilter;
+import com.xclone.security.revocation.SecurityEpochStore;
+import com.xclone.user.event.UserChangedEvent;
 import com.xclone.user.model.entity.User;
+import com.xclone.user.model.enums.UserRole;
+import com.xclone.user.model.enums.UserStatus;
 import com.xclone.user.repository.UserRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Duration;
 import java.util.UUID;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
 
 /**
  * Loads user data from the database and adapts it to Spring Security's {@link UserDetails}
  * interface via {@link CustomUserDetails}. This service does NOT implement Spring Security's {@link
  * UserDetailsService} interface; instead, custom JWT-based authentication is utilised. {@link
- * JwtAuthenticationFilter} calls {@link #getUserById(String)} directly to authenticate requests
- * based on JWT tokens.
+ * JwtAuthenticationFilter} calls {@link #getPrincipal(AccessTokenClaims)} directly to authenticate
+ * requests based on JWT tokens.
+ *
+ * <p>Principals are held in a bounded {@link LocalCache} so that warm requests skip the database.
+ * Entries are dropped when a {@link UserChangedEvent} is published for the user, once the
+ * publishing transaction has committed.
+ *
+ * <p>In stateless principal mode, self-contained tokens are turned into principals from their
+ * claims alone, provided their security epoch has not been revoked by {@link SecurityEpochStore}.
  */
+@Slf4j
 @Service
 public class JwtUserDetailsService {
   private final UserRepository userRepository;
+  private final AuthProperties authProperties;
+  private final SecurityEpochStore securityEpochStore;
+  private final LocalCache<UUID, CustomUserDetails> principalCache;
 
-  JwtUserDetailsService(UserRepository userRepository) {
+  JwtUserDetailsService(
+      UserRepository userRepository,
+      AuthProperties authProperties,
+      SecurityEpochStore securityEpochStore,
+      CacheProperties cacheProperties,
+      MeterRegistry meterRegistry) {
     this.userRepository = userRepository;
+    this.authProperties = authProperties;
+    this.securityEpochStore = securityEpochStore;
+    CacheProperties.Spec spec = cacheProperties.getPrincipal();
+    this.principalCache =
+        new LocalCache<>(
+            "principal",
+            spec.getMaxSize(),
+            Duration.ofSeconds(spec.getTtlSeconds()),
+            meterRegistry);
+  }
+
+  /**
+   * Resolves the principal for a verified access token. Self-contained tokens are trusted without a
+   * database read when stateless principal mode is enabled; all other tokens are resolved through
+   * {@link #getUserById(String)}.
+   *
+   * @param claims verified access token claims
+   * @return the principal, or {@code null} if the token's security epoch has been revoked
+   */
+  public CustomUserDetails getPrincipal(AccessTokenClaims claims) {
+    if (!authProperties.isStatelessPrincipal() || !claims.isSelfContained()) {
+      return getUserById(claims.userId());
+    }
+    UUID userId = UUID.fromString(claims.userId());
+    if (claims.epoch() < securityEpochStore.currentEpoch(userId)) {
+      log.debug("Rejected access token with a revoked security epoch for user {}", userId);
+      return null;
+    }
+    return CustomUserDetails.fromClaims(
+        userId,
+        claims.handle(),
+        UserStatus.valueOf(claims.status()),
+        UserRole.valueOf(claims.role()));
   }
 
   /** userId is a UUID string. */
   public CustomUserDetails getUserById(String userId) {
     try {
-      User user = this.userRepository.findById(UUID.fromString(userId)).orElseThrow();
-      return new CustomUserDetails(user);
+      return principalCache.get(UUID.fromString(userId), this::loadUser);
     } catch (Exception e) {
       throw new UsernameNotFoundException(e.getMessage());
     }
   }
+
+  private CustomUserDetails loadUser(UUID userId) {
+    User user = this.userRepository.findById(userId).orElseThrow();
+    return new CustomUserDetails(user);
+  }
+
+  /** Evicts the cached principal of a changed user once the change has committed. */
+  @TransactionalEventListener(fallbackExecution = true)
+  public void onUserChanged(UserChangedEvent event) {
+    principalCache.invalidate(event.userId());
+  }
 }
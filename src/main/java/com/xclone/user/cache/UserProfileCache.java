@@ -0,0 +1,476 @@
+package com.xclone.user.cache;
+
+import com.xclone.common.cache.LocalCache;
+import com.xclone.config.CacheProperties;
+import com.xclone.user.dto.UserProfile;
+import com.xclone.user.event.UserChangedEvent;
+import com.xclone.user.event.UserChangedEvent.ChangeType;
+import com.xclone.user.repository.UserRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * Two-tier cache of public {@link UserProfile}s in front of the database.
+ *
+ * <p>Each node holds profiles in a bounded {@link LocalCache}, backed by a cache shared between
+ * nodes in Redis: profiles under {@code up:} followed by the 16 bytes of the user's UUID in braces,
+ * encoded by {@link UserProfileCodec}, and handle lookups under {@code uh:} followed by the UTF-8
+ * handle, holding the user's UUID. A handle entry is only trusted if the profile it points to still
+ * has that handle, so handle changes need no invalidation of their own.
+ *
+ * <p>Once a signup, profile or status change commits, the shared entry is deleted, the user's
+ * invalidation generation under {@code upg:} is incremented, and the user id is published on the
+ * {@code user_profile_invalidated} channel after this node's id, in one script call; every node,
+ * including this one, then drops its local copy. A profile loaded from the database is only written
+ * to the shared tier if its generation is still the one read before loading it, so a read that
+ * loaded the old profile before the change cannot store it afterwards, however slow it was. The
+ * braces keep both keys of a user in one cluster slot. If Redis is unavailable, lookups fall
+ * through to the database.
+ *
+ * <p>The local tier publishes the {@link LocalCache} meters as {@code user-profile}; the shared
+ * tier publishes {@code cache.gets} tagged {@code cache=user-profile-shared}. Every lookup is timed
+ * by {@code user.profile.lookup}, tagged with the {@code tier} that answered it: {@code local},
+ * {@code shared} or {@code database}.
+ */
+@Slf4j
+@Component
+public class UserProfileCache implements MessageListener {
+  /** Channel on which the ids of users changed on any node are published. */
+  public static final String CHANNEL = "user_profile_invalidated";
+
+  /** Length of a message on {@link #CHANNEL}: the publishing node's id, then the user's. */
+  public static final int MESSAGE_LENGTH = 32;
+
+  private static final byte[] PROFILE_PREFIX = "up:".getBytes(StandardCharsets.UTF_8);
+  private static final byte[] HANDLE_PREFIX = "uh:".getBytes(StandardCharsets.UTF_8);
+
+  private static final byte[] GENERATION_PREFIX = "upg:".getBytes(StandardCharsets.UTF_8);
+
+  /**
+   * Deletes KEYS[1], increments the generation KEYS[2], expiring it in ARGV[1] milliseconds, and
+   * publishes ARGV[3] on ARGV[2].
+   */
+  private static final RedisScript<Long> INVALIDATE_SCRIPT =
+      RedisScript.of(
+          """
+          redis.call('DEL', KEYS[1])
+          redis.call('INCR', KEYS[2])
+          redis.call('PEXPIRE', KEYS[2], ARGV[1])
+          return redis.call('PUBLISH', ARGV[2], ARGV[3])
+          """,
+          Long.class);
+
+  /**
+   * Sets KEYS[1] to ARGV[2] for ARGV[3] milliseconds unless it exists or the generation KEYS[2] is
+   * no longer ARGV[1], which is empty if it did not exist. Returns 1 if the profile was written.
+   */
+  static final RedisScript<Long> STORE_SCRIPT =
+      RedisScript.of(
+          """
+          if (redis.call('GET', KEYS[2]) or '') ~= ARGV[1] then return 0 end
+          return redis.call('SET', KEYS[1], ARGV[2], 'NX', 'PX', ARGV[3]) and 1 or 0
+          """,
+          Long.class);
+
+  private static final byte[] STORE_SOURCE =
+      STORE_SCRIPT.getScriptAsString().getBytes(StandardCharsets.UTF_8);
+
+  private final UserRepository userRepository;
+  private final RedisTemplate<byte[], byte[]> redisTemplate;
+  private final RedisMessageListenerContainer listenerContainer;
+  private final UUID nodeId = UUID.randomUUID();
+  private final LocalCache<UUID, UserProfile> profiles;
+  private final LocalCache<String, UUID> handles;
+  private final Duration sharedTtl;
+  private final byte[] sharedTtlMillis;
+
+  private final Counter sharedHits;
+  private final Counter sharedMisses;
+  private final Timer localLookups;
+  private final Timer sharedLookups;
+  private final Timer databaseLookups;
+
+  /** Constructor; assigns components for internal use, creates the local tier and its meters. */
+  public UserProfileCache(
+      UserRepository userRepository,
+      RedisTemplate<byte[], byte[]> binaryRedisTemplate,
+      RedisMessageListenerContainer listenerContainer,
+      CacheProperties cacheProperties,
+      MeterRegistry meterRegistry) {
+    this.userRepository = userRepository;
+    this.redisTemplate = binaryRedisTemplate;
+    this.listenerContainer = listenerContainer;
+    CacheProperties.Spec spec = cacheProperties.getProfile();
+    Duration localTtl = Duration.ofSeconds(spec.getTtlSeconds());
+    this.profiles = new LocalCache<>("user-profile", spec.getMaxSize(), localTtl, meterRegistry);
+    this.handles = new LocalCache<>("user-handle", spec.getMaxSize(), localTtl, meterRegistry);
+    this.sharedTtl = Duration.ofSeconds(cacheProperties.getSharedProfileTtlSeconds());
+    this.sharedTtlMillis = Long.toString(sharedTtl.toMillis()).getBytes(StandardCharsets.UTF_8);
+    this.sharedHits =
+        meterRegistry.counter("cache.gets", "cache", "user-profile-shared", "result", "hit");
+    this.sharedMisses =
+        meterRegistry.counter("cache.gets", "cache", "user-profile-shared", "result", "miss");
+    this.localLookups = lookupTimer(meterRegistry, "local");
+    this.sharedLookups = lookupTimer(meterRegistry, "shared");
+    this.databaseLookups = lookupTimer(meterRegistry, "database");
+  }
+
+  private static Timer lookupTimer(MeterRegistry meterRegistry, String tier) {
+    return Timer.builder("user.profile.lookup").tag("tier", tier).register(meterRegistry);
+  }
+
+  @PostConstruct
+  void subscribe() {
+    listenerContainer.addMessageListener(this, new ChannelTopic(CHANNEL));
+  }
+
+  /**
+   * Returns the profile of the user with the given id.
+   *
+   * @param id the user's id
+   * @return the profile, or {@code null} if no user has the id
+   */
+  public UserProfile getById(UUID id) {
+    long started = System.nanoTime();
+    long stamp = profiles.invalidationStamp();
+    UserProfile profile = profiles.get(id);
+    if (profile != null) {
+      record(localLookups, started);
+      return profile;
+    }
+    SharedEntries shared = readShared(List.of(id));
+    profile = decode(id, shared.profiles().getFirst());
+    if (profile != null) {
+      profiles.putIfNotInvalidated(id, profile, stamp);
+      record(sharedLookups, started);
+      return profile;
+    }
+    profile = userRepository.findProfileById(id).orElse(null);
+    if (profile != null) {
+      profiles.putIfNotInvalidated(id, profile, stamp);
+      storeShared(List.of(profile), shared.generations());
+    }
+    record(databaseLookups, started);
+    return profile;
+  }
+
+  /**
+   * Returns the profile of the user with the given handle. A profile loaded from the database here
+   * is only cached locally, as its generation cannot be read before the id is known; the shared
+   * tier is filled by the next lookup by id.
+   *
+   * @param handle the user's handle
+   * @return the profile, or {@code null} if no user has the handle
+   */
+  public UserProfile getByHandle(String handle) {
+    UUID id = handles.get(handle);
+    if (id == null) {
+      id = readSharedHandle(handle);
+    }
+    if (id != null) {
+      UserProfile profile = getById(id);
+      if (profile != null && profile.handle().equals(handle)) {
+        handles.put(handle, id);
+        return profile;
+      }
+    }
+    long started = System.nanoTime();
+    long stamp = profiles.invalidationStamp();
+    UserProfile profile = userRepository.findProfileByHandle(handle).orElse(null);
+    if (profile != null) {
+      profiles.putIfNotInvalidated(profile.id(), profile, stamp);
+      handles.put(handle, profile.id());
+      writeShared(
+          () ->
+              redisTemplate
+                  .opsForValue()
+                  .set(handleKey(handle), uuidBytes(profile.id()), sharedTtl));
+    }
+    record(databaseLookups, started);
+    return profile;
+  }
+
+  /**
+   * Returns the profiles of several users, reading each tier at most once for the whole batch.
+   *
+   * @param ids the users' ids
+   * @return profiles keyed by user id; ids without a user are absent
+   */
+  public Map<UUID, UserProfile> getAll(Collection<UUID> ids) {
+    long started = System.nanoTime();
+    long stamp = profiles.invalidationStamp();
+    Map<UUID, UserProfile> found = new HashMap<>();
+    List<UUID> missing = new ArrayList<>();
+    for (UUID id : ids) {
+      UserProfile profile = profiles.get(id);
+      if (profile != null) {
+        found.put(id, profile);
+      } else {
+        missing.add(id);
+      }
+    }
+    if (missing.isEmpty()) {
+      record(localLookups, started);
+      return found;
+    }
+
+    List<UUID> uncached = new ArrayList<>();
+    SharedEntries shared = readShared(missing);
+    for (int i = 0; i < missing.size(); i++) {
+      UserProfile profile = decode(missing.get(i), shared.profiles().get(i));
+      if (profile != null) {
+        found.put(profile.id(), profile);
+        profiles.putIfNotInvalidated(profile.id(), profile, stamp);
+      } else {
+        uncached.add(missing.get(i));
+      }
+    }
+    if (uncached.isEmpty()) {
+      record(sharedLookups, started);
+      return found;
+    }
+
+    List<UserProfile> loaded = userRepository.findProfilesByIdIn(uncached);
+    for (UserProfile profile : loaded) {
+      found.put(profile.id(), profile);
+      profiles.putIfNotInvalidated(profile.id(), profile, stamp);
+    }
+    storeShared(loaded, shared.generations());
+    record(databaseLookups, started);
+    return found;
+  }
+
+  /**
+   * Drops the user's profile from both tiers on every node, and keeps reads that loaded it before
+   * from storing it in the shared tier.
+   *
+   * @param userId UUID of the changed user
+   */
+  public void invalidate(UUID userId) {
+    profiles.invalidate(userId);
+    writeShared(
+        () ->
+            redisTemplate.execute(
+                INVALIDATE_SCRIPT,
+                List.of(profileKey(userId), generationKey(userId)),
+                sharedTtlMillis,
+                CHANNEL.getBytes(StandardCharsets.UTF_8),
+                ByteBuffer.allocate(MESSAGE_LENGTH)
+                    .put(uuidBytes(nodeId))
+                    .put(uuidBytes(userId))
+                    .array()));
+  }
+
+  /**
+   * Drops every profile and handle from this node's local tier, e.g. after rows were changed
+   * outside the application. The shared tier is left to expire.
+   */
+  public void invalidateAllLocal() {
+    profiles.invalidateAll();
+    handles.invalidateAll();
+  }
+
+  /** Drops a profile changed on any node, including this one, from the local tier. */
+  @Override
+  public void onMessage(Message message, byte[] pattern) {
+    byte[] body = message.getBody();
+    if (body.length != MESSAGE_LENGTH) {
+      log.warn("Ignoring malformed user profile invalidation of {} bytes", body.length);
+      return;
+    }
+    profiles.invalidate(changedUser(body));
+  }
+
+  /**
+   * Returns whether a message on {@link #CHANNEL} was published by this node.
+   *
+   * @param body message of {@link #MESSAGE_LENGTH} bytes
+   * @return {@code true} if this node published it
+   */
+  public boolean isPublishedHere(byte[] body) {
+    ByteBuffer buffer = ByteBuffer.wrap(body);
+    return new UUID(buffer.getLong(), buffer.getLong()).equals(nodeId);
+  }
+
+  /**
+   * Returns the id of the user changed according to a message on {@link #CHANNEL}.
+   *
+   * @param body message of {@link #MESSAGE_LENGTH} bytes
+   * @return the changed user's id
+   */
+  public static UUID changedUser(byte[] body) {
+    ByteBuffer buffer = ByteBuffer.wrap(body, 16, 16);
+    return new UUID(buffer.getLong(), buffer.getLong());
+  }
+
+  /**
+   * Invalidates a user's profile once a signup, profile or status change has committed. Signups
+   * have nothing cached, but are published for the other subscribers of the channel.
+   */
+  @TransactionalEventListener(fallbackExecution = true)
+  public void onUserChanged(UserChangedEvent event) {
+    if (event.type() != ChangeType.ROLE) {
+      invalidate(event.userId());
+    }
+  }
+
+  /**
+   * Shared entries of several users.
+   *
+   * @param profiles encoded profile of each user, in order; null if absent or unreadable
+   * @param generations each user's invalidation generation, empty if absent; {@code null} if they
+   *     could not be read, in which case nothing may be written
+   */
+  private record SharedEntries(List<byte[]> profiles, Map<UUID, byte[]> generations) {}
+
+  /** Reads the shared profiles and generations of {@code ids} in one round trip. */
+  private SharedEntries readShared(List<UUID> ids) {
+    List<byte[]> keys = new ArrayList<>(ids.size() * 2);
+    ids.forEach(id -> keys.add(profileKey(id)));
+    ids.forEach(id -> keys.add(generationKey(id)));
+    List<byte[]> values = null;
+    try {
+      values = redisTemplate.opsForValue().multiGet(keys);
+    } catch (RuntimeException e) {
+      log.warn("shared profile cache unavailable, reading from the database: {}", e.getMessage());
+    }
+    if (values == null) {
+      return new SharedEntries(Collections.nCopies(ids.size(), null), null);
+    }
+    Map<UUID, byte[]> generations = new HashMap<>();
+    for (int i = 0; i < ids.size(); i++) {
+      byte[] generation = values.get(ids.size() + i);
+      generations.put(ids.get(i), generation == null ? new byte[0] : generation);
+    }
+    return new SharedEntries(values.subList(0, ids.size()), generations);
+  }
+
+  /** Stores loaded profiles in the shared tier unless their users were invalidated meanwhile. */
+  private void storeShared(List<UserProfile> loaded, Map<UUID, byte[]> generations) {
+    if (loaded.isEmpty() || generations == null) {
+      return;
+    }
+    writeShared(
+        () ->
+            redisTemplate.executePipelined(
+                (RedisCallback<Object>)
+                    connection -> {
+                      connection.scriptingCommands().scriptLoad(STORE_SOURCE);
+                      for (UserProfile profile : loaded) {
+                        connection
+                            .scriptingCommands()
+                            .evalSha(
+                                STORE_SCRIPT.getSha1(),
+                                ReturnType.INTEGER,
+                                2,
+                                profileKey(profile.id()),
+                                generationKey(profile.id()),
+                                generations.get(profile.id()),
+                                UserProfileCodec.encode(profile),
+                                sharedTtlMillis);
+                      }
+                      return null;
+                    }));
+  }
+
+  /** Decodes a shared entry, counting it as a hit or miss. */
+  private UserProfile decode(UUID id, byte[] value) {
+    if (value == null || value.length == 0) {
+      sharedMisses.increment();
+      return null;
+    }
+    try {
+      UserProfile profile = UserProfileCodec.decode(value);
+      sharedHits.increment();
+      return profile;
+    } catch (IllegalArgumentException e) {
+      log.warn("Ignoring unreadable shared profile entry of user {}", id);
+      sharedMisses.increment();
+      return null;
+    }
+  }
+
+  private UUID readSharedHandle(String handle) {
+    byte[] value;
+    try {
+      value = redisTemplate.opsForValue().get(handleKey(handle));
+    } catch (RuntimeException e) {
+      log.warn("shared profile cache unavailable, reading from the database: {}", e.getMessage());
+      return null;
+    }
+    if (value == null || value.length != 16) {
+      return null;
+    }
+    ByteBuffer buffer = ByteBuffer.wrap(value);
+    return new UUID(buffer.getLong(), buffer.getLong());
+  }
+
+  private static void record(Timer timer, long started) {
+    timer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+  }
+
+  private void writeShared(Runnable write) {
+    try {
+      write.run();
+    } catch (RuntimeException e) {
+      log.warn("shared profile cache unavailable, entry not written: {}", e.getMessage());
+    }
+  }
+
+  private static byte[] profileKey(UUID id) {
+    return userKey(PROFILE_PREFIX, id);
+  }
+
+  private static byte[] generationKey(UUID id) {
+    return userKey(GENERATION_PREFIX, id);
+  }
+
+  /** The prefix followed by the user's UUID bytes in braces, which Redis Cluster hashes alone. */
+  private static byte[] userKey(byte[] prefix, UUID id) {
+    return ByteBuffer.allocate(prefix.length + 18)
+        .put(prefix)
+        .put((byte) '{')
+        .put(uuidBytes(id))
+        .put((byte) '}')
+        .array();
+  }
+
+  private static byte[] handleKey(String handle) {
+    byte[] utf8 = handle.getBytes(StandardCharsets.UTF_8);
+    return ByteBuffer.allocate(HANDLE_PREFIX.length + utf8.length)
+        .put(HANDLE_PREFIX)
+        .put(utf8)
+        .array();
+  }
+
+  private static byte[] uuidBytes(UUID id) {
+    return ByteBuffer.allocate(16)
+        .putLong(id.getMostSignificantBits())
+        .putLong(id.getLeastSignificantBits())
+        .array();
+  }
+}
@@ -0,0 +1,119 @@
+package com.xclone.user.cache;
+
+import com.xclone.user.dto.UserProfile;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.UUID;
+
+/**
+ * Versioned binary encoding of {@link UserProfile} as stored in the shared Redis cache.
+ *
+ * <p>Version 2 is a version byte, the user's UUID as 16 big-endian bytes, the profile's version as
+ * 4 bytes, a flag byte recording which nullable fields follow, {@code createdAt} and (if present)
+ * {@code updatedAt} as epoch seconds and nanoseconds, then the handle, display name, bio and
+ * profile image as length-prefixed UTF-8. Timestamps are decoded at UTC, as they are read from the
+ * database. Version 1 entries, which lack the profile's version, are unreadable and are replaced
+ * when next loaded.
+ */
+final class UserProfileCodec {
+  static final byte VERSION_2 = 2;
+
+  private static final int HAS_BIO = 1;
+  private static final int HAS_PROFILE_IMAGE = 1 << 1;
+  private static final int HAS_UPDATED_AT = 1 << 2;
+
+  private UserProfileCodec() {}
+
+  static byte[] encode(UserProfile profile) {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+    DataOutputStream out = new DataOutputStream(bytes);
+    try {
+      out.writeByte(VERSION_2);
+      out.writeLong(profile.id().getMostSignificantBits());
+      out.writeLong(profile.id().getLeastSignificantBits());
+      out.writeInt(profile.version());
+      out.writeByte(
+          (profile.bio() != null ? HAS_BIO : 0)
+              | (profile.profileImage() != null ? HAS_PROFILE_IMAGE : 0)
+              | (profile.updatedAt() != null ? HAS_UPDATED_AT : 0));
+      writeTime(out, profile.createdAt());
+      if (profile.updatedAt() != null) {
+        writeTime(out, profile.updatedAt());
+      }
+      writeString(out, profile.handle());
+      writeString(out, profile.displayName());
+      if (profile.bio() != null) {
+        writeString(out, profile.bio());
+      }
+      if (profile.profileImage() != null) {
+        writeString(out, profile.profileImage());
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return bytes.toByteArray();
+  }
+
+  /**
+   * Decodes a profile written by {@link #encode}.
+   *
+   * @throws IllegalArgumentException if the value is not in a known format
+   */
+  static UserProfile decode(byte[] value) {
+    if (value.length == 0 || value[0] != VERSION_2) {
+      throw new IllegalArgumentException("Unknown user profile encoding");
+    }
+    ByteArrayInputStream bytes = new ByteArrayInputStream(value, 1, value.length - 1);
+    DataInputStream in = new DataInputStream(bytes);
+    try {
+      UUID id = new UUID(in.readLong(), in.readLong());
+      int version = in.readInt();
+      int flags = in.readByte();
+      OffsetDateTime createdAt = readTime(in);
+      OffsetDateTime updatedAt = (flags & HAS_UPDATED_AT) != 0 ? readTime(in) : null;
+      String handle = readString(in);
+      String displayName = readString(in);
+      String bio = (flags & HAS_BIO) != 0 ? readString(in) : null;
+      String profileImage = (flags & HAS_PROFILE_IMAGE) != 0 ? readString(in) : null;
+      if (bytes.available() != 0) {
+        throw new IllegalArgumentException("Trailing bytes in user profile entry");
+      }
+      return new UserProfile(
+          id, handle, displayName, bio, profileImage, createdAt, updatedAt, version);
+    } catch (IOException | RuntimeException e) {
+      throw new IllegalArgumentException("Corrupted user profile entry", e);
+    }
+  }
+
+  private static void writeTime(DataOutputStream out, OffsetDateTime time) throws IOException {
+    Instant instant = time.toInstant();
+    out.writeLong(instant.getEpochSecond());
+    out.writeInt(instant.getNano());
+  }
+
+  private static OffsetDateTime readTime(DataInputStream in) throws IOException {
+    return Instant.ofEpochSecond(in.readLong(), in.readInt()).atOffset(ZoneOffset.UTC);
+  }
+
+  private static void writeString(DataOutputStream out, String value) throws IOException {
+    byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+    out.writeInt(utf8.length);
+    out.write(utf8);
+  }
+
+  private static String readString(DataInputStream in) throws IOException {
+    int length = in.readInt();
+    if (length < 0 || length > in.available()) {
+      throw new IOException("string length out of range");
+    }
+    return new String(in.readNBytes(length), StandardCharsets.UTF_8);
+  }
+}
@@ -1,35 +1,72 @@
 package com.xclone.user.controller;
 
+import com.xclone.common.connection.TotalCounter;
 import com.xclone.common.mutation.DeleteResponse;
 import com.xclone.exception.GraphQlErrorMapper;
 import com.xclone.exception.custom.DuplicateHandleException;
+import com.xclone.exception.custom.ProfileVersionConflictException;
 import com.xclone.security.jwt.JwtAuthenticationFilter;
 import com.xclone.security.user.CustomUserDetails;
 import com.xclone.user.dto.UserProfile;
+import com.xclone.user.dto.UserSuggestion;
 import com.xclone.user.dto.connection.UserConnection;
 import com.xclone.user.dto.mutation.UserResponse;
 import com.xclone.user.dto.request.UpdateUserInput;
+import com.xclone.user.model.entity.User;
 import com.xclone.user.service.UserService;
+import graphql.schema.DataFetchingFieldSelectionSet;
 import jakarta.validation.ConstraintViolationException;
+import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import org.dataloader.DataLoader;
 import org.springframework.graphql.data.method.annotation.Argument;
 import org.springframework.graphql.data.method.annotation.MutationMapping;
 import org.springframework.graphql.data.method.annotation.QueryMapping;
+import org.springframework.graphql.execution.BatchLoaderRegistry;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.stereotype.Controller;
+import reactor.core.publisher.Mono;
 
-/** GraphQL controller resolving queries for the {@link com.xclone.user.model.entity.User} model. */
+/**
+ * GraphQL controller resolving queries for the {@link com.xclone.user.model.entity.User} model.
+ *
+ * <p>Registers the request-scoped {@code DataLoader<UUID, UserProfile>} through which every field
+ * that references a user by id should resolve it. Lookups made while executing one request are
+ * deduplicated and fetched together with a single {@code WHERE id IN (...)} query per batch of at
+ * most {@value #MAX_BATCH_SIZE} ids.
+ */
 @Controller
 public class UserController {
+  static final int MAX_BATCH_SIZE = 500;
+
   private final UserService userService;
 
-  public UserController(UserService userService) {
+  /** Constructor; assigns components for internal use and registers the user batch loader. */
+  public UserController(UserService userService, BatchLoaderRegistry batchLoaderRegistry) {
     this.userService = userService;
+    batchLoaderRegistry
+        .forTypePair(UUID.class, UserProfile.class)
+        .withOptions(options -> options.setMaxBatchSize(MAX_BATCH_SIZE))
+        .registerMappedBatchLoader(
+            (ids, environment) -> Mono.fromCallable(() -> userService.getUsersByIds(ids)));
   }
 
+  /**
+   * Returns the authenticated user. Principals built from stateless token claims carry no loaded
+   * user, in which case the profile is fetched.
+   *
+   * @param userDetails authenticated user; populated as part of the security chain with {@link
+   *     JwtAuthenticationFilter}
+   * @return the authenticated user's profile
+   */
   @QueryMapping
   public UserProfile me(@AuthenticationPrincipal CustomUserDetails userDetails) {
-    return userDetails.getUser().toUserProfile();
+    User user = userDetails.getUser();
+    if (user != null) {
+      return user.toUserProfile();
+    }
+    return userService.getUserById(userDetails.getId());
   }
 
   @QueryMapping
@@ -39,28 +76,37 @@ public class UserController {
 
   // Is this needed as I shouldn't be calling uuid publicly?
   @QueryMapping
-  public UserProfile userById(@Argument UUID id) {
-    return userService.getUserById(id);
+  public CompletableFuture<UserProfile> userById(
+      @Argument UUID id, DataLoader<UUID, UserProfile> users) {
+    return users.load(id);
   }
 
+  /**
+   * Searches active users. Matches are only counted when the client selects {@code totalCount}.
+   *
+   * @param query the search term
+   * @param first page size
+   * @param after end cursor of the previous page
+   * @param selectionSet fields selected on the returned connection
+   * @return a page of matching users
+   */
   @QueryMapping
   public UserConnection searchUsers(
-      @Argument String query, @Argument Integer first, @Argument String after) {
-    return userService.getUsersByHandle(query);
+      @Argument String query,
+      @Argument Integer first,
+      @Argument String after,
+      DataFetchingFieldSelectionSet selectionSet) {
+    return userService.searchUsers(query, first, after, TotalCounter.isRequested(selectionSet));
   }
 
-  //  @QueryMapping
-  //  public UserConnection suggestedUsers(
-  //      @AuthenticationPrincipal CustomUserDetails userDetails,
-  //      @Argument Integer first,
-  //      @Argument String after) {
-  //    User authenticatedUser = userDetails.getUser();
-  //    return userService.getSuggestedUsers(userDetails.getUser());
-  //  }
+  @QueryMapping
+  public List<UserSuggestion> autocompleteUsers(@Argument String prefix, @Argument Integer first) {
+    return userService.autocompleteUsers(prefix, first);
+  }
 
   /**
-   * Triggers the {@link UserService#updateProfile(String, UpdateUserInput)} with the authenticated
-   * user.
+   * Triggers the {@link UserService#updateProfile(String, UpdateUserInput, Integer)} with the
+   * authenticated user.
    *
    * <p>Business exceptions are mapped with {@link GraphQlErrorMapper} in the style of
    * "errors-as-data".
@@ -68,17 +114,22 @@ public class UserController {
    * @param userDetails authenticated user; populated as part of the security chain with {@link
    *     JwtAuthenticationFilter}
    * @param input DTO containing user details to update
+   * @param expectedVersion {@code User.version} the client last read, or {@code null}
    * @return the updated user
    */
   @MutationMapping
   public UserResponse updateMyProfile(
-      @AuthenticationPrincipal CustomUserDetails userDetails, @Argument UpdateUserInput input) {
+      @AuthenticationPrincipal CustomUserDetails userDetails,
+      @Argument UpdateUserInput input,
+      @Argument Integer expectedVersion) {
     String userId = userDetails.getUsername();
     try {
-      UserProfile updatedUser = userService.updateProfile(userId, input);
+      UserProfile updatedUser = userService.updateProfile(userId, input, expectedVersion);
       return new UserResponse("200", true, updatedUser, null);
     } catch (DuplicateHandleException ex) {
       return new UserResponse("409", false, null, GraphQlErrorMapper.fromDuplicateHandle(ex));
+    } catch (ProfileVersionConflictException ex) {
+      return new UserResponse("409", false, null, GraphQlErrorMapper.fromVersionConflict(ex));
     } catch (ConstraintViolationException ex) {
       return new UserResponse("400", false, null, GraphQlErrorMapper.fromConstraintViolations(ex));
     }
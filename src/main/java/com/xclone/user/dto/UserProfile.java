@@ -1,6 +1,8 @@
 package com.xclone.user.dto;
 
+import java.time.Instant;
 import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
 import java.util.UUID;
 
 /**
@@ -14,6 +16,7 @@ import java.util.UUID;
  * @param profileImage a URI where the user's profile image is stored
  * @param createdAt datetime of user entity creation
  * @param updatedAt datetime of last update of user entity
+ * @param version optimistic lock version of the profile, which edits may be checked against
  */
 public record UserProfile(
     UUID id,
@@ -22,4 +25,31 @@ public record UserProfile(
     String bio,
     String profileImage,
     OffsetDateTime createdAt,
-    OffsetDateTime updatedAt) {}
+    OffsetDateTime updatedAt,
+    int version) {
+
+  /**
+   * Creates a profile from stored column values, converting timestamps to UTC. Profile reads select
+   * straight into this constructor with a JPQL constructor expression, so that they never load a
+   * {@code User} entity or its password hash.
+   */
+  public UserProfile(
+      UUID id,
+      String handle,
+      String displayName,
+      String bio,
+      String profileImage,
+      Instant createdAt,
+      Instant updatedAt,
+      int version) {
+    this(
+        id,
+        handle,
+        displayName,
+        bio,
+        profileImage,
+        createdAt.atOffset(ZoneOffset.UTC),
+        updatedAt == null ? null : updatedAt.atOffset(ZoneOffset.UTC),
+        version);
+  }
+}
@@ -0,0 +1,13 @@
+package com.xclone.user.dto;
+
+import java.util.UUID;
+
+/**
+ * Minimal user projection returned by typeahead suggestions, mapping to the {@code UserSuggestion}
+ * type in the GraphQL schema.
+ *
+ * @param id UUID of the user
+ * @param handle the unique user handle used to identify the account
+ * @param displayName the user's displayed name
+ */
+public record UserSuggestion(UUID id, String handle, String displayName) {}
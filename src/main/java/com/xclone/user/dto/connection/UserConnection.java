@@ -8,7 +8,8 @@ import java.util.List;
  *
  * @param edges list of unique user models
  * @param pageInfo metadata about the statefulness of edges
- * @param totalCount total number of matching users; currently equals the number of edges as
- *     pagination is not yet implemented
+ * @param totalCount number of users in the whole connection, or {@code null} if the client did not
+ *     select it; large totals may be approximate, see {@link
+ *     com.xclone.common.connection.TotalCounter}
  */
 public record UserConnection(List<UserEdge> edges, PageInfo pageInfo, Integer totalCount) {}
@@ -0,0 +1,23 @@
+package com.xclone.user.event;
+
+import java.util.UUID;
+
+/**
+ * Published by {@link com.xclone.user.service.UserService}, and on signup by {@link
+ * com.xclone.auth.service.AuthenticationService}, whenever a user's persisted state changes.
+ * Listeners holding derived copies of the user (caches, indexes) use it to invalidate or refresh
+ * them.
+ *
+ * @param userId UUID of the changed user
+ * @param type what kind of change was made
+ */
+public record UserChangedEvent(UUID userId, ChangeType type) {
+
+  /** Kind of change made to the user. */
+  public enum ChangeType {
+    CREATED,
+    PROFILE,
+    STATUS,
+    ROLE,
+  }
+}
@@ -0,0 +1,13 @@
+package com.xclone.user.event;
+
+import com.xclone.user.model.enums.UserStatus;
+import java.util.UUID;
+
+/**
+ * Published by {@link com.xclone.user.service.UserService} when a user is suspended or deleted,
+ * alongside the {@link UserChangedEvent}. Listeners use it to end the user's sessions.
+ *
+ * @param userId UUID of the deactivated user
+ * @param status the user's new, non-active status
+ */
+public record UserDeactivatedEvent(UUID userId, UserStatus status) {}
@@ -12,15 +12,16 @@ import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
 import jakarta.persistence.Table;
+import jakarta.persistence.Version;
 import java.time.Instant;
 import java.time.OffsetDateTime;
-import java.time.ZoneOffset;
 import java.util.UUID;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.hibernate.annotations.ColumnDefault;
 import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.annotation.LastModifiedDate;
 import org.springframework.data.jpa.domain.support.AuditingEntityListener;
@@ -71,6 +72,17 @@ public class User {
   @Column(name = "updated_at")
   private Instant updatedAt;
 
+  /**
+   * Optimistic lock; incremented by every write except a password rehash, including {@link
+   * com.xclone.user.repository.UserRepository#updateProfile}, so that a stale entity cannot
+   * overwrite a concurrent change. Exposed to clients as {@code User.version}, which profile edits
+   * may be checked against; a user not yet persisted is at version 0.
+   */
+  @Version
+  @ColumnDefault("0")
+  @Column(nullable = false)
+  private Integer version;
+
   /**
    * Projects this entity to a {@link UserProfile} for use in GraphQL responses. Timestamps are
    * converted from {@link Instant} to {@link OffsetDateTime} at UTC.
@@ -84,7 +96,8 @@ public class User {
         displayName,
         bio,
         profileImage,
-        createdAt.atOffset(ZoneOffset.UTC),
-        updatedAt.atOffset(ZoneOffset.UTC));
+        createdAt,
+        updatedAt,
+        version == null ? 0 : version);
   }
 }
@@ -0,0 +1,15 @@
+package com.xclone.user.repository;
+
+import java.util.UUID;
+
+/** Projection of the user columns held by the autocomplete index. */
+public interface UserAutocompleteRow {
+  UUID getId();
+
+  String getHandle();
+
+  String getDisplayName();
+
+  /** Number of followers; 0 for users without counters. */
+  long getFollowerCount();
+}
@@ -0,0 +1,41 @@
+package com.xclone.user.repository;
+
+import com.xclone.user.dto.UserProfile;
+import java.time.Instant;
+import java.util.UUID;
+
+/** Projection of the public profile columns of a user row selected by a native query. */
+public interface UserProfileRow {
+  UUID getId();
+
+  String getHandle();
+
+  String getDisplayName();
+
+  String getBio();
+
+  String getProfileImage();
+
+  Instant getCreatedAt();
+
+  Instant getUpdatedAt();
+
+  int getVersion();
+
+  /**
+   * Projects this row to a {@link UserProfile} for use in GraphQL responses.
+   *
+   * @return immutable public-facing projection of the user
+   */
+  default UserProfile toUserProfile() {
+    return new UserProfile(
+        getId(),
+        getHandle(),
+        getDisplayName(),
+        getBio(),
+        getProfileImage(),
+        getCreatedAt(),
+        getUpdatedAt(),
+        getVersion());
+  }
+}
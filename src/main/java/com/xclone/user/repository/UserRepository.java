@@ -1,20 +1,331 @@
 package com.xclone.user.repository;
 
+import com.xclone.user.dto.UserProfile;
 import com.xclone.user.model.entity.User;
+import com.xclone.user.model.enums.UserStatus;
+import jakarta.persistence.QueryHint;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Stream;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
-/** Repository to connect User entity to JPA. */
+/**
+ * Repository to connect User entity to JPA.
+ *
+ * <p>User search only considers {@code ACTIVE} users and is served by the partial indexes in {@code
+ * db/indexes.sql}: trigram GiST indexes over handle and display name, and a {@code "C"} collation
+ * btree over the lower-cased handle for prefix lookups. Each search first collects at most {@code
+ * maxCandidates} matching rows, then ranks them by handle prefix match and trigram similarity and
+ * returns the page after the keyset cursor, so its cost is bounded regardless of table size.
+ * Candidates are picked by relevance in a fixed order, never by whichever rows a scan returns
+ * first, so that the best matches are always ranked and every page ranks the same candidates.
+ *
+ * <p>Profile reads select into {@link UserProfile} with a constructor expression rather than
+ * loading {@link User} entities, so they skip the password hash and the persistence context's
+ * dirty-checking snapshot. They run in their own read-only transactions, so that callers answered
+ * from a cache never open one.
+ *
+ * <p>Profile edits are applied by {@link #updateProfile} in one {@code UPDATE ... RETURNING}
+ * statement rather than by loading and dirty-checking the entity, leaving handle uniqueness to the
+ * database constraint. Edits made against an expected version only apply if the row still has it.
+ */
 @Repository
 public interface UserRepository extends JpaRepository<User, UUID> {
+  /** Ranks the {@code candidates} CTE and returns one page after the keyset cursor. */
+  String RANK_CANDIDATES =
+      """
+      SELECT r.* FROM (
+        SELECT c.id, c.handle, c.display_name AS "displayName", c.bio,
+               c.profile_image AS "profileImage", c.created_at AS "createdAt",
+               c.updated_at AS "updatedAt", c.version,
+               CASE WHEN lower(c.handle) COLLATE "C" LIKE :prefix THEN 1 ELSE 0 END
+                   AS "prefixMatch",
+               greatest(similarity(c.handle, :query), similarity(c.display_name, :query))
+                   AS "score"
+        FROM candidates c
+      ) r
+      WHERE (r."prefixMatch", r."score", r.id) < (:afterPrefixMatch, :afterScore, :afterId)
+      ORDER BY r."prefixMatch" DESC, r."score" DESC, r.id DESC
+      LIMIT :limit
+      """;
+
+  /**
+   * Collects the ids of the {@code matches} for a fuzzy search: the first handles in order that
+   * start with the query, from the prefix index, and the handles and display names nearest to it by
+   * trigram distance, from the GiST indexes. Each branch is ordered, so the result only depends on
+   * the data.
+   */
+  String FUZZY_MATCHES =
+      """
+      WITH matches AS (
+        (SELECT p.id FROM users p
+         WHERE p.status = 'ACTIVE' AND lower(p.handle) COLLATE "C" LIKE :prefix
+         ORDER BY lower(p.handle) COLLATE "C"
+         LIMIT :maxCandidates)
+        UNION
+        (SELECT h.id FROM users h
+         WHERE h.status = 'ACTIVE' AND (h.handle % :query OR h.handle ILIKE :contains)
+         ORDER BY h.handle <-> :query, h.id
+         LIMIT :maxCandidates)
+        UNION
+        (SELECT d.id FROM users d
+         WHERE d.status = 'ACTIVE'
+           AND (d.display_name % :query OR d.display_name ILIKE :contains)
+         ORDER BY d.display_name <-> :query, d.id
+         LIMIT :maxCandidates)
+      )
+      """;
+
+  /** Selects the {@link UserProfile} columns of {@code u} without loading the entity. */
+  String SELECT_PROFILE =
+      "SELECT new com.xclone.user.dto.UserProfile(u.id, u.handle, u.displayName, u.bio, "
+          + "u.profileImage, u.createdAt, u.updatedAt, u.version) FROM User u ";
+
+  /** Selects the {@link UserAutocompleteRow} columns of {@code u} with its follower count. */
+  String SELECT_AUTOCOMPLETE_ROW =
+      "SELECT u.id AS id, u.handle AS handle, u.displayName AS displayName, "
+          + "COALESCE(c.followerCount, 0L) AS followerCount "
+          + "FROM User u LEFT JOIN UserCounters c ON c.userId = u.id ";
+
   Optional<User> findByHandle(String handle);
 
-  List<User> findAllByHandleContaining(String query);
+  @Transactional(readOnly = true)
+  @Query(SELECT_PROFILE + "WHERE u.handle = :handle")
+  Optional<UserProfile> findProfileByHandle(@Param("handle") String handle);
+
+  @Transactional(readOnly = true)
+  @Query(SELECT_PROFILE + "WHERE u.id = :id")
+  Optional<UserProfile> findProfileById(@Param("id") UUID id);
+
+  /**
+   * Selects the profiles of the given users. Missing ids are skipped and the order is unspecified.
+   *
+   * @param ids user ids
+   * @return profiles of the users that exist
+   */
+  @Transactional(readOnly = true)
+  @Query(SELECT_PROFILE + "WHERE u.id IN :ids")
+  List<UserProfile> findProfilesByIdIn(@Param("ids") Collection<UUID> ids);
+
+  /**
+   * Streams the autocomplete columns of every user with the given status, with their follower
+   * counts. Must be consumed inside a transaction, which lets the driver fetch the rows in batches
+   * instead of all at once.
+   *
+   * @param status status of the users to stream
+   * @return the users' autocomplete rows; must be closed
+   */
+  @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+  @Query(SELECT_AUTOCOMPLETE_ROW + "WHERE u.status = :status")
+  Stream<UserAutocompleteRow> streamAutocompleteRows(@Param("status") UserStatus status);
+
+  /**
+   * Selects the autocomplete columns of one user with the given status, with their follower count.
+   *
+   * @param id user id
+   * @param status status the user must have
+   * @return the user's autocomplete row, or empty if there is no such user with that status
+   */
+  @Transactional(readOnly = true)
+  @Query(SELECT_AUTOCOMPLETE_ROW + "WHERE u.id = :id AND u.status = :status")
+  Optional<UserAutocompleteRow> findAutocompleteRow(
+      @Param("id") UUID id, @Param("status") UserStatus status);
+
+  /**
+   * Selects the ids of users whose status is not the given one.
+   *
+   * @param status status to exclude
+   * @return ids of the users with any other status
+   */
+  @Transactional(readOnly = true)
+  @Query("SELECT u.id FROM User u WHERE u.status <> :status")
+  List<UUID> findIdsByStatusNot(@Param("status") UserStatus status);
+
+  /**
+   * Searches active users whose handle starts with the query. Used for queries too short to produce
+   * trigrams; candidates are taken in handle order straight from the prefix index.
+   *
+   * @param query the search term
+   * @param prefix lower-cased, LIKE-escaped query followed by {@code %}
+   * @param afterPrefixMatch prefix match rank of the cursor
+   * @param afterScore similarity score of the cursor
+   * @param afterId user id of the cursor
+   * @param maxCandidates upper bound on rows considered for ranking
+   * @param limit maximum number of hits to return
+   * @return ranked hits after the cursor
+   */
+  @Query(
+      nativeQuery = true,
+      value =
+          """
+          WITH candidates AS (
+            SELECT * FROM users u
+            WHERE u.status = 'ACTIVE' AND lower(u.handle) COLLATE "C" LIKE :prefix
+            ORDER BY lower(u.handle) COLLATE "C"
+            LIMIT :maxCandidates
+          )
+          """
+              + RANK_CANDIDATES)
+  List<UserSearchHit> searchActiveByHandlePrefix(
+      @Param("query") String query,
+      @Param("prefix") String prefix,
+      @Param("afterPrefixMatch") int afterPrefixMatch,
+      @Param("afterScore") float afterScore,
+      @Param("afterId") UUID afterId,
+      @Param("maxCandidates") int maxCandidates,
+      @Param("limit") int limit);
+
+  /**
+   * Searches active users whose handle or display name contains the query or is similar to it by
+   * trigram similarity ({@code %} operator, {@code pg_trgm.similarity_threshold}). The best {@code
+   * maxCandidates} of the {@link #FUZZY_MATCHES} by rank are the candidates.
+   *
+   * @param query the search term
+   * @param prefix lower-cased, LIKE-escaped query followed by {@code %}
+   * @param contains LIKE-escaped query wrapped in {@code %}
+   * @param afterPrefixMatch prefix match rank of the cursor
+   * @param afterScore similarity score of the cursor
+   * @param afterId user id of the cursor
+   * @param maxCandidates upper bound on rows considered for ranking
+   * @param limit maximum number of hits to return
+   * @return ranked hits after the cursor
+   */
+  @Query(
+      nativeQuery = true,
+      value =
+          FUZZY_MATCHES
+              + """
+              , candidates AS (
+                SELECT u.* FROM users u JOIN matches m ON m.id = u.id
+                ORDER BY CASE WHEN lower(u.handle) COLLATE "C" LIKE :prefix THEN 1 ELSE 0 END DESC,
+                         greatest(similarity(u.handle, :query), similarity(u.display_name, :query))
+                             DESC,
+                         u.id DESC
+                LIMIT :maxCandidates
+              )
+              """
+              + RANK_CANDIDATES)
+  List<UserSearchHit> searchActive(
+      @Param("query") String query,
+      @Param("prefix") String prefix,
+      @Param("contains") String contains,
+      @Param("afterPrefixMatch") int afterPrefixMatch,
+      @Param("afterScore") float afterScore,
+      @Param("afterId") UUID afterId,
+      @Param("maxCandidates") int maxCandidates,
+      @Param("limit") int limit);
+
+  /**
+   * Counts the candidates {@link #searchActiveByHandlePrefix} would rank, up to {@code
+   * maxCandidates}.
+   *
+   * @param prefix lower-cased, LIKE-escaped query followed by {@code %}
+   * @param maxCandidates upper bound on rows counted
+   * @return number of matching active users, at most {@code maxCandidates}
+   */
+  @Query(
+      nativeQuery = true,
+      value =
+          """
+          SELECT count(*) FROM (
+            SELECT 1 FROM users u
+            WHERE u.status = 'ACTIVE' AND lower(u.handle) COLLATE "C" LIKE :prefix
+            LIMIT :maxCandidates
+          ) c
+          """)
+  long countActiveByHandlePrefix(
+      @Param("prefix") String prefix, @Param("maxCandidates") int maxCandidates);
+
+  /**
+   * Counts the candidates {@link #searchActive} would rank, up to {@code maxCandidates}.
+   *
+   * @param query the search term
+   * @param prefix lower-cased, LIKE-escaped query followed by {@code %}
+   * @param contains LIKE-escaped query wrapped in {@code %}
+   * @param maxCandidates upper bound on rows counted
+   * @return number of matching active users, at most {@code maxCandidates}
+   */
+  @Query(
+      nativeQuery = true,
+      value =
+          FUZZY_MATCHES
+              + """
+              SELECT count(*) FROM (SELECT 1 FROM matches LIMIT :maxCandidates) c
+              """)
+  long countActive(
+      @Param("query") String query,
+      @Param("prefix") String prefix,
+      @Param("contains") String contains,
+      @Param("maxCandidates") int maxCandidates);
 
   boolean existsByHandle(String handle);
 
-  boolean existsByHandleAndIdNot(String handle, UUID id);
+  /**
+   * Applies the non-null arguments to the user's profile in a single statement and returns the
+   * updated row. Null arguments leave their column unchanged. The version is incremented, so any
+   * concurrently loaded {@link User} entity fails its optimistic lock check instead of overwriting
+   * the change. A handle that is already taken violates the unique constraint on {@code handle}.
+   *
+   * @param id the user's id
+   * @param displayName new display name, or {@code null}
+   * @param handle new handle, or {@code null}
+   * @param bio new bio, or {@code null}
+   * @param profileImage new profile image URI, or {@code null}
+   * @param expectedVersion version the edit was made against, or {@code null} to apply it to any
+   * @return the updated profile, or empty if no user has the id or its version differs
+   */
+  @Query(
+      nativeQuery = true,
+      value =
+          """
+          UPDATE users SET
+            display_name = coalesce(CAST(:displayName AS text), display_name),
+            handle = coalesce(CAST(:handle AS text), handle),
+            bio = coalesce(CAST(:bio AS text), bio),
+            profile_image = coalesce(CAST(:profileImage AS text), profile_image),
+            updated_at = now(),
+            version = version + 1
+          WHERE id = :id
+            AND (CAST(:expectedVersion AS integer) IS NULL
+                 OR version = CAST(:expectedVersion AS integer))
+          RETURNING id, handle, display_name AS "displayName", bio,
+                    profile_image AS "profileImage", created_at AS "createdAt",
+                    updated_at AS "updatedAt", version
+          """)
+  Optional<UserProfileRow> updateProfile(
+      @Param("id") UUID id,
+      @Param("displayName") String displayName,
+      @Param("handle") String handle,
+      @Param("bio") String bio,
+      @Param("profileImage") String profileImage,
+      @Param("expectedVersion") Integer expectedVersion);
+
+  /**
+   * Replaces a user's password hash if it is still {@code currentHash}. Leaves the version alone:
+   * the hash is not part of the profile, and a concurrent profile edit must not fail because of a
+   * rehash at login.
+   *
+   * @param id the user's id
+   * @param currentHash the hash the new one was computed to replace
+   * @param newHash the new hash
+   * @return 1 if the hash was replaced, 0 if it had changed in the meantime
+   */
+  @Transactional
+  @Modifying
+  @Query(
+      "UPDATE User u SET u.passwordHash = :newHash "
+          + "WHERE u.id = :id AND u.passwordHash = :currentHash")
+  int replacePasswordHash(
+      @Param("id") UUID id,
+      @Param("currentHash") String currentHash,
+      @Param("newHash") String newHash);
 }
@@ -0,0 +1,13 @@
+package com.xclone.user.repository;
+
+/**
+ * Projection of a user search result: the public profile columns plus the ranking values the result
+ * was ordered by, which form the keyset cursor of the following page.
+ */
+public interface UserSearchHit extends UserProfileRow {
+  /** {@code 1} if the handle starts with the query, otherwise {@code 0}. */
+  int getPrefixMatch();
+
+  /** Highest trigram similarity of the handle or display name to the query. */
+  float getScore();
+}
@@ -0,0 +1,53 @@
+package com.xclone.user.search;
+
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+/**
+ * A user as held by the autocomplete index. An entry without a handle is a tombstone, recording
+ * that the user must no longer be suggested.
+ *
+ * @param id UUID of the user
+ * @param handle the user's handle, or {@code null} for a tombstone
+ * @param displayName the user's display name
+ * @param popularity ranking score; higher scores are suggested first
+ */
+record AutocompleteEntry(UUID id, String handle, String displayName, int popularity) {
+
+  static AutocompleteEntry tombstone(UUID id) {
+    return new AutocompleteEntry(id, null, null, 0);
+  }
+
+  boolean isTombstone() {
+    return handle == null;
+  }
+
+  /**
+   * Returns the length of the shortest key of this entry that starts with {@code prefix}: the
+   * handle, or one of the first {@link AutocompleteSnapshot#MAX_DISPLAY_NAME_TOKENS} words of the
+   * display name running to its end.
+   *
+   * @param prefix folded UTF-8 prefix, see {@link AutocompleteSnapshot#fold(String)}
+   * @return the matching key length in bytes, or {@code -1} if no key matches
+   */
+  int matchLength(byte[] prefix) {
+    if (isTombstone()) {
+      return -1;
+    }
+    byte[] handleBytes = handle.getBytes(StandardCharsets.UTF_8);
+    if (AutocompleteSnapshot.startsWith(handleBytes, 0, handleBytes.length, prefix)) {
+      return handleBytes.length;
+    }
+    byte[] name = displayName.getBytes(StandardCharsets.UTF_8);
+    int tokens = 0;
+    for (int i = 0; i < name.length && tokens < AutocompleteSnapshot.MAX_DISPLAY_NAME_TOKENS; i++) {
+      if (name[i] != ' ' && (i == 0 || name[i - 1] == ' ')) {
+        tokens++;
+        if (AutocompleteSnapshot.startsWith(name, i, name.length, prefix)) {
+          return name.length - i;
+        }
+      }
+    }
+    return -1;
+  }
+}
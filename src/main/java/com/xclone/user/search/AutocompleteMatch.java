@@ -0,0 +1,17 @@
+package com.xclone.user.search;
+
+import java.util.Comparator;
+
+/**
+ * An entry matched by a prefix lookup together with the length of the key it matched on.
+ *
+ * @param entry the matched user
+ * @param keyLength length in bytes of the matched key
+ */
+record AutocompleteMatch(AutocompleteEntry entry, int keyLength) {
+  /** Most popular first, then the shortest (closest) key, then by handle. */
+  static final Comparator<AutocompleteMatch> RANKING =
+      Comparator.comparingInt((AutocompleteMatch match) -> -match.entry().popularity())
+          .thenComparingInt(AutocompleteMatch::keyLength)
+          .thenComparing(match -> match.entry().handle());
+}
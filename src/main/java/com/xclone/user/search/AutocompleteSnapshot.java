@@ -0,0 +1,489 @@
+package com.xclone.user.search;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Predicate;
+
+/**
+ * Immutable prefix index over a fixed set of users, held in flat primitive arrays so that tens of
+ * millions of users cost a few dozen bytes each and no per-user objects.
+ *
+ * <p>Every user contributes its handle and display name, UTF-8 encoded, to one shared byte array.
+ * The searchable keys are the handle and the first {@value #MAX_DISPLAY_NAME_TOKENS} words of the
+ * display name; each key is an offset into that array, and the offsets are sorted by their folded
+ * bytes (ASCII letters lower-cased, all other bytes compared as-is). A prefix lookup binary
+ * searches the key range and picks the best matches by {@link AutocompleteMatch#RANKING}.
+ *
+ * <p>Ranges wider than {@value #SCAN_LIMIT} keys are never scanned: the best {@value
+ * #PRECOMPUTED_RESULTS} users of every such range are computed when the snapshot is built, so a
+ * lookup costs two binary searches plus at most {@value #SCAN_LIMIT} key comparisons.
+ */
+final class AutocompleteSnapshot {
+  static final int MAX_DISPLAY_NAME_TOKENS = 3;
+  static final int SCAN_LIMIT = 4096;
+  static final int PRECOMPUTED_RESULTS = 32;
+
+  static final AutocompleteSnapshot EMPTY = new Builder().build();
+
+  private final int size;
+  private final long[] idHigh;
+  private final long[] idLow;
+  private final int[] popularity;
+  private final byte[] text;
+  private final int[] textStart;
+  private final byte[] handleLength;
+  private final int[] keyStart;
+  private final int[] keyUser;
+  private final Map<String, int[]> precomputed;
+
+  private AutocompleteSnapshot(Builder builder) {
+    this.size = builder.size;
+    this.idHigh = Arrays.copyOf(builder.idHigh, size);
+    this.idLow = Arrays.copyOf(builder.idLow, size);
+    this.popularity = Arrays.copyOf(builder.popularity, size);
+    this.text = Arrays.copyOf(builder.text, builder.textLength);
+    this.textStart = Arrays.copyOf(builder.textStart, size + 1);
+    this.textStart[size] = builder.textLength;
+    this.handleLength = Arrays.copyOf(builder.handleLength, size);
+    this.keyStart = Arrays.copyOf(builder.keyStart, builder.keyCount);
+    this.keyUser = Arrays.copyOf(builder.keyUser, builder.keyCount);
+    sort(0, keyStart.length, 0);
+    this.precomputed = precompute();
+  }
+
+  /** Number of users in the snapshot. */
+  int size() {
+    return size;
+  }
+
+  /** Number of searchable keys in the snapshot. */
+  int keyCount() {
+    return keyStart.length;
+  }
+
+  /**
+   * Approximate heap footprint of the snapshot's arrays and precomputed ranges.
+   *
+   * @return size in bytes
+   */
+  long memoryFootprintBytes() {
+    long arrays =
+        16L * size
+            + 4L * size
+            + text.length
+            + 4L * textStart.length
+            + handleLength.length
+            + 4L * keyStart.length
+            + 4L * keyUser.length
+            + 6 * 16L;
+    long precomputedBytes = precomputed.size() * (48L + 56L + 16L + 4L * PRECOMPUTED_RESULTS);
+    return arrays + precomputedBytes;
+  }
+
+  /**
+   * Finds the best users with a key starting with {@code prefix}.
+   *
+   * @param prefix folded UTF-8 prefix, see {@link #fold(String)}; must not be empty
+   * @param limit maximum number of matches to return
+   * @param excluded users to leave out, e.g. because a newer version of them exists
+   * @return matches ordered by {@link AutocompleteMatch#RANKING}
+   */
+  List<AutocompleteMatch> lookup(byte[] prefix, int limit, Predicate<UUID> excluded) {
+    int from = bound(prefix, false);
+    int to = bound(prefix, true);
+    int[] precomputedBest =
+        to - from > SCAN_LIMIT
+            ? precomputed.get(new String(prefix, StandardCharsets.ISO_8859_1))
+            : null;
+    if (precomputedBest != null) {
+      List<AutocompleteMatch> matches = new ArrayList<>(limit);
+      for (int i = 0; i < precomputedBest.length && matches.size() < limit; i++) {
+        int key = precomputedBest[i];
+        if (!excluded.test(id(keyUser[key]))) {
+          matches.add(new AutocompleteMatch(entry(keyUser[key]), keyLength(key)));
+        }
+      }
+      return matches;
+    }
+    int[] best = best(from, to, limit, excluded);
+    List<AutocompleteMatch> matches = new ArrayList<>(best.length);
+    for (int key : best) {
+      matches.add(new AutocompleteMatch(entry(keyUser[key]), keyLength(key)));
+    }
+    return matches;
+  }
+
+  /**
+   * Adds every user of this snapshot, except those {@code excluded}, to a builder.
+   *
+   * @param builder builder of the next snapshot
+   * @param excluded users to leave out
+   */
+  void copyTo(Builder builder, Predicate<UUID> excluded) {
+    for (int user = 0; user < size; user++) {
+      if (!excluded.test(id(user))) {
+        builder.add(
+            idHigh[user],
+            idLow[user],
+            popularity[user],
+            text,
+            textStart[user],
+            handleLength[user] & 0xFF,
+            textStart[user + 1]);
+      }
+    }
+  }
+
+  private UUID id(int user) {
+    return new UUID(idHigh[user], idLow[user]);
+  }
+
+  private AutocompleteEntry entry(int user) {
+    int start = textStart[user];
+    int handleEnd = start + (handleLength[user] & 0xFF);
+    return new AutocompleteEntry(
+        id(user),
+        new String(text, start, handleEnd - start, StandardCharsets.UTF_8),
+        new String(text, handleEnd, textStart[user + 1] - handleEnd, StandardCharsets.UTF_8),
+        popularity[user]);
+  }
+
+  private int keyEnd(int key) {
+    int user = keyUser[key];
+    int handleEnd = textStart[user] + (handleLength[user] & 0xFF);
+    return keyStart[key] < handleEnd ? handleEnd : textStart[user + 1];
+  }
+
+  private int keyLength(int key) {
+    return keyEnd(key) - keyStart[key];
+  }
+
+  /** Folded byte of the key at {@code depth}, or {@code -1} past its end. */
+  private int charAt(int key, int depth) {
+    int position = keyStart[key] + depth;
+    return position < keyEnd(key) ? fold(text[position]) : -1;
+  }
+
+  /**
+   * Index of the first key whose leading bytes are not below {@code prefix}, or with {@code upper}
+   * set, the first key whose leading bytes are above it.
+   */
+  private int bound(byte[] prefix, boolean upper) {
+    int low = 0;
+    int high = keyStart.length;
+    while (low < high) {
+      int middle = (low + high) >>> 1;
+      int comparison = comparePrefix(middle, prefix);
+      if (comparison < 0 || (upper && comparison == 0)) {
+        low = middle + 1;
+      } else {
+        high = middle;
+      }
+    }
+    return low;
+  }
+
+  private int comparePrefix(int key, byte[] prefix) {
+    for (int depth = 0; depth < prefix.length; depth++) {
+      int difference = charAt(key, depth) - (prefix[depth] & 0xFF);
+      if (difference != 0) {
+        return difference;
+      }
+    }
+    return 0;
+  }
+
+  /**
+   * Selects the best keys of {@code [from, to)}, one per user, by {@link
+   * AutocompleteMatch#RANKING}.
+   */
+  private int[] best(int from, int to, int limit, Predicate<UUID> excluded) {
+    int[] best = new int[limit];
+    int count = 0;
+    for (int key = from; key < to; key++) {
+      // a key no better than the worst kept one cannot improve on a kept key of its user either
+      if (count == limit && compareRank(key, best[count - 1]) >= 0) {
+        continue;
+      }
+      int user = keyUser[key];
+      int duplicate = -1;
+      for (int i = 0; i < count; i++) {
+        if (keyUser[best[i]] == user) {
+          duplicate = i;
+          break;
+        }
+      }
+      if (duplicate >= 0) {
+        if (compareRank(key, best[duplicate]) < 0) {
+          best[duplicate] = key;
+          siftUp(best, duplicate);
+        }
+        continue;
+      }
+      if (excluded.test(id(user))) {
+        continue;
+      }
+      int position = count == limit ? count - 1 : count++;
+      best[position] = key;
+      siftUp(best, position);
+    }
+    return Arrays.copyOf(best, count);
+  }
+
+  private void siftUp(int[] best, int position) {
+    for (int i = position; i > 0 && compareRank(best[i], best[i - 1]) < 0; i--) {
+      int swap = best[i];
+      best[i] = best[i - 1];
+      best[i - 1] = swap;
+    }
+  }
+
+  private int compareRank(int key, int other) {
+    int comparison = Integer.compare(popularity[keyUser[other]], popularity[keyUser[key]]);
+    if (comparison != 0) {
+      return comparison;
+    }
+    comparison = Integer.compare(keyLength(key), keyLength(other));
+    if (comparison != 0) {
+      return comparison;
+    }
+    int user = keyUser[key];
+    int otherUser = keyUser[other];
+    return Arrays.compare(
+        text,
+        textStart[user],
+        textStart[user] + (handleLength[user] & 0xFF),
+        text,
+        textStart[otherUser],
+        textStart[otherUser] + (handleLength[otherUser] & 0xFF));
+  }
+
+  /**
+   * Computes the best keys of every prefix whose range is too wide to scan. Only ranges that were
+   * too wide at one prefix length are split at the next, so the work is proportional to the keys in
+   * wide ranges.
+   */
+  private Map<String, int[]> precompute() {
+    Map<String, int[]> ranges = new HashMap<>();
+    List<int[]> wide = List.<int[]>of(new int[] {0, keyStart.length});
+    for (int length = 1; !wide.isEmpty(); length++) {
+      List<int[]> next = new ArrayList<>();
+      for (int[] range : wide) {
+        int from = range[0];
+        while (from < range[1]) {
+          // keys of a wide range share their first length - 1 bytes; group them by the next one
+          int c = charAt(from, length - 1);
+          if (c < 0) {
+            from++;
+            continue;
+          }
+          int to = from + 1;
+          while (to < range[1] && charAt(to, length - 1) == c) {
+            to++;
+          }
+          if (to - from > SCAN_LIMIT) {
+            byte[] prefix = new byte[length];
+            for (int depth = 0; depth < length; depth++) {
+              prefix[depth] = (byte) charAt(from, depth);
+            }
+            ranges.put(
+                new String(prefix, StandardCharsets.ISO_8859_1),
+                best(from, to, PRECOMPUTED_RESULTS, id -> false));
+            next.add(new int[] {from, to});
+          }
+          from = to;
+        }
+      }
+      wide = next;
+    }
+    return ranges;
+  }
+
+  /** Three-way radix quicksort of the keys in {@code [from, to)} that agree up to {@code depth}. */
+  private void sort(int from, int to, int depth) {
+    while (to - from > 1) {
+      if (to - from < 16) {
+        insertionSort(from, to, depth);
+        return;
+      }
+      int pivot = medianOfThree(from, (from + to) >>> 1, to - 1, depth);
+      int less = from;
+      int greater = to - 1;
+      int i = from;
+      while (i <= greater) {
+        int c = charAt(i, depth);
+        if (c < pivot) {
+          swap(less++, i++);
+        } else if (c > pivot) {
+          swap(i, greater--);
+        } else {
+          i++;
+        }
+      }
+      sort(from, less, depth);
+      sort(greater + 1, to, depth);
+      if (pivot < 0) {
+        return;
+      }
+      from = less;
+      to = greater + 1;
+      depth++;
+    }
+  }
+
+  private int medianOfThree(int a, int b, int c, int depth) {
+    int x = charAt(a, depth);
+    int y = charAt(b, depth);
+    int z = charAt(c, depth);
+    return Math.max(Math.min(x, y), Math.min(Math.max(x, y), z));
+  }
+
+  private void insertionSort(int from, int to, int depth) {
+    for (int i = from + 1; i < to; i++) {
+      for (int j = i; j > from && compareFrom(j, j - 1, depth) < 0; j--) {
+        swap(j, j - 1);
+      }
+    }
+  }
+
+  private int compareFrom(int key, int other, int depth) {
+    for (int d = depth; ; d++) {
+      int c = charAt(key, d);
+      int difference = c - charAt(other, d);
+      if (difference != 0 || c < 0) {
+        return difference;
+      }
+    }
+  }
+
+  private void swap(int key, int other) {
+    int start = keyStart[key];
+    keyStart[key] = keyStart[other];
+    keyStart[other] = start;
+    int user = keyUser[key];
+    keyUser[key] = keyUser[other];
+    keyUser[other] = user;
+  }
+
+  /**
+   * Folds a search string to the form keys are compared in.
+   *
+   * @param value the string to fold
+   * @return UTF-8 bytes with ASCII letters lower-cased
+   */
+  static byte[] fold(String value) {
+    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    for (int i = 0; i < bytes.length; i++) {
+      bytes[i] = (byte) fold(bytes[i]);
+    }
+    return bytes;
+  }
+
+  private static int fold(byte value) {
+    return value >= 'A' && value <= 'Z' ? value + ('a' - 'A') : value & 0xFF;
+  }
+
+  /** Whether the folded bytes of {@code value[from, to)} start with the folded {@code prefix}. */
+  static boolean startsWith(byte[] value, int from, int to, byte[] prefix) {
+    if (to - from < prefix.length) {
+      return false;
+    }
+    for (int i = 0; i < prefix.length; i++) {
+      if (fold(value[from + i]) != (prefix[i] & 0xFF)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /** Accumulates users for a new snapshot. Not thread-safe. */
+  static final class Builder {
+    private int size;
+    private long[] idHigh = new long[16];
+    private long[] idLow = new long[16];
+    private int[] popularity = new int[16];
+    private int[] textStart = new int[17];
+    private byte[] handleLength = new byte[16];
+    private byte[] text = new byte[256];
+    private int textLength;
+    private int[] keyStart = new int[32];
+    private int[] keyUser = new int[32];
+    private int keyCount;
+
+    /**
+     * Adds a user. Handles longer than 255 bytes are truncated.
+     *
+     * @param entry the user; must not be a tombstone
+     * @return this builder
+     */
+    Builder add(AutocompleteEntry entry) {
+      byte[] handle = entry.handle().getBytes(StandardCharsets.UTF_8);
+      byte[] displayName = entry.displayName().getBytes(StandardCharsets.UTF_8);
+      int handleBytes = Math.min(handle.length, 255);
+      byte[] combined = Arrays.copyOf(handle, handleBytes + displayName.length);
+      System.arraycopy(displayName, 0, combined, handleBytes, displayName.length);
+      return add(
+          entry.id().getMostSignificantBits(),
+          entry.id().getLeastSignificantBits(),
+          entry.popularity(),
+          combined,
+          0,
+          handleBytes,
+          combined.length);
+    }
+
+    private Builder add(
+        long high, long low, int score, byte[] source, int from, int handleBytes, int to) {
+      if (size == idHigh.length) {
+        int capacity = size * 2;
+        idHigh = Arrays.copyOf(idHigh, capacity);
+        idLow = Arrays.copyOf(idLow, capacity);
+        popularity = Arrays.copyOf(popularity, capacity);
+        handleLength = Arrays.copyOf(handleLength, capacity);
+        textStart = Arrays.copyOf(textStart, capacity + 1);
+      }
+      int length = to - from;
+      if (textLength + length > text.length) {
+        text = Arrays.copyOf(text, Math.max(text.length * 2, textLength + length));
+      }
+      int start = textLength;
+      System.arraycopy(source, from, text, start, length);
+      textLength += length;
+      idHigh[size] = high;
+      idLow[size] = low;
+      popularity[size] = score;
+      handleLength[size] = (byte) handleBytes;
+      textStart[size] = start;
+
+      addKey(start, size);
+      int tokens = 0;
+      for (int i = start + handleBytes; i < textLength && tokens < MAX_DISPLAY_NAME_TOKENS; i++) {
+        if (text[i] != ' ' && (i == start + handleBytes || text[i - 1] == ' ')) {
+          addKey(i, size);
+          tokens++;
+        }
+      }
+      size++;
+      return this;
+    }
+
+    private void addKey(int start, int user) {
+      if (keyCount == keyStart.length) {
+        keyStart = Arrays.copyOf(keyStart, keyCount * 2);
+        keyUser = Arrays.copyOf(keyUser, keyCount * 2);
+      }
+      keyStart[keyCount] = start;
+      keyUser[keyCount] = user;
+      keyCount++;
+    }
+
+    AutocompleteSnapshot build() {
+      return new AutocompleteSnapshot(this);
+    }
+  }
+}
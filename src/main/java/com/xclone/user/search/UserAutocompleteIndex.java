@@ -0,0 +1,343 @@
+package com.xclone.user.search;
+
+import com.xclone.config.AutocompleteProperties;
+import com.xclone.user.cache.UserProfileCache;
+import com.xclone.user.dto.UserSuggestion;
+import com.xclone.user.event.UserChangedEvent;
+import com.xclone.user.event.UserChangedEvent.ChangeType;
+import com.xclone.user.model.enums.UserStatus;
+import com.xclone.user.repository.UserAutocompleteRow;
+import com.xclone.user.repository.UserRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * In-process prefix index over active users' handles and display names, answering typeahead lookups
+ * without a database round trip.
+ *
+ * <p>The bulk of the index is an immutable {@link AutocompleteSnapshot} loaded from the database
+ * once the application is ready. Signups, profile edits and status changes arrive as {@link
+ * UserChangedEvent}s and are recorded in a small map of pending changes that overrides the
+ * snapshot; once it holds {@link AutocompleteProperties#getCompactThreshold()} users, a scheduled
+ * job merges it into a new snapshot off the request path. Until the first load completes {@link
+ * #isReady()} is {@code false} and callers fall back to the database.
+ *
+ * <p>Changes committed on other nodes arrive as user ids on the {@link UserProfileCache#CHANNEL}
+ * channel and are re-read the same way; messages this node published are skipped, as its own
+ * changes already arrived as events. A change is re-read as one projection row joining the follower
+ * count, never as the {@code User} entity. As messages can be lost while Redis is unavailable, the
+ * snapshot is also rebuilt from the database on a schedule.
+ *
+ * <p>Suggestions are ranked by popularity, then by the length of the matched key, so that exact
+ * matches come before longer completions. A user's popularity is their follower count, as of the
+ * last reload or change of the user.
+ *
+ * <p>Publishes {@code user.autocomplete.users}, {@code user.autocomplete.memory} (bytes held by the
+ * snapshot) and {@code user.autocomplete.pending} (changes not yet merged).
+ */
+@Slf4j
+@Component
+public class UserAutocompleteIndex implements MessageListener {
+  private final UserRepository userRepository;
+  private final UserProfileCache profileCache;
+  private final RedisMessageListenerContainer listenerContainer;
+  private final AutocompleteProperties properties;
+  private final TransactionTemplate readOnlyTransaction;
+  private final ReentrantLock writeLock = new ReentrantLock();
+  // Held while a new snapshot is built, so that compactions and reloads never overlap
+  private final ReentrantLock rebuildLock = new ReentrantLock();
+  private volatile Layers layers =
+      new Layers(AutocompleteSnapshot.EMPTY, Map.of(), new ConcurrentHashMap<>());
+  private volatile boolean ready;
+
+  /** Constructor; assigns components for internal use and registers the index meters. */
+  public UserAutocompleteIndex(
+      UserRepository userRepository,
+      UserProfileCache profileCache,
+      RedisMessageListenerContainer listenerContainer,
+      AutocompleteProperties properties,
+      PlatformTransactionManager transactionManager,
+      MeterRegistry meterRegistry) {
+    this.userRepository = userRepository;
+    this.profileCache = profileCache;
+    this.listenerContainer = listenerContainer;
+    this.properties = properties;
+    this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+    this.readOnlyTransaction.setReadOnly(true);
+    Gauge.builder("user.autocomplete.users", this, index -> index.layers.snapshot().size())
+        .register(meterRegistry);
+    Gauge.builder(
+            "user.autocomplete.memory",
+            this,
+            index -> index.layers.snapshot().memoryFootprintBytes())
+        .baseUnit("bytes")
+        .register(meterRegistry);
+    Gauge.builder("user.autocomplete.pending", this, UserAutocompleteIndex::pendingChanges)
+        .register(meterRegistry);
+  }
+
+  @PostConstruct
+  void subscribe() {
+    if (properties.isEnabled()) {
+      listenerContainer.addMessageListener(this, new ChannelTopic(UserProfileCache.CHANNEL));
+    }
+  }
+
+  /** Whether the index has been loaded and can answer lookups. */
+  public boolean isReady() {
+    return ready;
+  }
+
+  /**
+   * Suggests the best active users with a handle, or a display name word, starting with {@code
+   * prefix}. Letters are matched case-insensitively for ASCII only.
+   *
+   * @param prefix non-blank prefix typed by the user
+   * @param limit maximum number of suggestions
+   * @return suggestions, best first
+   */
+  public List<UserSuggestion> suggest(String prefix, int limit) {
+    byte[] folded = AutocompleteSnapshot.fold(prefix);
+    Layers current = layers;
+    List<AutocompleteMatch> matches =
+        new ArrayList<>(current.snapshot().lookup(folded, limit, current::overrides));
+    for (AutocompleteEntry entry : current.compacting().values()) {
+      if (!current.changes().containsKey(entry.id())) {
+        addIfMatches(matches, entry, folded);
+      }
+    }
+    for (AutocompleteEntry entry : current.changes().values()) {
+      addIfMatches(matches, entry, folded);
+    }
+    matches.sort(AutocompleteMatch.RANKING);
+    return matches.stream()
+        .limit(limit)
+        .map(AutocompleteMatch::entry)
+        .map(entry -> new UserSuggestion(entry.id(), entry.handle(), entry.displayName()))
+        .toList();
+  }
+
+  private static void addIfMatches(
+      List<AutocompleteMatch> matches, AutocompleteEntry entry, byte[] folded) {
+    int keyLength = entry.matchLength(folded);
+    if (keyLength >= 0) {
+      matches.add(new AutocompleteMatch(entry, keyLength));
+    }
+  }
+
+  /** Starts loading the index on a background thread so that startup is not delayed. */
+  @EventListener(ApplicationReadyEvent.class)
+  public void loadInBackground() {
+    if (properties.isEnabled()) {
+      Thread.ofPlatform().name("autocomplete-load").daemon().start(this::load);
+    }
+  }
+
+  void load() {
+    final long started = System.nanoTime();
+    AutocompleteSnapshot.Builder builder = new AutocompleteSnapshot.Builder();
+    try {
+      readUsers(builder);
+    } catch (RuntimeException e) {
+      log.error("Autocomplete index could not be loaded; serving suggestions from the database", e);
+      return;
+    }
+    AutocompleteSnapshot snapshot = builder.build();
+    writeLock.lock();
+    try {
+      Layers current = layers;
+      layers = new Layers(snapshot, current.compacting(), current.changes());
+      ready = true;
+    } finally {
+      writeLock.unlock();
+    }
+    log.info(
+        "Autocomplete index loaded: {} users, {} keys, {} KiB in {} ms",
+        snapshot.size(),
+        snapshot.keyCount(),
+        snapshot.memoryFootprintBytes() / 1024,
+        Duration.ofNanos(System.nanoTime() - started).toMillis());
+  }
+
+  private void readUsers(AutocompleteSnapshot.Builder builder) {
+    readOnlyTransaction.executeWithoutResult(
+        status -> {
+          try (Stream<UserAutocompleteRow> rows =
+              userRepository.streamAutocompleteRows(UserStatus.ACTIVE)) {
+            rows.forEach(row -> builder.add(toEntry(row)));
+          }
+        });
+  }
+
+  private static AutocompleteEntry toEntry(UserAutocompleteRow row) {
+    return new AutocompleteEntry(
+        row.getId(),
+        row.getHandle(),
+        row.getDisplayName(),
+        (int) Math.min(row.getFollowerCount(), Integer.MAX_VALUE));
+  }
+
+  /**
+   * Records a committed signup, profile or status change. The user is re-read so that the index
+   * holds the committed handle and display name, and is removed unless still active.
+   */
+  @TransactionalEventListener(fallbackExecution = true)
+  public void onUserChanged(UserChangedEvent event) {
+    if (!properties.isEnabled() || event.type() == ChangeType.ROLE) {
+      return;
+    }
+    refresh(event.userId());
+  }
+
+  /** Records a signup, profile or status change committed on another node. */
+  @Override
+  public void onMessage(Message message, byte[] pattern) {
+    byte[] body = message.getBody();
+    if (body.length != UserProfileCache.MESSAGE_LENGTH) {
+      log.warn("Ignoring malformed user change of {} bytes", body.length);
+      return;
+    }
+    if (!profileCache.isPublishedHere(body)) {
+      refresh(UserProfileCache.changedUser(body));
+    }
+  }
+
+  private void refresh(UUID userId) {
+    AutocompleteEntry entry =
+        userRepository
+            .findAutocompleteRow(userId, UserStatus.ACTIVE)
+            .map(UserAutocompleteIndex::toEntry)
+            .orElseGet(() -> AutocompleteEntry.tombstone(userId));
+    writeLock.lock();
+    try {
+      layers.changes().put(entry.id(), entry);
+    } finally {
+      writeLock.unlock();
+    }
+  }
+
+  /** Merges pending changes into a new snapshot once there are enough of them. */
+  @Scheduled(fixedDelayString = "${app.autocomplete.compact-interval-ms:60000}")
+  public void compactIfNeeded() {
+    if (ready && layers.changes().size() >= properties.getCompactThreshold()) {
+      compact();
+    }
+  }
+
+  /**
+   * Replaces the snapshot with one read from the database, dropping the changes recorded before the
+   * read started. Catches changes this node was never told about and refreshes popularity.
+   */
+  @Scheduled(
+      initialDelayString = "${app.autocomplete.reload-interval-ms:600000}",
+      fixedDelayString = "${app.autocomplete.reload-interval-ms:600000}")
+  public void reloadIfReady() {
+    if (ready) {
+      rebuild(true);
+    }
+  }
+
+  /**
+   * Builds a new snapshot from the current one and the pending changes. Changes recorded while the
+   * snapshot is built stay pending and keep overriding it.
+   */
+  void compact() {
+    rebuild(false);
+  }
+
+  /**
+   * Builds a new snapshot, either from the database or from the current one and the pending
+   * changes, which are all committed by the time the database is read. Changes recorded while the
+   * snapshot is built stay pending and keep overriding it. If the database cannot be read the
+   * snapshot is compacted instead.
+   */
+  private void rebuild(boolean fromDatabase) {
+    rebuildLock.lock();
+    try {
+      Layers frozen;
+      writeLock.lock();
+      try {
+        Layers current = layers;
+        frozen = new Layers(current.snapshot(), current.changes(), new ConcurrentHashMap<>());
+        layers = frozen;
+      } finally {
+        writeLock.unlock();
+      }
+
+      AutocompleteSnapshot.Builder builder = new AutocompleteSnapshot.Builder();
+      boolean reloaded = false;
+      if (fromDatabase) {
+        try {
+          readUsers(builder);
+          reloaded = true;
+        } catch (RuntimeException e) {
+          log.warn("Autocomplete index not reloaded, compacting instead: {}", e.getMessage());
+          builder = new AutocompleteSnapshot.Builder();
+        }
+      }
+      if (!reloaded) {
+        frozen.snapshot().copyTo(builder, frozen.compacting()::containsKey);
+        for (AutocompleteEntry entry : frozen.compacting().values()) {
+          if (!entry.isTombstone()) {
+            builder.add(entry);
+          }
+        }
+      }
+      AutocompleteSnapshot snapshot = builder.build();
+
+      writeLock.lock();
+      try {
+        layers = new Layers(snapshot, Map.of(), layers.changes());
+      } finally {
+        writeLock.unlock();
+      }
+      log.debug(
+          "Autocomplete index {}: {} users", reloaded ? "reloaded" : "compacted", snapshot.size());
+    } finally {
+      rebuildLock.unlock();
+    }
+  }
+
+  private int pendingChanges() {
+    Layers current = layers;
+    return current.compacting().size() + current.changes().size();
+  }
+
+  /**
+   * The index state, replaced as a whole so that lookups see a consistent view without locking.
+   *
+   * @param snapshot users indexed at the last load or compaction
+   * @param compacting changes being merged into the next snapshot; override {@code snapshot}
+   * @param changes changes recorded since; override both of the above
+   */
+  private record Layers(
+      AutocompleteSnapshot snapshot,
+      Map<UUID, AutocompleteEntry> compacting,
+      ConcurrentHashMap<UUID, AutocompleteEntry> changes) {
+
+    boolean overrides(UUID userId) {
+      return changes.containsKey(userId) || compacting.containsKey(userId);
+    }
+  }
+}
@@ -0,0 +1,52 @@
+package com.xclone.user.service;
+
+import com.xclone.common.connection.CursorType;
+import com.xclone.user.repository.UserSearchHit;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.UUID;
+
+/**
+ * Keyset position in a user search: the ranking values of the last hit returned.
+ *
+ * @param prefixMatch {@code 1} if the hit's handle starts with the query, otherwise {@code 0}
+ * @param score trigram similarity of the hit
+ * @param id user id of the hit, breaking ties
+ */
+record UserSearchKey(int prefixMatch, float score, UUID id) {
+  /** Position before every hit; its prefix match rank is above any real one. */
+  static final UserSearchKey START = new UserSearchKey(2, 0f, new UUID(0L, 0L));
+
+  /** Cursors of the {@code searchUsers} connection. */
+  static final CursorType<UserSearchKey> TYPE =
+      new CursorType<>() {
+        @Override
+        public String name() {
+          return "UserSearch";
+        }
+
+        @Override
+        public void write(UserSearchKey key, DataOutput out) throws IOException {
+          out.writeByte(key.prefixMatch());
+          out.writeFloat(key.score());
+          out.writeLong(key.id().getMostSignificantBits());
+          out.writeLong(key.id().getLeastSignificantBits());
+        }
+
+        @Override
+        public UserSearchKey read(DataInput in) throws IOException {
+          int prefixMatch = in.readByte();
+          float score = in.readFloat();
+          UUID id = new UUID(in.readLong(), in.readLong());
+          if (prefixMatch < 0 || prefixMatch > 1 || !Float.isFinite(score)) {
+            throw new IOException("ranking values out of range");
+          }
+          return new UserSearchKey(prefixMatch, score, id);
+        }
+      };
+
+  static UserSearchKey of(UserSearchHit hit) {
+    return new UserSearchKey(hit.getPrefixMatch(), hit.getScore(), hit.getId());
+  }
+}
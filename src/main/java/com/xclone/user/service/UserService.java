@@ -1,22 +1,42 @@
 package com.xclone.user.service;
 
-import com.xclone.common.connection.PageInfo;
+import com.xclone.common.connection.KeysetPaginator;
+import com.xclone.common.connection.Page;
+import com.xclone.common.connection.PageRequest;
+import com.xclone.common.connection.TotalCounter;
 import com.xclone.exception.custom.DuplicateHandleException;
+import com.xclone.exception.custom.InvalidCursorException;
+import com.xclone.exception.custom.ProfileVersionConflictException;
+import com.xclone.user.cache.UserProfileCache;
 import com.xclone.user.dto.UserProfile;
+import com.xclone.user.dto.UserSuggestion;
 import com.xclone.user.dto.connection.UserConnection;
 import com.xclone.user.dto.connection.UserEdge;
 import com.xclone.user.dto.request.UpdateUserInput;
+import com.xclone.user.event.UserChangedEvent;
+import com.xclone.user.event.UserChangedEvent.ChangeType;
+import com.xclone.user.event.UserDeactivatedEvent;
 import com.xclone.user.model.entity.User;
+import com.xclone.user.model.enums.UserRole;
 import com.xclone.user.model.enums.UserStatus;
+import com.xclone.user.repository.UserProfileRow;
 import com.xclone.user.repository.UserRepository;
+import com.xclone.user.repository.UserSearchHit;
+import com.xclone.user.search.UserAutocompleteIndex;
 import com.xclone.validation.ValidHandle;
-import jakarta.transaction.Transactional;
 import jakarta.validation.Valid;
+import java.sql.SQLException;
+import java.util.Collection;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.validation.annotation.Validated;
 
 /** Coordinates resolver logic for the User GraphQL model. */
@@ -24,92 +44,245 @@ import org.springframework.validation.annotation.Validated;
 @Service
 @Validated
 public class UserService {
+  static final int MAX_SEARCH_CANDIDATES = 500;
+  static final int MIN_FUZZY_QUERY_LENGTH = 3;
+  static final int MAX_QUERY_LENGTH = 50;
+  static final int DEFAULT_SUGGESTIONS = 8;
+  static final int MAX_SUGGESTIONS = 20;
+
+  /** PostgreSQL SQLSTATE of a unique constraint violation. */
+  private static final String UNIQUE_VIOLATION = "23505";
+
   private final UserRepository userRepository;
+  private final UserProfileCache profileCache;
+  private final UserAutocompleteIndex autocompleteIndex;
+  private final KeysetPaginator paginator;
+  private final TotalCounter totalCounter;
+  private final ApplicationEventPublisher eventPublisher;
 
-  public UserService(UserRepository userRepository) {
+  /** Constructor; assigns components for internal use. */
+  public UserService(
+      UserRepository userRepository,
+      UserProfileCache profileCache,
+      UserAutocompleteIndex autocompleteIndex,
+      KeysetPaginator paginator,
+      TotalCounter totalCounter,
+      ApplicationEventPublisher eventPublisher) {
     this.userRepository = userRepository;
+    this.profileCache = profileCache;
+    this.autocompleteIndex = autocompleteIndex;
+    this.paginator = paginator;
+    this.totalCounter = totalCounter;
+    this.eventPublisher = eventPublisher;
   }
 
   /**
-   * Builds a {@link UserConnection} from a flat list of {@link User} entities. {@link
-   * PageInfo#hasNextPage()} and {@link PageInfo#hasPreviousPage()} are always {@code false} until
-   * cursor pagination is implemented.
+   * Fetches the profile of the user with the given handle through the {@link UserProfileCache}.
    *
-   * @param users the users to wrap; may be empty
-   * @return a connection containing edges, page metadata, and total count
+   * @param handle the user's handle
+   * @return the profile, or {@code null} if no user has the handle
    */
-  public static UserConnection toUserConnection(List<User> users) {
-    List<UserEdge> edges =
-        users.stream()
-            .map(user -> new UserEdge(user.toUserProfile(), user.getId().toString()))
-            .toList();
-    PageInfo pageInfo =
-        new PageInfo(
-            false,
-            false,
-            edges.isEmpty() ? null : edges.getFirst().cursor(),
-            edges.isEmpty() ? null : edges.getLast().cursor());
-    return new UserConnection(edges, pageInfo, edges.size());
-  }
-
   public UserProfile getUserByHandle(@ValidHandle String handle) {
-    Optional<User> user = userRepository.findByHandle(handle);
-    return user.map(User::toUserProfile).orElse(null);
+    return profileCache.getByHandle(handle);
   }
 
+  /**
+   * Fetches the profile of the user with the given id through the {@link UserProfileCache}.
+   *
+   * @param id the user's id
+   * @return the profile, or {@code null} if no user has the id
+   */
   public UserProfile getUserById(UUID id) {
-    Optional<User> user = userRepository.findById(id);
-    return user.map(User::toUserProfile).orElse(null);
+    return profileCache.getById(id);
+  }
+
+  /**
+   * Fetches the profiles of several users through the {@link UserProfileCache}, for the user {@code
+   * DataLoader} registered by {@link com.xclone.user.controller.UserController}. Cache misses are
+   * read with a single query.
+   *
+   * @param ids ids of the users to fetch
+   * @return profiles keyed by user id; ids without a user are absent
+   */
+  public Map<UUID, UserProfile> getUsersByIds(Collection<UUID> ids) {
+    return profileCache.getAll(ids);
+  }
+
+  /**
+   * Searches active users by handle and display name, ranking handles that start with the query
+   * first and then by trigram similarity. Queries shorter than {@value #MIN_FUZZY_QUERY_LENGTH}
+   * characters produce no trigrams and only match handle prefixes.
+   *
+   * <p>Pages are read forward only, through {@link KeysetPaginator}. At most {@value
+   * #MAX_SEARCH_CANDIDATES} matches are ranked per query.
+   *
+   * @param query the search term; blank queries match nothing
+   * @param first page size, see {@link KeysetPaginator#request}
+   * @param after end cursor of the previous page, or {@code null} for the first page
+   * @param countTotal whether to count the matches for {@link UserConnection#totalCount()}; the
+   *     count is capped at {@value #MAX_SEARCH_CANDIDATES} like the ranking
+   * @return a connection of matching users
+   * @throws InvalidCursorException if {@code after} is not a cursor issued by this method
+   */
+  @Transactional(readOnly = true)
+  public UserConnection searchUsers(String query, Integer first, String after, boolean countTotal) {
+    String stripped = query == null ? "" : query.strip();
+    if (stripped.isEmpty()) {
+      return toUserConnection(Page.empty(), countTotal ? 0 : null);
+    }
+    String term =
+        stripped.length() > MAX_QUERY_LENGTH ? stripped.substring(0, MAX_QUERY_LENGTH) : stripped;
+    PageRequest<UserSearchKey> request = paginator.forward(UserSearchKey.TYPE, first, after);
+    UserSearchKey cursor = request.cursor() == null ? UserSearchKey.START : request.cursor();
+    String prefix = escapeLike(term.toLowerCase(Locale.ROOT)) + "%";
+
+    final String contains = "%" + escapeLike(term) + "%";
+    final boolean prefixOnly = term.length() < MIN_FUZZY_QUERY_LENGTH;
+
+    List<UserSearchHit> hits =
+        prefixOnly
+            ? userRepository.searchActiveByHandlePrefix(
+                term,
+                prefix,
+                cursor.prefixMatch(),
+                cursor.score(),
+                cursor.id(),
+                MAX_SEARCH_CANDIDATES,
+                request.fetchSize())
+            : userRepository.searchActive(
+                term,
+                prefix,
+                contains,
+                cursor.prefixMatch(),
+                cursor.score(),
+                cursor.id(),
+                MAX_SEARCH_CANDIDATES,
+                request.fetchSize());
+    Page<UserSearchHit> page = paginator.page(UserSearchKey.TYPE, request, hits, UserSearchKey::of);
+
+    Integer totalCount = null;
+    if (countTotal) {
+      totalCount =
+          totalCounter.count(
+              UserSearchKey.TYPE,
+              term,
+              () ->
+                  prefixOnly
+                      ? userRepository.countActiveByHandlePrefix(prefix, MAX_SEARCH_CANDIDATES)
+                      : userRepository.countActive(term, prefix, contains, MAX_SEARCH_CANDIDATES));
+    }
+    return toUserConnection(page, totalCount);
+  }
+
+  private static UserConnection toUserConnection(
+      Page<? extends UserSearchHit> page, Integer totalCount) {
+    return new UserConnection(
+        page.mapEdges((hit, cursor) -> new UserEdge(hit.toUserProfile(), cursor)),
+        page.pageInfo(),
+        totalCount);
+  }
+
+  /**
+   * Suggests active users for typeahead whose handle, or a word of whose display name, starts with
+   * the prefix. Served from the in-memory {@link UserAutocompleteIndex}; until it has loaded, or if
+   * it is disabled, handle prefixes are looked up in the database instead.
+   *
+   * @param prefix the text typed so far; blank prefixes match nothing
+   * @param first number of suggestions, clamped to {@value #MAX_SUGGESTIONS}; defaults to {@value
+   *     #DEFAULT_SUGGESTIONS}
+   * @return suggestions, best first
+   */
+  public List<UserSuggestion> autocompleteUsers(String prefix, Integer first) {
+    String term = prefix == null ? "" : prefix.strip();
+    if (term.isEmpty()) {
+      return List.of();
+    }
+    if (term.length() > MAX_QUERY_LENGTH) {
+      term = term.substring(0, MAX_QUERY_LENGTH);
+    }
+    int limit = first == null ? DEFAULT_SUGGESTIONS : Math.clamp(first, 1, MAX_SUGGESTIONS);
+    if (autocompleteIndex.isReady()) {
+      return autocompleteIndex.suggest(term, limit);
+    }
+    UserSearchKey start = UserSearchKey.START;
+    return userRepository
+        .searchActiveByHandlePrefix(
+            term,
+            escapeLike(term.toLowerCase(Locale.ROOT)) + "%",
+            start.prefixMatch(),
+            start.score(),
+            start.id(),
+            MAX_SEARCH_CANDIDATES,
+            limit)
+        .stream()
+        .map(hit -> new UserSuggestion(hit.getId(), hit.getHandle(), hit.getDisplayName()))
+        .toList();
   }
 
-  public UserConnection getUsersByHandle(String query) {
-    List<User> users = userRepository.findAllByHandleContaining(query);
-    return toUserConnection(users);
+  private static String escapeLike(String value) {
+    return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
   }
 
   /**
-   * Updates the user entity with the provided input fields using a {@link Transactional} view,
-   * ensuring for an accurate and consistent view of the user entity. {@link
-   * DuplicateHandleException} throws when the handle in {@link UpdateUserInput} already exists in
-   * the database and is not the current user handle.
+   * Applies the non-null fields of {@link UpdateUserInput} to the user's profile in a single
+   * statement that returns the updated profile. Handle uniqueness is enforced by the database:
+   * {@link DuplicateHandleException} throws when the handle is taken by another user. Publishes a
+   * {@link UserChangedEvent} so cached copies of the user are dropped.
+   *
+   * <p>Given an {@code expectedVersion}, the edit only applies if the profile has not been changed
+   * since the client read that version; otherwise {@link ProfileVersionConflictException} throws
+   * and nothing is written. Without one, the edit applies to the current profile.
    *
    * @param userId unique UUID for user entity
    * @param updateUserInput DTO with user profile fields to be updated
+   * @param expectedVersion version of the profile the edit was made against, or {@code null}
    * @return user with relevant fields updated
    */
   @Transactional
-  public UserProfile updateProfile(String userId, @Valid UpdateUserInput updateUserInput) {
-    User user =
-        userRepository
-            .findById(UUID.fromString(userId))
-            .orElseThrow(
-                () ->
-                    new IllegalStateException(
-                        "Authenticated user not found in database: " + userId));
-    if (updateUserInput.bio() != null) {
-      user.setBio(updateUserInput.bio());
-    }
-    if (updateUserInput.displayName() != null) {
-      user.setDisplayName(updateUserInput.displayName());
+  public UserProfile updateProfile(
+      String userId, @Valid UpdateUserInput updateUserInput, Integer expectedVersion) {
+    UUID id = UUID.fromString(userId);
+    Optional<UserProfileRow> updated;
+    try {
+      updated =
+          userRepository.updateProfile(
+              id,
+              updateUserInput.displayName(),
+              updateUserInput.handle(),
+              updateUserInput.bio(),
+              updateUserInput.profileImage(),
+              expectedVersion);
+    } catch (DataIntegrityViolationException ex) {
+      if (!isUniqueViolation(ex)) {
+        throw ex;
+      }
+      log.debug("update profile attempt with an existing handle");
+      throw new DuplicateHandleException("This handle is already taken");
     }
-    // Do I need to check for handle?
-    if (updateUserInput.handle() != null) {
-      if (userRepository.existsByHandleAndIdNot(updateUserInput.handle(), user.getId())) {
-        log.debug("update profile attempt with an existing handle");
-        throw new DuplicateHandleException("This handle is already taken");
-      } else {
-        user.setHandle(updateUserInput.handle());
+    if (updated.isEmpty()) {
+      if (expectedVersion != null && userRepository.existsById(id)) {
+        log.debug("update profile attempt against a stale version");
+        throw new ProfileVersionConflictException(
+            "The profile has been changed since it was loaded");
       }
+      throw new IllegalStateException("Authenticated user not found in database: " + userId);
     }
-    if (updateUserInput.profileImage() != null) {
-      user.setProfileImage(updateUserInput.profileImage());
+    eventPublisher.publishEvent(new UserChangedEvent(id, ChangeType.PROFILE));
+    return updated.get().toUserProfile();
+  }
+
+  private static boolean isUniqueViolation(DataIntegrityViolationException ex) {
+    for (Throwable cause = ex; cause != null; cause = cause.getCause()) {
+      if (cause instanceof SQLException sqlException
+          && UNIQUE_VIOLATION.equals(sqlException.getSQLState())) {
+        return true;
+      }
     }
-    return user.toUserProfile();
+    return false;
   }
 
   /**
    * Soft deletes the authenticated user by marking their status as {@link UserStatus#DELETED}.
-   * Relies on JPA dirty checking within the transaction — no explicit {@code save()} is needed.
    *
    * @param userId unique UUID for user entity
    * @throws IllegalStateException if the authenticated user cannot be found in the database,
@@ -117,13 +290,48 @@ public class UserService {
    */
   @Transactional
   public void deleteProfile(String userId) {
-    User user =
-        userRepository
-            .findById(UUID.fromString(userId))
-            .orElseThrow(
-                () ->
-                    new IllegalStateException(
-                        "Authenticated user not found in database: " + userId));
-    user.setStatus(UserStatus.DELETED);
+    updateStatus(userId, UserStatus.DELETED);
+  }
+
+  /**
+   * Moves the user to the given {@link UserStatus}, e.g. suspending or deleting the account. Relies
+   * on JPA dirty checking within the transaction — no explicit {@code save()} is needed. Publishes
+   * a {@link UserChangedEvent} so cached copies of the user are dropped, and a {@link
+   * UserDeactivatedEvent} for any non-active status so the user's sessions are revoked.
+   *
+   * @param userId unique UUID for user entity
+   * @param status the new account status
+   * @throws IllegalStateException if the user cannot be found in the database
+   */
+  @Transactional
+  public void updateStatus(String userId, UserStatus status) {
+    User user = findExistingUser(userId);
+    user.setStatus(status);
+    eventPublisher.publishEvent(new UserChangedEvent(user.getId(), ChangeType.STATUS));
+    if (status != UserStatus.ACTIVE) {
+      eventPublisher.publishEvent(new UserDeactivatedEvent(user.getId(), status));
+    }
+  }
+
+  /**
+   * Grants the user the given {@link UserRole}. Publishes a {@link UserChangedEvent} so cached
+   * principals pick up the new authorities.
+   *
+   * @param userId unique UUID for user entity
+   * @param role the new role
+   * @throws IllegalStateException if the user cannot be found in the database
+   */
+  @Transactional
+  public void updateRole(String userId, UserRole role) {
+    User user = findExistingUser(userId);
+    user.setRole(role);
+    eventPublisher.publishEvent(new UserChangedEvent(user.getId(), ChangeType.ROLE));
+  }
+
+  private User findExistingUser(String userId) {
+    return userRepository
+        .findById(UUID.fromString(userId))
+        .orElseThrow(
+            () -> new IllegalStateException("Authenticated user not found in database: " + userId));
   }
 }
@@ -0,0 +1,28 @@
+-- Indexes Hibernate cannot derive from the entity mappings, for databases that already exist; new
+-- databases get them from db/schema.sql. The application does not run this script: apply it as a
+-- migration step when it changes, with psql -f outside a transaction. Indexes are built and dropped
+-- CONCURRENTLY so that writes are not blocked meanwhile, and every statement is idempotent so that
+-- the script can be re-run; drop an index left INVALID by a failed build before re-running.
+
+-- User search (UserRepository.searchActive / searchActiveByHandlePrefix); active users only. GiST
+-- rather than GIN trigram indexes, because fuzzy candidates are read nearest first (<->).
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_users_handle_trgm_gist ON users USING gist (handle gist_trgm_ops) WHERE status = 'ACTIVE';
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_users_display_name_trgm_gist ON users USING gist (display_name gist_trgm_ops) WHERE status = 'ACTIVE';
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_users_handle_prefix ON users ((lower(handle) COLLATE "C")) WHERE status = 'ACTIVE';
+
+-- Followers / following connections (FollowRepository.findFollowersPage / findFollowingPage), newest
+-- first. Each index holds the page's sort key and result column, so a page is an index-only scan
+-- read backward from the cursor. They also serve the recounts of FollowCounters.reconcile.
+DROP INDEX CONCURRENTLY IF EXISTS idx_follows_follower;
+DROP INDEX CONCURRENTLY IF EXISTS idx_follows_following;
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_follows_following_created ON follows (following_id, created_at, follower_id);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_follows_follower_created ON follows (follower_id, created_at, following_id);
+
+-- Newest posts of an author (PostRepository.findRecentByAuthor / findAuthorPage /
+-- findTimelinePage), for filling Redis timelines; covers the author filter and the keyset sort.
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_posts_author_created ON posts (author_id, created_at, id) WHERE status = 'ACTIVE' AND parent_id IS NULL;
+
+-- High-follower accounts, whose posts are pulled into feeds rather than fanned out
+-- (UserCountersRepository.findUserIdsWithFollowersAtLeast).
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_user_counters_follower_count ON user_counters (follower_count);
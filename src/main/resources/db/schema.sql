@@ -1,4 +1,4 @@
-DROP TABLE IF EXISTS users, follows, posts, likes, post_mentions, notifications, notification_actors;
+DROP TABLE IF EXISTS users, follows, user_counters, posts, likes, post_mentions, notifications, notification_actors;
 
 CREATE TYPE user_status AS ENUM ('ACTIVE', 'SUSPENDED', 'DELETED');
 CREATE TYPE user_role AS ENUM ('USER', 'ADMIN');
@@ -13,7 +13,8 @@ CREATE TABLE users (
     status user_status NOT NULL DEFAULT 'ACTIVE',
     created_at TIMESTAMP NOT NULL DEFAULT NOW(),
     updated_at TIMESTAMP,
-    role user_role NOT NULL DEFAULT 'USER'
+    role user_role NOT NULL DEFAULT 'USER',
+    version INTEGER NOT NULL DEFAULT 0
 );
 
 CREATE TABLE follows (
@@ -28,6 +29,13 @@ CREATE TABLE follows (
     CONSTRAINT check_not_self_follow CHECK (follower_id != following_id)
 );
 
+-- Follower and following totals denormalized from follows, see FollowCounters
+CREATE TABLE user_counters (
+    user_id UUID PRIMARY KEY,
+    follower_count BIGINT NOT NULL DEFAULT 0,
+    following_count BIGINT NOT NULL DEFAULT 0
+);
+
 CREATE TYPE post_status AS ENUM ('ACTIVE', 'DELETED', 'HIDDEN');
 
 CREATE TABLE posts (
@@ -97,10 +105,20 @@ CREATE TABLE notification_actors (
 CREATE INDEX idx_users_handle ON users(handle);
 CREATE INDEX idx_users_status ON users(status);
 
-CREATE INDEX idx_follows_follower ON follows(follower_id);
-CREATE INDEX idx_follows_following ON follows(following_id);
+-- User search, see db/indexes.sql
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+CREATE INDEX idx_users_handle_trgm_gist ON users USING gist (handle gist_trgm_ops) WHERE status = 'ACTIVE';
+CREATE INDEX idx_users_display_name_trgm_gist ON users USING gist (display_name gist_trgm_ops) WHERE status = 'ACTIVE';
+CREATE INDEX idx_users_handle_prefix ON users ((lower(handle) COLLATE "C")) WHERE status = 'ACTIVE';
+
+-- Followers / following pages, newest first, see db/indexes.sql
+CREATE INDEX idx_follows_following_created ON follows (following_id, created_at, follower_id);
+CREATE INDEX idx_follows_follower_created ON follows (follower_id, created_at, following_id);
+
+CREATE INDEX idx_user_counters_follower_count ON user_counters (follower_count);
 
 CREATE INDEX idx_posts_author ON posts(author_id);
+CREATE INDEX idx_posts_author_created ON posts (author_id, created_at, id) WHERE status = 'ACTIVE' AND parent_id IS NULL;
 CREATE INDEX idx_posts_parent ON posts(parent_id);
 CREATE INDEX idx_posts_quoted_post ON posts(quoted_post_id);
 CREATE INDEX idx_posts_pure_reposts ON posts(quoted_post_id) WHERE message_content IS NULL AND status = 'ACTIVE';
@@ -7,6 +7,7 @@ import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.cookie;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
@@ -19,7 +20,9 @@ import com.xclone.auth.service.AuthenticationService;
 import com.xclone.config.AuthProperties;
 import com.xclone.exception.custom.AccountNotActiveException;
 import com.xclone.exception.custom.DuplicateHandleException;
+import com.xclone.exception.custom.HashingCapacityExceededException;
 import com.xclone.exception.custom.InvalidRefreshTokenException;
+import com.xclone.exception.custom.TooManyLoginAttemptsException;
 import com.xclone.security.config.SecurityConfig;
 import com.xclone.security.jwt.JwtTokenProvider;
 import com.xclone.security.user.JwtUserDetailsService;
@@ -30,6 +33,7 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.context.annotation.Import;
+import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.http.MediaType;
 import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
@@ -51,6 +55,9 @@ public class AuthenticationControllerTest {
   @MockitoBean private JwtTokenProvider jwtTokenProvider;
   @MockitoBean private JwtUserDetailsService userDetailsService;
 
+  // SecurityConfig's dependencies
+  @MockitoBean private StringRedisTemplate redisTemplate;
+
   private String refreshTokenId;
   private AuthTokens validAuthTokens;
   private AuthResponse validAuthResponse;
@@ -107,6 +114,25 @@ public class AuthenticationControllerTest {
         .andExpect(jsonPath("$.message").value("This handle is already taken"));
   }
 
+  @Test
+  void signup_hashingPoolSaturated_returns503WithRetryAfter() throws Exception {
+    // Setup
+    SignupRequest validSignup = new SignupRequest("exampleHandle", "paassw0rD?", null, null, null);
+
+    when(authenticationService.signup(validSignup))
+        .thenThrow(new HashingCapacityExceededException("Server is busy, please retry shortly"));
+
+    // Act
+    mockMvc
+        .perform(
+            post("/api/auth/signup")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(toJson(validSignup)))
+        .andExpect(status().isServiceUnavailable())
+        .andExpect(header().string("Retry-After", "1"))
+        .andExpect(jsonPath("$.message").value("Server is busy, please retry shortly"));
+  }
+
   @Test
   void signup_invalidRequestWithOneFieldError_returns400() throws Exception {
     // Setup
@@ -148,7 +174,7 @@ public class AuthenticationControllerTest {
     // Setup
     LoginRequest validLogin = new LoginRequest("exampleHandle", "paassw0rD?");
 
-    when(authenticationService.login(validLogin)).thenReturn(validAuthTokens);
+    when(authenticationService.login(validLogin, "127.0.0.1")).thenReturn(validAuthTokens);
 
     // Act
     mockMvc
@@ -166,7 +192,7 @@ public class AuthenticationControllerTest {
     // Setup
     LoginRequest validLogin = new LoginRequest("exampleHandle", "paassw0rD?");
 
-    when(authenticationService.login(validLogin))
+    when(authenticationService.login(validLogin, "127.0.0.1"))
         .thenThrow(new BadCredentialsException("Invalid credentials"));
 
     // Act
@@ -178,6 +204,25 @@ public class AuthenticationControllerTest {
         .andExpect(status().isUnauthorized());
   }
 
+  @Test
+  void login_throttled_returns429WithRetryAfter() throws Exception {
+    // Setup
+    LoginRequest validLogin = new LoginRequest("exampleHandle", "paassw0rD?");
+
+    when(authenticationService.login(validLogin, "127.0.0.1"))
+        .thenThrow(
+            new TooManyLoginAttemptsException("Too many login attempts, please retry later", 42));
+
+    // Act
+    mockMvc
+        .perform(
+            post("/api/auth/login")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(toJson(validLogin)))
+        .andExpect(status().isTooManyRequests())
+        .andExpect(header().string("Retry-After", "42"));
+  }
+
   @Test
   void login_invalidRequestWithMultipleFieldError_returns400() throws Exception {
     // Setup
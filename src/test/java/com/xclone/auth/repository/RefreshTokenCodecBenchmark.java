@@ -0,0 +1,78 @@
+package com.xclone.auth.repository;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.xclone.auth.model.RefreshTokenData;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Compares the stored size and encode/decode cost of the binary refresh token format against the
+ * legacy JSON format. Not run by the test suite; run {@link #main(String[])} from the IDE or with
+ * {@code java} on the test classpath.
+ */
+public class RefreshTokenCodecBenchmark {
+  private static final int WARMUP = 200_000;
+  private static final int ITERATIONS = 1_000_000;
+
+  public static void main(String[] args) throws Exception {
+    ObjectMapper objectMapper =
+        new ObjectMapper()
+            .registerModule(new JavaTimeModule())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+            .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+    RefreshTokenCodec codec = new RefreshTokenCodec(objectMapper);
+    String userId = UUID.randomUUID().toString();
+    String tokenId = RefreshTokenRepository.newTokenId(userId);
+    Instant now = Instant.now();
+    RefreshTokenData token = new RefreshTokenData(userId, now, now.plusSeconds(2_592_000));
+
+    byte[] json = objectMapper.writeValueAsBytes(token);
+    byte[] binary = codec.encode(token);
+    String jsonKeyString = "refresh_token:{" + userId.substring(0, 4) + "}" + tokenId;
+    int jsonKey = jsonKeyString.getBytes(StandardCharsets.UTF_8).length;
+    int binaryKey = RefreshTokenRepository.key(tokenId).length;
+    System.out.printf("json   : key %d B + value %d B%n", jsonKey, json.length);
+    System.out.printf("binary : key %d B + value %d B%n", binaryKey, binary.length);
+
+    long sink = 0;
+    for (int i = 0; i < WARMUP; i++) {
+      sink +=
+          objectMapper
+              .readValue(objectMapper.writeValueAsBytes(token), RefreshTokenData.class)
+              .userId()
+              .length();
+      sink += codec.decode(codec.encode(token)).userId().length();
+    }
+
+    long start = System.nanoTime();
+    for (int i = 0; i < ITERATIONS; i++) {
+      sink += objectMapper.writeValueAsBytes(token).length;
+    }
+    report("json encode", start);
+    start = System.nanoTime();
+    for (int i = 0; i < ITERATIONS; i++) {
+      sink += objectMapper.readValue(json, RefreshTokenData.class).userId().length();
+    }
+    report("json decode", start);
+    start = System.nanoTime();
+    for (int i = 0; i < ITERATIONS; i++) {
+      sink += codec.encode(token).length;
+    }
+    report("binary encode", start);
+    start = System.nanoTime();
+    for (int i = 0; i < ITERATIONS; i++) {
+      sink += codec.decode(binary).userId().length();
+    }
+    report("binary decode", start);
+    System.out.println("(sink " + sink + ")");
+  }
+
+  private static void report(String label, long startNanos) {
+    double nanosPerOp = (System.nanoTime() - startNanos) / (double) ITERATIONS;
+    System.out.printf("%-14s: %.1f ns/op%n", label, nanosPerOp);
+  }
+}
@@ -0,0 +1,57 @@
+package com.xclone.auth.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.xclone.auth.model.RefreshTokenData;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.UUID;
+import org.junit.jupiter.api.Test;
+
+public class RefreshTokenCodecTest {
+  // Mirrors the Spring Boot defaults of the mapper used in production
+  static final ObjectMapper objectMapper =
+      new ObjectMapper()
+          .registerModule(new JavaTimeModule())
+          .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+          .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+
+  RefreshTokenCodec codec = new RefreshTokenCodec(objectMapper);
+  RefreshTokenData token =
+      new RefreshTokenData(
+          UUID.randomUUID().toString(),
+          Instant.ofEpochSecond(1_760_000_000L),
+          Instant.ofEpochSecond(1_762_592_000L));
+
+  @Test
+  void encode_isVersionedAndCompact() {
+    byte[] encoded = codec.encode(token);
+
+    assertThat(encoded).hasSize(RefreshTokenCodec.VERSION_1_LENGTH);
+    assertThat(encoded[0]).isEqualTo(RefreshTokenCodec.VERSION_1);
+  }
+
+  @Test
+  void decode_roundTripsBinary() {
+    assertThat(codec.decode(codec.encode(token))).isEqualTo(token);
+  }
+
+  @Test
+  void decode_readsLegacyJson() throws Exception {
+    byte[] legacy = objectMapper.writeValueAsBytes(token);
+
+    assertThat(codec.decode(legacy)).isEqualTo(token);
+  }
+
+  @Test
+  void decode_unknownEncoding_throws() {
+    byte[] garbage = "garbage".getBytes(StandardCharsets.UTF_8);
+
+    assertThatThrownBy(() -> codec.decode(garbage)).isInstanceOf(IllegalArgumentException.class);
+  }
+}
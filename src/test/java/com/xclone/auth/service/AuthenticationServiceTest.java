@@ -5,21 +5,30 @@ import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
 import com.xclone.auth.dto.AuthTokens;
 import com.xclone.auth.dto.LoginRequest;
 import com.xclone.auth.dto.SignupRequest;
 import com.xclone.auth.model.RefreshTokenData;
+import com.xclone.auth.model.RotatedRefreshToken;
 import com.xclone.config.AuthProperties;
 import com.xclone.exception.custom.AccountNotActiveException;
 import com.xclone.exception.custom.DuplicateHandleException;
 import com.xclone.exception.custom.InvalidRefreshTokenException;
+import com.xclone.exception.custom.TooManyLoginAttemptsException;
 import com.xclone.security.jwt.JwtTokenProvider;
+import com.xclone.security.password.PasswordHasher;
+import com.xclone.security.throttle.LoginThrottle;
 import com.xclone.support.fixtures.UserFixtures;
+import com.xclone.user.event.UserChangedEvent;
+import com.xclone.user.event.UserChangedEvent.ChangeType;
 import com.xclone.user.model.entity.User;
 import com.xclone.user.model.enums.UserStatus;
 import com.xclone.user.repository.UserRepository;
@@ -31,16 +40,20 @@ import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
-import org.springframework.security.crypto.password.PasswordEncoder;
 
 @ExtendWith(MockitoExtension.class)
 public class AuthenticationServiceTest {
+  private static final String CLIENT_IP = "127.0.0.1";
+
   @Mock JwtTokenProvider jwtTokenProvider;
   @Mock UserRepository userRepository;
-  @Mock PasswordEncoder passwordEncoder;
+  @Mock PasswordHasher passwordHasher;
   @Mock RefreshTokenService refreshTokenService;
+  @Mock LoginThrottle loginThrottle;
+  @Mock ApplicationEventPublisher eventPublisher;
 
   @InjectMocks AuthenticationService authenticationService;
 
@@ -49,25 +62,56 @@ public class AuthenticationServiceTest {
     // Setup
     User exampleUser = UserFixtures.getDefaultUserWithRandomId();
     when(this.userRepository.findByHandle(anyString())).thenReturn(Optional.of(exampleUser));
-    when(this.passwordEncoder.matches(anyString(), eq("hashedPassword"))).thenReturn(true);
+    when(this.passwordHasher.matches(anyString(), eq("hashedPassword"))).thenReturn(true);
 
     // Trigger
     LoginRequest req = new LoginRequest("exampleHandle", "password");
-    this.authenticationService.login(req);
+    this.authenticationService.login(req, CLIENT_IP);
 
     // Assert
     verify(userRepository, times(1)).findByHandle(exampleUser.getHandle());
-    verify(passwordEncoder, times(1)).matches("password", "hashedPassword");
+    verify(passwordHasher, times(1)).matches("password", "hashedPassword");
     verify(refreshTokenService, times(1)).createToken(exampleUser.getId().toString());
   }
 
+  @Test
+  void login_hashWithOutdatedCost_isReencodedAndSaved() {
+    User exampleUser = UserFixtures.getDefaultUserWithRandomId();
+    when(this.userRepository.findByHandle(anyString())).thenReturn(Optional.of(exampleUser));
+    when(this.passwordHasher.matches("password", "hashedPassword")).thenReturn(true);
+    when(this.passwordHasher.needsRehash("hashedPassword")).thenReturn(true);
+    when(this.passwordHasher.encode("password")).thenReturn("rehashedPassword");
+    when(this.userRepository.replacePasswordHash(
+            exampleUser.getId(), "hashedPassword", "rehashedPassword"))
+        .thenReturn(1);
+
+    this.authenticationService.login(new LoginRequest("exampleHandle", "password"), CLIENT_IP);
+
+    verify(userRepository, times(1))
+        .replacePasswordHash(exampleUser.getId(), "hashedPassword", "rehashedPassword");
+    verify(userRepository, never()).save(any());
+  }
+
+  @Test
+  void login_throttled_rejectsBeforeHashing() {
+    doThrow(new TooManyLoginAttemptsException("Too many login attempts, please retry later", 30))
+        .when(loginThrottle)
+        .acquire("exampleHandle", CLIENT_IP);
+
+    LoginRequest req = new LoginRequest("exampleHandle", "password");
+
+    assertThatThrownBy(() -> this.authenticationService.login(req, CLIENT_IP))
+        .isInstanceOf(TooManyLoginAttemptsException.class);
+    verifyNoInteractions(passwordHasher, userRepository);
+  }
+
   @Test
   void login_attemptForInvalidUser_returnsBadCredentials() {
     when(this.userRepository.findByHandle(anyString())).thenReturn(Optional.empty());
 
     LoginRequest req = new LoginRequest("exampleHandle", "password");
 
-    assertThatThrownBy(() -> this.authenticationService.login(req))
+    assertThatThrownBy(() -> this.authenticationService.login(req, CLIENT_IP))
         .isInstanceOf(BadCredentialsException.class)
         .hasMessageContaining("Invalid credentials");
   }
@@ -76,11 +120,11 @@ public class AuthenticationServiceTest {
   void login_attemptWithInvalidPassword_returnsBadCredentials() {
     User exampleUser = UserFixtures.getDefaultUserWithRandomId();
     when(this.userRepository.findByHandle(anyString())).thenReturn(Optional.of(exampleUser));
-    when(this.passwordEncoder.matches(anyString(), eq("hashedPassword"))).thenReturn(false);
+    when(this.passwordHasher.matches(anyString(), eq("hashedPassword"))).thenReturn(false);
 
     LoginRequest req = new LoginRequest("exampleHandle", "password");
 
-    assertThatThrownBy(() -> this.authenticationService.login(req))
+    assertThatThrownBy(() -> this.authenticationService.login(req, CLIENT_IP))
         .isInstanceOf(BadCredentialsException.class)
         .hasMessageContaining("Invalid credentials");
   }
@@ -96,7 +140,7 @@ public class AuthenticationServiceTest {
               user.setId(UUID.randomUUID());
               return user;
             });
-    when(passwordEncoder.encode("password")).thenReturn("hashed_password");
+    when(passwordHasher.encode("password")).thenReturn("hashed_password");
 
     SignupRequest req = new SignupRequest("exampleHandle", "password", null, null, null);
 
@@ -113,6 +157,8 @@ public class AuthenticationServiceTest {
     assertThat(capturedUser.getPasswordHash()).isEqualTo("hashed_password");
     assertThat(capturedUser.getId().toString()).isEqualTo(res.userId());
     assertThat(res.displayName()).isEqualTo("exampleHandle");
+    verify(eventPublisher)
+        .publishEvent(new UserChangedEvent(capturedUser.getId(), ChangeType.CREATED));
   }
 
   @Test
@@ -126,7 +172,7 @@ public class AuthenticationServiceTest {
               user.setId(UUID.randomUUID());
               return user;
             });
-    when(passwordEncoder.encode("password")).thenReturn("hashed_password");
+    when(passwordHasher.encode("password")).thenReturn("hashed_password");
 
     SignupRequest req = new SignupRequest("exampleHandle", "password", "displayName", null, null);
 
@@ -233,11 +279,11 @@ public class AuthenticationServiceTest {
     String newRefreshTokenId = UUID.randomUUID().toString();
     String newAccessToken = UUID.randomUUID().toString();
 
-    when(this.refreshTokenService.getToken(anyString())).thenReturn(sampleToken);
+    when(this.refreshTokenService.rotateToken(inputRefreshTokenId))
+        .thenReturn(Optional.of(new RotatedRefreshToken(newRefreshTokenId, sampleToken)));
     when(this.userRepository.findById(UUID.fromString(exampleUserId)))
         .thenReturn(Optional.of(exampleUser));
-    when(this.refreshTokenService.rotateToken(inputRefreshTokenId)).thenReturn(newRefreshTokenId);
-    when(this.jwtTokenProvider.createToken(exampleUserId, "USER")).thenReturn(newAccessToken);
+    when(this.jwtTokenProvider.createToken(exampleUser)).thenReturn(newAccessToken);
 
     // Act
     AuthTokens res = this.authenticationService.refresh(inputRefreshTokenId);
@@ -246,16 +292,15 @@ public class AuthenticationServiceTest {
     assertThat(res.refreshToken()).isEqualTo(newRefreshTokenId);
     assertThat(res.accessToken()).isEqualTo(newAccessToken);
     assertThat(res.userId()).isEqualTo(exampleUserId);
+    verify(this.refreshTokenService, times(0)).getToken(anyString());
   }
 
   @Test
-  void refresh_expiredRefreshToken_returnsInvalidRefreshToken() {
+  void refresh_invalidOrExpiredRefreshToken_returnsInvalidRefreshToken() {
     // Arrange
-    RefreshTokenData sampleToken = mock(RefreshTokenData.class);
     String exampleRefreshTokenId = UUID.randomUUID().toString();
 
-    when(this.refreshTokenService.getToken(anyString())).thenReturn(sampleToken);
-    when(sampleToken.isExpired()).thenReturn(true);
+    when(this.refreshTokenService.rotateToken(exampleRefreshTokenId)).thenReturn(Optional.empty());
 
     // Act
     assertThatThrownBy(() -> this.authenticationService.refresh(exampleRefreshTokenId))
@@ -266,13 +311,13 @@ public class AuthenticationServiceTest {
   @Test
   void refresh_userDoesNotExist_removesRefreshToken_returnsUsernameNotFound() {
     // Arrange
-    RefreshTokenData sampleToken = mock(RefreshTokenData.class);
     String exampleRefreshTokenId = UUID.randomUUID().toString();
+    String newRefreshTokenId = UUID.randomUUID().toString();
     String exampleUserId = UUID.randomUUID().toString();
+    RefreshTokenData sampleToken = RefreshTokenData.create(exampleUserId, new AuthProperties());
 
-    when(this.refreshTokenService.getToken(anyString())).thenReturn(sampleToken);
-    when(sampleToken.isExpired()).thenReturn(false);
-    when(sampleToken.userId()).thenReturn(exampleUserId);
+    when(this.refreshTokenService.rotateToken(exampleRefreshTokenId))
+        .thenReturn(Optional.of(new RotatedRefreshToken(newRefreshTokenId, sampleToken)));
     when(userRepository.findById(UUID.fromString(exampleUserId))).thenReturn(Optional.empty());
 
     // Act
@@ -280,8 +325,8 @@ public class AuthenticationServiceTest {
         .isInstanceOf(UsernameNotFoundException.class)
         .hasMessage("User not found");
 
-    // Assert
-    verify(this.refreshTokenService, times(1)).removeToken(exampleRefreshTokenId);
+    // Assert the freshly issued token is revoked; the old one was consumed by the rotation
+    verify(this.refreshTokenService, times(1)).removeToken(newRefreshTokenId);
   }
 
   @Test
@@ -290,12 +335,13 @@ public class AuthenticationServiceTest {
     User exampleUser = UserFixtures.getDefaultUserWithRandomId();
     exampleUser.setStatus(UserStatus.SUSPENDED);
 
-    RefreshTokenData sampleToken = mock(RefreshTokenData.class);
     String exampleRefreshTokenId = UUID.randomUUID().toString();
+    String newRefreshTokenId = UUID.randomUUID().toString();
+    RefreshTokenData sampleToken =
+        RefreshTokenData.create(exampleUser.getId().toString(), new AuthProperties());
 
-    when(this.refreshTokenService.getToken(anyString())).thenReturn(sampleToken);
-    when(sampleToken.isExpired()).thenReturn(false);
-    when(sampleToken.userId()).thenReturn(exampleUser.getId().toString());
+    when(this.refreshTokenService.rotateToken(exampleRefreshTokenId))
+        .thenReturn(Optional.of(new RotatedRefreshToken(newRefreshTokenId, sampleToken)));
     when(this.userRepository.findById(exampleUser.getId())).thenReturn(Optional.of(exampleUser));
 
     // Act
@@ -304,6 +350,6 @@ public class AuthenticationServiceTest {
         .hasMessage("Account not active");
 
     // Assert
-    verify(this.refreshTokenService, times(1)).removeToken(exampleRefreshTokenId);
+    verify(this.refreshTokenService, times(1)).removeToken(newRefreshTokenId);
   }
 }
@@ -1,17 +1,23 @@
 package com.xclone.auth.service;
 
 import static org.assertj.core.api.Assertions.assertThat;
-import static org.assertj.core.api.AssertionsForClassTypes.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import com.xclone.auth.model.RefreshTokenData;
+import com.xclone.auth.model.RotatedRefreshToken;
 import com.xclone.auth.repository.RefreshTokenRepository;
 import com.xclone.config.AuthProperties;
 import com.xclone.exception.custom.InvalidRefreshTokenException;
+import com.xclone.user.event.UserDeactivatedEvent;
+import com.xclone.user.model.enums.UserStatus;
 import java.time.Instant;
+import java.util.Optional;
 import java.util.UUID;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -51,7 +57,8 @@ public class RefreshTokenServiceTest {
     String capturedTokenId = tokenIdCaptor.getValue();
     RefreshTokenData capturedMetadata = metadataCaptor.getValue();
 
-    assertThat(capturedTokenId).isEqualTo(returnedTokenId);
+    assertThat(capturedTokenId).isEqualTo(returnedTokenId).doesNotContain(userId);
+    assertThat(UUID.fromString(capturedTokenId).version()).isEqualTo(8);
     assertThat(capturedMetadata.userId()).isEqualTo(userId);
 
     assertThat(capturedMetadata.expiresAt()).isAfter(Instant.now());
@@ -86,59 +93,76 @@ public class RefreshTokenServiceTest {
   }
 
   @Test
-  public void rotateToken_validatesToken_removesToken_andReturnsTokenId() {
-    // Captor initialisation
-    ArgumentCaptor<String> findTokenIdCaptor = ArgumentCaptor.forClass(String.class);
-    ArgumentCaptor<String> saveTokenIdCaptor = ArgumentCaptor.forClass(String.class);
-    ArgumentCaptor<String> deleteTokenIdCaptor = ArgumentCaptor.forClass(String.class);
-    ArgumentCaptor<RefreshTokenData> saveMetadataCaptor =
+  public void rotateToken_rotatesAtomically_andReturnsNewTokenWithPreviousMetadata() {
+    ArgumentCaptor<String> newTokenIdCaptor = ArgumentCaptor.forClass(String.class);
+    String userId = UUID.randomUUID().toString();
+    RefreshTokenData validRefreshToken = RefreshTokenData.create(userId, authProperties);
+    String tokenId = RefreshTokenRepository.newTokenId(userId);
+    ArgumentCaptor<RefreshTokenData> metadataCaptor =
         ArgumentCaptor.forClass(RefreshTokenData.class);
-    // Refresh token repository mock return value
-    // Should this be in a fixtures file?
-    RefreshTokenData validRefreshToken =
-        RefreshTokenData.create(UUID.randomUUID().toString(), authProperties);
-    when(this.refreshTokenRepository.find(anyString())).thenReturn(validRefreshToken);
+    when(this.refreshTokenRepository.find(tokenId)).thenReturn(validRefreshToken);
+    when(this.refreshTokenRepository.rotate(eq(tokenId), anyString(), any()))
+        .thenReturn(Optional.of(validRefreshToken));
 
     // Act
-    String tokenId = UUID.randomUUID().toString();
-    String newTokenId = this.refreshTokenService.rotateToken(tokenId);
+    Optional<RotatedRefreshToken> rotated = this.refreshTokenService.rotateToken(tokenId);
 
-    // Capture repository calls
-    verify(this.refreshTokenRepository, times(1)).find(findTokenIdCaptor.capture());
+    // Assert the token is consumed and its successor issued for its owner in one repository call
     verify(this.refreshTokenRepository, times(1))
-        .save(saveTokenIdCaptor.capture(), saveMetadataCaptor.capture());
-    verify(this.refreshTokenRepository, times(1)).delete(deleteTokenIdCaptor.capture());
+        .rotate(eq(tokenId), newTokenIdCaptor.capture(), metadataCaptor.capture());
+    assertThat(rotated).isPresent();
+    assertThat(rotated.get().tokenId()).isEqualTo(newTokenIdCaptor.getValue());
+    assertThat(metadataCaptor.getValue().userId()).isEqualTo(userId);
+    assertThat(rotated.get().previous()).isEqualTo(validRefreshToken);
+  }
 
-    // Assertions
+  @Test
+  public void rotateToken_consumedConcurrently_returnsEmpty() {
+    String userId = UUID.randomUUID().toString();
+    String tokenId = RefreshTokenRepository.newTokenId(userId);
+    when(this.refreshTokenRepository.find(tokenId))
+        .thenReturn(RefreshTokenData.create(userId, authProperties));
+    when(this.refreshTokenRepository.rotate(eq(tokenId), anyString(), any()))
+        .thenReturn(Optional.empty());
 
-    // Assert that tokenId provided is used for .find()
-    String findTokenId = findTokenIdCaptor.getValue();
-    assertThat(findTokenId).isEqualTo(tokenId);
+    assertThat(this.refreshTokenService.rotateToken(tokenId)).isEmpty();
+  }
 
-    // Assert newTokenId used for .save() is returned
-    String saveTokenId = saveTokenIdCaptor.getValue();
-    assertThat(saveTokenId).isEqualTo(newTokenId);
+  @Test
+  public void rotateToken_unknownToken_returnsEmpty() {
+    String tokenId = RefreshTokenRepository.newTokenId(UUID.randomUUID().toString());
+    when(this.refreshTokenRepository.find(tokenId))
+        .thenThrow(new InvalidRefreshTokenException("unknown"));
 
-    // Assert that the old token is deleted
-    String deleteTokenId = deleteTokenIdCaptor.getValue();
-    assertThat(deleteTokenId).isEqualTo(tokenId);
+    assertThat(this.refreshTokenService.rotateToken(tokenId)).isEmpty();
+    verify(this.refreshTokenRepository, never()).rotate(anyString(), anyString(), any());
   }
 
   @Test
-  public void rotateToken_returnsInvalidRefreshTokenException() {
-    // Refresh token repository mock return value
-    // Should this be in a fixtures file?
-    RefreshTokenData invalidRefreshToken =
+  public void rotateToken_expiredToken_removesSuccessor_andReturnsEmpty() {
+    ArgumentCaptor<String> newTokenIdCaptor = ArgumentCaptor.forClass(String.class);
+    RefreshTokenData expiredRefreshToken =
         new RefreshTokenData(
             UUID.randomUUID().toString(),
             Instant.now().minusSeconds(120),
             Instant.now().minusSeconds(60));
-    when(this.refreshTokenRepository.find(anyString())).thenReturn(invalidRefreshToken);
+    String tokenId = RefreshTokenRepository.newTokenId(expiredRefreshToken.userId());
+    when(this.refreshTokenRepository.find(tokenId)).thenReturn(expiredRefreshToken);
+    when(this.refreshTokenRepository.rotate(eq(tokenId), newTokenIdCaptor.capture(), any()))
+        .thenReturn(Optional.of(expiredRefreshToken));
 
-    // Act & Assert: assert the exception is thrown
-    String tokenId = UUID.randomUUID().toString();
-    assertThatThrownBy(() -> this.refreshTokenService.rotateToken(tokenId))
-        .isInstanceOf(InvalidRefreshTokenException.class)
-        .hasMessageContaining("Refresh token is invalid");
+    assertThat(this.refreshTokenService.rotateToken(tokenId)).isEmpty();
+    verify(this.refreshTokenRepository, times(1)).delete(newTokenIdCaptor.getValue());
+  }
+
+  @Test
+  public void onUserDeactivated_revokesEverySessionOfTheUser() {
+    UUID userId = UUID.randomUUID();
+    when(this.refreshTokenRepository.deleteAllForUser(userId.toString())).thenReturn(3L);
+
+    this.refreshTokenService.onUserDeactivated(
+        new UserDeactivatedEvent(userId, UserStatus.SUSPENDED));
+
+    verify(this.refreshTokenRepository, times(1)).deleteAllForUser(userId.toString());
   }
 }
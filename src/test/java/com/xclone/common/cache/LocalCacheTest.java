@@ -0,0 +1,124 @@
+package com.xclone.common.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class LocalCacheTest {
+  SimpleMeterRegistry meterRegistry;
+  AtomicLong now;
+  LocalCache<String, String> cache;
+
+  @BeforeEach
+  void setUp() {
+    meterRegistry = new SimpleMeterRegistry();
+    now = new AtomicLong();
+    cache = new LocalCache<>("test", 2, Duration.ofSeconds(10), meterRegistry, now::get);
+  }
+
+  private double gets(String result) {
+    return meterRegistry.counter("cache.gets", "cache", "test", "result", result).count();
+  }
+
+  private double evictions() {
+    return meterRegistry.counter("cache.evictions", "cache", "test").count();
+  }
+
+  @Test
+  void get_loadsOnMiss_andServesHitsFromCache() {
+    AtomicInteger loads = new AtomicInteger();
+
+    cache.get("key", k -> "value" + loads.incrementAndGet());
+    String cached = cache.get("key", k -> "value" + loads.incrementAndGet());
+
+    assertThat(cached).isEqualTo("value1");
+    assertThat(loads.get()).isEqualTo(1);
+    assertThat(gets("hit")).isEqualTo(1);
+    assertThat(gets("miss")).isEqualTo(1);
+  }
+
+  @Test
+  void get_expiredEntry_returnsNull_andCountsEviction() {
+    cache.put("key", "value");
+    now.addAndGet(Duration.ofSeconds(10).toNanos());
+
+    assertThat(cache.get("key")).isNull();
+    assertThat(cache.size()).isZero();
+    assertThat(evictions()).isEqualTo(1);
+  }
+
+  @Test
+  void put_overMaxSize_evictsLeastRecentlyUsed() {
+    cache.put("a", "1");
+    cache.put("b", "2");
+    cache.get("a");
+    cache.put("c", "3");
+
+    assertThat(cache.get("b")).isNull();
+    assertThat(cache.get("a")).isEqualTo("1");
+    assertThat(cache.get("c")).isEqualTo("3");
+    assertThat(evictions()).isEqualTo(1);
+  }
+
+  @Test
+  void put_overMaxWeight_evictsLeastRecentlyUsedUntilWithinBound() {
+    LocalCache<String, String> weighed =
+        new LocalCache<>(
+            "test", 5, Duration.ofSeconds(10), meterRegistry, String::length, now::get);
+    weighed.put("a", "11");
+    weighed.put("b", "22");
+    weighed.get("a");
+
+    weighed.put("c", "3333");
+
+    assertThat(weighed.get("a")).isNull();
+    assertThat(weighed.get("b")).isNull();
+    assertThat(weighed.get("c")).isEqualTo("3333");
+    assertThat(evictions()).isEqualTo(2);
+  }
+
+  @Test
+  void put_replacingAndInvalidating_releaseTheirWeight() {
+    LocalCache<String, String> weighed =
+        new LocalCache<>(
+            "test", 4, Duration.ofSeconds(10), meterRegistry, String::length, now::get);
+    weighed.put("a", "1111");
+    weighed.put("a", "1");
+    weighed.put("b", "222");
+    weighed.invalidate("b");
+
+    weighed.put("c", "333");
+
+    assertThat(weighed.get("a")).isEqualTo("1");
+    assertThat(weighed.get("c")).isEqualTo("333");
+    assertThat(evictions()).isZero();
+  }
+
+  @Test
+  void get_invalidatedWhileLoading_doesNotCacheLoadedValue() {
+    String loaded =
+        cache.get(
+            "key",
+            k -> {
+              cache.invalidate(k);
+              return "stale";
+            });
+
+    assertThat(loaded).isEqualTo("stale");
+    assertThat(cache.get("key")).isNull();
+  }
+
+  @Test
+  void invalidate_removesEntry() {
+    cache.put("key", "value");
+
+    cache.invalidate("key");
+
+    assertThat(cache.get("key")).isNull();
+  }
+}
@@ -0,0 +1,165 @@
+package com.xclone.common.connection;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.xclone.config.ConnectionProperties;
+import com.xclone.exception.custom.InvalidCursorException;
+import com.xclone.support.fixtures.ConnectionFixtures;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+public class KeysetPaginatorTest {
+  static final CursorType<TimeIdKey> POSTS = CursorType.timeId("Posts");
+  static final Instant EPOCH = Instant.parse("2026-01-01T00:00:00Z");
+
+  CursorCodec codec;
+  KeysetPaginator paginator;
+
+  @BeforeEach
+  void setUp() {
+    codec = ConnectionFixtures.getDefaultCursorCodec();
+    paginator = ConnectionFixtures.getDefaultPaginator();
+  }
+
+  /**
+   * Rows {@code from} down to {@code to} (inclusive), newest first as the connection orders them.
+   */
+  private static List<TimeIdKey> rows(int from, int to) {
+    int step = from >= to ? -1 : 1;
+    return IntStream.iterate(from, i -> i != to + step, i -> i + step)
+        .mapToObj(i -> new TimeIdKey(EPOCH.plusSeconds(i), new UUID(0L, i)))
+        .toList();
+  }
+
+  /** Tests the cursor format for round trips and rejection of altered or foreign cursors */
+  @Nested
+  class cursorCodecTests {
+    @Test
+    void decode_encodedKey_roundTrips() {
+      TimeIdKey key =
+          new TimeIdKey(Instant.parse("2026-03-04T05:06:07.123456789Z"), UUID.randomUUID());
+
+      assertThat(codec.decode(POSTS, codec.encode(POSTS, key), "after")).isEqualTo(key);
+    }
+
+    @Test
+    void decode_tamperedKey_throwsInvalidCursor() {
+      byte[] bytes =
+          Base64.getUrlDecoder()
+              .decode(codec.encode(POSTS, new TimeIdKey(EPOCH, UUID.randomUUID())));
+      bytes[8] ^= 1;
+      String tampered = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+
+      assertThatThrownBy(() -> codec.decode(POSTS, tampered, "after"))
+          .isInstanceOf(InvalidCursorException.class)
+          .hasFieldOrPropertyWithValue("argument", "after");
+    }
+
+    @Test
+    void decode_cursorOfAnotherType_throwsInvalidCursor() {
+      String cursor = codec.encode(POSTS, new TimeIdKey(EPOCH, UUID.randomUUID()));
+
+      assertThatThrownBy(() -> codec.decode(CursorType.timeId("Followers"), cursor, "before"))
+          .isInstanceOf(InvalidCursorException.class)
+          .hasFieldOrPropertyWithValue("argument", "before");
+    }
+
+    @Test
+    void decode_cursorSignedWithAnotherSecret_throwsInvalidCursor() {
+      ConnectionProperties properties = ConnectionFixtures.getDefaultConnectionProperties();
+      properties.setCursorSecret("another-secret");
+      String cursor =
+          new CursorCodec(properties).encode(POSTS, new TimeIdKey(EPOCH, UUID.randomUUID()));
+
+      assertThatThrownBy(() -> codec.decode(POSTS, cursor, "after"))
+          .isInstanceOf(InvalidCursorException.class);
+    }
+
+    @Test
+    void decode_malformedCursor_throwsInvalidCursor() {
+      assertThatThrownBy(() -> codec.decode(POSTS, "not a cursor!", "after"))
+          .isInstanceOf(InvalidCursorException.class);
+      assertThatThrownBy(() -> codec.decode(POSTS, "AQ", "after"))
+          .isInstanceOf(InvalidCursorException.class);
+    }
+  }
+
+  /** Tests argument handling and PageInfo for forward and backward pages */
+  @Nested
+  class pageTests {
+    @Test
+    void request_noArguments_readsDefaultPageForward() {
+      PageRequest<TimeIdKey> request = paginator.request(POSTS, null, null, null, null);
+
+      assertThat(request.isForward()).isTrue();
+      assertThat(request.limit()).isEqualTo(20);
+      assertThat(request.fetchSize()).isEqualTo(21);
+      assertThat(request.cursor()).isNull();
+    }
+
+    @Test
+    void request_pageSizes_areClamped() {
+      assertThat(paginator.forward(POSTS, 500, null).limit()).isEqualTo(50);
+      assertThat(paginator.forward(POSTS, 0, null).limit()).isEqualTo(1);
+    }
+
+    @Test
+    void page_forwardWithExtraRow_hasNextPage() {
+      PageRequest<TimeIdKey> request = paginator.forward(POSTS, 3, null);
+
+      Page<TimeIdKey> page = paginator.page(POSTS, request, rows(10, 7), key -> key);
+
+      assertThat(page.edges()).extracting(Edge::node).isEqualTo(rows(10, 8));
+      assertThat(page.pageInfo().hasNextPage()).isTrue();
+      assertThat(page.pageInfo().hasPreviousPage()).isFalse();
+      assertThat(codec.decode(POSTS, page.pageInfo().endCursor(), "after"))
+          .isEqualTo(rows(8, 8).getFirst());
+    }
+
+    @Test
+    void page_forwardFromEndCursor_decodesCursorAndHasPreviousPage() {
+      PageRequest<TimeIdKey> first = paginator.forward(POSTS, 3, null);
+      String endCursor =
+          paginator.page(POSTS, first, rows(10, 7), key -> key).pageInfo().endCursor();
+
+      PageRequest<TimeIdKey> second = paginator.forward(POSTS, 3, endCursor);
+      Page<TimeIdKey> page = paginator.page(POSTS, second, rows(7, 6), key -> key);
+
+      assertThat(second.cursor()).isEqualTo(rows(8, 8).getFirst());
+      assertThat(page.edges()).extracting(Edge::node).isEqualTo(rows(7, 6));
+      assertThat(page.pageInfo().hasNextPage()).isFalse();
+      assertThat(page.pageInfo().hasPreviousPage()).isTrue();
+    }
+
+    @Test
+    void page_backward_returnsRowsInConnectionOrder() {
+      String before = codec.encode(POSTS, rows(5, 5).getFirst());
+      PageRequest<TimeIdKey> request = paginator.request(POSTS, null, null, 2, before);
+
+      // Backward pages are queried in reverse order, nearest the cursor first
+      Page<TimeIdKey> page = paginator.page(POSTS, request, rows(6, 8), key -> key);
+
+      assertThat(request.isForward()).isFalse();
+      assertThat(page.edges()).extracting(Edge::node).isEqualTo(rows(7, 6));
+      assertThat(page.pageInfo().hasPreviousPage()).isTrue();
+      assertThat(page.pageInfo().hasNextPage()).isTrue();
+      assertThat(page.pageInfo().startCursor()).isEqualTo(page.edges().getFirst().cursor());
+    }
+
+    @Test
+    void page_noRows_hasNoCursors() {
+      Page<TimeIdKey> page =
+          paginator.page(POSTS, paginator.forward(POSTS, null, null), List.of(), key -> key);
+
+      assertThat(page.size()).isZero();
+      assertThat(page.pageInfo()).isEqualTo(Page.<TimeIdKey>empty().pageInfo());
+    }
+  }
+}
@@ -0,0 +1,69 @@
+package com.xclone.common.connection;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.xclone.support.fixtures.ConnectionFixtures;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class TotalCounterTest {
+  static final CursorType<TimeIdKey> FOLLOWERS = CursorType.timeId("Followers");
+
+  TotalCounter counter;
+  AtomicInteger queries;
+
+  @BeforeEach
+  void setUp() {
+    counter = ConnectionFixtures.getDefaultTotalCounter();
+    queries = new AtomicInteger();
+  }
+
+  private long countQuery(long total) {
+    queries.incrementAndGet();
+    return total;
+  }
+
+  @Test
+  void count_smallTotal_isCountedEveryTime() {
+    UUID owner = UUID.randomUUID();
+
+    counter.count(FOLLOWERS, owner, () -> countQuery(10));
+    int total = counter.count(FOLLOWERS, owner, () -> countQuery(11));
+
+    assertThat(total).isEqualTo(11);
+    assertThat(queries.get()).isEqualTo(2);
+  }
+
+  @Test
+  void count_largeTotal_isServedFromCache() {
+    UUID owner = UUID.randomUUID();
+
+    counter.count(FOLLOWERS, owner, () -> countQuery(5000));
+    int total = counter.count(FOLLOWERS, owner, () -> countQuery(5001));
+
+    assertThat(total).isEqualTo(5000);
+    assertThat(queries.get()).isEqualTo(1);
+  }
+
+  @Test
+  void count_afterInvalidate_recounts() {
+    UUID owner = UUID.randomUUID();
+    counter.count(FOLLOWERS, owner, () -> countQuery(5000));
+
+    counter.invalidate(FOLLOWERS, owner);
+
+    assertThat(counter.count(FOLLOWERS, owner, () -> countQuery(5001))).isEqualTo(5001);
+  }
+
+  @Test
+  void count_otherConnection_isNotShared() {
+    UUID owner = UUID.randomUUID();
+    counter.count(FOLLOWERS, owner, () -> countQuery(5000));
+
+    int following = counter.count(CursorType.timeId("Following"), owner, () -> countQuery(7));
+
+    assertThat(following).isEqualTo(7);
+  }
+}
@@ -4,6 +4,10 @@ import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.tuple;
 
 import com.xclone.exception.custom.DuplicateHandleException;
+import com.xclone.exception.custom.PostNotFoundException;
+import com.xclone.exception.custom.ProfileVersionConflictException;
+import com.xclone.exception.custom.SelfFollowException;
+import com.xclone.exception.custom.UserNotFoundException;
 import com.xclone.exception.dto.FieldError;
 import com.xclone.user.dto.request.UpdateUserInput;
 import com.xclone.validation.ValidationConstants;
@@ -27,6 +31,39 @@ public class GraphQlErrorMapperTest {
     assertThat(exceptions.getFirst().message()).isEqualTo(exMessage);
   }
 
+  @Test
+  void mapsVersionConflictToExpectedVersionFieldError() {
+    List<FieldError> errors =
+        GraphQlErrorMapper.fromVersionConflict(
+            new ProfileVersionConflictException("Profile changed"));
+
+    assertThat(errors).containsExactly(new FieldError("expectedVersion", "Profile changed"));
+  }
+
+  @Test
+  void mapsUserNotFoundToUserIdFieldError() {
+    List<FieldError> errors =
+        GraphQlErrorMapper.fromUserNotFound(new UserNotFoundException("User not found"));
+
+    assertThat(errors).containsExactly(new FieldError("userId", "User not found"));
+  }
+
+  @Test
+  void mapsSelfFollowToUserIdFieldError() {
+    List<FieldError> errors =
+        GraphQlErrorMapper.fromSelfFollow(new SelfFollowException("You cannot follow yourself"));
+
+    assertThat(errors).containsExactly(new FieldError("userId", "You cannot follow yourself"));
+  }
+
+  @Test
+  void mapsPostNotFoundToIdFieldError() {
+    List<FieldError> errors =
+        GraphQlErrorMapper.fromPostNotFound(new PostNotFoundException("Post not found"));
+
+    assertThat(errors).containsExactly(new FieldError("id", "Post not found"));
+  }
+
   Validator validator = Validation.buildDefaultValidatorFactory().getValidator();
 
   @Test
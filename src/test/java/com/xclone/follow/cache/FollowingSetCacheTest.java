@@ -0,0 +1,140 @@
+package com.xclone.follow.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.xclone.config.CacheProperties;
+import com.xclone.config.FollowProperties;
+import com.xclone.follow.event.FollowChangedEvent;
+import com.xclone.follow.repository.FollowRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.UUID;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+@ExtendWith(MockitoExtension.class)
+public class FollowingSetCacheTest {
+  @Mock FollowRepository followRepository;
+  @Mock RedisTemplate<byte[], byte[]> redisTemplate;
+  @Mock RedisMessageListenerContainer listenerContainer;
+
+  FollowingSetCache cache;
+  UUID viewer;
+  UUID followed;
+  UUID other;
+
+  @BeforeEach
+  void setUp() {
+    FollowProperties followProperties = new FollowProperties();
+    followProperties.setFollowingSetMaxSize(2);
+    cache =
+        new FollowingSetCache(
+            followRepository,
+            redisTemplate,
+            listenerContainer,
+            new CacheProperties(),
+            followProperties,
+            new SimpleMeterRegistry());
+    viewer = UUID.randomUUID();
+    followed = UUID.randomUUID();
+    other = UUID.randomUUID();
+  }
+
+  private static byte[] uuidBytes(UUID id) {
+    return ByteBuffer.allocate(16)
+        .putLong(id.getMostSignificantBits())
+        .putLong(id.getLeastSignificantBits())
+        .array();
+  }
+
+  @Test
+  void followedAmong_loadsOnceThenServesLocally() {
+    when(followRepository.findFollowingIds(viewer, 3)).thenReturn(List.of(followed));
+
+    assertThat(cache.followedAmong(viewer, List.of(followed, other))).containsExactly(followed);
+    assertThat(cache.followedAmong(viewer, List.of(other))).isEmpty();
+
+    verify(followRepository, times(1)).findFollowingIds(viewer, 3);
+    verify(followRepository, never()).findFollowedAmong(any(), any());
+  }
+
+  @Test
+  void followedAmong_noUsers_skipsLoad() {
+    assertThat(cache.followedAmong(viewer, List.of())).isEmpty();
+
+    verify(followRepository, never()).findFollowingIds(any(), anyInt());
+  }
+
+  @Test
+  void followedAmong_viewerAboveMax_queriesMembership() {
+    when(followRepository.findFollowingIds(viewer, 3))
+        .thenReturn(List.of(followed, UUID.randomUUID(), UUID.randomUUID()));
+    when(followRepository.findFollowedAmong(viewer, List.of(followed, other)))
+        .thenReturn(List.of(followed));
+
+    assertThat(cache.followedAmong(viewer, List.of(followed, other))).containsExactly(followed);
+    assertThat(cache.followedAmong(viewer, List.of(followed, other))).containsExactly(followed);
+
+    verify(followRepository, times(1)).findFollowingIds(viewer, 3);
+    verify(followRepository, times(2)).findFollowedAmong(viewer, List.of(followed, other));
+  }
+
+  @Test
+  void onFollowChanged_invalidatesAndPublishes() {
+    when(followRepository.findFollowingIds(viewer, 3))
+        .thenReturn(List.of())
+        .thenReturn(List.of(followed));
+    assertThat(cache.followedAmong(viewer, List.of(followed))).isEmpty();
+
+    cache.onFollowChanged(new FollowChangedEvent(viewer, followed, true));
+
+    assertThat(cache.followedAmong(viewer, List.of(followed))).containsExactly(followed);
+    verify(redisTemplate)
+        .convertAndSend(eq(FollowingSetCache.CHANNEL), eq((Object) uuidBytes(viewer)));
+  }
+
+  @Test
+  void onFollowChanged_redisDown_stillInvalidatesLocally() {
+    doThrow(new RedisConnectionFailureException("down"))
+        .when(redisTemplate)
+        .convertAndSend(any(), any());
+    when(followRepository.findFollowingIds(viewer, 3))
+        .thenReturn(List.of())
+        .thenReturn(List.of(followed));
+    cache.followedAmong(viewer, List.of(followed));
+
+    cache.onFollowChanged(new FollowChangedEvent(viewer, followed, true));
+
+    assertThat(cache.followedAmong(viewer, List.of(followed))).containsExactly(followed);
+  }
+
+  @Test
+  void onMessage_invalidatesViewer() {
+    when(followRepository.findFollowingIds(viewer, 3))
+        .thenReturn(List.of(followed))
+        .thenReturn(List.of());
+    cache.followedAmong(viewer, List.of(followed));
+
+    cache.onMessage(
+        new DefaultMessage(FollowingSetCache.CHANNEL.getBytes(), uuidBytes(viewer)), null);
+
+    assertThat(cache.followedAmong(viewer, List.of(followed))).isEmpty();
+    verify(followRepository, times(2)).findFollowingIds(viewer, 3);
+  }
+}
@@ -0,0 +1,38 @@
+package com.xclone.follow.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.Test;
+
+public class FollowingSetTest {
+
+  @Test
+  void contains_followedIds_true() {
+    List<UUID> ids = IntStream.range(0, 100).mapToObj(i -> UUID.randomUUID()).toList();
+    FollowingSet set = FollowingSet.of(ids);
+
+    assertThat(set.size()).isEqualTo(100);
+    assertThat(ids).allMatch(set::contains);
+  }
+
+  @Test
+  void contains_otherIds_false() {
+    FollowingSet set = FollowingSet.of(List.of(new UUID(1, 1), new UUID(-1, 5), new UUID(3, -2)));
+
+    assertThat(set.contains(new UUID(1, 2))).isFalse();
+    assertThat(set.contains(new UUID(-1, 4))).isFalse();
+    assertThat(set.contains(UUID.randomUUID())).isFalse();
+  }
+
+  @Test
+  void of_noIds_isEmptyAndNotOverflow() {
+    FollowingSet set = FollowingSet.of(List.of());
+
+    assertThat(set.size()).isZero();
+    assertThat(set.isOverflow()).isFalse();
+    assertThat(set.contains(UUID.randomUUID())).isFalse();
+  }
+}
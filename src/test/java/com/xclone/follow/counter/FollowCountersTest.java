@@ -0,0 +1,228 @@
+package com.xclone.follow.counter;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.xclone.config.FollowProperties;
+import com.xclone.follow.event.FollowChangedEvent;
+import com.xclone.follow.model.entity.UserCounters;
+import com.xclone.follow.repository.UserCountersRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+@ExtendWith(MockitoExtension.class)
+public class FollowCountersTest {
+  @Mock UserCountersRepository countersRepository;
+  @Mock JdbcTemplate jdbcTemplate;
+  @Mock PlatformTransactionManager transactionManager;
+  @Mock StringRedisTemplate redisTemplate;
+  @Mock ValueOperations<String, String> valueOperations;
+  @Mock RedisMessageListenerContainer listenerContainer;
+  @Mock Connection connection;
+  @Mock PreparedStatement statement;
+  @Mock ResultSet resultSet;
+
+  FollowProperties properties;
+  FollowCounters counters;
+  UUID celebrity = UUID.randomUUID();
+
+  @BeforeEach
+  void setup() {
+    properties = new FollowProperties();
+    counters =
+        new FollowCounters(
+            countersRepository,
+            jdbcTemplate,
+            transactionManager,
+            redisTemplate,
+            listenerContainer,
+            properties,
+            new SimpleMeterRegistry());
+  }
+
+  private void follow(UUID followerId, UUID followingId, boolean followed) {
+    counters.onFollowChanged(new FollowChangedEvent(followerId, followingId, followed));
+  }
+
+  @SuppressWarnings("unchecked")
+  private Collection<Map.Entry<UUID, FollowCounts>> flushedRows() {
+    ArgumentCaptor<Collection<Map.Entry<UUID, FollowCounts>>> rows =
+        ArgumentCaptor.forClass(Collection.class);
+    verify(jdbcTemplate).batchUpdate(eq(FollowCounters.UPSERT), rows.capture(), anyInt(), any());
+    return rows.getValue();
+  }
+
+  @Test
+  void getCounts_addsUnflushedIncrementsToStoredCounts() {
+    when(countersRepository.findAllById(List.of(celebrity)))
+        .thenReturn(List.of(new UserCounters(celebrity, 5, 2)));
+    follow(UUID.randomUUID(), celebrity, true);
+
+    assertThat(counters.getCounts(List.of(celebrity)))
+        .containsEntry(celebrity, new FollowCounts(6, 2));
+  }
+
+  @Test
+  void getCounts_userWithoutCounters_returnsZero() {
+    UUID newcomer = UUID.randomUUID();
+    when(countersRepository.findAllById(List.of(newcomer))).thenReturn(List.of());
+
+    assertThat(counters.getCounts(List.of(newcomer))).containsEntry(newcomer, FollowCounts.ZERO);
+  }
+
+  @Test
+  void flush_coalescesIncrementsPerUser() {
+    UUID fan = UUID.randomUUID();
+    follow(fan, celebrity, true);
+    follow(UUID.randomUUID(), celebrity, true);
+    follow(UUID.randomUUID(), celebrity, true);
+
+    counters.flush();
+
+    assertThat(flushedRows())
+        .hasSize(4)
+        .contains(
+            Map.entry(celebrity, new FollowCounts(3, 0)), Map.entry(fan, new FollowCounts(0, 1)));
+  }
+
+  @Test
+  void flush_followThenUnfollow_writesNothing() {
+    UUID fan = UUID.randomUUID();
+    follow(fan, celebrity, true);
+    follow(fan, celebrity, false);
+
+    counters.flush();
+
+    verify(jdbcTemplate, never()).batchUpdate(anyString(), anyCollection(), anyInt(), any());
+  }
+
+  @Test
+  void flush_failure_keepsIncrementsForNextFlush() {
+    when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+    when(jdbcTemplate.batchUpdate(anyString(), anyCollection(), anyInt(), any()))
+        .thenThrow(new QueryTimeoutException("timeout"));
+    when(countersRepository.findAllById(List.of(celebrity))).thenReturn(List.of());
+    follow(UUID.randomUUID(), celebrity, true);
+
+    counters.flush();
+
+    assertThat(counters.getCounts(List.of(celebrity)))
+        .containsEntry(celebrity, new FollowCounts(1, 0));
+  }
+
+  /** Runs the reconcile callback on a connection whose advisory lock attempt returns the value. */
+  @SuppressWarnings("unchecked")
+  private void advisoryLockAcquired(boolean acquired) throws SQLException {
+    when(connection.prepareStatement(anyString())).thenReturn(statement);
+    when(statement.executeQuery()).thenReturn(resultSet);
+    when(resultSet.next()).thenReturn(true);
+    when(resultSet.getBoolean(1)).thenReturn(acquired);
+    when(jdbcTemplate.execute(any(ConnectionCallback.class)))
+        .thenAnswer(
+            invocation ->
+                invocation.<ConnectionCallback<Object>>getArgument(0).doInConnection(connection));
+  }
+
+  @Test
+  void onMessage_flushesAndAcknowledges() {
+    follow(UUID.randomUUID(), celebrity, true);
+    String ackKey = FollowCounters.ACK_PREFIX + UUID.randomUUID();
+
+    counters.onMessage(
+        new DefaultMessage(
+            FollowCounters.FLUSH_CHANNEL.getBytes(StandardCharsets.UTF_8),
+            ackKey.getBytes(StandardCharsets.UTF_8)),
+        null);
+
+    assertThat(flushedRows()).contains(Map.entry(celebrity, new FollowCounts(1, 0)));
+    verify(redisTemplate).execute(FollowCounters.ACK_SCRIPT, List.of(ackKey), "10000");
+  }
+
+  /** Lets every flush request reach the given number of nodes, acknowledged by the given count. */
+  private void flushRequests(long receivers, String acks) {
+    when(redisTemplate.convertAndSend(eq(FollowCounters.FLUSH_CHANNEL), anyString()))
+        .thenReturn(receivers);
+    when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+    when(valueOperations.get(anyString())).thenReturn(acks);
+  }
+
+  @Test
+  void reconcile_recountsUsersInChunks() throws SQLException {
+    advisoryLockAcquired(true);
+    flushRequests(2, "2");
+    properties.setReconcileChunkSize(2);
+    UUID first = UUID.randomUUID();
+    UUID second = UUID.randomUUID();
+    UUID third = UUID.randomUUID();
+    when(countersRepository.findUserIdsAfter(new UUID(0, 0), 2)).thenReturn(List.of(first, second));
+    when(countersRepository.findUserIdsAfter(second, 2)).thenReturn(List.of(third));
+
+    counters.reconcile();
+
+    InOrder flushThenRecount = Mockito.inOrder(redisTemplate, countersRepository);
+    flushThenRecount.verify(redisTemplate).convertAndSend(eq(FollowCounters.FLUSH_CHANNEL), any());
+    flushThenRecount.verify(countersRepository).recount(List.of(first, second));
+    flushThenRecount.verify(redisTemplate).convertAndSend(eq(FollowCounters.FLUSH_CHANNEL), any());
+    flushThenRecount.verify(countersRepository).recount(List.of(third));
+    verify(countersRepository, times(2)).findUserIdsAfter(any(), anyInt());
+    verify(connection).prepareStatement("SELECT pg_advisory_unlock(?)");
+  }
+
+  @Test
+  void reconcile_flushNotAcknowledgedByEveryNode_skipsTheChunk() throws SQLException {
+    advisoryLockAcquired(true);
+    flushRequests(2, "1");
+    properties.setReconcileFlushTimeoutMs(0);
+    UUID user = UUID.randomUUID();
+    when(countersRepository.findUserIdsAfter(new UUID(0, 0), 1000)).thenReturn(List.of(user));
+
+    counters.reconcile();
+
+    verify(countersRepository, never()).recount(anyList());
+  }
+
+  @Test
+  void reconcile_lockedByAnotherNode_isSkipped() throws SQLException {
+    advisoryLockAcquired(false);
+
+    counters.reconcile();
+
+    verify(countersRepository, never()).findUserIdsAfter(any(), anyInt());
+    verify(connection).prepareStatement("SELECT pg_try_advisory_lock(?)");
+    verify(connection, never()).prepareStatement("SELECT pg_advisory_unlock(?)");
+  }
+}
@@ -0,0 +1,235 @@
+package com.xclone.follow.graph;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.xclone.config.FollowGraphProperties;
+import com.xclone.follow.event.FollowChangedEvent;
+import com.xclone.follow.repository.FollowEdgeRow;
+import com.xclone.follow.repository.FollowRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.nio.ByteBuffer;
+import java.util.UUID;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.transaction.PlatformTransactionManager;
+
+@ExtendWith(MockitoExtension.class)
+public class FollowGraphIndexTest {
+  @Mock FollowRepository followRepository;
+  @Mock PlatformTransactionManager transactionManager;
+  @Mock RedisTemplate<byte[], byte[]> redisTemplate;
+  @Mock RedisMessageListenerContainer listenerContainer;
+
+  FollowGraphIndex index;
+  UUID alice;
+  UUID bob;
+  UUID carol;
+  UUID dave;
+
+  @BeforeEach
+  void setup() {
+    index =
+        new FollowGraphIndex(
+            followRepository,
+            redisTemplate,
+            listenerContainer,
+            new FollowGraphProperties(),
+            transactionManager,
+            new SimpleMeterRegistry());
+    alice = UUID.randomUUID();
+    bob = UUID.randomUUID();
+    carol = UUID.randomUUID();
+    dave = UUID.randomUUID();
+  }
+
+  private record Row(UUID getFollowerId, UUID getFollowingId) implements FollowEdgeRow {}
+
+  private void loadWith(Row... rows) {
+    when(followRepository.streamEdges()).thenReturn(Stream.of(rows));
+    index.load();
+  }
+
+  private void loadDefaultGraph() {
+    loadWith(new Row(alice, bob), new Row(alice, carol), new Row(bob, alice), new Row(carol, bob));
+  }
+
+  private void change(UUID follower, UUID following, boolean followed) {
+    index.onFollowChanged(new FollowChangedEvent(follower, following, followed));
+  }
+
+  @Test
+  void load_marksReadyAndAnswersFromSnapshot() {
+    assertThat(index.isReady()).isFalse();
+
+    loadDefaultGraph();
+
+    assertThat(index.isReady()).isTrue();
+    assertThat(index.follows(alice, bob)).isTrue();
+    assertThat(index.follows(bob, carol)).isFalse();
+    assertThat(index.following(alice)).containsExactlyInAnyOrder(bob, carol);
+    assertThat(index.followers(bob)).containsExactlyInAnyOrder(alice, carol);
+    assertThat(index.mutualFollows(alice)).containsExactly(bob);
+    assertThat(index.followedFollowers(alice, bob)).containsExactly(carol);
+  }
+
+  @Nested
+  class onFollowChangedTests {
+    @Test
+    void onFollowChanged_follow_addsToLookups() {
+      loadDefaultGraph();
+
+      change(dave, alice, true);
+      change(alice, dave, true);
+
+      assertThat(index.follows(dave, alice)).isTrue();
+      assertThat(index.following(alice)).containsExactlyInAnyOrder(bob, carol, dave);
+      assertThat(index.followers(alice)).containsExactlyInAnyOrder(bob, dave);
+      assertThat(index.mutualFollows(alice)).containsExactlyInAnyOrder(bob, dave);
+    }
+
+    @Test
+    void onFollowChanged_unfollow_removesFromLookups() {
+      loadDefaultGraph();
+
+      change(carol, bob, false);
+
+      assertThat(index.follows(carol, bob)).isFalse();
+      assertThat(index.followers(bob)).containsExactly(alice);
+      assertThat(index.followedFollowers(alice, bob)).isEmpty();
+    }
+
+    @Test
+    void onFollowChanged_beforeLoad_overridesLoadedFollows() {
+      change(alice, bob, false);
+      change(bob, carol, true);
+
+      loadDefaultGraph();
+
+      assertThat(index.following(alice)).containsExactly(carol);
+      assertThat(index.following(bob)).containsExactlyInAnyOrder(alice, carol);
+    }
+
+    @Test
+    void onFollowChanged_publishesTheChange() {
+      loadDefaultGraph();
+
+      change(dave, alice, true);
+
+      ArgumentCaptor<byte[]> message = ArgumentCaptor.forClass(byte[].class);
+      verify(redisTemplate).convertAndSend(eq(FollowGraphIndex.CHANNEL), message.capture());
+      assertThat(message.getValue()).hasSize(49);
+    }
+
+    @Test
+    void onMessage_changeFromAnotherNode_isRecorded() {
+      loadDefaultGraph();
+
+      index.onMessage(message(UUID.randomUUID(), carol, bob, false), null);
+      index.onMessage(message(UUID.randomUUID(), dave, alice, true), null);
+
+      assertThat(index.followers(bob)).containsExactly(alice);
+      assertThat(index.followers(alice)).containsExactlyInAnyOrder(bob, dave);
+    }
+
+    @Test
+    void onMessage_ownChangeArrivingLate_isIgnored() {
+      loadDefaultGraph();
+      change(dave, alice, true);
+      ArgumentCaptor<byte[]> published = ArgumentCaptor.forClass(byte[].class);
+      verify(redisTemplate).convertAndSend(eq(FollowGraphIndex.CHANNEL), published.capture());
+      change(dave, alice, false);
+
+      index.onMessage(new DefaultMessage(new byte[0], published.getValue()), null);
+
+      assertThat(index.follows(dave, alice)).isFalse();
+    }
+
+    @Test
+    void onFollowChanged_disabled_isIgnored() {
+      FollowGraphProperties properties = new FollowGraphProperties();
+      properties.setEnabled(false);
+      index =
+          new FollowGraphIndex(
+              followRepository,
+              redisTemplate,
+              listenerContainer,
+              properties,
+              transactionManager,
+              new SimpleMeterRegistry());
+
+      change(alice, bob, true);
+
+      assertThat(index.follows(alice, bob)).isFalse();
+    }
+  }
+
+  private static Message message(UUID origin, UUID follower, UUID following, boolean followed) {
+    byte[] body =
+        ByteBuffer.allocate(49)
+            .putLong(origin.getMostSignificantBits())
+            .putLong(origin.getLeastSignificantBits())
+            .putLong(follower.getMostSignificantBits())
+            .putLong(follower.getLeastSignificantBits())
+            .putLong(following.getMostSignificantBits())
+            .putLong(following.getLeastSignificantBits())
+            .put((byte) (followed ? 1 : 0))
+            .array();
+    return new DefaultMessage(FollowGraphIndex.CHANNEL.getBytes(), body);
+  }
+
+  @Test
+  void reloadIfReady_replacesSnapshotWithTheDatabaseFollows() {
+    loadDefaultGraph();
+    change(carol, bob, false);
+    // Deleted with dave's account, so no change was recorded
+    when(followRepository.streamEdges())
+        .thenReturn(Stream.of(new Row(alice, bob), new Row(bob, alice)));
+
+    index.reloadIfReady();
+
+    assertThat(index.following(alice)).containsExactly(bob);
+    assertThat(index.followers(bob)).containsExactly(alice);
+    assertThat(index.snapshot().edgeCount()).isEqualTo(2);
+  }
+
+  @Test
+  void reloadIfReady_databaseUnavailable_compactsInstead() {
+    loadDefaultGraph();
+    change(dave, bob, true);
+    when(followRepository.streamEdges()).thenThrow(new DataAccessResourceFailureException("down"));
+
+    index.reloadIfReady();
+
+    assertThat(index.followers(bob)).containsExactlyInAnyOrder(alice, carol, dave);
+    assertThat(index.snapshot().edgeCount()).isEqualTo(5);
+  }
+
+  @Test
+  void compact_mergesChangesIntoSnapshot() {
+    loadDefaultGraph();
+    change(carol, bob, false);
+    change(dave, bob, true);
+    change(alice, dave, true);
+
+    index.compact();
+
+    assertThat(index.followers(bob)).containsExactlyInAnyOrder(alice, dave);
+    assertThat(index.followedFollowers(alice, bob)).containsExactly(dave);
+    change(dave, bob, false);
+    assertThat(index.followedFollowers(alice, bob)).isEmpty();
+  }
+}
@@ -0,0 +1,116 @@
+package com.xclone.follow.graph;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.IntToLongFunction;
+
+/**
+ * Measures build time, memory footprint and lookup and intersection latency of {@link
+ * FollowGraphSnapshot} over a synthetic graph whose follower counts follow a power law. Not run by
+ * the test suite; run {@link #main(String[])} from the IDE or with {@code java -Xmx8g} on the test
+ * classpath. The arguments override the number of users (default 1,000,000) and the average number
+ * of users each follows (default 50).
+ */
+public class FollowGraphSnapshotBenchmark {
+  private static final int LOOKUPS = 200_000;
+
+  public static void main(String[] args) {
+    int users = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+    int averageFollowing = args.length > 1 ? Integer.parseInt(args[1]) : 50;
+    Random random = new Random(42);
+    UUID[] ids = new UUID[users];
+    for (int i = 0; i < users; i++) {
+      ids[i] = new UUID(random.nextLong(), random.nextLong());
+    }
+
+    long started = System.nanoTime();
+    FollowGraphSnapshot.Builder builder = powerLawGraph(ids, averageFollowing, random);
+    long added = System.nanoTime();
+    FollowGraphSnapshot snapshot = builder.build();
+    long built = System.nanoTime();
+    System.out.printf(
+        "users %,d, follows %,d: add %d ms, build %d ms%n",
+        snapshot.size(),
+        snapshot.edgeCount(),
+        (added - started) / 1_000_000,
+        (built - added) / 1_000_000);
+    System.out.printf(
+        "footprint %,d MiB (%,.0f bytes per million follows)%n",
+        snapshot.memoryFootprintBytes() >> 20,
+        snapshot.memoryFootprintBytes() * 1_000_000.0 / snapshot.edgeCount());
+
+    int[] sample = new int[4096];
+    for (int i = 0; i < sample.length; i++) {
+      do {
+        sample[i] = snapshot.indexOf(ids[random.nextInt(users)]);
+      } while (sample[i] < 0);
+    }
+    measure("indexOf", i -> snapshot.indexOf(ids[i % users]));
+    measure(
+        "follows",
+        i -> snapshot.follows(sample[i % sample.length], sample[(i * 31) % sample.length]) ? 1 : 0);
+    measure(
+        "mutual follows",
+        i -> {
+          int[] count = new int[1];
+          int user = sample[i % sample.length];
+          snapshot.forEachFollowedFollower(user, user, common -> count[0]++);
+          return count[0];
+        });
+    measure(
+        "followers you know",
+        i -> {
+          int[] count = new int[1];
+          snapshot.forEachFollowedFollower(
+              sample[i % sample.length], sample[(i * 31) % sample.length], common -> count[0]++);
+          return count[0];
+        });
+  }
+
+  /**
+   * Adds follows in which each user follows between 0 and twice {@code averageFollowing} users.
+   * Followed users are drawn with a density proportional to {@code n^(-2/3)} of their number {@code
+   * n}, so follower counts follow a power law: a few users have most of the followers.
+   */
+  static FollowGraphSnapshot.Builder powerLawGraph(
+      UUID[] ids, int averageFollowing, Random random) {
+    int users = ids.length;
+    FollowGraphSnapshot.Builder builder = new FollowGraphSnapshot.Builder();
+    Set<Integer> followed = new HashSet<>();
+    for (int follower = 0; follower < users; follower++) {
+      int following = random.nextInt(2 * averageFollowing + 1);
+      followed.clear();
+      for (int i = 0; i < following; i++) {
+        int candidate = (int) (users * Math.pow(random.nextDouble(), 3));
+        if (candidate != follower && followed.add(candidate)) {
+          builder.add(ids[follower], ids[candidate]);
+        }
+      }
+    }
+    return builder;
+  }
+
+  private static void measure(String label, IntToLongFunction lookup) {
+    long sink = 0;
+    for (int i = 0; i < LOOKUPS / 4; i++) {
+      sink += lookup.applyAsLong(i);
+    }
+    long[] nanos = new long[LOOKUPS];
+    for (int i = 0; i < LOOKUPS; i++) {
+      long start = System.nanoTime();
+      sink += lookup.applyAsLong(i);
+      nanos[i] = System.nanoTime() - start;
+    }
+    Arrays.sort(nanos);
+    System.out.printf(
+        "%s: p50 %.1f us, p99 %.1f us, max %.1f us (%d)%n",
+        label,
+        nanos[LOOKUPS / 2] / 1000.0,
+        nanos[LOOKUPS * 99 / 100] / 1000.0,
+        nanos[LOOKUPS - 1] / 1000.0,
+        sink);
+  }
+}
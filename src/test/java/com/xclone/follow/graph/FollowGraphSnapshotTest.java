@@ -0,0 +1,126 @@
+package com.xclone.follow.graph;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class FollowGraphSnapshotTest {
+  UUID alice;
+  UUID bob;
+  UUID carol;
+  UUID dave;
+  FollowGraphSnapshot snapshot;
+
+  @BeforeEach
+  void setup() {
+    alice = UUID.randomUUID();
+    bob = UUID.randomUUID();
+    carol = UUID.randomUUID();
+    dave = UUID.randomUUID();
+    FollowGraphSnapshot.Builder builder = new FollowGraphSnapshot.Builder();
+    builder.add(alice, bob);
+    builder.add(alice, carol);
+    builder.add(bob, alice);
+    builder.add(carol, alice);
+    builder.add(carol, bob);
+    snapshot = builder.build();
+  }
+
+  private List<UUID> ids(Consumer<IntConsumer> lookup) {
+    List<UUID> ids = new ArrayList<>();
+    lookup.accept(user -> ids.add(snapshot.idOf(user)));
+    return ids;
+  }
+
+  @Test
+  void build_numbersUsersInIdOrder() {
+    assertThat(snapshot.size()).isEqualTo(3);
+    assertThat(snapshot.edgeCount()).isEqualTo(5);
+    assertThat(snapshot.indexOf(dave)).isEqualTo(-1);
+    assertThat(IntStream.range(0, 3).mapToObj(snapshot::idOf))
+        .isSorted()
+        .containsExactlyInAnyOrder(alice, bob, carol);
+    assertThat(snapshot.idOf(snapshot.indexOf(carol))).isEqualTo(carol);
+  }
+
+  @Test
+  void follows_readsDirection() {
+    int a = snapshot.indexOf(alice);
+    int b = snapshot.indexOf(bob);
+    int c = snapshot.indexOf(carol);
+
+    assertThat(snapshot.follows(a, b)).isTrue();
+    assertThat(snapshot.follows(c, b)).isTrue();
+    assertThat(snapshot.follows(b, c)).isFalse();
+  }
+
+  @Test
+  void forEachFollowingAndFollower_listBothDirections() {
+    int a = snapshot.indexOf(alice);
+    int b = snapshot.indexOf(bob);
+
+    assertThat(ids(sink -> snapshot.forEachFollowing(a, sink)))
+        .containsExactlyInAnyOrder(bob, carol);
+    assertThat(ids(sink -> snapshot.forEachFollower(b, sink)))
+        .containsExactlyInAnyOrder(alice, carol);
+  }
+
+  @Test
+  void forEachFollowedFollower_sameUser_listsMutualFollows() {
+    int a = snapshot.indexOf(alice);
+
+    assertThat(ids(sink -> snapshot.forEachFollowedFollower(a, a, sink)))
+        .containsExactlyInAnyOrder(bob, carol);
+  }
+
+  @Test
+  void forEachFollowedFollower_otherUser_listsFollowersYouKnow() {
+    int a = snapshot.indexOf(alice);
+    int b = snapshot.indexOf(bob);
+
+    assertThat(ids(sink -> snapshot.forEachFollowedFollower(a, b, sink))).containsExactly(carol);
+  }
+
+  @Test
+  void forEachFollowedFollower_unevenLists_findsCommonUsers() {
+    UUID celebrity = UUID.randomUUID();
+    List<UUID> fans = IntStream.range(0, 1000).mapToObj(i -> UUID.randomUUID()).toList();
+    FollowGraphSnapshot.Builder builder = new FollowGraphSnapshot.Builder();
+    fans.forEach(fan -> builder.add(fan, celebrity));
+    builder.add(alice, fans.get(10));
+    builder.add(alice, fans.get(500));
+    builder.add(alice, bob);
+    FollowGraphSnapshot graph = builder.build();
+    List<UUID> common = new ArrayList<>();
+
+    graph.forEachFollowedFollower(
+        graph.indexOf(alice), graph.indexOf(celebrity), user -> common.add(graph.idOf(user)));
+
+    assertThat(common).containsExactlyInAnyOrder(fans.get(10), fans.get(500));
+  }
+
+  @Test
+  void copyTo_skipsOverriddenFollows() {
+    FollowGraphSnapshot.Builder builder = new FollowGraphSnapshot.Builder();
+
+    snapshot.copyTo(builder, (follower, following) -> follower.equals(carol));
+    FollowGraphSnapshot copy = builder.build();
+
+    assertThat(copy.edgeCount()).isEqualTo(3);
+    assertThat(copy.follows(copy.indexOf(bob), copy.indexOf(alice))).isTrue();
+    assertThat(copy.memoryFootprintBytes()).isLessThan(snapshot.memoryFootprintBytes());
+  }
+
+  @Test
+  void empty_hasNoUsers() {
+    assertThat(FollowGraphSnapshot.EMPTY.size()).isZero();
+    assertThat(FollowGraphSnapshot.EMPTY.indexOf(alice)).isEqualTo(-1);
+  }
+}
@@ -0,0 +1,58 @@
+package com.xclone.follow.graph;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Random;
+import java.util.UUID;
+
+/**
+ * Measures the time to score follow suggestions for every user of a synthetic power-law graph, as
+ * {@link FollowSuggestions} does per viewer, and the memory the results would take if every user
+ * were kept. Not run by the test suite; run {@link #main(String[])} from the IDE or with {@code
+ * java -Xmx8g} on the test classpath. The arguments override the number of users (default
+ * 1,000,000), the average number of users each follows (default 50) and the suggestions kept per
+ * user (default 20).
+ */
+public class FollowSuggestionsBenchmark {
+
+  public static void main(String[] args) {
+    int users = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+    int averageFollowing = args.length > 1 ? Integer.parseInt(args[1]) : 50;
+    int perUser = args.length > 2 ? Integer.parseInt(args[2]) : 20;
+    Random random = new Random(42);
+    UUID[] ids = new UUID[users];
+    for (int i = 0; i < users; i++) {
+      ids[i] = new UUID(random.nextLong(), random.nextLong());
+    }
+    FollowGraphSnapshot snapshot =
+        FollowGraphSnapshotBenchmark.powerLawGraph(ids, averageFollowing, random).build();
+    System.out.printf("users %,d, follows %,d%n", snapshot.size(), snapshot.edgeCount());
+
+    SecondDegreeScorer scorer = new SecondDegreeScorer(snapshot, new BitSet());
+    int[] suggested = new int[perUser];
+    int[] scores = new int[perUser];
+    for (int user = 0; user < Math.min(snapshot.size(), 50_000); user++) {
+      scorer.score(user, perUser, suggested, scores);
+    }
+
+    long[] nanos = new long[snapshot.size()];
+    long total = 0;
+    long started = System.nanoTime();
+    for (int user = 0; user < snapshot.size(); user++) {
+      long start = System.nanoTime();
+      total += scorer.score(user, perUser, suggested, scores);
+      nanos[user] = System.nanoTime() - start;
+    }
+    long elapsed = System.nanoTime() - started;
+    Arrays.sort(nanos);
+    System.out.printf(
+        "scored all users in %,d ms: p50 %.1f us, p99 %.1f us, max %.1f ms per user%n",
+        elapsed / 1_000_000,
+        nanos[nanos.length / 2] / 1000.0,
+        nanos[nanos.length * 99 / 100] / 1000.0,
+        nanos[nanos.length - 1] / 1_000_000.0);
+    System.out.printf(
+        "%,d suggestions, %,d MiB of results%n",
+        total, (8 * total + 4L * (snapshot.size() + 1)) >> 20);
+  }
+}
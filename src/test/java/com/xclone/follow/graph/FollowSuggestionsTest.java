@@ -0,0 +1,195 @@
+package com.xclone.follow.graph;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+
+import com.xclone.config.FollowGraphProperties;
+import com.xclone.config.FollowSuggestionProperties;
+import com.xclone.follow.event.FollowChangedEvent;
+import com.xclone.follow.graph.FollowSuggestions.Suggestion;
+import com.xclone.follow.repository.FollowEdgeRow;
+import com.xclone.follow.repository.FollowRepository;
+import com.xclone.support.fixtures.UserFixtures;
+import com.xclone.user.event.UserChangedEvent;
+import com.xclone.user.event.UserChangedEvent.ChangeType;
+import com.xclone.user.model.entity.User;
+import com.xclone.user.model.enums.UserStatus;
+import com.xclone.user.repository.UserRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.transaction.PlatformTransactionManager;
+
+@ExtendWith(MockitoExtension.class)
+public class FollowSuggestionsTest {
+  @Mock FollowRepository followRepository;
+  @Mock UserRepository userRepository;
+  @Mock PlatformTransactionManager transactionManager;
+  @Mock RedisTemplate<byte[], byte[]> redisTemplate;
+  @Mock RedisMessageListenerContainer listenerContainer;
+
+  FollowGraphIndex graphIndex;
+  FollowSuggestionProperties properties;
+  FollowSuggestions suggestions;
+  UUID viewer;
+  UUID friend;
+  UUID popular;
+  UUID niche;
+
+  @BeforeEach
+  void setup() {
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    graphIndex =
+        new FollowGraphIndex(
+            followRepository,
+            redisTemplate,
+            listenerContainer,
+            new FollowGraphProperties(),
+            transactionManager,
+            meterRegistry);
+    properties = new FollowSuggestionProperties();
+    suggestions = new FollowSuggestions(graphIndex, userRepository, properties, meterRegistry);
+    viewer = UUID.randomUUID();
+    friend = UUID.randomUUID();
+    popular = UUID.randomUUID();
+    niche = UUID.randomUUID();
+    UUID otherFriend = UUID.randomUUID();
+    when(followRepository.streamEdges())
+        .thenReturn(
+            Stream.of(
+                new Row(viewer, friend),
+                new Row(viewer, otherFriend),
+                new Row(friend, popular),
+                new Row(otherFriend, popular),
+                new Row(friend, niche)));
+    graphIndex.load();
+  }
+
+  private record Row(UUID getFollowerId, UUID getFollowingId) implements FollowEdgeRow {}
+
+  @Test
+  void suggestionsFor_beforeRefresh_isEmpty() {
+    assertThat(suggestions.suggestionsFor(viewer)).isEmpty();
+  }
+
+  @Test
+  void refresh_scoresRankedSuggestions() {
+    when(userRepository.findIdsByStatusNot(UserStatus.ACTIVE)).thenReturn(List.of());
+
+    suggestions.refresh();
+
+    assertThat(suggestions.suggestionsFor(viewer))
+        .containsExactly(new Suggestion(popular, 2), new Suggestion(niche, 1));
+    assertThat(suggestions.suggestionsFor(UUID.randomUUID())).isEmpty();
+  }
+
+  @Test
+  void refresh_inactiveUser_isNotSuggested() {
+    when(userRepository.findIdsByStatusNot(UserStatus.ACTIVE)).thenReturn(List.of(popular));
+
+    suggestions.refresh();
+
+    assertThat(suggestions.suggestionsFor(viewer)).containsExactly(new Suggestion(niche, 1));
+  }
+
+  @Test
+  void refresh_userReactivatedSinceLastRefresh_isSuggestedAgain() {
+    when(userRepository.findIdsByStatusNot(UserStatus.ACTIVE))
+        .thenReturn(List.of(popular))
+        .thenReturn(List.of());
+    suggestions.refresh();
+
+    suggestions.refresh();
+
+    assertThat(suggestions.suggestionsFor(viewer))
+        .containsExactly(new Suggestion(popular, 2), new Suggestion(niche, 1));
+  }
+
+  @Test
+  void onUserChanged_duringRefresh_isKeptByTheRefresh() {
+    User suspended = UserFixtures.createUserWithHandle("popular");
+    suspended.setId(popular);
+    suspended.setStatus(UserStatus.SUSPENDED);
+    when(userRepository.findById(popular)).thenReturn(Optional.of(suspended));
+    when(userRepository.findIdsByStatusNot(UserStatus.ACTIVE))
+        .thenAnswer(
+            invocation -> {
+              suggestions.onUserChanged(new UserChangedEvent(popular, ChangeType.STATUS));
+              return List.of();
+            });
+
+    suggestions.refresh();
+
+    assertThat(suggestions.suggestionsFor(viewer)).containsExactly(new Suggestion(niche, 1));
+  }
+
+  @Test
+  void suggestionsFor_followedSinceRefresh_isLeftOut() {
+    when(userRepository.findIdsByStatusNot(UserStatus.ACTIVE)).thenReturn(List.of());
+    suggestions.refresh();
+
+    graphIndex.onFollowChanged(new FollowChangedEvent(viewer, popular, true));
+
+    assertThat(suggestions.suggestionsFor(viewer)).containsExactly(new Suggestion(niche, 1));
+  }
+
+  @Test
+  void onUserChanged_deactivatedSinceRefresh_isLeftOut() {
+    when(userRepository.findIdsByStatusNot(UserStatus.ACTIVE)).thenReturn(List.of());
+    suggestions.refresh();
+    User suspended = UserFixtures.createUserWithHandle("popular");
+    suspended.setId(popular);
+    suspended.setStatus(UserStatus.SUSPENDED);
+    when(userRepository.findById(popular)).thenReturn(Optional.of(suspended));
+
+    suggestions.onUserChanged(new UserChangedEvent(popular, ChangeType.STATUS));
+
+    assertThat(suggestions.suggestionsFor(viewer)).containsExactly(new Suggestion(niche, 1));
+  }
+
+  @Test
+  void suggestionsFor_beforeRefresh_isScoredByTheRefresh() {
+    when(userRepository.findIdsByStatusNot(UserStatus.ACTIVE)).thenReturn(List.of());
+    suggestions.suggestionsFor(viewer);
+
+    suggestions.refresh();
+
+    assertThat(suggestions.isKept(viewer)).isTrue();
+    assertThat(suggestions.isKept(friend)).isFalse();
+  }
+
+  @Test
+  void refresh_viewerNotSeenForTheTtl_isNoLongerKept() {
+    properties.setViewerTtlSeconds(0);
+    when(userRepository.findIdsByStatusNot(UserStatus.ACTIVE)).thenReturn(List.of());
+    suggestions.refresh();
+    suggestions.suggestionsFor(viewer);
+
+    suggestions.refresh();
+
+    assertThat(suggestions.isKept(viewer)).isFalse();
+  }
+
+  @Test
+  void suggestionsFor_moreViewersThanKept_scoresTheOthersOnEachRequest() {
+    properties.setMaxViewers(1);
+    when(userRepository.findIdsByStatusNot(UserStatus.ACTIVE)).thenReturn(List.of());
+    suggestions.refresh();
+    suggestions.suggestionsFor(friend);
+
+    List<Suggestion> found = suggestions.suggestionsFor(viewer);
+
+    assertThat(found).containsExactly(new Suggestion(popular, 2), new Suggestion(niche, 1));
+    assertThat(suggestions.isKept(friend)).isTrue();
+    assertThat(suggestions.isKept(viewer)).isFalse();
+  }
+}
@@ -0,0 +1,98 @@
+package com.xclone.follow.graph;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.UUID;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class SecondDegreeScorerTest {
+  UUID viewer;
+  UUID friend;
+  UUID otherFriend;
+  UUID popular;
+  UUID niche;
+  UUID followed;
+  FollowGraphSnapshot snapshot;
+
+  @BeforeEach
+  void setup() {
+    viewer = UUID.randomUUID();
+    friend = UUID.randomUUID();
+    otherFriend = UUID.randomUUID();
+    popular = UUID.randomUUID();
+    niche = UUID.randomUUID();
+    followed = UUID.randomUUID();
+    FollowGraphSnapshot.Builder builder = new FollowGraphSnapshot.Builder();
+    builder.add(viewer, friend);
+    builder.add(viewer, otherFriend);
+    builder.add(viewer, followed);
+    builder.add(friend, popular);
+    builder.add(otherFriend, popular);
+    builder.add(friend, niche);
+    builder.add(friend, followed);
+    builder.add(friend, viewer);
+    snapshot = builder.build();
+  }
+
+  private List<String> score(BitSet inactive, int limit) {
+    SecondDegreeScorer scorer = new SecondDegreeScorer(snapshot, inactive);
+    int[] users = new int[limit];
+    int[] scores = new int[limit];
+    int found = scorer.score(snapshot.indexOf(viewer), limit, users, scores);
+    List<String> result = new ArrayList<>();
+    for (int i = 0; i < found; i++) {
+      result.add(snapshot.idOf(users[i]) + "=" + scores[i]);
+    }
+    return result;
+  }
+
+  @Test
+  void score_ranksBySecondDegreeCount_excludingSelfAndFollowed() {
+    assertThat(score(new BitSet(), 10)).containsExactly(popular + "=2", niche + "=1");
+  }
+
+  @Test
+  void score_limit_keepsBest() {
+    assertThat(score(new BitSet(), 1)).containsExactly(popular + "=2");
+  }
+
+  @Test
+  void score_inactiveCandidate_isSkipped() {
+    BitSet inactive = new BitSet();
+    inactive.set(snapshot.indexOf(popular));
+
+    assertThat(score(inactive, 10)).containsExactly(niche + "=1");
+  }
+
+  @Test
+  void score_reused_resetsCounts() {
+    SecondDegreeScorer scorer = new SecondDegreeScorer(snapshot, new BitSet());
+    int[] users = new int[10];
+    int[] scores = new int[10];
+    scorer.score(snapshot.indexOf(viewer), 10, users, scores);
+    scorer.score(snapshot.indexOf(friend), 10, users, scores);
+
+    int found = scorer.score(snapshot.indexOf(viewer), 10, users, scores);
+
+    assertThat(found).isEqualTo(2);
+    assertThat(scores[0]).isEqualTo(2);
+    assertThat(scores[1]).isEqualTo(1);
+  }
+
+  @Test
+  void score_equalCounts_orderedByUserNumber() {
+    FollowGraphSnapshot.Builder builder = new FollowGraphSnapshot.Builder();
+    builder.add(viewer, friend);
+    List<UUID> candidates = List.of(UUID.randomUUID(), UUID.randomUUID(), UUID.randomUUID());
+    candidates.forEach(candidate -> builder.add(friend, candidate));
+    snapshot = builder.build();
+
+    assertThat(score(new BitSet(), 10))
+        .containsExactlyElementsOf(
+            candidates.stream().sorted().map(candidate -> candidate + "=1").toList());
+  }
+}
@@ -0,0 +1,284 @@
+package com.xclone.follow.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+import com.xclone.common.connection.KeysetPaginator;
+import com.xclone.common.connection.TimeIdKey;
+import com.xclone.exception.custom.InvalidCursorException;
+import com.xclone.exception.custom.SelfFollowException;
+import com.xclone.exception.custom.UserNotFoundException;
+import com.xclone.follow.cache.FollowingSetCache;
+import com.xclone.follow.counter.FollowCounters;
+import com.xclone.follow.counter.FollowCounts;
+import com.xclone.follow.event.FollowChangedEvent;
+import com.xclone.follow.graph.FollowSuggestions;
+import com.xclone.follow.graph.FollowSuggestions.Suggestion;
+import com.xclone.follow.repository.FollowRepository;
+import com.xclone.follow.repository.FollowRow;
+import com.xclone.support.fixtures.ConnectionFixtures;
+import com.xclone.support.fixtures.UserFixtures;
+import com.xclone.user.dto.UserProfile;
+import com.xclone.user.dto.connection.UserConnection;
+import com.xclone.user.model.entity.User;
+import com.xclone.user.service.UserService;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+
+@ExtendWith(MockitoExtension.class)
+public class FollowServiceTest {
+  @Mock FollowRepository followRepository;
+  @Mock FollowCounters followCounters;
+  @Mock FollowingSetCache followingSets;
+  @Mock FollowSuggestions followSuggestions;
+  @Mock UserService userService;
+  @Mock ApplicationEventPublisher eventPublisher;
+  @Spy KeysetPaginator paginator = ConnectionFixtures.getDefaultPaginator();
+
+  @InjectMocks FollowService followService;
+
+  UUID followerId;
+  UserProfile target;
+
+  @BeforeEach
+  void setup() {
+    followerId = UUID.randomUUID();
+    User user = UserFixtures.getDefaultUserWithRandomId();
+    target = user.toUserProfile();
+  }
+
+  @Nested
+  class followTests {
+    @Test
+    void follow_newFollow_publishesFollowChanged() {
+      when(userService.getUserById(target.id())).thenReturn(target);
+      when(followRepository.follow(followerId, target.id())).thenReturn(1);
+
+      assertThat(followService.follow(followerId, target.id())).isEqualTo(target);
+      verify(eventPublisher).publishEvent(new FollowChangedEvent(followerId, target.id(), true));
+    }
+
+    @Test
+    void follow_alreadyFollowing_isIdempotent() {
+      when(userService.getUserById(target.id())).thenReturn(target);
+      when(followRepository.follow(followerId, target.id())).thenReturn(0);
+
+      assertThat(followService.follow(followerId, target.id())).isEqualTo(target);
+      verify(eventPublisher, never()).publishEvent(any());
+    }
+
+    @Test
+    void follow_self_throwsSelfFollow() {
+      assertThatThrownBy(() -> followService.follow(followerId, followerId))
+          .isInstanceOf(SelfFollowException.class)
+          .hasMessage("You cannot follow yourself");
+      verifyNoInteractions(followRepository, eventPublisher);
+    }
+
+    @Test
+    void follow_unknownUser_throwsUserNotFound() {
+      when(userService.getUserById(target.id())).thenReturn(null);
+
+      assertThatThrownBy(() -> followService.follow(followerId, target.id()))
+          .isInstanceOf(UserNotFoundException.class)
+          .hasMessage("User not found");
+      verifyNoInteractions(followRepository, eventPublisher);
+    }
+  }
+
+  @Nested
+  class unfollowTests {
+    @Test
+    void unfollow_existingFollow_publishesFollowChanged() {
+      when(userService.getUserById(target.id())).thenReturn(target);
+      when(followRepository.unfollow(followerId, target.id())).thenReturn(1);
+
+      assertThat(followService.unfollow(followerId, target.id())).isEqualTo(target);
+      verify(eventPublisher).publishEvent(new FollowChangedEvent(followerId, target.id(), false));
+    }
+
+    @Test
+    void unfollow_notFollowing_isIdempotent() {
+      when(userService.getUserById(target.id())).thenReturn(target);
+      when(followRepository.unfollow(followerId, target.id())).thenReturn(0);
+
+      followService.unfollow(followerId, target.id());
+
+      verify(eventPublisher, never()).publishEvent(any());
+    }
+  }
+
+  @Nested
+  class getFollowersTests {
+    private FollowRow row(UUID userId, Instant createdAt) {
+      return new FollowRow() {
+        @Override
+        public UUID getUserId() {
+          return userId;
+        }
+
+        @Override
+        public Instant getCreatedAt() {
+          return createdAt;
+        }
+      };
+    }
+
+    private UserProfile profile(UUID id) {
+      User user = UserFixtures.getDefaultUserWithRandomId();
+      user.setId(id);
+      return user.toUserProfile();
+    }
+
+    @Test
+    void getFollowers_firstPage_startsFromLatestAndReturnsProfiles() {
+      UUID newest = UUID.randomUUID();
+      UUID older = UUID.randomUUID();
+      Instant now = Instant.parse("2026-01-01T00:00:00Z");
+      when(followRepository.findFollowersPage(
+              target.id(), TimeIdKey.LATEST.at(), TimeIdKey.LATEST.id(), 2))
+          .thenReturn(List.of(row(newest, now), row(older, now.minusSeconds(1))));
+      when(userService.getUsersByIds(List.of(newest))).thenReturn(Map.of(newest, profile(newest)));
+
+      UserConnection page = followService.getFollowers(target.id(), 1, null, false);
+
+      assertThat(page.edges()).extracting(edge -> edge.node().id()).containsExactly(newest);
+      assertThat(page.pageInfo().hasNextPage()).isTrue();
+      assertThat(page.totalCount()).isNull();
+      assertThat(
+              ConnectionFixtures.getDefaultCursorCodec()
+                  .decode(FollowService.FOLLOWERS, page.pageInfo().endCursor(), "after"))
+          .isEqualTo(new TimeIdKey(now, newest));
+    }
+
+    @Test
+    void getFollowers_afterCursor_continuesFromCursor() {
+      TimeIdKey key = new TimeIdKey(Instant.parse("2026-01-01T00:00:00Z"), UUID.randomUUID());
+      String after =
+          ConnectionFixtures.getDefaultCursorCodec().encode(FollowService.FOLLOWERS, key);
+      when(followRepository.findFollowersPage(target.id(), key.at(), key.id(), 21))
+          .thenReturn(List.of());
+      when(userService.getUsersByIds(List.of())).thenReturn(Map.of());
+
+      UserConnection page = followService.getFollowers(target.id(), null, after, false);
+
+      assertThat(page.edges()).isEmpty();
+      assertThat(page.pageInfo().hasPreviousPage()).isTrue();
+    }
+
+    @Test
+    void getFollowers_missingProfile_skipsEdge() {
+      UUID gone = UUID.randomUUID();
+      when(followRepository.findFollowersPage(any(), any(), any(), anyInt()))
+          .thenReturn(List.of(row(gone, Instant.EPOCH)));
+      when(userService.getUsersByIds(List.of(gone))).thenReturn(Map.of());
+
+      assertThat(followService.getFollowers(target.id(), null, null, false).edges()).isEmpty();
+    }
+
+    @Test
+    void getFollowers_totalCountRequested_readsCounter() {
+      when(followRepository.findFollowersPage(any(), any(), any(), anyInt())).thenReturn(List.of());
+      when(userService.getUsersByIds(List.of())).thenReturn(Map.of());
+      when(followCounters.getCounts(List.of(target.id())))
+          .thenReturn(Map.of(target.id(), new FollowCounts(3_000_000, 7)));
+
+      assertThat(followService.getFollowers(target.id(), null, null, true).totalCount())
+          .isEqualTo(3_000_000);
+    }
+
+    @Test
+    void getFollowing_followersCursor_throwsInvalidCursor() {
+      String followersCursor =
+          ConnectionFixtures.getDefaultCursorCodec()
+              .encode(FollowService.FOLLOWERS, new TimeIdKey(Instant.EPOCH, UUID.randomUUID()));
+
+      assertThatThrownBy(
+              () -> followService.getFollowing(target.id(), null, followersCursor, false))
+          .isInstanceOf(InvalidCursorException.class);
+    }
+  }
+
+  @Nested
+  class getSuggestedUsersTests {
+    UUID best;
+    UUID tied;
+    UUID worst;
+
+    @BeforeEach
+    void setup() {
+      best = UUID.randomUUID();
+      UUID first = UUID.randomUUID();
+      UUID second = UUID.randomUUID();
+      tied = first.compareTo(second) < 0 ? first : second;
+      worst = first.compareTo(second) < 0 ? second : first;
+    }
+
+    private void stubSuggestions() {
+      when(followSuggestions.suggestionsFor(followerId))
+          .thenReturn(
+              List.of(new Suggestion(best, 5), new Suggestion(tied, 2), new Suggestion(worst, 2)));
+      when(userService.getUsersByIds(any()))
+          .thenAnswer(
+              invocation -> {
+                List<UUID> ids = invocation.getArgument(0);
+                return ids.stream()
+                    .collect(
+                        Collectors.toMap(
+                            id -> id,
+                            id -> {
+                              User user = UserFixtures.getDefaultUserWithRandomId();
+                              user.setId(id);
+                              return user.toUserProfile();
+                            }));
+              });
+    }
+
+    @Test
+    void getSuggestedUsers_pagesInScoreOrder() {
+      stubSuggestions();
+
+      UserConnection firstPage = followService.getSuggestedUsers(followerId, 2, null, true);
+      UserConnection secondPage =
+          followService.getSuggestedUsers(followerId, 2, firstPage.pageInfo().endCursor(), false);
+
+      assertThat(firstPage.edges())
+          .extracting(edge -> edge.node().id())
+          .containsExactly(best, tied);
+      assertThat(firstPage.pageInfo().hasNextPage()).isTrue();
+      assertThat(firstPage.totalCount()).isEqualTo(3);
+      assertThat(secondPage.edges()).extracting(edge -> edge.node().id()).containsExactly(worst);
+      assertThat(secondPage.pageInfo().hasNextPage()).isFalse();
+      assertThat(secondPage.totalCount()).isNull();
+    }
+
+    @Test
+    void getSuggestedUsers_followersCursor_isRejected() {
+      String followersCursor =
+          ConnectionFixtures.getDefaultCursorCodec()
+              .encode(FollowService.FOLLOWERS, TimeIdKey.LATEST);
+
+      assertThatThrownBy(
+              () -> followService.getSuggestedUsers(followerId, 2, followersCursor, false))
+          .isInstanceOf(InvalidCursorException.class);
+    }
+  }
+}
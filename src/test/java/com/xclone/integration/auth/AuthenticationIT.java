@@ -5,12 +5,15 @@ import static org.assertj.core.api.Assertions.assertThat;
 import com.xclone.auth.dto.AuthResponse;
 import com.xclone.auth.dto.LoginRequest;
 import com.xclone.auth.dto.SignupRequest;
+import com.xclone.auth.repository.RefreshTokenRepository;
 import com.xclone.exception.dto.ErrorResponse;
 import com.xclone.exception.dto.ValidationErrorResponse;
 import com.xclone.integration.base.BaseAuthIntegrationTest;
 import com.xclone.user.model.entity.User;
 import com.xclone.user.model.enums.UserStatus;
 import com.xclone.user.repository.UserRepository;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.Set;
 import java.util.UUID;
@@ -55,6 +58,18 @@ public class AuthenticationIT extends BaseAuthIntegrationTest {
         AuthResponse.class);
   }
 
+  private Set<byte[]> refreshTokenKeys() {
+    return stringRedisTemplate.execute(
+        (RedisCallback<Set<byte[]>>)
+            connection -> connection.keyCommands().keys("rt:*".getBytes(StandardCharsets.UTF_8)));
+  }
+
+  private boolean refreshTokenExists(String tokenId) {
+    return stringRedisTemplate.execute(
+        (RedisCallback<Boolean>)
+            connection -> connection.keyCommands().exists(RefreshTokenRepository.key(tokenId)));
+  }
+
   private String extractRefreshCookie(ResponseEntity<?> response) {
     return response.getHeaders().get("Set-Cookie").getFirst().split(";")[0];
   }
@@ -90,8 +105,29 @@ public class AuthenticationIT extends BaseAuthIntegrationTest {
       signup();
 
       // Refresh token stored in redis
-      Set<String> keys = stringRedisTemplate.keys("refresh_token:*");
-      assertThat(keys).hasSize(1);
+      assertThat(refreshTokenKeys()).hasSize(1);
+    }
+
+    @Test
+    void signup_validRequest_indexesRefreshTokenUnderUser() {
+      ResponseEntity<AuthResponse> response = signup();
+      String refreshTokenId = extractRefreshCookie(response).replace("refreshToken=", "");
+
+      Set<byte[]> indexed =
+          stringRedisTemplate.execute(
+              (RedisCallback<Set<byte[]>>)
+                  connection ->
+                      connection
+                          .zSetCommands()
+                          .zRange(
+                              RefreshTokenRepository.indexKey(response.getBody().userId()), 0, -1));
+      UUID tokenId = UUID.fromString(refreshTokenId);
+      byte[] member =
+          ByteBuffer.allocate(16)
+              .putLong(tokenId.getMostSignificantBits())
+              .putLong(tokenId.getLeastSignificantBits())
+              .array();
+      assertThat(indexed).singleElement().isEqualTo(member);
     }
 
     @Test
@@ -153,8 +189,7 @@ public class AuthenticationIT extends BaseAuthIntegrationTest {
       testRestTemplate.postForEntity("/api/auth/login", request, AuthResponse.class);
 
       // Refresh tokens stored in redis (one for signup, one for login)
-      Set<String> keys = stringRedisTemplate.keys("refresh_token:*");
-      assertThat(keys).hasSize(2);
+      assertThat(refreshTokenKeys()).hasSize(2);
     }
 
     @Test
@@ -209,8 +244,7 @@ public class AuthenticationIT extends BaseAuthIntegrationTest {
       ResponseEntity<Void> response =
           testRestTemplate.postForEntity("/api/auth/logout", new HttpEntity<>(headers), Void.class);
 
-      Set<String> keys = stringRedisTemplate.keys("refresh_token:*");
-      assertThat(keys).hasSize(0);
+      assertThat(refreshTokenKeys()).hasSize(0);
     }
 
     @Test
@@ -268,9 +302,8 @@ public class AuthenticationIT extends BaseAuthIntegrationTest {
       String oldRefreshToken = extractRefreshCookie(signupResponse);
       String oldRefreshTokenValue = oldRefreshToken.replace("refreshToken=", "");
 
-      Set<String> oldKeys = stringRedisTemplate.keys("refresh_token:*");
-      assertThat(oldKeys).hasSize(1);
-      assertThat(oldKeys).contains("refresh_token:" + oldRefreshTokenValue);
+      assertThat(refreshTokenKeys()).hasSize(1);
+      assertThat(refreshTokenExists(oldRefreshTokenValue)).isTrue();
 
       HttpHeaders headers = new HttpHeaders();
       headers.add("Cookie", oldRefreshToken);
@@ -286,9 +319,26 @@ public class AuthenticationIT extends BaseAuthIntegrationTest {
       String newRefreshToken = cookies.getFirst().split(";")[0];
       String newRefreshTokenValue = newRefreshToken.replace("refreshToken=", "");
 
-      Set<String> newKeys = stringRedisTemplate.keys("refresh_token:*");
-      assertThat(newKeys).hasSize(1);
-      assertThat(newKeys).contains("refresh_token:" + newRefreshTokenValue);
+      assertThat(refreshTokenKeys()).hasSize(1);
+      assertThat(refreshTokenExists(newRefreshTokenValue)).isTrue();
+    }
+
+    @Test
+    void refresh_sameTokenTwice_secondAttemptReturns401() {
+      ResponseEntity<AuthResponse> signupResponse = signup();
+      HttpHeaders headers = new HttpHeaders();
+      headers.add("Cookie", extractRefreshCookie(signupResponse));
+
+      ResponseEntity<AuthResponse> first =
+          testRestTemplate.postForEntity(
+              "/api/auth/refresh", new HttpEntity<>(headers), AuthResponse.class);
+      ResponseEntity<ErrorResponse> second =
+          testRestTemplate.postForEntity(
+              "/api/auth/refresh", new HttpEntity<>(headers), ErrorResponse.class);
+
+      assertThat(first.getStatusCode()).isEqualTo(HttpStatus.OK);
+      assertThat(second.getStatusCode()).isEqualTo(HttpStatus.UNAUTHORIZED);
+      assertThat(refreshTokenKeys()).hasSize(1);
     }
 
     @Test
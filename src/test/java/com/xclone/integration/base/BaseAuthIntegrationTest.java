@@ -1,11 +1,4 @@
 package com.xclone.integration.base;
 
-import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
-import org.testcontainers.containers.GenericContainer;
-import org.testcontainers.junit.jupiter.Container;
-
-public abstract class BaseAuthIntegrationTest extends BaseIntegrationTest {
-  @Container @ServiceConnection
-  static GenericContainer<?> redis =
-      new GenericContainer<>("redis:7-alpine").withExposedPorts(6379);
-}
+/** Base for auth flows; Redis, which holds refresh tokens, is started by the parent. */
+public abstract class BaseAuthIntegrationTest extends BaseIntegrationTest {}
@@ -3,15 +3,28 @@ package com.xclone.integration.base;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
 import org.springframework.test.context.ActiveProfiles;
+import org.testcontainers.containers.GenericContainer;
 import org.testcontainers.containers.PostgreSQLContainer;
 import org.testcontainers.junit.jupiter.Container;
 import org.testcontainers.junit.jupiter.Testcontainers;
 
-@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+// The application does not create the indexes in db/indexes.sql; apply them as a deployment would
+@SpringBootTest(
+    webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+    properties = {
+      "spring.jpa.defer-datasource-initialization=true",
+      "spring.sql.init.mode=always",
+      "spring.sql.init.schema-locations=classpath:db/indexes.sql"
+    })
 @Testcontainers
 @ActiveProfiles("dev")
 public abstract class BaseIntegrationTest {
 
   @Container @ServiceConnection
   static PostgreSQLContainer<?> postgreSQLContainer = new PostgreSQLContainer<>("postgres:16");
+
+  // The user profile cache subscribes to Redis pub/sub at startup
+  @Container @ServiceConnection
+  static GenericContainer<?> redis =
+      new GenericContainer<>("redis:7-alpine").withExposedPorts(6379);
 }
@@ -0,0 +1,318 @@
+package com.xclone.integration.follow;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+import com.xclone.exception.dto.FieldError;
+import com.xclone.follow.counter.FollowCounters;
+import com.xclone.follow.repository.FollowRepository;
+import com.xclone.follow.repository.UserCountersRepository;
+import com.xclone.follow.service.FollowService;
+import com.xclone.integration.base.BaseIntegrationTest;
+import com.xclone.support.fixtures.UserFixtures;
+import com.xclone.support.helpers.AuthHelpers;
+import com.xclone.user.cache.UserProfileCache;
+import com.xclone.user.dto.mutation.UserResponse;
+import com.xclone.user.model.entity.User;
+import com.xclone.user.repository.UserRepository;
+import java.util.List;
+import java.util.UUID;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.graphql.tester.AutoConfigureHttpGraphQlTester;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.graphql.test.tester.GraphQlTester;
+import org.springframework.graphql.test.tester.HttpGraphQlTester;
+
+@AutoConfigureHttpGraphQlTester
+@Import(AuthHelpers.class)
+public class FollowIT extends BaseIntegrationTest {
+
+  @Autowired UserRepository userRepository;
+  @Autowired FollowRepository followRepository;
+  @Autowired UserCountersRepository countersRepository;
+  @Autowired FollowCounters followCounters;
+  @Autowired FollowService followService;
+  @Autowired UserProfileCache profileCache;
+  @Autowired StringRedisTemplate redisTemplate;
+  @Autowired AuthHelpers authHelpers;
+  @Autowired HttpGraphQlTester graphQlTester;
+
+  List<User> users;
+
+  String accessToken;
+
+  @BeforeEach
+  void setup() {
+    followCounters.flush();
+    followRepository.deleteAllInBatch();
+    countersRepository.deleteAllInBatch();
+    userRepository.deleteAll();
+    redisTemplate.execute(
+        (RedisCallback<Void>)
+            connection -> {
+              connection.serverCommands().flushDb();
+              return null;
+            });
+    profileCache.invalidateAllLocal();
+    users =
+        List.of("follower", "followed").stream()
+            .map(UserFixtures::createUserWithHandle)
+            .map(userRepository::save)
+            .toList();
+    accessToken = authHelpers.getUserAccessToken(users.getFirst().getId().toString());
+  }
+
+  private HttpGraphQlTester authenticatedTester() {
+    return graphQlTester.mutate().headers(headers -> headers.setBearerAuth(accessToken)).build();
+  }
+
+  private UserResponse mutate(String mutation, UUID userId) {
+    return authenticatedTester()
+        .document(
+            String.format(
+                """
+                    mutation Follow($userId: ID!) {
+                      %s(userId: $userId) {
+                        code
+                        success
+                        user {
+                          handle
+                        }
+                        errors {
+                          field
+                          message
+                        }
+                      }
+                    }
+                    """,
+                mutation))
+        .variable("userId", userId)
+        .execute()
+        .path(mutation)
+        .entity(UserResponse.class)
+        .get();
+  }
+
+  private List<Integer> counts(String handle) {
+    return authenticatedTester()
+        .document(
+            """
+                query Counts($handle: String!) {
+                  userByHandle(handle: $handle) {
+                    followerCount
+                    followingCount
+                  }
+                }
+                """)
+        .variable("handle", handle)
+        .execute()
+        .path("userByHandle")
+        .entity(Counts.class)
+        .get()
+        .asList();
+  }
+
+  private record Counts(int followerCount, int followingCount) {
+    List<Integer> asList() {
+      return List.of(followerCount, followingCount);
+    }
+  }
+
+  @Nested
+  class followUserTests {
+    @Test
+    void followUser_twice_createsOneFollowAndCountsIt() {
+      UUID followed = users.getLast().getId();
+
+      UserResponse first = mutate("followUser", followed);
+      UserResponse second = mutate("followUser", followed);
+
+      assertThat(first.success()).isTrue();
+      assertThat(first.user().handle()).isEqualTo("followed");
+      assertThat(second.success()).isTrue();
+      assertThat(followRepository.count()).isEqualTo(1);
+      assertThat(counts("followed")).containsExactly(1, 0);
+      assertThat(counts("follower")).containsExactly(0, 1);
+
+      followCounters.flush();
+
+      assertThat(countersRepository.findById(followed).orElseThrow().getFollowerCount())
+          .isEqualTo(1);
+      assertThat(counts("followed")).containsExactly(1, 0);
+    }
+
+    @Test
+    void followUser_self_returnsError() {
+      UserResponse response = mutate("followUser", users.getFirst().getId());
+
+      assertThat(response.code()).isEqualTo("400");
+      assertThat(response.success()).isFalse();
+      assertThat(response.errors())
+          .extracting(FieldError::field, FieldError::message)
+          .containsExactly(tuple("userId", "You cannot follow yourself"));
+    }
+
+    @Test
+    void followUser_unknownUser_returnsNotFound() {
+      UserResponse response = mutate("followUser", UUID.randomUUID());
+
+      assertThat(response.code()).isEqualTo("404");
+      assertThat(response.errors())
+          .extracting(FieldError::field, FieldError::message)
+          .containsExactly(tuple("userId", "User not found"));
+    }
+  }
+
+  @Nested
+  class unfollowUserTests {
+    @Test
+    void unfollowUser_followedUser_removesFollowAndCount() {
+      UUID followed = users.getLast().getId();
+      mutate("followUser", followed);
+      followCounters.flush();
+
+      UserResponse response = mutate("unfollowUser", followed);
+      UserResponse repeated = mutate("unfollowUser", followed);
+
+      assertThat(response.success()).isTrue();
+      assertThat(repeated.success()).isTrue();
+      assertThat(followRepository.count()).isZero();
+      assertThat(counts("followed")).containsExactly(0, 0);
+    }
+  }
+
+  @Nested
+  class isFollowingTests {
+    private boolean isFollowing(String handle) {
+      return authenticatedTester()
+          .document(
+              """
+                  query IsFollowing($handle: String!) {
+                    userByHandle(handle: $handle) {
+                      isFollowing
+                    }
+                  }
+                  """)
+          .variable("handle", handle)
+          .execute()
+          .path("userByHandle.isFollowing")
+          .entity(Boolean.class)
+          .get();
+    }
+
+    @Test
+    void isFollowing_tracksFollowAndUnfollow() {
+      UUID followed = users.getLast().getId();
+
+      assertThat(isFollowing("followed")).isFalse();
+      mutate("followUser", followed);
+      assertThat(isFollowing("followed")).isTrue();
+      assertThat(isFollowing("follower")).isFalse();
+      mutate("unfollowUser", followed);
+      assertThat(isFollowing("followed")).isFalse();
+    }
+  }
+
+  @Nested
+  class followersTests {
+    @Test
+    void followers_pagesNewestFirst() {
+      User followed = users.getLast();
+      List<String> fans = List.of("fan_1", "fan_2", "fan_3");
+      for (String handle : fans) {
+        User fan = userRepository.save(UserFixtures.createUserWithHandle(handle));
+        followService.follow(fan.getId(), followed.getId());
+      }
+      String document =
+          """
+              query Followers($handle: String!, $after: String) {
+                userByHandle(handle: $handle) {
+                  followers(first: 2, after: $after) {
+                    edges {
+                      node {
+                        handle
+                      }
+                    }
+                    pageInfo {
+                      hasNextPage
+                      endCursor
+                    }
+                    totalCount
+                  }
+                }
+              }
+              """;
+
+      GraphQlTester.Response firstPage =
+          authenticatedTester().document(document).variable("handle", "followed").execute();
+      String endCursor =
+          firstPage.path("userByHandle.followers.pageInfo.endCursor").entity(String.class).get();
+      GraphQlTester.Response secondPage =
+          authenticatedTester()
+              .document(document)
+              .variable("handle", "followed")
+              .variable("after", endCursor)
+              .execute();
+
+      firstPage
+          .path("userByHandle.followers.edges[*].node.handle")
+          .entityList(String.class)
+          .containsExactly("fan_3", "fan_2");
+      firstPage
+          .path("userByHandle.followers.pageInfo.hasNextPage")
+          .entity(Boolean.class)
+          .isEqualTo(true);
+      firstPage.path("userByHandle.followers.totalCount").entity(Integer.class).isEqualTo(3);
+      secondPage
+          .path("userByHandle.followers.edges[*].node.handle")
+          .entityList(String.class)
+          .containsExactly("fan_1");
+      secondPage
+          .path("userByHandle.followers.pageInfo.hasNextPage")
+          .entity(Boolean.class)
+          .isEqualTo(false);
+    }
+
+    @Test
+    void following_listsFollowedUsers() {
+      followService.follow(users.getFirst().getId(), users.getLast().getId());
+
+      authenticatedTester()
+          .document(
+              """
+                  {
+                    me {
+                      following {
+                        edges {
+                          node {
+                            handle
+                          }
+                        }
+                      }
+                    }
+                  }
+                  """)
+          .execute()
+          .path("me.following.edges[*].node.handle")
+          .entityList(String.class)
+          .containsExactly("followed");
+    }
+  }
+
+  @Test
+  void reconcile_driftedCounter_isCorrected() {
+    mutate("followUser", users.getLast().getId());
+    followCounters.flush();
+    countersRepository.deleteAllInBatch();
+
+    followCounters.reconcile();
+
+    assertThat(counts("followed")).containsExactly(1, 0);
+    assertThat(counts("follower")).containsExactly(0, 1);
+  }
+}
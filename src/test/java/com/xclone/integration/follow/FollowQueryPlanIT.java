@@ -0,0 +1,138 @@
+package com.xclone.integration.follow;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.xclone.common.connection.TimeIdKey;
+import com.xclone.follow.repository.FollowRepository;
+import com.xclone.integration.base.BaseIntegrationTest;
+import java.sql.Timestamp;
+import java.util.Map;
+import java.util.UUID;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+/**
+ * Checks the plans of the followers and following page queries against 10M follows: half of them of
+ * one celebrity, half by one user following everyone. Every page, however deep, must be read from
+ * the composite indexes in {@code db/indexes.sql} by an index-only scan without sorting and without
+ * visiting the table.
+ *
+ * <p>Seeding takes a minute or two; the rows are truncated afterwards.
+ */
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class FollowQueryPlanIT extends BaseIntegrationTest {
+  private static final int ROWS_PER_USER = 5_000_000;
+  private static final int PAGE_FETCH_SIZE = 21;
+  private static final UUID CELEBRITY = UUID.randomUUID();
+  private static final UUID COLLECTOR = UUID.randomUUID();
+
+  @Autowired JdbcTemplate jdbcTemplate;
+  @Autowired NamedParameterJdbcTemplate namedJdbcTemplate;
+
+  ObjectMapper objectMapper = new ObjectMapper();
+
+  @BeforeAll
+  void seed() {
+    jdbcTemplate.execute("TRUNCATE follows");
+    // Building the indexes after loading is much faster than maintaining them row by row
+    jdbcTemplate.execute("DROP INDEX IF EXISTS idx_follows_following_created");
+    jdbcTemplate.execute("DROP INDEX IF EXISTS idx_follows_follower_created");
+    jdbcTemplate.update(
+        """
+        INSERT INTO follows (follower_id, following_id, created_at)
+        SELECT CASE WHEN g % 2 = 0 THEN gen_random_uuid() ELSE ? END,
+               CASE WHEN g % 2 = 0 THEN ? ELSE gen_random_uuid() END,
+               TIMESTAMPTZ '2020-01-01' + g * INTERVAL '1 second'
+        FROM generate_series(1, ?) g
+        """,
+        COLLECTOR, CELEBRITY, ROWS_PER_USER * 2);
+    new ResourceDatabasePopulator(new ClassPathResource("db/indexes.sql"))
+        .execute(jdbcTemplate.getDataSource());
+    jdbcTemplate.execute("VACUUM ANALYZE follows");
+  }
+
+  @AfterAll
+  void truncate() {
+    jdbcTemplate.execute("TRUNCATE follows");
+  }
+
+  private JsonNode explain(String query, UUID userId, TimeIdKey after) throws Exception {
+    String json =
+        namedJdbcTemplate.queryForObject(
+            "EXPLAIN (ANALYZE, BUFFERS, FORMAT JSON) " + query,
+            Map.of(
+                "userId",
+                userId,
+                "afterAt",
+                Timestamp.from(after.at()),
+                "afterId",
+                after.id(),
+                "limit",
+                PAGE_FETCH_SIZE),
+            String.class);
+    return objectMapper.readTree(json).get(0).get("Plan");
+  }
+
+  private void assertIndexOnlyPage(JsonNode plan, String index) {
+    // Failures print the whole plan, so that a regression can be read from the build log
+    assertThat(plan.get("Node Type").asText()).as(plan.toPrettyString()).isEqualTo("Limit");
+    assertThat(plan.get("Actual Rows").asInt()).isEqualTo(PAGE_FETCH_SIZE);
+    JsonNode scan = plan.get("Plans").get(0);
+    assertThat(scan.get("Node Type").asText())
+        .as(plan.toPrettyString())
+        .isEqualTo("Index Only Scan");
+    assertThat(scan.get("Index Name").asText()).isEqualTo(index);
+    assertThat(scan.get("Scan Direction").asText()).isEqualTo("Backward");
+    assertThat(scan.get("Heap Fetches").asInt()).isZero();
+    assertThat(scan.has("Plans")).isFalse();
+    // A page touches a handful of index pages however long the list is
+    assertThat(plan.get("Shared Hit Blocks").asInt() + plan.get("Shared Read Blocks").asInt())
+        .isLessThan(20);
+  }
+
+  @Test
+  void followersPage_firstPage_isIndexOnlyScan() throws Exception {
+    JsonNode plan = explain(FollowRepository.FOLLOWERS_PAGE, CELEBRITY, TimeIdKey.LATEST);
+
+    assertIndexOnlyPage(plan, "idx_follows_following_created");
+  }
+
+  @Test
+  void followersPage_deepPage_isIndexOnlyScan() throws Exception {
+    TimeIdKey middle = middleOf("following_id", "follower_id", CELEBRITY);
+
+    JsonNode plan = explain(FollowRepository.FOLLOWERS_PAGE, CELEBRITY, middle);
+
+    assertIndexOnlyPage(plan, "idx_follows_following_created");
+  }
+
+  @Test
+  void followingPage_deepPage_isIndexOnlyScan() throws Exception {
+    TimeIdKey middle = middleOf("follower_id", "following_id", COLLECTOR);
+
+    JsonNode plan = explain(FollowRepository.FOLLOWING_PAGE, COLLECTOR, middle);
+
+    assertIndexOnlyPage(plan, "idx_follows_follower_created");
+  }
+
+  private TimeIdKey middleOf(String ownerColumn, String otherColumn, UUID owner) {
+    return jdbcTemplate.queryForObject(
+        "SELECT created_at, "
+            + otherColumn
+            + " FROM follows WHERE "
+            + ownerColumn
+            + " = ? ORDER BY created_at DESC OFFSET ? LIMIT 1",
+        (rs, rowNum) -> new TimeIdKey(rs.getTimestamp(1).toInstant(), rs.getObject(2, UUID.class)),
+        owner,
+        ROWS_PER_USER / 2);
+  }
+}
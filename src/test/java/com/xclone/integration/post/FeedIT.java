@@ -0,0 +1,347 @@
+package com.xclone.integration.post;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+import com.xclone.config.TimelineProperties;
+import com.xclone.exception.dto.FieldError;
+import com.xclone.follow.counter.FollowCounters;
+import com.xclone.follow.model.entity.Follow;
+import com.xclone.follow.repository.FollowRepository;
+import com.xclone.follow.repository.UserCountersRepository;
+import com.xclone.follow.service.FollowService;
+import com.xclone.integration.base.BaseIntegrationTest;
+import com.xclone.post.model.entity.Post;
+import com.xclone.post.repository.PostRepository;
+import com.xclone.post.timeline.HighFollowerAccounts;
+import com.xclone.support.fixtures.UserFixtures;
+import com.xclone.support.helpers.AuthHelpers;
+import com.xclone.user.cache.UserProfileCache;
+import com.xclone.user.model.entity.User;
+import com.xclone.user.repository.UserRepository;
+import jakarta.persistence.EntityManagerFactory;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.graphql.tester.AutoConfigureHttpGraphQlTester;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.graphql.test.tester.HttpGraphQlTester;
+import org.springframework.test.context.TestPropertySource;
+
+@AutoConfigureHttpGraphQlTester
+@Import(AuthHelpers.class)
+@TestPropertySource(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+public class FeedIT extends BaseIntegrationTest {
+
+  @Autowired UserRepository userRepository;
+  @Autowired PostRepository postRepository;
+  @Autowired FollowRepository followRepository;
+  @Autowired UserCountersRepository countersRepository;
+  @Autowired FollowCounters followCounters;
+  @Autowired FollowService followService;
+  @Autowired UserProfileCache profileCache;
+  @Autowired TimelineProperties timelineProperties;
+  @Autowired HighFollowerAccounts highFollowerAccounts;
+  @Autowired StringRedisTemplate redisTemplate;
+  @Autowired AuthHelpers authHelpers;
+  @Autowired HttpGraphQlTester graphQlTester;
+  @Autowired EntityManagerFactory entityManagerFactory;
+
+  User reader;
+  User author;
+
+  @BeforeEach
+  void setup() {
+    followCounters.flush();
+    followRepository.deleteAllInBatch();
+    countersRepository.deleteAllInBatch();
+    postRepository.deleteAllInBatch();
+    userRepository.deleteAll();
+    redisTemplate.execute(
+        (RedisCallback<Void>)
+            connection -> {
+              connection.serverCommands().flushDb();
+              return null;
+            });
+    profileCache.invalidateAllLocal();
+    reader = userRepository.save(UserFixtures.createUserWithHandle("reader"));
+    author = userRepository.save(UserFixtures.createUserWithHandle("author"));
+  }
+
+  private HttpGraphQlTester authenticatedTester(User user) {
+    String accessToken = authHelpers.getUserAccessToken(user.getId().toString());
+    return graphQlTester.mutate().headers(headers -> headers.setBearerAuth(accessToken)).build();
+  }
+
+  private CreatePostResult createPost(User user, String messageContent) {
+    return authenticatedTester(user)
+        .document(
+            """
+                mutation CreatePost($input: CreatePostInput!) {
+                  createPost(input: $input) {
+                    code
+                    success
+                    post {
+                      id
+                    }
+                    errors {
+                      field
+                      message
+                    }
+                  }
+                }
+                """)
+        .variable("input", Map.of("messageContent", messageContent))
+        .execute()
+        .path("createPost")
+        .entity(CreatePostResult.class)
+        .get();
+  }
+
+  private Feed feed(Integer first, String after) {
+    return authenticatedTester(reader)
+        .document(
+            """
+                query Feed($first: Int, $after: String) {
+                  feed(first: $first, after: $after) {
+                    edges {
+                      node {
+                        id
+                        messageContent
+                        author {
+                          handle
+                        }
+                      }
+                    }
+                    pageInfo {
+                      hasNextPage
+                      endCursor
+                    }
+                  }
+                }
+                """)
+        .variable("first", first)
+        .variable("after", after)
+        .execute()
+        .path("feed")
+        .entity(Feed.class)
+        .get();
+  }
+
+  /** Empties Redis and the local profile cache, so that a feed is read from the database. */
+  private void clearCaches() {
+    redisTemplate.execute(
+        (RedisCallback<Void>)
+            connection -> {
+              connection.serverCommands().flushDb();
+              return null;
+            });
+    profileCache.invalidateAllLocal();
+  }
+
+  private Post savePost(User user, String messageContent) {
+    Post post = new Post();
+    post.setAuthorId(user.getId());
+    post.setMessageContent(messageContent);
+    return postRepository.save(post);
+  }
+
+  private record CreatePostResult(
+      String code, Boolean success, PostId post, List<FieldError> errors) {}
+
+  private record PostId(UUID id) {}
+
+  private record Feed(List<FeedEdge> edges, FeedPageInfo pageInfo) {
+    List<String> messages() {
+      return edges.stream().map(edge -> edge.node().messageContent()).toList();
+    }
+  }
+
+  private record FeedEdge(FeedPost node) {}
+
+  private record FeedPost(UUID id, String messageContent, Handle author) {}
+
+  private record Handle(String handle) {}
+
+  private record FeedPageInfo(boolean hasNextPage, String endCursor) {}
+
+  @Nested
+  class feedTests {
+    @Test
+    void feed_coldTimeline_isRebuiltNewestFirstAndPaged() {
+      followService.follow(reader.getId(), author.getId());
+      savePost(author, "first");
+      savePost(reader, "second");
+      savePost(author, "third");
+
+      Feed firstPage = feed(2, null);
+      Feed secondPage = feed(2, firstPage.pageInfo().endCursor());
+
+      assertThat(firstPage.messages()).containsExactly("third", "second");
+      assertThat(firstPage.edges().getFirst().node().author().handle()).isEqualTo("author");
+      assertThat(firstPage.pageInfo().hasNextPage()).isTrue();
+      assertThat(secondPage.messages()).containsExactly("first");
+      assertThat(secondPage.pageInfo().hasNextPage()).isFalse();
+    }
+
+    @Test
+    void feed_unfollowedAccount_isNotShown() {
+      savePost(author, "not followed");
+
+      assertThat(feed(10, null).edges()).isEmpty();
+    }
+  }
+
+  @Nested
+  class statementCountTests {
+    Statistics statistics;
+
+    @BeforeEach
+    void setup() {
+      statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+      // Follows are saved directly, so that no fan-out runs statements while they are counted
+      for (int i = 0; i < 12; i++) {
+        User followed = userRepository.save(UserFixtures.createUserWithHandle("author" + i));
+        followRepository.save(new Follow(reader.getId(), followed.getId(), Instant.now()));
+        savePost(followed, "first by " + i);
+        savePost(followed, "second by " + i);
+      }
+    }
+
+    /** Counts the SQL statements run to read one cold page of the feed with its authors. */
+    private long statementsToRead(int first) {
+      clearCaches();
+      statistics.clear();
+      Feed page = feed(first, null);
+      long statements = statistics.getPrepareStatementCount();
+      assertThat(page.edges())
+          .hasSize(first)
+          .allSatisfy(edge -> assertThat(edge.node().author().handle()).startsWith("author"));
+      return statements;
+    }
+
+    @Test
+    void feed_authorsOfAPage_areLoadedInConstantStatements() {
+      feed(1, null);
+
+      long smallPage = statementsToRead(3);
+      long largePage = statementsToRead(20);
+
+      assertThat(smallPage).isPositive();
+      assertThat(largePage).isEqualTo(smallPage);
+    }
+  }
+
+  @Nested
+  class fanoutTests {
+    @Test
+    void createPost_isFannedOutToFollowersTimelines() {
+      followService.follow(reader.getId(), author.getId());
+      assertThat(feed(10, null).edges()).isEmpty();
+
+      CreatePostResult result = createPost(author, "hello followers");
+
+      assertThat(result.success()).isTrue();
+      await()
+          .atMost(Duration.ofSeconds(5))
+          .untilAsserted(
+              () ->
+                  assertThat(feed(10, null).edges())
+                      .extracting(edge -> edge.node().id())
+                      .containsExactly(result.post().id()));
+    }
+
+    @Test
+    void follow_backfillsTheFollowedAccountsPosts_andUnfollowRemovesThem() {
+      savePost(author, "before the follow");
+      assertThat(feed(10, null).edges()).isEmpty();
+
+      followService.follow(reader.getId(), author.getId());
+      await()
+          .atMost(Duration.ofSeconds(5))
+          .untilAsserted(
+              () -> assertThat(feed(10, null).messages()).containsExactly("before the follow"));
+
+      followService.unfollow(reader.getId(), author.getId());
+      await()
+          .atMost(Duration.ofSeconds(5))
+          .untilAsserted(() -> assertThat(feed(10, null).edges()).isEmpty());
+    }
+
+    @Test
+    void createPost_blankMessage_returnsFieldError() {
+      CreatePostResult result = createPost(author, " ");
+
+      assertThat(result.success()).isFalse();
+      assertThat(result.code()).isEqualTo("400");
+      assertThat(result.errors()).extracting(FieldError::field).containsExactly("messageContent");
+    }
+  }
+
+  @Nested
+  class pullTests {
+    long threshold;
+
+    @BeforeEach
+    void setup() {
+      threshold = timelineProperties.getPullFollowerThreshold();
+      timelineProperties.setPullFollowerThreshold(1);
+    }
+
+    @AfterEach
+    void restore() {
+      timelineProperties.setPullFollowerThreshold(threshold);
+      highFollowerAccounts.refresh();
+    }
+
+    @Test
+    void createPost_highFollowerAccount_isMergedIntoFollowersFeeds() {
+      followService.follow(reader.getId(), author.getId());
+      followCounters.flush();
+      highFollowerAccounts.refresh();
+      assertThat(highFollowerAccounts.contains(author.getId())).isTrue();
+      savePost(author, "older");
+      savePost(reader, "own");
+
+      CreatePostResult result = createPost(author, "hello from a popular account");
+
+      assertThat(result.success()).isTrue();
+      await()
+          .atMost(Duration.ofSeconds(5))
+          .untilAsserted(
+              () ->
+                  assertThat(feed(10, null).messages())
+                      .containsExactly("hello from a popular account", "own", "older"));
+    }
+
+    @Test
+    void refresh_accountLeavesPull_isBackfilledIntoFollowersTimelines() {
+      followService.follow(reader.getId(), author.getId());
+      followCounters.flush();
+      highFollowerAccounts.refresh();
+      createPost(author, "written while pulled");
+      await()
+          .atMost(Duration.ofSeconds(5))
+          .untilAsserted(
+              () -> assertThat(feed(10, null).messages()).contains("written while pulled"));
+
+      timelineProperties.setPullFollowerThreshold(threshold);
+      highFollowerAccounts.refresh();
+
+      assertThat(highFollowerAccounts.contains(author.getId())).isFalse();
+      await().atMost(Duration.ofSeconds(5)).until(() -> highFollowerAccounts.mergedIds().isEmpty());
+      assertThat(feed(10, null).messages()).contains("written while pulled");
+    }
+  }
+}
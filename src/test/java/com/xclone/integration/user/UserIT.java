@@ -1,6 +1,7 @@
 package com.xclone.integration.user;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.assertj.core.api.Assertions.tuple;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
@@ -12,29 +13,44 @@ import com.xclone.exception.dto.FieldError;
 import com.xclone.integration.base.BaseIntegrationTest;
 import com.xclone.support.fixtures.UserFixtures;
 import com.xclone.support.helpers.AuthHelpers;
+import com.xclone.user.cache.UserProfileCache;
 import com.xclone.user.dto.mutation.UserResponse;
 import com.xclone.user.model.entity.User;
 import com.xclone.user.model.enums.UserStatus;
 import com.xclone.user.repository.UserRepository;
+import jakarta.persistence.EntityManagerFactory;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.IntStream;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.graphql.tester.AutoConfigureHttpGraphQlTester;
 import org.springframework.context.annotation.Import;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.graphql.ResponseError;
+import org.springframework.graphql.test.tester.GraphQlTester;
 import org.springframework.graphql.test.tester.HttpGraphQlTester;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.test.context.TestPropertySource;
 
 @AutoConfigureHttpGraphQlTester
 @Import(AuthHelpers.class)
+@TestPropertySource(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
 public class UserIT extends BaseIntegrationTest {
 
   @Autowired UserRepository userRepository;
   @Autowired AuthHelpers authHelpers;
   @Autowired HttpGraphQlTester graphQlTester;
+  @Autowired EntityManagerFactory entityManagerFactory;
+  @Autowired StringRedisTemplate redisTemplate;
+  @Autowired UserProfileCache profileCache;
 
   List<String> handles = List.of("example1", "example2", "example3");
 
@@ -44,8 +60,15 @@ public class UserIT extends BaseIntegrationTest {
 
   @BeforeEach
   void setup() {
-    // Flushes DB
+    // Flushes DB, and the profile caches that would otherwise serve deleted rows
     userRepository.deleteAll();
+    redisTemplate.execute(
+        (RedisCallback<Void>)
+            connection -> {
+              connection.serverCommands().flushDb();
+              return null;
+            });
+    profileCache.invalidateAllLocal();
     // Adds 3 users to the DB under the handles
     users =
         handles.stream().map(UserFixtures::createUserWithHandle).map(userRepository::save).toList();
@@ -212,6 +235,53 @@ public class UserIT extends BaseIntegrationTest {
     }
   }
 
+  @Nested
+  class statementCountTests {
+    Statistics statistics;
+
+    @BeforeEach
+    void setup() {
+      statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    /** Counts the SQL statements run to look up the given users by id in one request. */
+    private long statementsToLookUp(List<User> lookedUp) {
+      StringBuilder document = new StringBuilder("{");
+      for (int i = 0; i < lookedUp.size(); i++) {
+        document.append(
+            String.format(" u%d: userById(id: \"%s\") { handle }", i, lookedUp.get(i).getId()));
+      }
+      document.append(" }");
+      statistics.clear();
+      GraphQlTester.Response response =
+          authenticatedTester().document(document.toString()).execute();
+      long statements = statistics.getPrepareStatementCount();
+      for (int i = 0; i < lookedUp.size(); i++) {
+        response
+            .path("u" + i + ".handle")
+            .entity(String.class)
+            .isEqualTo(lookedUp.get(i).getHandle());
+      }
+      return statements;
+    }
+
+    @Test
+    void userById_usersOfARequest_areLoadedInConstantStatements() {
+      List<User> lookedUp =
+          IntStream.range(0, 23)
+              .mapToObj(i -> userRepository.save(UserFixtures.createUserWithHandle("lookup" + i)))
+              .toList();
+      // Loads the authenticated principal, so that only the lookups are counted below
+      statementsToLookUp(users);
+
+      long fewUsers = statementsToLookUp(lookedUp.subList(0, 3));
+      long manyUsers = statementsToLookUp(lookedUp.subList(3, 23));
+
+      assertThat(fewUsers).isPositive();
+      assertThat(manyUsers).isEqualTo(fewUsers);
+    }
+  }
+
   @Nested
   class searchUsersTests {
     @Test
@@ -243,7 +313,7 @@ public class UserIT extends BaseIntegrationTest {
     }
 
     @Test
-    void searchUsers_validQueryForSingleUser_returnsUserConnection() {
+    void searchUsers_exactHandle_ranksExactMatchFirst() {
       String query = "example1";
       authenticatedTester()
           .document(
@@ -251,7 +321,6 @@ public class UserIT extends BaseIntegrationTest {
                   """
                       {
                         searchUsers(query: "%s") {
-                          totalCount
                           edges {
                             node {
                               handle
@@ -262,12 +331,122 @@ public class UserIT extends BaseIntegrationTest {
                       """,
                   query))
           .execute()
-          .path("searchUsers.totalCount")
-          .entity(Integer.class)
-          .isEqualTo(1)
+          .path("searchUsers.edges[0].node.handle")
+          .entity(String.class)
+          .isEqualTo(query);
+    }
+
+    @Test
+    void searchUsers_moreMatchesThanCandidates_stillRanksExactMatchFirst() {
+      // The exact match is stored after more similar handles than the 500 a search ranks
+      userRepository.delete(users.get(1));
+      List<User> similar = new ArrayList<>();
+      for (int i = 0; i < 600; i++) {
+        similar.add(UserFixtures.createUserWithHandle("xexample2_" + i));
+      }
+      userRepository.saveAll(similar);
+      userRepository.save(UserFixtures.createUserWithHandle("example2"));
+
+      authenticatedTester()
+          .document(
+              """
+                  {
+                    searchUsers(query: "example2", first: 1) {
+                      edges {
+                        node {
+                          handle
+                        }
+                       }
+                     }
+                  }
+                  """)
+          .execute()
+          .path("searchUsers.edges[0].node.handle")
+          .entity(String.class)
+          .isEqualTo("example2");
+    }
+
+    @Test
+    void searchUsers_firstAndAfter_pagesWithoutOverlap() {
+      String document =
+          """
+              query Search($after: String) {
+                searchUsers(query: "exam", first: 2, after: $after) {
+                  totalCount
+                  edges {
+                    node {
+                      handle
+                    }
+                  }
+                  pageInfo {
+                    hasNextPage
+                    endCursor
+                  }
+                }
+              }
+              """;
+      var firstPage = authenticatedTester().document(document).execute();
+      List<String> firstHandles =
+          firstPage.path("searchUsers.edges[*].node.handle").entityList(String.class).get();
+      firstPage.path("searchUsers.pageInfo.hasNextPage").entity(Boolean.class).isEqualTo(true);
+      firstPage.path("searchUsers.totalCount").entity(Integer.class).isEqualTo(3);
+      String endCursor =
+          firstPage.path("searchUsers.pageInfo.endCursor").entity(String.class).get();
+
+      var secondPage =
+          authenticatedTester().document(document).variable("after", endCursor).execute();
+      List<String> secondHandles =
+          secondPage.path("searchUsers.edges[*].node.handle").entityList(String.class).get();
+      secondPage.path("searchUsers.pageInfo.hasNextPage").entity(Boolean.class).isEqualTo(false);
+
+      assertThat(firstHandles).hasSize(2);
+      assertThat(secondHandles).hasSize(1).doesNotContainAnyElementsOf(firstHandles);
+    }
+
+    @Test
+    void searchUsers_inactiveUsers_areExcluded() {
+      User suspended = users.get(1);
+      suspended.setStatus(UserStatus.SUSPENDED);
+      userRepository.save(suspended);
+
+      authenticatedTester()
+          .document(
+              """
+                  {
+                    searchUsers(query: "exam") {
+                      edges {
+                        node {
+                          handle
+                        }
+                       }
+                     }
+                  }
+                  """)
+          .execute()
           .path("searchUsers.edges[*].node.handle")
           .entityList(String.class)
-          .satisfies(handles -> handles.forEach((handle -> assertThat(handle).contains(query))));
+          .doesNotContain(suspended.getHandle())
+          .hasSize(2);
+    }
+
+    @Test
+    void searchUsers_invalidCursor_returnsValidationError() {
+      authenticatedTester()
+          .document(
+              """
+                  {
+                    searchUsers(query: "exam", after: "not-a-cursor") {
+                      totalCount
+                    }
+                  }
+                  """)
+          .execute()
+          .errors()
+          .satisfy(
+              errors ->
+                  assertThat(errors)
+                      .extracting(ResponseError::getMessage)
+                      .containsExactly("Invalid cursor"));
     }
 
     @Test
@@ -356,6 +535,57 @@ public class UserIT extends BaseIntegrationTest {
                   newDisplayName, newHandle, bio, profileImage));
     }
 
+    @Test
+    void updateMyProfile_cachedProfile_isReadBackUpdated() {
+      String oldHandle = users.getFirst().getHandle();
+      String lookup =
+          """
+              query Lookup($handle: String!) {
+                userByHandle(handle: $handle) {
+                  handle
+                  displayName
+                }
+              }
+              """;
+      // Populates both cache tiers
+      authenticatedTester()
+          .document(lookup)
+          .variable("handle", oldHandle)
+          .execute()
+          .path("userByHandle.handle")
+          .entity(String.class)
+          .isEqualTo(oldHandle);
+
+      authenticatedTester()
+          .document(
+              """
+                  mutation UpdateProfile($input: UpdateUserInput!) {
+                    updateMyProfile(input: $input) {
+                      success
+                    }
+                  }
+                  """)
+          .variable("input", Map.of("displayName", "renamed", "handle", "renamedHandle"))
+          .execute()
+          .path("updateMyProfile.success")
+          .entity(Boolean.class)
+          .isEqualTo(true);
+
+      authenticatedTester()
+          .document(lookup)
+          .variable("handle", "renamedHandle")
+          .execute()
+          .path("userByHandle.displayName")
+          .entity(String.class)
+          .isEqualTo("renamed");
+      authenticatedTester()
+          .document(lookup)
+          .variable("handle", oldHandle)
+          .execute()
+          .path("userByHandle")
+          .valueIsNull();
+    }
+
     @Test
     void updateMyProfile_validInput_onlyDisplayName_returnsUserResponse() {
       User authenticatedUser = users.getFirst();
@@ -525,6 +755,79 @@ public class UserIT extends BaseIntegrationTest {
           .extracting(FieldError::field, FieldError::message)
           .containsExactly(tuple("handle", "This handle is already taken"));
     }
+
+    @Test
+    void updateMyProfile_concurrentlyLoadedUser_failsOptimisticLock() {
+      User stale = userRepository.findById(users.getFirst().getId()).orElseThrow();
+
+      authenticatedTester()
+          .document(
+              """
+                  mutation UpdateProfile($input: UpdateUserInput!) {
+                    updateMyProfile(input: $input) {
+                      success
+                    }
+                  }
+                  """)
+          .variable("input", Map.of("bio", "updated concurrently"))
+          .execute()
+          .path("updateMyProfile.success")
+          .entity(Boolean.class)
+          .isEqualTo(true);
+
+      stale.setDisplayName("stale write");
+      assertThatThrownBy(() -> userRepository.save(stale))
+          .isInstanceOf(ObjectOptimisticLockingFailureException.class);
+      assertThat(userRepository.findById(stale.getId()).orElseThrow().getBio())
+          .isEqualTo("updated concurrently");
+    }
+
+    @Test
+    void updateMyProfile_staleExpectedVersion_returnsConflictAndKeepsProfile() {
+      User user = userRepository.findById(users.getFirst().getId()).orElseThrow();
+      int loadedVersion = user.getVersion();
+      String document =
+          """
+              mutation UpdateProfile($input: UpdateUserInput!, $version: Int) {
+                updateMyProfile(input: $input, expectedVersion: $version) {
+                  code
+                  user {
+                    bio
+                    version
+                  }
+                  errors {
+                    field
+                  }
+                }
+              }
+              """;
+
+      authenticatedTester()
+          .document(document)
+          .variable("input", Map.of("bio", "first edit"))
+          .variable("version", loadedVersion)
+          .execute()
+          .path("updateMyProfile.code")
+          .entity(String.class)
+          .isEqualTo("200")
+          .path("updateMyProfile.user.version")
+          .entity(Integer.class)
+          .isEqualTo(loadedVersion + 1);
+
+      authenticatedTester()
+          .document(document)
+          .variable("input", Map.of("bio", "second edit"))
+          .variable("version", loadedVersion)
+          .execute()
+          .path("updateMyProfile.code")
+          .entity(String.class)
+          .isEqualTo("409")
+          .path("updateMyProfile.errors[0].field")
+          .entity(String.class)
+          .isEqualTo("expectedVersion");
+      assertThat(userRepository.findById(user.getId()).orElseThrow().getBio())
+          .isEqualTo("first edit");
+    }
   }
 
   @Nested
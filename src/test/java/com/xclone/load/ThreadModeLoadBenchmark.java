@@ -0,0 +1,223 @@
+package com.xclone.load;
+
+import com.xclone.XCloneBackendApplication;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.containers.PostgreSQLContainer;
+
+/**
+ * Closed-loop load test comparing platform and virtual thread request handling. Not run by the test
+ * suite. Without a URL, {@link #main(String[])} starts PostgreSQL and Redis with Testcontainers,
+ * boots the application on them once per mode and prints the results of both:
+ *
+ * <pre>
+ * ./mvnw test-compile dependency:build-classpath -Dmdep.outputFile=cp.txt
+ * java -cp target/classes:target/test-classes:$(cat cp.txt) \
+ *     com.xclone.load.ThreadModeLoadBenchmark 400 30
+ * </pre>
+ *
+ * <p>Given a URL as the first argument, it runs once against an application started separately,
+ * e.g. with {@code SPRING_PROFILES_ACTIVE=dev,vthreads ./mvnw spring-boot:run}.
+ *
+ * <p>Signs up one user, then drives {@code concurrency} clients that each repeatedly send an
+ * authenticated GraphQL {@code me} query followed by a {@code userByHandle} query, both of which
+ * block on Redis and PostgreSQL. Reports throughput and p50/p99/max latency over the measured
+ * window. Set concurrency well above Tomcat's default 200 worker threads to see the difference
+ * between the modes.
+ */
+public class ThreadModeLoadBenchmark {
+  private static final Pattern ACCESS_TOKEN =
+      Pattern.compile("\"accessToken\"\\s*:\\s*\"([^\"]+)\"");
+
+  public static void main(String[] args) throws Exception {
+    if (args.length > 0 && args[0].startsWith("http")) {
+      int concurrency = args.length > 1 ? Integer.parseInt(args[1]) : 400;
+      int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 30;
+      load(args[0], concurrency, seconds).print(seconds);
+      return;
+    }
+    int concurrency = args.length > 0 ? Integer.parseInt(args[0]) : 400;
+    int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 30;
+    try (PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16");
+        GenericContainer<?> redis =
+            new GenericContainer<>("redis:7-alpine").withExposedPorts(6379)) {
+      postgres.start();
+      redis.start();
+      Map<String, Object> properties =
+          Map.of(
+              "server.port", 0,
+              "spring.datasource.url", postgres.getJdbcUrl(),
+              "spring.datasource.username", postgres.getUsername(),
+              "spring.datasource.password", postgres.getPassword(),
+              "spring.data.redis.host", redis.getHost(),
+              "spring.data.redis.port", redis.getMappedPort(6379),
+              "spring.jpa.show-sql", false);
+      Result platform = loadApplication(properties, false, concurrency, seconds);
+      Result virtual = loadApplication(properties, true, concurrency, seconds);
+      System.out.println("platform threads:");
+      platform.print(seconds);
+      System.out.println("virtual threads:");
+      virtual.print(seconds);
+    }
+  }
+
+  /** Boots the application on the given infrastructure in one thread mode and loads it. */
+  private static Result loadApplication(
+      Map<String, Object> properties, boolean virtualThreads, int concurrency, int seconds)
+      throws Exception {
+    String[] profiles = virtualThreads ? new String[] {"dev", "vthreads"} : new String[] {"dev"};
+    try (ConfigurableApplicationContext application =
+        new SpringApplicationBuilder(XCloneBackendApplication.class)
+            .profiles(profiles)
+            .properties(properties)
+            .run()) {
+      String port = application.getEnvironment().getProperty("local.server.port");
+      return load("http://localhost:" + port, concurrency, seconds);
+    }
+  }
+
+  private static Result load(String baseUrl, int concurrency, int seconds) throws Exception {
+    int warmupSeconds = Math.max(5, seconds / 5);
+    HttpClient client =
+        HttpClient.newBuilder()
+            .connectTimeout(Duration.ofSeconds(5))
+            .executor(Executors.newVirtualThreadPerTaskExecutor())
+            .build();
+    String handle = "load_" + UUID.randomUUID().toString().substring(0, 8);
+    String token = signup(client, baseUrl, handle);
+
+    HttpRequest me = graphql(baseUrl, token, "{ me { id handle } }");
+    HttpRequest byHandle =
+        graphql(
+            baseUrl, token, "{ userByHandle(handle: \\\"" + handle + "\\\") { id displayName } }");
+
+    System.out.printf(
+        "%s: %d clients, %ds warmup, %ds measured%n", baseUrl, concurrency, warmupSeconds, seconds);
+    run(client, List.of(me, byHandle), concurrency, warmupSeconds);
+    return run(client, List.of(me, byHandle), concurrency, seconds);
+  }
+
+  private static String signup(HttpClient client, String baseUrl, String handle) throws Exception {
+    String body =
+        "{\"handle\":\"%s\",\"password\":\"Load-test-pa55!\",\"displayName\":\"Load\"}"
+            .formatted(handle);
+    HttpRequest request =
+        HttpRequest.newBuilder(URI.create(baseUrl + "/api/auth/signup"))
+            .header("Content-Type", "application/json")
+            .POST(HttpRequest.BodyPublishers.ofString(body))
+            .build();
+    HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+    Matcher matcher = ACCESS_TOKEN.matcher(response.body());
+    if (response.statusCode() != 200 || !matcher.find()) {
+      throw new IllegalStateException(
+          "signup failed: " + response.statusCode() + " " + response.body());
+    }
+    return matcher.group(1);
+  }
+
+  private static HttpRequest graphql(String baseUrl, String token, String query) {
+    return HttpRequest.newBuilder(URI.create(baseUrl + "/graphql"))
+        .header("Content-Type", "application/json")
+        .header("Authorization", "Bearer " + token)
+        .timeout(Duration.ofSeconds(30))
+        .POST(HttpRequest.BodyPublishers.ofString("{\"query\":\"" + query + "\"}"))
+        .build();
+  }
+
+  private static Result run(
+      HttpClient client, List<HttpRequest> requests, int concurrency, int seconds)
+      throws Exception {
+    AtomicBoolean running = new AtomicBoolean(true);
+    List<Future<Result>> futures = new ArrayList<>(concurrency);
+    try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+      for (int i = 0; i < concurrency; i++) {
+        futures.add(clients.submit(() -> drive(client, requests, running)));
+      }
+      Thread.sleep(Duration.ofSeconds(seconds));
+      running.set(false);
+    }
+    Result total = new Result();
+    for (Future<Result> future : futures) {
+      total.merge(future.get());
+    }
+    return total;
+  }
+
+  private static Result drive(
+      HttpClient client, List<HttpRequest> requests, AtomicBoolean running) {
+    Result result = new Result();
+    int next = 0;
+    while (running.get()) {
+      HttpRequest request = requests.get(next++ % requests.size());
+      long start = System.nanoTime();
+      try {
+        HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+        if (response.statusCode() == 200) {
+          result.record(System.nanoTime() - start);
+        } else {
+          result.errors++;
+        }
+      } catch (Exception e) {
+        result.errors++;
+      }
+    }
+    return result;
+  }
+
+  /** Latency samples and error count of one client, merged into a total at the end of a run. */
+  private static final class Result {
+    private long[] latencies = new long[1024];
+    private int count;
+    private long errors;
+
+    void record(long nanos) {
+      if (count == latencies.length) {
+        latencies = Arrays.copyOf(latencies, count * 2);
+      }
+      latencies[count++] = nanos;
+    }
+
+    void merge(Result other) {
+      for (int i = 0; i < other.count; i++) {
+        record(other.latencies[i]);
+      }
+      errors += other.errors;
+    }
+
+    void print(int seconds) {
+      long[] sorted = Arrays.copyOf(latencies, count);
+      Arrays.sort(sorted);
+      System.out.printf(
+          "requests %d, errors %d, throughput %.0f req/s%n",
+          count, errors, count / (double) seconds);
+      System.out.printf(
+          "latency p50 %.2f ms, p99 %.2f ms, max %.2f ms%n",
+          percentile(sorted, 0.50), percentile(sorted, 0.99), percentile(sorted, 1.0));
+    }
+
+    private static double percentile(long[] sorted, double quantile) {
+      if (sorted.length == 0) {
+        return 0;
+      }
+      int index = (int) Math.ceil(quantile * sorted.length) - 1;
+      return sorted[Math.max(0, index)] / 1_000_000.0;
+    }
+  }
+}
@@ -0,0 +1,170 @@
+package com.xclone.post.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.xclone.common.connection.KeysetPaginator;
+import com.xclone.common.connection.TimeIdKey;
+import com.xclone.exception.custom.PostNotFoundException;
+import com.xclone.post.dto.PostView;
+import com.xclone.post.dto.connection.PostConnection;
+import com.xclone.post.dto.request.CreatePostInput;
+import com.xclone.post.event.PostCreatedEvent;
+import com.xclone.post.model.entity.Post;
+import com.xclone.post.model.enums.PostStatus;
+import com.xclone.post.repository.PostRepository;
+import com.xclone.post.timeline.FeedReader;
+import com.xclone.post.timeline.TimelineEntry;
+import com.xclone.support.fixtures.ConnectionFixtures;
+import com.xclone.support.fixtures.PostFixtures;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+
+@ExtendWith(MockitoExtension.class)
+public class PostServiceTest {
+  @Mock PostRepository postRepository;
+  @Mock FeedReader feedReader;
+  @Mock ApplicationEventPublisher eventPublisher;
+  @Spy KeysetPaginator paginator = ConnectionFixtures.getDefaultPaginator();
+
+  @InjectMocks PostService postService;
+
+  UUID viewerId;
+
+  @BeforeEach
+  void setup() {
+    viewerId = UUID.randomUUID();
+  }
+
+  @Nested
+  class createPostTests {
+    @Test
+    void createPost_savesPostAndPublishesPostCreated() {
+      Instant createdAt = Instant.now().truncatedTo(ChronoUnit.MICROS);
+      when(postRepository.save(any()))
+          .thenAnswer(
+              invocation -> {
+                Post post = invocation.getArgument(0);
+                post.setId(UUID.randomUUID());
+                post.setCreatedAt(createdAt);
+                return post;
+              });
+
+      PostView post = postService.createPost(viewerId, new CreatePostInput("hello", null));
+
+      assertThat(post.authorId()).isEqualTo(viewerId);
+      assertThat(post.messageContent()).isEqualTo("hello");
+      assertThat(post.status()).isEqualTo(PostStatus.ACTIVE);
+      verify(eventPublisher).publishEvent(new PostCreatedEvent(post.id(), viewerId, createdAt));
+    }
+  }
+
+  @Nested
+  class getPostTests {
+    @Test
+    void getPost_activePost_returnsIt() {
+      Post post = PostFixtures.createPost(viewerId, Instant.now());
+      when(postRepository.findById(post.getId())).thenReturn(Optional.of(post));
+
+      assertThat(postService.getPost(post.getId()).id()).isEqualTo(post.getId());
+    }
+
+    @Test
+    void getPost_deletedPost_throwsPostNotFound() {
+      Post post = PostFixtures.createPost(viewerId, Instant.now());
+      post.setStatus(PostStatus.DELETED);
+      when(postRepository.findById(post.getId())).thenReturn(Optional.of(post));
+
+      assertThatThrownBy(() -> postService.getPost(post.getId()))
+          .isInstanceOf(PostNotFoundException.class);
+    }
+  }
+
+  @Nested
+  class getFeedTests {
+    List<Post> posts;
+
+    @BeforeEach
+    void setup() {
+      Instant now = Instant.now().truncatedTo(ChronoUnit.MICROS);
+      posts = new ArrayList<>();
+      for (int i = 0; i < 4; i++) {
+        posts.add(PostFixtures.createPost(UUID.randomUUID(), now.minusSeconds(i)));
+      }
+    }
+
+    private List<TimelineEntry> entries(List<Post> posts) {
+      return posts.stream()
+          .map(post -> new TimelineEntry(post.getId(), post.getCreatedAt()))
+          .toList();
+    }
+
+    private void stubHydration() {
+      when(postRepository.findAllById(any()))
+          .thenAnswer(
+              invocation -> {
+                List<UUID> ids = invocation.getArgument(0);
+                return posts.stream().filter(post -> ids.contains(post.getId())).toList();
+              });
+    }
+
+    @Test
+    void getFeed_hydratesThePostsReadFromTheTimelines() {
+      when(feedReader.read(viewerId, null, 3)).thenReturn(entries(posts.subList(0, 3)));
+      stubHydration();
+
+      PostConnection feed = postService.getFeed(viewerId, 2, null);
+
+      assertThat(feed.edges())
+          .extracting(edge -> edge.node().id())
+          .containsExactly(posts.get(0).getId(), posts.get(1).getId());
+      assertThat(feed.pageInfo().hasNextPage()).isTrue();
+      assertThat(feed.totalCount()).isNull();
+    }
+
+    @Test
+    void getFeed_afterCursor_readsFromTheCursorPost() {
+      TimeIdKey cursor = new TimeIdKey(posts.get(1).getCreatedAt(), posts.get(1).getId());
+      String after = ConnectionFixtures.getDefaultCursorCodec().encode(PostService.FEED, cursor);
+      when(feedReader.read(viewerId, cursor, 3)).thenReturn(entries(posts.subList(2, 4)));
+      stubHydration();
+
+      PostConnection feed = postService.getFeed(viewerId, 2, after);
+
+      assertThat(feed.edges())
+          .extracting(edge -> edge.node().id())
+          .containsExactly(posts.get(2).getId(), posts.get(3).getId());
+      assertThat(feed.pageInfo().hasNextPage()).isFalse();
+    }
+
+    @Test
+    void getFeed_deletedPost_isLeftOut() {
+      posts.get(1).setStatus(PostStatus.DELETED);
+      when(feedReader.read(viewerId, null, 3)).thenReturn(entries(posts.subList(0, 3)));
+      stubHydration();
+
+      PostConnection feed = postService.getFeed(viewerId, 2, null);
+
+      assertThat(feed.edges())
+          .extracting(edge -> edge.node().id())
+          .containsExactly(posts.get(0).getId());
+      assertThat(feed.pageInfo().hasNextPage()).isTrue();
+    }
+  }
+}
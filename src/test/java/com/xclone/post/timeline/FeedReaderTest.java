@@ -0,0 +1,192 @@
+package com.xclone.post.timeline;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+import com.xclone.common.connection.TimeIdKey;
+import com.xclone.config.TimelineProperties;
+import com.xclone.follow.cache.FollowingSetCache;
+import com.xclone.post.model.entity.Post;
+import com.xclone.post.repository.PostRepository;
+import com.xclone.support.fixtures.PostFixtures;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.RedisConnectionFailureException;
+
+@ExtendWith(MockitoExtension.class)
+public class FeedReaderTest {
+  @Mock TimelineStore timelineStore;
+  @Mock PostRepository postRepository;
+  @Mock FollowingSetCache followingSets;
+  @Mock HighFollowerAccounts highFollowerAccounts;
+
+  FeedReader feedReader;
+  UUID viewerId;
+  List<Post> posts;
+
+  @BeforeEach
+  void setup() {
+    TimelineProperties properties = new TimelineProperties();
+    properties.setMaxSize(800);
+    feedReader =
+        new FeedReader(
+            timelineStore,
+            postRepository,
+            followingSets,
+            highFollowerAccounts,
+            properties,
+            new SimpleMeterRegistry());
+    viewerId = UUID.randomUUID();
+    Instant now = Instant.now().truncatedTo(ChronoUnit.MICROS);
+    posts = new ArrayList<>();
+    for (int i = 0; i < 6; i++) {
+      posts.add(PostFixtures.createPost(UUID.randomUUID(), now.minusSeconds(i)));
+    }
+  }
+
+  private List<TimelineEntry> entries(List<Post> posts) {
+    return posts.stream()
+        .map(post -> new TimelineEntry(post.getId(), post.getCreatedAt()))
+        .toList();
+  }
+
+  private List<TimelineEntry> entries(int... indexes) {
+    return entries(Arrays.stream(indexes).mapToObj(posts::get).toList());
+  }
+
+  private TimelinePage page(boolean truncated, int... indexes) {
+    return new TimelinePage(entries(indexes), truncated);
+  }
+
+  @Nested
+  class homeTimelineTests {
+    @BeforeEach
+    void setup() {
+      when(highFollowerAccounts.mergedIds()).thenReturn(Set.of());
+    }
+
+    @Test
+    void read_returnsTheRedisTimeline() {
+      when(timelineStore.pages(viewerId, List.of(), null, 3))
+          .thenReturn(List.of(page(false, 0, 1, 2)));
+
+      assertThat(feedReader.read(viewerId, null, 3)).isEqualTo(entries(0, 1, 2));
+      verify(postRepository, never()).findTimelinePage(any(), any(), any(), anyInt());
+      verifyNoInteractions(followingSets);
+    }
+
+    @Test
+    void read_missingTimeline_rebuildsItFromTheDatabase() {
+      List<TimelinePage> missing = new ArrayList<>();
+      missing.add(null);
+      when(timelineStore.pages(viewerId, List.of(), null, 3))
+          .thenReturn(missing)
+          .thenReturn(List.of(page(false, 0, 1, 2)));
+      when(postRepository.findTimelinePage(
+              viewerId, TimeIdKey.LATEST.at(), TimeIdKey.LATEST.id(), 801))
+          .thenReturn(posts.stream().map(PostFixtures::row).toList());
+
+      assertThat(feedReader.read(viewerId, null, 3)).isEqualTo(entries(0, 1, 2));
+      InOrder order = inOrder(timelineStore, postRepository);
+      order.verify(timelineStore).create(viewerId);
+      order.verify(postRepository).findTimelinePage(any(), any(), any(), anyInt());
+      order.verify(timelineStore).push(List.of(viewerId), entries(posts));
+    }
+
+    @Test
+    void read_pastTheEndOfATruncatedTimeline_continuesInTheDatabase() {
+      when(timelineStore.pages(viewerId, List.of(), null, 3)).thenReturn(List.of(page(true, 0)));
+      Post last = posts.get(0);
+      when(postRepository.findTimelinePage(viewerId, last.getCreatedAt(), last.getId(), 2))
+          .thenReturn(posts.subList(1, 3).stream().map(PostFixtures::row).toList());
+
+      assertThat(feedReader.read(viewerId, null, 3)).isEqualTo(entries(0, 1, 2));
+    }
+
+    @Test
+    void read_endOfACompleteTimeline_doesNotQueryTheDatabase() {
+      when(timelineStore.pages(viewerId, List.of(), null, 3)).thenReturn(List.of(page(false, 0)));
+
+      assertThat(feedReader.read(viewerId, null, 3)).isEqualTo(entries(0));
+      verify(postRepository, never()).findTimelinePage(any(), any(), any(), anyInt());
+    }
+
+    @Test
+    void read_redisUnavailable_readsFromTheDatabase() {
+      when(timelineStore.pages(viewerId, List.of(), null, 3))
+          .thenThrow(new RedisConnectionFailureException("down"));
+      when(postRepository.findTimelinePage(
+              viewerId, TimeIdKey.LATEST.at(), TimeIdKey.LATEST.id(), 3))
+          .thenReturn(posts.subList(0, 3).stream().map(PostFixtures::row).toList());
+
+      assertThat(feedReader.read(viewerId, null, 3)).isEqualTo(entries(0, 1, 2));
+      verify(timelineStore, never()).create(any());
+    }
+  }
+
+  @Nested
+  class pulledAuthorTests {
+    UUID authorId;
+
+    @BeforeEach
+    void setup() {
+      authorId = UUID.randomUUID();
+      when(highFollowerAccounts.mergedIds()).thenReturn(Set.of(authorId, UUID.randomUUID()));
+      when(followingSets.followedAmong(eq(viewerId), any())).thenReturn(Set.of(authorId));
+    }
+
+    @Test
+    void read_mergesTheFollowedAuthorsTimeline() {
+      when(timelineStore.pages(viewerId, List.of(authorId), null, 4))
+          .thenReturn(List.of(page(false, 0, 2, 5), page(false, 1, 3, 4)));
+
+      assertThat(feedReader.read(viewerId, null, 4)).isEqualTo(entries(0, 1, 2, 3));
+    }
+
+    @Test
+    void read_postInBothTimelines_isReturnedOnce() {
+      when(timelineStore.pages(viewerId, List.of(authorId), null, 4))
+          .thenReturn(List.of(page(false, 0, 1, 3), page(false, 1, 2)));
+
+      assertThat(feedReader.read(viewerId, null, 4)).isEqualTo(entries(0, 1, 2, 3));
+    }
+
+    @Test
+    void read_missingAuthorTimeline_rebuildsItFromTheAuthorsPosts() {
+      List<TimelinePage> authorMissing = new ArrayList<>();
+      authorMissing.add(page(false, 0));
+      authorMissing.add(null);
+      when(timelineStore.pages(viewerId, List.of(authorId), null, 2))
+          .thenReturn(authorMissing)
+          .thenReturn(List.of(page(false, 0), page(false, 1)));
+      when(postRepository.findAuthorPage(
+              authorId, TimeIdKey.LATEST.at(), TimeIdKey.LATEST.id(), 801))
+          .thenReturn(List.of(PostFixtures.row(posts.get(1))));
+
+      assertThat(feedReader.read(viewerId, null, 2)).isEqualTo(entries(0, 1));
+      verify(timelineStore).createAuthor(authorId);
+      verify(timelineStore).pushAuthor(authorId, entries(1));
+      verify(timelineStore, never()).create(any());
+    }
+  }
+}
@@ -0,0 +1,143 @@
+package com.xclone.post.timeline;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+import com.xclone.config.TimelineProperties;
+import com.xclone.follow.repository.UserCountersRepository;
+import com.xclone.post.event.PullEndedEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.List;
+import java.util.UUID;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessResourceFailureException;
+
+@ExtendWith(MockitoExtension.class)
+public class HighFollowerAccountsTest {
+  @Mock UserCountersRepository countersRepository;
+  @Mock ApplicationEventPublisher eventPublisher;
+
+  TimelineProperties properties;
+  HighFollowerAccounts accounts;
+  UUID popular = UUID.randomUUID();
+
+  @BeforeEach
+  void setup() {
+    properties = new TimelineProperties();
+    accounts =
+        new HighFollowerAccounts(
+            countersRepository, properties, eventPublisher, new SimpleMeterRegistry());
+  }
+
+  @Test
+  void refresh_firstLoad_readsTheAccountsOverTheExitThreshold() {
+    when(countersRepository.findUserIdsWithFollowersAtLeast(8_000)).thenReturn(List.of(popular));
+
+    accounts.refresh();
+
+    assertThat(accounts.contains(popular)).isTrue();
+    assertThat(accounts.mergedIds()).containsExactly(popular);
+  }
+
+  @Test
+  void refresh_accountBetweenThresholds_entersOnlyOverTheEnterThreshold() {
+    UUID rising = UUID.randomUUID();
+    when(countersRepository.findUserIdsWithFollowersAtLeast(8_000))
+        .thenReturn(List.of())
+        .thenReturn(List.of(rising))
+        .thenReturn(List.of(rising));
+    when(countersRepository.findUserIdsWithFollowersAtLeast(10_000))
+        .thenReturn(List.of())
+        .thenReturn(List.of(rising));
+
+    accounts.refresh();
+    accounts.refresh();
+    assertThat(accounts.contains(rising)).isFalse();
+
+    accounts.refresh();
+    assertThat(accounts.contains(rising)).isTrue();
+  }
+
+  @Test
+  void refresh_accountBetweenThresholds_staysPulled() {
+    when(countersRepository.findUserIdsWithFollowersAtLeast(8_000)).thenReturn(List.of(popular));
+    when(countersRepository.findUserIdsWithFollowersAtLeast(10_000)).thenReturn(List.of());
+
+    accounts.refresh();
+    accounts.refresh();
+
+    assertThat(accounts.contains(popular)).isTrue();
+    verifyNoInteractions(eventPublisher);
+  }
+
+  @Test
+  void refresh_accountUnderTheExitThreshold_isDrainedUntilBackfilled() {
+    when(countersRepository.findUserIdsWithFollowersAtLeast(8_000))
+        .thenReturn(List.of(popular))
+        .thenReturn(List.of());
+    when(countersRepository.findUserIdsWithFollowersAtLeast(10_000)).thenReturn(List.of());
+
+    accounts.refresh();
+    accounts.refresh();
+
+    assertThat(accounts.contains(popular)).isFalse();
+    assertThat(accounts.mergedIds()).containsExactly(popular);
+    verify(eventPublisher).publishEvent(new PullEndedEvent(popular));
+
+    accounts.drained(popular);
+
+    assertThat(accounts.mergedIds()).isEmpty();
+  }
+
+  @Test
+  void drainFailed_requestsTheBackfillAgainOnTheNextRefresh() {
+    when(countersRepository.findUserIdsWithFollowersAtLeast(8_000))
+        .thenReturn(List.of(popular))
+        .thenReturn(List.of());
+    when(countersRepository.findUserIdsWithFollowersAtLeast(10_000)).thenReturn(List.of());
+
+    accounts.refresh();
+    accounts.refresh();
+    accounts.refresh();
+    verify(eventPublisher, times(1)).publishEvent(any(PullEndedEvent.class));
+
+    accounts.drainFailed(popular);
+    accounts.refresh();
+
+    verify(eventPublisher, times(2)).publishEvent(new PullEndedEvent(popular));
+    assertThat(accounts.mergedIds()).containsExactly(popular);
+  }
+
+  @Test
+  void refresh_databaseUnavailable_keepsTheLastSet() {
+    when(countersRepository.findUserIdsWithFollowersAtLeast(8_000))
+        .thenReturn(List.of(popular))
+        .thenThrow(new DataAccessResourceFailureException("down"));
+
+    accounts.refresh();
+    accounts.refresh();
+
+    assertThat(accounts.mergedIds()).containsExactly(popular);
+    verify(eventPublisher, never()).publishEvent(any());
+  }
+
+  @Test
+  void refresh_zeroThreshold_pullsNoAccounts() {
+    properties.setPullFollowerThreshold(0);
+
+    accounts.refresh();
+
+    assertThat(accounts.mergedIds()).isEmpty();
+    verifyNoInteractions(countersRepository);
+  }
+}
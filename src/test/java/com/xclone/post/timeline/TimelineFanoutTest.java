@@ -0,0 +1,312 @@
+package com.xclone.post.timeline;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+import com.xclone.common.connection.TimeIdKey;
+import com.xclone.config.TimelineProperties;
+import com.xclone.follow.event.FollowChangedEvent;
+import com.xclone.follow.repository.FollowRepository;
+import com.xclone.follow.repository.FollowRow;
+import com.xclone.post.event.PostCreatedEvent;
+import com.xclone.post.model.entity.Post;
+import com.xclone.post.repository.PostRepository;
+import com.xclone.support.fixtures.PostFixtures;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.data.redis.RedisConnectionFailureException;
+
+@ExtendWith(MockitoExtension.class)
+public class TimelineFanoutTest {
+  @Mock TimelineStore timelineStore;
+  @Mock FollowRepository followRepository;
+  @Mock PostRepository postRepository;
+  @Mock HighFollowerAccounts highFollowerAccounts;
+
+  TimelineFanout fanout;
+  UUID authorId;
+
+  @BeforeEach
+  void setup() {
+    TimelineProperties properties = new TimelineProperties();
+    properties.setFanoutBatchSize(2);
+    properties.setBackfillSize(10);
+    fanout =
+        new TimelineFanout(
+            timelineStore,
+            followRepository,
+            postRepository,
+            highFollowerAccounts,
+            properties,
+            new SimpleMeterRegistry(),
+            false);
+    authorId = UUID.randomUUID();
+  }
+
+  @AfterEach
+  void shutdown() throws InterruptedException {
+    fanout.shutdown();
+  }
+
+  private FollowRow follower(UUID userId, Instant createdAt) {
+    return new FollowRow() {
+      @Override
+      public UUID getUserId() {
+        return userId;
+      }
+
+      @Override
+      public Instant getCreatedAt() {
+        return createdAt;
+      }
+    };
+  }
+
+  @Nested
+  class fanOutTests {
+    @Test
+    void fanOut_pushesToTheAuthorAndEveryPageOfFollowers() {
+      Instant now = Instant.now();
+      List<FollowRow> followers = new ArrayList<>();
+      for (int i = 0; i < 3; i++) {
+        followers.add(follower(UUID.randomUUID(), now.minusSeconds(i)));
+      }
+      FollowRow lastOfFirstPage = followers.get(1);
+      when(followRepository.findFollowersPage(
+              authorId, TimeIdKey.LATEST.at(), TimeIdKey.LATEST.id(), 2))
+          .thenReturn(followers.subList(0, 2));
+      when(followRepository.findFollowersPage(
+              authorId, lastOfFirstPage.getCreatedAt(), lastOfFirstPage.getUserId(), 2))
+          .thenReturn(followers.subList(2, 3));
+      PostCreatedEvent event = new PostCreatedEvent(UUID.randomUUID(), authorId, now);
+      List<TimelineEntry> entry = List.of(new TimelineEntry(event.postId(), now));
+
+      fanout.fanOut(event);
+
+      verify(timelineStore).push(List.of(authorId), entry);
+      verify(timelineStore)
+          .push(List.of(followers.get(0).getUserId(), followers.get(1).getUserId()), entry);
+      verify(timelineStore).push(List.of(followers.get(2).getUserId()), entry);
+    }
+
+    @Test
+    void fanOut_redisUnavailable_continuesWithTheFollowers() {
+      UUID followerId = UUID.randomUUID();
+      when(followRepository.findFollowersPage(any(), any(), any(), eq(2)))
+          .thenReturn(List.of(follower(followerId, Instant.now())));
+      doThrow(new RedisConnectionFailureException("down"))
+          .doNothing()
+          .when(timelineStore)
+          .push(any(), any());
+
+      fanout.fanOut(new PostCreatedEvent(UUID.randomUUID(), authorId, Instant.now()));
+
+      verify(timelineStore).push(eq(List.of(authorId)), any());
+      verify(timelineStore).push(eq(List.of(followerId)), any());
+    }
+
+    @Test
+    void fanOut_highFollowerAuthor_writesOnlyTheAuthorsTimelines() {
+      when(highFollowerAccounts.contains(authorId)).thenReturn(true);
+      Instant now = Instant.now();
+      PostCreatedEvent event = new PostCreatedEvent(UUID.randomUUID(), authorId, now);
+      List<TimelineEntry> entry = List.of(new TimelineEntry(event.postId(), now));
+
+      fanout.fanOut(event);
+
+      verify(timelineStore).push(List.of(authorId), entry);
+      verify(timelineStore).pushAuthor(authorId, entry);
+      verifyNoInteractions(followRepository);
+    }
+  }
+
+  @Nested
+  class backfillFollowersTests {
+    @Test
+    void backfillFollowers_pushesTheNewestPostsToFollowersThenDrains() {
+      Post post = PostFixtures.createPost(authorId, Instant.now());
+      UUID followerId = UUID.randomUUID();
+      when(postRepository.findRecentByAuthor(authorId, 800))
+          .thenReturn(List.of(PostFixtures.row(post)));
+      when(followRepository.findFollowersPage(any(), any(), any(), eq(2)))
+          .thenReturn(List.of(follower(followerId, Instant.now())));
+
+      fanout.backfillFollowers(authorId);
+
+      verify(timelineStore)
+          .push(List.of(followerId), List.of(new TimelineEntry(post.getId(), post.getCreatedAt())));
+      verify(highFollowerAccounts).drained(authorId);
+    }
+
+    @Test
+    void backfillFollowers_databaseUnavailable_keepsDraining() {
+      when(postRepository.findRecentByAuthor(authorId, 800))
+          .thenThrow(new DataAccessResourceFailureException("down"));
+
+      fanout.backfillFollowers(authorId);
+
+      verify(highFollowerAccounts).drainFailed(authorId);
+      verify(highFollowerAccounts, never()).drained(any());
+      verifyNoInteractions(timelineStore);
+    }
+  }
+
+  @Nested
+  class applyFollowChangeTests {
+    UUID followerId;
+    Post post;
+
+    @BeforeEach
+    void setup() {
+      followerId = UUID.randomUUID();
+      post = PostFixtures.createPost(authorId, Instant.now());
+    }
+
+    private void followExists(boolean exists) {
+      when(followRepository.findFollowedAmong(followerId, List.of(authorId)))
+          .thenReturn(exists ? List.of(authorId) : List.of());
+    }
+
+    @Test
+    void applyFollowChange_follow_backfillsTheFollowedAccountsPosts() {
+      followExists(true);
+      when(postRepository.findRecentByAuthor(authorId, 10))
+          .thenReturn(List.of(PostFixtures.row(post)));
+
+      fanout.applyFollowChange(new FollowChangedEvent(followerId, authorId, true));
+
+      verify(timelineStore)
+          .push(List.of(followerId), List.of(new TimelineEntry(post.getId(), post.getCreatedAt())));
+    }
+
+    @Test
+    void applyFollowChange_followHighFollowerAccount_doesNotBackfill() {
+      followExists(true);
+      when(highFollowerAccounts.contains(authorId)).thenReturn(true);
+
+      fanout.applyFollowChange(new FollowChangedEvent(followerId, authorId, true));
+
+      verifyNoInteractions(postRepository, timelineStore);
+    }
+
+    @Test
+    void applyFollowChange_unfollow_removesTheUnfollowedAccountsPosts() {
+      followExists(false);
+      when(postRepository.findRecentByAuthor(authorId, 800))
+          .thenReturn(List.of(PostFixtures.row(post)));
+
+      fanout.applyFollowChange(new FollowChangedEvent(followerId, authorId, false));
+
+      verify(timelineStore).remove(followerId, List.of(post.getId()));
+    }
+
+    @Test
+    void applyFollowChange_followUndoneBeforeItRuns_removesThePostsInstead() {
+      followExists(false);
+      when(postRepository.findRecentByAuthor(authorId, 800))
+          .thenReturn(List.of(PostFixtures.row(post)));
+
+      fanout.applyFollowChange(new FollowChangedEvent(followerId, authorId, true));
+
+      verify(timelineStore).remove(followerId, List.of(post.getId()));
+      verify(timelineStore, never()).push(anyList(), anyList());
+    }
+
+    @Test
+    void applyFollowChange_databaseUnavailable_skipsTheTimeline() {
+      when(followRepository.findFollowedAmong(followerId, List.of(authorId)))
+          .thenThrow(new DataAccessResourceFailureException("down"));
+
+      fanout.applyFollowChange(new FollowChangedEvent(followerId, authorId, true));
+
+      verifyNoInteractions(timelineStore);
+    }
+
+    @Test
+    void onFollowChanged_queuesTheChangeOnTheFanoutPool() {
+      followExists(true);
+      when(postRepository.findRecentByAuthor(authorId, 10))
+          .thenReturn(List.of(PostFixtures.row(post)));
+
+      fanout.onFollowChanged(new FollowChangedEvent(followerId, authorId, true));
+
+      verify(timelineStore, timeout(1000)).push(eq(List.of(followerId)), anyList());
+    }
+  }
+
+  @Nested
+  class retryRejectedTests {
+    CountDownLatch release;
+
+    @BeforeEach
+    void setup() throws InterruptedException {
+      fanout.shutdown();
+      TimelineProperties properties = new TimelineProperties();
+      properties.setFanoutThreads(1);
+      properties.setFanoutQueueCapacity(1);
+      properties.setFanoutRetryCapacity(1);
+      fanout =
+          new TimelineFanout(
+              timelineStore,
+              followRepository,
+              postRepository,
+              highFollowerAccounts,
+              properties,
+              new SimpleMeterRegistry(),
+              false);
+      release = new CountDownLatch(1);
+      when(highFollowerAccounts.contains(any())).thenReturn(true);
+    }
+
+    private PostCreatedEvent post(UUID authorId) {
+      return new PostCreatedEvent(UUID.randomUUID(), authorId, Instant.now());
+    }
+
+    @Test
+    void onPostCreated_poolSaturated_setsTheFanoutAsideAndRetriesItLater() {
+      UUID blocking = UUID.randomUUID();
+      UUID queued = UUID.randomUUID();
+      UUID setAside = UUID.randomUUID();
+      UUID dropped = UUID.randomUUID();
+      doAnswer(
+              invocation -> {
+                release.await();
+                return null;
+              })
+          .when(timelineStore)
+          .push(eq(List.of(blocking)), anyList());
+
+      fanout.onPostCreated(post(blocking));
+      fanout.onPostCreated(post(queued));
+      fanout.onPostCreated(post(setAside));
+      fanout.onPostCreated(post(dropped));
+
+      verify(timelineStore, never()).push(eq(List.of(setAside)), anyList());
+      release.countDown();
+      verify(timelineStore, timeout(1000)).push(eq(List.of(queued)), anyList());
+      fanout.retryRejected();
+      verify(timelineStore, timeout(1000)).push(eq(List.of(setAside)), anyList());
+      verify(timelineStore, never()).push(eq(List.of(dropped)), anyList());
+    }
+  }
+}
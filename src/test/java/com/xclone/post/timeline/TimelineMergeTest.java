@@ -0,0 +1,57 @@
+package com.xclone.post.timeline;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+import org.junit.jupiter.api.Test;
+
+public class TimelineMergeTest {
+  static final Instant NOW = Instant.parse("2026-01-01T00:00:00Z");
+
+  private static TimelineEntry entry(int secondsAgo) {
+    return new TimelineEntry(new UUID(0, secondsAgo), NOW.minusSeconds(secondsAgo));
+  }
+
+  @Test
+  void merge_interleavesTimelinesNewestFirst() {
+    List<TimelineEntry> merged =
+        TimelineMerge.merge(
+            List.of(
+                List.of(entry(1), entry(4), entry(7)),
+                List.of(entry(2), entry(5)),
+                List.of(entry(3), entry(6))),
+            10);
+
+    assertThat(merged)
+        .containsExactly(entry(1), entry(2), entry(3), entry(4), entry(5), entry(6), entry(7));
+  }
+
+  @Test
+  void merge_stopsAtTheLimit() {
+    List<TimelineEntry> merged =
+        TimelineMerge.merge(List.of(List.of(entry(1), entry(3)), List.of(entry(2), entry(4))), 3);
+
+    assertThat(merged).containsExactly(entry(1), entry(2), entry(3));
+  }
+
+  @Test
+  void merge_postInSeveralTimelines_isKeptOnce() {
+    List<TimelineEntry> merged =
+        TimelineMerge.merge(
+            List.of(List.of(entry(1), entry(2)), List.of(entry(2), entry(3)), List.of()), 10);
+
+    assertThat(merged).containsExactly(entry(1), entry(2), entry(3));
+  }
+
+  @Test
+  void merge_sameCreationTime_ordersIdsAsUnsignedBytesDescending() {
+    TimelineEntry high = new TimelineEntry(new UUID(-1L, 0), NOW);
+    TimelineEntry low = new TimelineEntry(new UUID(1L, 0), NOW);
+
+    List<TimelineEntry> merged = TimelineMerge.merge(List.of(List.of(low), List.of(high)), 10);
+
+    assertThat(merged).containsExactly(high, low);
+  }
+}
@@ -0,0 +1,132 @@
+package com.xclone.security.jwt;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.xclone.config.AuthProperties;
+import com.xclone.config.CacheProperties;
+import com.xclone.config.JwtProperties;
+import com.xclone.security.revocation.SecurityEpochStore;
+import com.xclone.support.fixtures.UserFixtures;
+import com.xclone.user.model.entity.User;
+import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.Optional;
+import java.util.UUID;
+import javax.crypto.SecretKey;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class JwtTokenProviderTest {
+  SecretKey signingKey =
+      Keys.hmacShaKeyFor("DLAFZBVVg4tKQcYcM5MqPZjasrFBVUnk".getBytes(StandardCharsets.UTF_8));
+  SimpleMeterRegistry meterRegistry;
+  AuthProperties authProperties;
+  JwtProperties jwtProperties;
+  SecurityEpochStore securityEpochStore;
+  JwtTokenProvider jwtTokenProvider;
+
+  String userId = UUID.randomUUID().toString();
+
+  @BeforeEach
+  void setUp() {
+    meterRegistry = new SimpleMeterRegistry();
+    jwtProperties = new JwtProperties();
+    jwtProperties.setIssuer("x-clone");
+    authProperties = new AuthProperties();
+    securityEpochStore = mock(SecurityEpochStore.class);
+    jwtTokenProvider =
+        new JwtTokenProvider(
+            signingKey,
+            authProperties,
+            jwtProperties,
+            securityEpochStore,
+            new CacheProperties(),
+            meterRegistry);
+  }
+
+  private double cacheHits() {
+    return meterRegistry.counter("cache.gets", "cache", "verified-token", "result", "hit").count();
+  }
+
+  @Test
+  void verify_validToken_returnsClaims() {
+    String token = jwtTokenProvider.createToken(userId, "USER");
+
+    Optional<AccessTokenClaims> claims = jwtTokenProvider.verify(token);
+
+    assertThat(claims).isPresent();
+    assertThat(claims.get().userId()).isEqualTo(userId);
+    assertThat(claims.get().role()).isEqualTo("USER");
+  }
+
+  @Test
+  void verify_repeatedToken_isServedFromCache() {
+    String token = jwtTokenProvider.createToken(userId, "USER");
+
+    jwtTokenProvider.verify(token);
+    Optional<AccessTokenClaims> claims = jwtTokenProvider.verify(token);
+
+    assertThat(claims).isPresent();
+    assertThat(cacheHits()).isEqualTo(1);
+  }
+
+  @Test
+  void verify_expiredToken_returnsEmpty() {
+    Date expired = new Date(System.currentTimeMillis() - 60_000);
+    String token = jwtTokenProvider.createToken(userId, "USER", expired, expired);
+
+    assertThat(jwtTokenProvider.verify(token)).isEmpty();
+  }
+
+  @Test
+  void verify_tamperedSignature_returnsEmpty() {
+    String token = jwtTokenProvider.createToken(userId, "USER");
+    String tampered = token.substring(0, token.length() - 2) + "xx";
+
+    assertThat(jwtTokenProvider.verify(tampered)).isEmpty();
+  }
+
+  @Test
+  void verify_foreignIssuer_returnsEmpty() {
+    String token = jwtTokenProvider.createToken(userId, "USER");
+    jwtProperties.setIssuer("another-issuer");
+
+    assertThat(jwtTokenProvider.verify(token)).isEmpty();
+  }
+
+  @Test
+  void verify_missingToken_returnsEmpty() {
+    assertThat(jwtTokenProvider.verify(null)).isEmpty();
+  }
+
+  @Test
+  void createToken_statefulMode_isNotSelfContained() {
+    User user = UserFixtures.getDefaultUserWithRandomId();
+
+    Optional<AccessTokenClaims> claims =
+        jwtTokenProvider.verify(jwtTokenProvider.createToken(user));
+
+    assertThat(claims).isPresent();
+    assertThat(claims.get().isSelfContained()).isFalse();
+  }
+
+  @Test
+  void createToken_statelessMode_embedsPrincipalClaims() {
+    authProperties.setStatelessPrincipal(true);
+    User user = UserFixtures.getDefaultUserWithRandomId();
+    when(securityEpochStore.issueEpoch(user.getId())).thenReturn(3L);
+
+    Optional<AccessTokenClaims> claims =
+        jwtTokenProvider.verify(jwtTokenProvider.createToken(user));
+
+    assertThat(claims).isPresent();
+    assertThat(claims.get().isSelfContained()).isTrue();
+    assertThat(claims.get().handle()).isEqualTo(user.getHandle());
+    assertThat(claims.get().status()).isEqualTo(user.getStatus().toString());
+    assertThat(claims.get().epoch()).isEqualTo(3L);
+  }
+}
@@ -0,0 +1,33 @@
+package com.xclone.security.password;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import org.junit.jupiter.api.Test;
+
+public class BcryptCostCalibratorTest {
+  private static final long MS = 1_000_000L;
+
+  @Test
+  void costWithin_extrapolatesFromProbe() {
+    // Probe cost 6 takes 1 ms, so cost 11 takes 32 ms and cost 12 takes 64 ms
+    assertThat(BcryptCostCalibrator.costWithin(50 * MS, MS, 4)).isEqualTo(11);
+  }
+
+  @Test
+  void costWithin_slowHardware_neverGoesBelowFloor() {
+    assertThat(BcryptCostCalibrator.costWithin(50 * MS, 40 * MS, 10)).isEqualTo(10);
+  }
+
+  @Test
+  void costWithin_isCappedAtMaximum() {
+    assertThat(BcryptCostCalibrator.costWithin(Long.MAX_VALUE / 2, 1, 4)).isEqualTo(31);
+  }
+
+  @Test
+  void calibrate_returnsSupportedCost() {
+    PasswordHashCost cost = BcryptCostCalibrator.calibrate(Duration.ofMillis(5), 4);
+
+    assertThat(cost.value()).isBetween(4, 31);
+  }
+}
@@ -0,0 +1,96 @@
+package com.xclone.security.password;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.xclone.config.AuthProperties;
+import com.xclone.exception.custom.HashingCapacityExceededException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+public class PasswordHasherTest {
+  SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+  CountDownLatch started = new CountDownLatch(1);
+  CountDownLatch release = new CountDownLatch(1);
+  PasswordHasher passwordHasher;
+
+  /** Encoder that blocks until released, so the pool can be saturated deterministically. */
+  PasswordEncoder blockingEncoder =
+      new PasswordEncoder() {
+        @Override
+        public String encode(CharSequence rawPassword) {
+          started.countDown();
+          try {
+            release.await(5, TimeUnit.SECONDS);
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          }
+          return "hash:" + rawPassword;
+        }
+
+        @Override
+        public boolean matches(CharSequence rawPassword, String encodedPassword) {
+          return encodedPassword.equals("hash:" + rawPassword);
+        }
+      };
+
+  private PasswordHasher hasher(int threads, int queueCapacity) {
+    AuthProperties authProperties = new AuthProperties();
+    authProperties.setPasswordHashThreads(threads);
+    authProperties.setPasswordHashQueueCapacity(queueCapacity);
+    return new PasswordHasher(
+        blockingEncoder, new PasswordHashCost(10), authProperties, meterRegistry);
+  }
+
+  @AfterEach
+  void tearDown() {
+    release.countDown();
+    passwordHasher.shutdown();
+  }
+
+  @Test
+  void matches_runsOnPool_andRecordsLatency() {
+    passwordHasher = hasher(1, 1);
+
+    assertThat(passwordHasher.matches("password", "hash:password")).isTrue();
+    assertThat(passwordHasher.matches("password", "hash:other")).isFalse();
+    assertThat(meterRegistry.timer("password.hash.duration", "operation", "match").count())
+        .isEqualTo(2);
+  }
+
+  @Test
+  void encode_saturatedPool_rejectsImmediately() throws Exception {
+    passwordHasher = hasher(1, 1);
+    CompletableFuture<String> running =
+        CompletableFuture.supplyAsync(() -> passwordHasher.encode("a"));
+    assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+    CompletableFuture<String> queued =
+        CompletableFuture.supplyAsync(() -> passwordHasher.encode("b"));
+    while (meterRegistry.get("password.hash.queue.depth").gauge().value() < 1) {
+      Thread.onSpinWait();
+    }
+
+    assertThatThrownBy(() -> passwordHasher.encode("c"))
+        .isInstanceOf(HashingCapacityExceededException.class);
+    assertThat(meterRegistry.counter("password.hash.rejected").count()).isEqualTo(1);
+
+    release.countDown();
+    assertThat(running.get(5, TimeUnit.SECONDS)).isEqualTo("hash:a");
+    assertThat(queued.get(5, TimeUnit.SECONDS)).isEqualTo("hash:b");
+  }
+
+  @Test
+  void needsRehash_onlyForBcryptHashesOfAnotherCost() {
+    passwordHasher = hasher(1, 1);
+
+    assertThat(passwordHasher.needsRehash("$2a$10$abcdefghijklmnopqrstuv")).isFalse();
+    assertThat(passwordHasher.needsRehash("$2a$08$abcdefghijklmnopqrstuv")).isTrue();
+    assertThat(passwordHasher.needsRehash("$2a$12$abcdefghijklmnopqrstuv")).isTrue();
+    assertThat(passwordHasher.needsRehash("hashedPassword")).isFalse();
+  }
+}
@@ -0,0 +1,72 @@
+package com.xclone.security.password;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+
+@ExtendWith(MockitoExtension.class)
+public class SharedPasswordHashCostTest {
+  @Mock StringRedisTemplate redisTemplate;
+  @Mock ValueOperations<String, String> valueOperations;
+
+  int calibrations;
+
+  @BeforeEach
+  void setup() {
+    calibrations = 0;
+  }
+
+  private PasswordHashCost calibrate() {
+    calibrations++;
+    return new PasswordHashCost(12);
+  }
+
+  @Test
+  void resolve_costStored_adoptsItWithoutCalibrating() {
+    when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+    when(valueOperations.get(SharedPasswordHashCost.COST_KEY)).thenReturn("10");
+
+    assertThat(SharedPasswordHashCost.resolve(redisTemplate, this::calibrate))
+        .isEqualTo(new PasswordHashCost(10));
+    assertThat(calibrations).isZero();
+  }
+
+  @Test
+  void resolve_firstNode_storesItsCalibration() {
+    when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+    when(valueOperations.setIfAbsent(SharedPasswordHashCost.COST_KEY, "12")).thenReturn(true);
+
+    assertThat(SharedPasswordHashCost.resolve(redisTemplate, this::calibrate))
+        .isEqualTo(new PasswordHashCost(12));
+  }
+
+  @Test
+  void resolve_otherNodeStoredFirst_adoptsTheirs() {
+    when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+    when(valueOperations.get(SharedPasswordHashCost.COST_KEY)).thenReturn(null, "11");
+    when(valueOperations.setIfAbsent(SharedPasswordHashCost.COST_KEY, "12")).thenReturn(false);
+
+    assertThat(SharedPasswordHashCost.resolve(redisTemplate, this::calibrate))
+        .isEqualTo(new PasswordHashCost(11));
+  }
+
+  @Test
+  void resolve_redisDown_calibratesLocally() {
+    when(redisTemplate.opsForValue()).thenThrow(new RedisConnectionFailureException("down"));
+
+    assertThat(SharedPasswordHashCost.resolve(redisTemplate, this::calibrate))
+        .isEqualTo(new PasswordHashCost(12));
+    assertThat(calibrations).isEqualTo(1);
+    verify(valueOperations, never()).setIfAbsent(SharedPasswordHashCost.COST_KEY, "12");
+  }
+}
@@ -0,0 +1,125 @@
+package com.xclone.security.revocation;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.xclone.config.AuthProperties;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+@ExtendWith(MockitoExtension.class)
+class SecurityEpochStoreTest {
+  @Mock StringRedisTemplate redisTemplate;
+  @Mock HashOperations<String, Object, Object> hashOperations;
+  @Mock ValueOperations<String, String> valueOperations;
+  @Mock RedisMessageListenerContainer listenerContainer;
+
+  SecurityEpochStore store;
+  UUID userId = UUID.randomUUID();
+
+  @BeforeEach
+  void setUp() {
+    AuthProperties authProperties = new AuthProperties();
+    authProperties.setStatelessPrincipal(true);
+    store = new SecurityEpochStore(redisTemplate, listenerContainer, authProperties);
+  }
+
+  private void loadAll(String sequence, Map<Object, Object> epochs) {
+    when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+    when(valueOperations.get(SecurityEpochStore.SEQUENCE_KEY)).thenReturn(sequence);
+    when(redisTemplate.opsForHash()).thenReturn(hashOperations);
+    when(hashOperations.entries(SecurityEpochStore.EPOCHS_KEY)).thenReturn(epochs);
+  }
+
+  @SuppressWarnings("unchecked")
+  private void changedSince(String sequence, List<String> result) {
+    when(redisTemplate.execute(any(RedisScript.class), anyList(), eq(sequence))).thenReturn(result);
+  }
+
+  @Test
+  void issueEpoch_readsRedisAheadOfMirror() {
+    when(redisTemplate.opsForHash()).thenReturn(hashOperations);
+    when(hashOperations.get(SecurityEpochStore.EPOCHS_KEY, userId.toString())).thenReturn("4");
+
+    assertThat(store.issueEpoch(userId)).isEqualTo(4);
+    assertThat(store.currentEpoch(userId)).isEqualTo(4);
+  }
+
+  @Test
+  void issueEpoch_redisDown_fallsBackToMirror() {
+    when(redisTemplate.opsForHash()).thenThrow(new RedisConnectionFailureException("down"));
+
+    assertThat(store.issueEpoch(userId)).isZero();
+  }
+
+  @Test
+  void subscribe_redisDown_startsAndLoadsOnNextResync() {
+    when(redisTemplate.opsForValue()).thenThrow(new RedisConnectionFailureException("down"));
+
+    store.subscribe();
+
+    assertThat(store.currentEpoch(userId)).isZero();
+    loadAll("7", Map.of(userId.toString(), "2"));
+
+    store.resync();
+
+    assertThat(store.currentEpoch(userId)).isEqualTo(2);
+  }
+
+  @Test
+  void resync_afterFullLoad_readsOnlyUsersChangedSince() {
+    UUID bumped = UUID.randomUUID();
+    loadAll("7", Map.of(userId.toString(), "2"));
+    store.resync();
+    changedSince("7", List.of("9", bumped.toString(), "3"));
+
+    store.resync();
+
+    assertThat(store.currentEpoch(bumped)).isEqualTo(3);
+    assertThat(store.currentEpoch(userId)).isEqualTo(2);
+    verify(hashOperations).entries(SecurityEpochStore.EPOCHS_KEY);
+  }
+
+  @Test
+  void resync_sequenceWentBackwards_reloadsEverything() {
+    loadAll("7", Map.of());
+    store.resync();
+    changedSince("7", List.of("1"));
+    when(valueOperations.get(SecurityEpochStore.SEQUENCE_KEY)).thenReturn("1");
+    when(hashOperations.entries(SecurityEpochStore.EPOCHS_KEY))
+        .thenReturn(Map.of(userId.toString(), "5"));
+
+    store.resync();
+
+    assertThat(store.currentEpoch(userId)).isEqualTo(5);
+  }
+
+  @Test
+  void resync_disabled_readsNothing() {
+    store = new SecurityEpochStore(redisTemplate, listenerContainer, new AuthProperties());
+
+    store.resync();
+
+    verify(redisTemplate, never()).opsForHash();
+    verify(redisTemplate, never()).opsForValue();
+    verify(redisTemplate, never()).execute(any(RedisScript.class), anyList(), anyString());
+  }
+}
@@ -0,0 +1,109 @@
+package com.xclone.security.throttle;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatNoException;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.xclone.config.AuthProperties;
+import com.xclone.config.CacheProperties;
+import com.xclone.exception.custom.TooManyLoginAttemptsException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+
+@ExtendWith(MockitoExtension.class)
+public class LoginThrottleTest {
+  @Mock StringRedisTemplate redisTemplate;
+
+  SimpleMeterRegistry meterRegistry;
+  LoginThrottle loginThrottle;
+
+  @BeforeEach
+  void setUp() {
+    meterRegistry = new SimpleMeterRegistry();
+    loginThrottle =
+        new LoginThrottle(
+            redisTemplate, new AuthProperties(), new CacheProperties(), meterRegistry);
+  }
+
+  @SuppressWarnings("unchecked")
+  private void redisReturns(List<Long> retryAfterMillis) {
+    when(redisTemplate.execute(any(RedisScript.class), anyList(), any(Object[].class)))
+        .thenReturn(retryAfterMillis);
+  }
+
+  private double attempts(String result, String source) {
+    return meterRegistry.counter("auth.login.attempts", "result", result, "source", source).count();
+  }
+
+  @Test
+  void acquire_withinLimits_isAdmitted() {
+    redisReturns(List.of(0L, 0L));
+
+    assertThatNoException().isThrownBy(() -> loginThrottle.acquire("handle", "10.0.0.1"));
+    assertThat(attempts("admitted", "redis")).isEqualTo(1);
+  }
+
+  @Test
+  void acquire_overLimit_isRejectedThenBlockedLocally() {
+    redisReturns(List.of(30_000L, 0L));
+
+    assertThatThrownBy(() -> loginThrottle.acquire("handle", "10.0.0.1"))
+        .isInstanceOf(TooManyLoginAttemptsException.class)
+        .extracting("retryAfterSeconds")
+        .isEqualTo(30L);
+    assertThatThrownBy(() -> loginThrottle.acquire("handle", "10.0.0.1"))
+        .isInstanceOf(TooManyLoginAttemptsException.class);
+
+    verify(redisTemplate, times(1)).execute(any(RedisScript.class), anyList(), any(Object[].class));
+    assertThat(attempts("rejected", "redis")).isEqualTo(1);
+    assertThat(attempts("rejected", "local")).isEqualTo(1);
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  void acquire_exhaustedHandleFromOneIp_doesNotBlockTheHandleFromOtherIps() {
+    redisReturns(List.of(30_000L, 0L));
+    assertThatThrownBy(() -> loginThrottle.acquire("handle", "10.0.0.1"))
+        .isInstanceOf(TooManyLoginAttemptsException.class);
+
+    redisReturns(List.of(0L, 0L));
+    assertThatNoException().isThrownBy(() -> loginThrottle.acquire("handle", "10.0.0.2"));
+    verify(redisTemplate)
+        .execute(
+            any(RedisScript.class),
+            eq(List.of("login_attempts:{10.0.0.2}:handle:handle", "login_attempts:{10.0.0.2}")),
+            any(Object[].class));
+  }
+
+  @Test
+  void acquire_exhaustedHandle_doesNotBlockIpLocally() {
+    redisReturns(List.of(30_000L, 0L));
+    assertThatThrownBy(() -> loginThrottle.acquire("handle", "10.0.0.1"))
+        .isInstanceOf(TooManyLoginAttemptsException.class);
+
+    redisReturns(List.of(0L, 0L));
+    assertThatNoException().isThrownBy(() -> loginThrottle.acquire("other", "10.0.0.1"));
+  }
+
+  @Test
+  void acquire_redisUnavailable_failsOpen() {
+    when(redisTemplate.execute(any(RedisScript.class), anyList(), any(Object[].class)))
+        .thenThrow(new RedisConnectionFailureException("down"));
+
+    assertThatNoException().isThrownBy(() -> loginThrottle.acquire("handle", "10.0.0.1"));
+  }
+}
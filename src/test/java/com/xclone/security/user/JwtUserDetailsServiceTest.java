@@ -0,0 +1,72 @@
+package com.xclone.security.user;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.xclone.config.AuthProperties;
+import com.xclone.config.CacheProperties;
+import com.xclone.security.jwt.AccessTokenClaims;
+import com.xclone.security.revocation.SecurityEpochStore;
+import com.xclone.user.model.enums.UserRole;
+import com.xclone.user.repository.UserRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Instant;
+import java.util.UUID;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+public class JwtUserDetailsServiceTest {
+  @Mock UserRepository userRepository;
+  @Mock SecurityEpochStore securityEpochStore;
+
+  JwtUserDetailsService jwtUserDetailsService;
+  UUID userId = UUID.randomUUID();
+
+  @BeforeEach
+  void setUp() {
+    AuthProperties authProperties = new AuthProperties();
+    authProperties.setStatelessPrincipal(true);
+    jwtUserDetailsService =
+        new JwtUserDetailsService(
+            userRepository,
+            authProperties,
+            securityEpochStore,
+            new CacheProperties(),
+            new SimpleMeterRegistry());
+  }
+
+  private AccessTokenClaims claimsWithEpoch(long epoch) {
+    return new AccessTokenClaims(
+        userId.toString(), "USER", Instant.now().plusSeconds(60), "handle", "ACTIVE", epoch);
+  }
+
+  @Test
+  void getPrincipal_currentEpoch_buildsPrincipalWithoutDatabase() {
+    when(securityEpochStore.currentEpoch(userId)).thenReturn(2L);
+
+    CustomUserDetails principal = jwtUserDetailsService.getPrincipal(claimsWithEpoch(2));
+
+    assertThat(principal).isNotNull();
+    assertThat(principal.getId()).isEqualTo(userId);
+    assertThat(principal.getHandle()).isEqualTo("handle");
+    assertThat(principal.getUser()).isNull();
+    assertThat(principal.getAuthorities())
+        .extracting(Object::toString)
+        .containsExactly("ROLE_" + UserRole.USER);
+    verify(userRepository, never()).findById(userId);
+  }
+
+  @Test
+  void getPrincipal_revokedEpoch_returnsNull() {
+    when(securityEpochStore.currentEpoch(userId)).thenReturn(3L);
+
+    assertThat(jwtUserDetailsService.getPrincipal(claimsWithEpoch(2))).isNull();
+    verify(userRepository, never()).findById(userId);
+  }
+}
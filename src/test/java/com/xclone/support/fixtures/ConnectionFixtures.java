@@ -0,0 +1,31 @@
+package com.xclone.support.fixtures;
+
+import com.xclone.common.connection.CursorCodec;
+import com.xclone.common.connection.KeysetPaginator;
+import com.xclone.common.connection.TotalCounter;
+import com.xclone.config.CacheProperties;
+import com.xclone.config.ConnectionProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class ConnectionFixtures {
+  public static final String CURSOR_SECRET = "test-cursor-secret";
+
+  public static ConnectionProperties getDefaultConnectionProperties() {
+    ConnectionProperties properties = new ConnectionProperties();
+    properties.setCursorSecret(CURSOR_SECRET);
+    return properties;
+  }
+
+  public static CursorCodec getDefaultCursorCodec() {
+    return new CursorCodec(getDefaultConnectionProperties());
+  }
+
+  public static KeysetPaginator getDefaultPaginator() {
+    return new KeysetPaginator(getDefaultCursorCodec(), getDefaultConnectionProperties());
+  }
+
+  public static TotalCounter getDefaultTotalCounter() {
+    return new TotalCounter(
+        getDefaultConnectionProperties(), new CacheProperties(), new SimpleMeterRegistry());
+  }
+}
@@ -0,0 +1,38 @@
+package com.xclone.support.fixtures;
+
+import com.xclone.post.model.entity.Post;
+import com.xclone.post.model.enums.PostStatus;
+import com.xclone.post.repository.PostRow;
+import java.time.Instant;
+import java.util.UUID;
+
+public class PostFixtures {
+
+  public static Post createPost(UUID authorId, Instant createdAt) {
+    Post post = new Post();
+    post.setId(UUID.randomUUID());
+    post.setAuthorId(authorId);
+    post.setMessageContent("hello world");
+    post.setStatus(PostStatus.ACTIVE);
+    post.setCreatedAt(createdAt);
+    return post;
+  }
+
+  public static PostRow row(Post post) {
+    return row(post.getId(), post.getCreatedAt());
+  }
+
+  public static PostRow row(UUID id, Instant createdAt) {
+    return new PostRow() {
+      @Override
+      public UUID getId() {
+        return id;
+      }
+
+      @Override
+      public Instant getCreatedAt() {
+        return createdAt;
+      }
+    };
+  }
+}
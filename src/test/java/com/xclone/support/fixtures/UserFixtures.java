@@ -1,8 +1,9 @@
 package com.xclone.support.fixtures;
 
+import com.xclone.common.connection.PageInfo;
 import com.xclone.user.dto.connection.UserConnection;
+import com.xclone.user.dto.connection.UserEdge;
 import com.xclone.user.model.entity.User;
-import com.xclone.user.service.UserService;
 import java.time.Instant;
 import java.util.List;
 import java.util.UUID;
@@ -55,6 +56,12 @@ public class UserFixtures {
                   return user;
                 })
             .toList();
-    return UserService.toUserConnection(generatedUsers);
+    List<UserEdge> edges =
+        generatedUsers.stream()
+            .map(user -> new UserEdge(user.toUserProfile(), user.getId().toString()))
+            .toList();
+    PageInfo pageInfo =
+        new PageInfo(false, false, edges.getFirst().cursor(), edges.getLast().cursor());
+    return new UserConnection(edges, pageInfo, edges.size());
   }
 }
@@ -0,0 +1,256 @@
+package com.xclone.user.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.xclone.config.CacheProperties;
+import com.xclone.user.dto.UserProfile;
+import com.xclone.user.event.UserChangedEvent;
+import com.xclone.user.event.UserChangedEvent.ChangeType;
+import com.xclone.user.repository.UserRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisScriptingCommands;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+public class UserProfileCacheTest {
+  @Mock UserRepository userRepository;
+  @Mock RedisTemplate<byte[], byte[]> redisTemplate;
+  @Mock ValueOperations<byte[], byte[]> valueOperations;
+  @Mock RedisMessageListenerContainer listenerContainer;
+
+  SimpleMeterRegistry meterRegistry;
+  UserProfileCache cache;
+  UserProfile profile;
+
+  @BeforeEach
+  void setUp() {
+    meterRegistry = new SimpleMeterRegistry();
+    when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+    cache =
+        new UserProfileCache(
+            userRepository, redisTemplate, listenerContainer, new CacheProperties(), meterRegistry);
+    profile = profile(UUID.randomUUID(), "exampleHandle");
+  }
+
+  private static UserProfile profile(UUID id, String handle) {
+    return new UserProfile(
+        id, handle, "Example", null, null, Instant.parse("2026-01-01T00:00:00Z"), null, 0);
+  }
+
+  /** Stubs the shared profiles read, followed by absent generations for each of them. */
+  private void sharedReturns(byte[]... values) {
+    List<byte[]> entries = new ArrayList<>(Arrays.asList(values));
+    entries.addAll(Collections.nCopies(values.length, null));
+    when(valueOperations.multiGet(anyList())).thenReturn(entries);
+  }
+
+  /** Runs the pipelined shared write and returns the scripting commands it issued. */
+  @SuppressWarnings("unchecked")
+  private RedisScriptingCommands sharedWrite() {
+    ArgumentCaptor<RedisCallback<Object>> callback = ArgumentCaptor.forClass(RedisCallback.class);
+    verify(redisTemplate).executePipelined(callback.capture());
+    RedisConnection connection = mock(RedisConnection.class);
+    RedisScriptingCommands scripting = mock(RedisScriptingCommands.class);
+    when(connection.scriptingCommands()).thenReturn(scripting);
+    callback.getValue().doInRedis(connection);
+    return scripting;
+  }
+
+  private long lookups(String tier) {
+    return meterRegistry.timer("user.profile.lookup", "tier", tier).count();
+  }
+
+  private static byte[] uuidBytes(UUID id) {
+    return ByteBuffer.allocate(16)
+        .putLong(id.getMostSignificantBits())
+        .putLong(id.getLeastSignificantBits())
+        .array();
+  }
+
+  @Test
+  void getById_miss_loadsFromDatabaseOnceThenServesLocally() {
+    sharedReturns((byte[]) null);
+    when(userRepository.findProfileById(profile.id())).thenReturn(Optional.of(profile));
+
+    assertThat(cache.getById(profile.id())).isEqualTo(profile);
+    assertThat(cache.getById(profile.id())).isEqualTo(profile);
+
+    verify(userRepository, times(1)).findProfileById(profile.id());
+    verify(sharedWrite())
+        .evalSha(
+            eq(UserProfileCache.STORE_SCRIPT.getSha1()),
+            eq(ReturnType.INTEGER),
+            eq(2),
+            any(byte[].class),
+            any(byte[].class),
+            eq(new byte[0]),
+            eq(UserProfileCodec.encode(profile)),
+            any(byte[].class));
+    assertThat(lookups("database")).isEqualTo(1);
+    assertThat(lookups("local")).isEqualTo(1);
+  }
+
+  @Test
+  void getById_sharedHit_skipsDatabase() {
+    sharedReturns(UserProfileCodec.encode(profile));
+
+    assertThat(cache.getById(profile.id())).isEqualTo(profile);
+
+    verify(userRepository, never()).findProfileById(any());
+    assertThat(lookups("shared")).isEqualTo(1);
+  }
+
+  @Test
+  void getById_miss_storesOnlyIfTheGenerationReadBeforeLoadingIsUnchanged() {
+    byte[] generation = "5".getBytes(StandardCharsets.UTF_8);
+    when(valueOperations.multiGet(anyList())).thenReturn(Arrays.asList(null, generation));
+    when(userRepository.findProfileById(profile.id())).thenReturn(Optional.of(profile));
+
+    cache.getById(profile.id());
+
+    verify(sharedWrite())
+        .evalSha(
+            eq(UserProfileCache.STORE_SCRIPT.getSha1()),
+            eq(ReturnType.INTEGER),
+            eq(2),
+            any(byte[].class),
+            any(byte[].class),
+            eq(generation),
+            any(byte[].class),
+            any(byte[].class));
+  }
+
+  @Test
+  void getById_sharedMiss_readsDatabase() {
+    sharedReturns((byte[]) null);
+    when(userRepository.findProfileById(profile.id())).thenReturn(Optional.of(profile));
+
+    assertThat(cache.getById(profile.id())).isEqualTo(profile);
+    assertThat(
+            meterRegistry
+                .counter("cache.gets", "cache", "user-profile-shared", "result", "miss")
+                .count())
+        .isEqualTo(1);
+  }
+
+  @Test
+  void getById_redisUnavailable_fallsBackToDatabase() {
+    when(valueOperations.multiGet(anyList()))
+        .thenThrow(new RedisConnectionFailureException("down"));
+    when(userRepository.findProfileById(profile.id())).thenReturn(Optional.of(profile));
+
+    assertThat(cache.getById(profile.id())).isEqualTo(profile);
+    verify(redisTemplate, never()).executePipelined(any(RedisCallback.class));
+  }
+
+  @Test
+  void getByHandle_staleHandleEntry_isIgnored() {
+    UUID previousOwner = UUID.randomUUID();
+    when(valueOperations.get(any())).thenReturn(uuidBytes(previousOwner));
+    sharedReturns(UserProfileCodec.encode(profile(previousOwner, "renamedHandle")));
+    when(userRepository.findProfileByHandle("exampleHandle")).thenReturn(Optional.of(profile));
+
+    assertThat(cache.getByHandle("exampleHandle")).isEqualTo(profile);
+  }
+
+  @Test
+  void getAll_readsEachTierOnceForTheBatch() {
+    UserProfile shared = profile(UUID.randomUUID(), "sharedHandle");
+    UUID missing = UUID.randomUUID();
+    sharedReturns(null, UserProfileCodec.encode(shared), null);
+    when(userRepository.findProfilesByIdIn(List.of(profile.id(), missing)))
+        .thenReturn(List.of(profile));
+
+    Map<UUID, UserProfile> found = cache.getAll(List.of(profile.id(), shared.id(), missing));
+
+    assertThat(found).containsOnlyKeys(profile.id(), shared.id());
+    verify(valueOperations, times(1)).multiGet(anyList());
+    verify(userRepository, times(1)).findProfilesByIdIn(any());
+  }
+
+  @Test
+  void onUserChanged_profileChange_dropsLocalCopyAndPublishes() {
+    sharedReturns((byte[]) null);
+    when(userRepository.findProfileById(profile.id())).thenReturn(Optional.of(profile));
+    cache.getById(profile.id());
+
+    cache.onUserChanged(new UserChangedEvent(profile.id(), ChangeType.PROFILE));
+    cache.getById(profile.id());
+
+    verify(redisTemplate).execute(any(RedisScript.class), anyList(), any(), any(), any());
+    verify(userRepository, times(2)).findProfileById(profile.id());
+  }
+
+  @Test
+  void onUserChanged_roleChange_keepsProfile() {
+    cache.onUserChanged(new UserChangedEvent(profile.id(), ChangeType.ROLE));
+
+    verify(redisTemplate, never()).execute(any(RedisScript.class), anyList(), any(), any(), any());
+  }
+
+  @Test
+  void onMessage_invalidationFromAnotherNode_dropsLocalCopy() {
+    sharedReturns((byte[]) null);
+    when(userRepository.findProfileById(profile.id())).thenReturn(Optional.of(profile));
+    cache.getById(profile.id());
+
+    byte[] body =
+        ByteBuffer.allocate(UserProfileCache.MESSAGE_LENGTH)
+            .put(uuidBytes(UUID.randomUUID()))
+            .put(uuidBytes(profile.id()))
+            .array();
+
+    cache.onMessage(new DefaultMessage(UserProfileCache.CHANNEL.getBytes(), body), null);
+    cache.getById(profile.id());
+
+    assertThat(cache.isPublishedHere(body)).isFalse();
+    verify(userRepository, times(2)).findProfileById(profile.id());
+  }
+
+  @Test
+  void invalidate_publishesThisNodeAndTheUser() {
+    ArgumentCaptor<byte[]> published = ArgumentCaptor.forClass(byte[].class);
+
+    cache.invalidate(profile.id());
+
+    verify(redisTemplate)
+        .execute(any(RedisScript.class), anyList(), any(), any(), published.capture());
+    assertThat(cache.isPublishedHere(published.getValue())).isTrue();
+    assertThat(UserProfileCache.changedUser(published.getValue())).isEqualTo(profile.id());
+  }
+}
@@ -0,0 +1,53 @@
+package com.xclone.user.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.xclone.user.dto.UserProfile;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.UUID;
+import org.junit.jupiter.api.Test;
+
+public class UserProfileCodecTest {
+  UserProfile profile =
+      new UserProfile(
+          UUID.randomUUID(),
+          "exampleHandle",
+          "Ëxample Ñame",
+          "bio",
+          "https://example.com/image.png",
+          Instant.parse("2026-01-02T03:04:05.123456Z"),
+          Instant.parse("2026-02-03T04:05:06Z"),
+          7);
+
+  @Test
+  void decode_encodedProfile_roundTrips() {
+    assertThat(UserProfileCodec.decode(UserProfileCodec.encode(profile))).isEqualTo(profile);
+  }
+
+  @Test
+  void decode_encodedProfileWithoutOptionalFields_roundTrips() {
+    UserProfile sparse =
+        new UserProfile(profile.id(), "handle", "name", null, null, profile.createdAt(), null, 0);
+
+    assertThat(UserProfileCodec.decode(UserProfileCodec.encode(sparse))).isEqualTo(sparse);
+  }
+
+  @Test
+  void decode_unknownVersion_throws() {
+    byte[] value = UserProfileCodec.encode(profile);
+    value[0] = 9;
+
+    assertThatThrownBy(() -> UserProfileCodec.decode(value))
+        .isInstanceOf(IllegalArgumentException.class);
+  }
+
+  @Test
+  void decode_truncatedValue_throws() {
+    byte[] value = UserProfileCodec.encode(profile);
+
+    assertThatThrownBy(() -> UserProfileCodec.decode(Arrays.copyOf(value, value.length - 3)))
+        .isInstanceOf(IllegalArgumentException.class);
+  }
+}
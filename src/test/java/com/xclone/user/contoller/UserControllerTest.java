@@ -2,17 +2,28 @@ package com.xclone.user.contoller;
 
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import com.xclone.config.GraphQlConfig;
 import com.xclone.exception.custom.DuplicateHandleException;
+import com.xclone.exception.custom.ProfileVersionConflictException;
 import com.xclone.support.fixtures.UserFixtures;
 import com.xclone.user.controller.UserController;
+import com.xclone.user.dto.UserProfile;
+import com.xclone.user.dto.UserSuggestion;
 import com.xclone.user.dto.connection.UserConnection;
 import com.xclone.user.model.entity.User;
 import com.xclone.user.service.UserService;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.graphql.GraphQlTest;
@@ -79,7 +90,7 @@ public class UserControllerTest {
   public void userById_returnsUserProfile() {
     User defaultUser = UserFixtures.getDefaultUserWithRandomId();
     UUID id = defaultUser.getId();
-    when(userService.getUserById(id)).thenReturn(defaultUser.toUserProfile());
+    when(userService.getUsersByIds(Set.of(id))).thenReturn(Map.of(id, defaultUser.toUserProfile()));
     String request =
         String.format(
             """
@@ -98,11 +109,64 @@ public class UserControllerTest {
         .isEqualTo(id.toString());
   }
 
+  @Test
+  public void userById_manyLookupsInOneRequest_loadsUsersWithOneBatch() {
+    List<User> users =
+        IntStream.range(0, 10).mapToObj(i -> UserFixtures.getDefaultUserWithRandomId()).toList();
+    Map<UUID, UserProfile> profiles =
+        users.stream().collect(Collectors.toMap(User::getId, User::toUserProfile));
+    UUID missing = UUID.randomUUID();
+    Set<UUID> requested = new HashSet<>(profiles.keySet());
+    requested.add(missing);
+    when(userService.getUsersByIds(requested)).thenReturn(profiles);
+
+    // Every user twice, plus one unknown id, each under its own alias
+    StringBuilder request = new StringBuilder("{");
+    for (int i = 0; i < 20; i++) {
+      request.append(
+          String.format(" u%d: userById(id: \"%s\") { id }", i, users.get(i % 10).getId()));
+    }
+    request.append(String.format(" missing: userById(id: \"%s\") { id } }", missing));
+
+    var response = tester.document(request.toString()).execute();
+
+    for (int i = 0; i < 20; i++) {
+      response
+          .path("u" + i + ".id")
+          .entity(String.class)
+          .isEqualTo(users.get(i % 10).getId().toString());
+    }
+    response.path("missing").valueIsNull();
+    verify(userService, times(1)).getUsersByIds(any());
+  }
+
+  @Test
+  public void autocompleteUsers_returnsSuggestions() {
+    UserSuggestion suggestion = new UserSuggestion(UUID.randomUUID(), "exampleHandle", "Example");
+    when(userService.autocompleteUsers("exa", 5)).thenReturn(List.of(suggestion));
+    String request =
+        """
+            {
+              autocompleteUsers(prefix: "exa", first: 5) {
+                id
+                handle
+                displayName
+              }
+            }
+            """;
+    tester
+        .document(request)
+        .execute()
+        .path("autocompleteUsers[*].handle")
+        .entityList(String.class)
+        .containsExactly("exampleHandle");
+  }
+
   @Test
   public void searchUsers_returnsUserProfile() {
     String query = "exam";
     UserConnection userConnection = UserFixtures.getDefaultUserConnection();
-    when(userService.getUsersByHandle(query)).thenReturn(userConnection);
+    when(userService.searchUsers(query, null, null, true)).thenReturn(userConnection);
     String request =
         String.format(
             """
@@ -127,6 +191,29 @@ public class UserControllerTest {
         .isEqualTo(3);
   }
 
+  @Test
+  public void searchUsers_totalCountNotSelected_doesNotRequestCount() {
+    when(userService.searchUsers("exam", null, null, false))
+        .thenReturn(UserFixtures.getDefaultUserConnection());
+
+    tester
+        .document(
+            """
+                {
+                  searchUsers(query: "exam") {
+                    edges {
+                      cursor
+                    }
+                  }
+                }
+                """)
+        .execute()
+        .path("searchUsers.edges")
+        .entityList(Object.class)
+        .hasSize(3);
+    verify(userService).searchUsers("exam", null, null, false);
+  }
+
   @Test
   @WithMockCustomUser
   public void updateMyProfile_returnsUserResponse() {
@@ -136,7 +223,8 @@ public class UserControllerTest {
     User updatedUser = defaultUser.toBuilder().build();
     updatedUser.setDisplayName(newDisplayName);
     updatedUser.setHandle(newHandle);
-    when(userService.updateProfile(anyString(), any())).thenReturn(updatedUser.toUserProfile());
+    when(userService.updateProfile(anyString(), any(), any()))
+        .thenReturn(updatedUser.toUserProfile());
 
     tester
         .document(
@@ -183,7 +271,7 @@ public class UserControllerTest {
   @WithMockCustomUser
   public void updateMyProfile_returnsDuplicateHandle() {
     User defaultUser = UserFixtures.getDefaultUserWithStaticId();
-    when(userService.updateProfile(anyString(), any()))
+    when(userService.updateProfile(anyString(), any(), any()))
         .thenThrow(new DuplicateHandleException("Handle already in use"));
 
     tester
@@ -220,6 +308,46 @@ public class UserControllerTest {
             """);
   }
 
+  @Test
+  @WithMockCustomUser
+  public void updateMyProfile_staleExpectedVersion_returnsVersionConflict() {
+    when(userService.updateProfile(anyString(), any(), eq(2)))
+        .thenThrow(new ProfileVersionConflictException("Profile changed"));
+
+    tester
+        .document(
+            """
+            mutation UpdateProfile($input: UpdateUserInput!, $version: Int) {
+              updateMyProfile(input: $input, expectedVersion: $version) {
+                code
+                success
+                user {
+                  handle
+                }
+                errors {
+                  field
+                  message
+                }
+              }
+            }
+            """)
+        .variable("input", Map.of("displayName", "newName"))
+        .variable("version", 2)
+        .execute()
+        .path("updateMyProfile")
+        .matchesJson(
+            """
+            {
+              "code": "409",
+              "success": false,
+              "user": null,
+              "errors": [
+                { "field": "expectedVersion", "message" : "Profile changed" }
+              ]
+            }
+            """);
+  }
+
   @Test
   @WithMockCustomUser
   public void deleteMyAccount_returnsDeleteResponse() {
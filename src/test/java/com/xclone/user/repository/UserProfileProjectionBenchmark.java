@@ -0,0 +1,133 @@
+package com.xclone.user.repository;
+
+import com.sun.management.ThreadMXBean;
+import com.xclone.XCloneBackendApplication;
+import com.xclone.user.dto.UserProfile;
+import com.xclone.user.model.entity.User;
+import com.xclone.user.model.enums.UserStatus;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Compares loading pages of user profiles through managed {@link User} entities against selecting
+ * {@link UserProfile}s with a constructor expression. Reports latency and bytes allocated per page
+ * on the calling thread.
+ *
+ * <p>Not run by the test suite. Needs the dev profile's Postgres and Redis ({@code docker compose
+ * up}); seeds {@value #USERS} users with handles starting {@code bench_} on the first run. Run
+ * {@link #main(String[])} from the IDE or with {@code java} on the test classpath.
+ */
+public class UserProfileProjectionBenchmark {
+  private static final int USERS = 10_000;
+  private static final int PAGE_SIZE = 50;
+  private static final int WARMUP = 2_000;
+  private static final int ITERATIONS = 10_000;
+  private static final String BIO = "x".repeat(160);
+
+  public static void main(String[] args) {
+    try (ConfigurableApplicationContext context =
+        new SpringApplicationBuilder(XCloneBackendApplication.class)
+            .profiles("dev")
+            .web(WebApplicationType.NONE)
+            .properties(
+                "spring.jpa.show-sql=false",
+                "logging.level.com.xclone=INFO",
+                "app.autocomplete.enabled=false")
+            .run(args)) {
+      UserRepository userRepository = context.getBean(UserRepository.class);
+      TransactionTemplate readOnly =
+          new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+      readOnly.setReadOnly(true);
+      List<UUID> ids = seed(userRepository, readOnly);
+      Random random = new Random(42);
+
+      Supplier<List<UserProfile>> entities =
+          () ->
+              userRepository.findAllById(page(ids, random)).stream()
+                  .map(User::toUserProfile)
+                  .toList();
+      Supplier<List<UserProfile>> projections =
+          () -> readOnly.execute(status -> userRepository.findProfilesByIdIn(page(ids, random)));
+
+      measure(entities, WARMUP);
+      measure(projections, WARMUP);
+      report("entity    ", measure(entities, ITERATIONS));
+      report("projection", measure(projections, ITERATIONS));
+    }
+  }
+
+  private static List<UUID> seed(UserRepository userRepository, TransactionTemplate readOnly) {
+    if (!userRepository.existsByHandle("bench_0")) {
+      List<User> batch = new ArrayList<>();
+      for (int i = 0; i < USERS; i++) {
+        User user = new User();
+        user.setHandle("bench_" + i);
+        user.setDisplayName("Bench User " + i);
+        user.setPasswordHash("$2a$10$" + "x".repeat(53));
+        user.setBio(BIO);
+        batch.add(user);
+        if (batch.size() == 1000) {
+          userRepository.saveAll(batch);
+          batch.clear();
+        }
+      }
+      userRepository.saveAll(batch);
+    }
+    return readOnly.execute(
+        status -> {
+          try (Stream<UserAutocompleteRow> rows =
+              userRepository.streamAutocompleteRows(UserStatus.ACTIVE)) {
+            return rows.filter(row -> row.getHandle().startsWith("bench_"))
+                .map(UserAutocompleteRow::getId)
+                .toList();
+          }
+        });
+  }
+
+  private static List<UUID> page(List<UUID> ids, Random random) {
+    int start = random.nextInt(ids.size() - PAGE_SIZE);
+    return ids.subList(start, start + PAGE_SIZE);
+  }
+
+  private static Result measure(Supplier<List<UserProfile>> load, int iterations) {
+    ThreadMXBean threads = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+    long[] nanos = new long[iterations];
+    long sink = 0;
+    long allocatedBefore = threads.getCurrentThreadAllocatedBytes();
+    for (int i = 0; i < iterations; i++) {
+      long start = System.nanoTime();
+      sink += load.get().size();
+      nanos[i] = System.nanoTime() - start;
+    }
+    long allocated = threads.getCurrentThreadAllocatedBytes() - allocatedBefore;
+    if (sink != (long) iterations * PAGE_SIZE) {
+      throw new IllegalStateException("expected full pages, got " + sink + " rows");
+    }
+    Arrays.sort(nanos);
+    return new Result(nanos, allocated / iterations);
+  }
+
+  private static void report(String name, Result result) {
+    long[] nanos = result.nanos();
+    System.out.printf(
+        "%s: p50 %6d us, p99 %6d us, %8d B allocated per page of %d%n",
+        name,
+        nanos[nanos.length / 2] / 1000,
+        nanos[nanos.length * 99 / 100] / 1000,
+        result.bytesPerPage(),
+        PAGE_SIZE);
+  }
+
+  private record Result(long[] nanos, long bytesPerPage) {}
+}
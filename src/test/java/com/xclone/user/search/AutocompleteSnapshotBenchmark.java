@@ -0,0 +1,125 @@
+package com.xclone.user.search;
+
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * JMH benchmark of prefix lookups in an {@link AutocompleteSnapshot} over synthetic users, sampled
+ * per prefix length so that JMH reports percentiles. The setup also prints the build time and
+ * memory footprint of the snapshot. Not run by the test suite; run {@link #main(String[])} from the
+ * IDE or on the test classpath. The {@code users} parameter sets the number of users (default
+ * 10,000,000); each trial builds its own snapshot in a fresh fork.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class AutocompleteSnapshotBenchmark {
+  private static final String[] FIRST_NAMES = {
+    "James", "Mary", "Robert", "Patricia", "John", "Jennifer", "Michael", "Linda", "David",
+    "Elizabeth", "William", "Barbara", "Richard", "Susan", "Joseph", "Jessica", "Thomas", "Sarah",
+    "Charles", "Karen", "Amélie", "José", "Zoë", "Łukasz", "Søren", "Chloé"
+  };
+  private static final String[] LAST_NAMES = {
+    "Smith", "Johnson", "Williams", "Brown", "Jones", "Garcia", "Miller", "Davis", "Rodriguez",
+    "Martinez", "Hernandez", "Lopez", "Gonzalez", "Wilson", "Anderson", "Thomas", "Taylor", "Moore"
+  };
+  private static final String HANDLE_CHARS = "abcdefghijklmnopqrstuvwxyz0123456789_";
+
+  @Param("10000000")
+  int users;
+
+  @Param({"1", "2", "3", "4", "5", "6"})
+  int prefixLength;
+
+  private AutocompleteSnapshot snapshot;
+  private byte[][] prefixes;
+  private int next;
+
+  public static void main(String[] args) throws RunnerException {
+    new Runner(
+            new OptionsBuilder()
+                .include(AutocompleteSnapshotBenchmark.class.getSimpleName())
+                .build())
+        .run();
+  }
+
+  /** Builds the snapshot and picks prefixes of handles and last names to look up. */
+  @Setup(Level.Trial)
+  public void build() {
+    Random random = new Random(42);
+    long started = System.nanoTime();
+    AutocompleteSnapshot.Builder builder = new AutocompleteSnapshot.Builder();
+    String[] sampleHandles = new String[10_000];
+    for (int i = 0; i < users; i++) {
+      String handle = randomHandle(random);
+      if (i < sampleHandles.length) {
+        sampleHandles[i] = handle;
+      }
+      String displayName =
+          FIRST_NAMES[random.nextInt(FIRST_NAMES.length)]
+              + " "
+              + LAST_NAMES[random.nextInt(LAST_NAMES.length)];
+      int popularity = (int) Math.min(Integer.MAX_VALUE, Math.pow(random.nextDouble(), -1.5));
+      builder.add(
+          new AutocompleteEntry(new UUID(random.nextLong(), i), handle, displayName, popularity));
+    }
+    long added = System.nanoTime();
+    snapshot = builder.build();
+    long built = System.nanoTime();
+    System.out.printf(
+        "%nusers %,d, keys %,d: add %d ms, sort and precompute %d ms%n",
+        snapshot.size(),
+        snapshot.keyCount(),
+        (added - started) / 1_000_000,
+        (built - added) / 1_000_000);
+    System.out.printf(
+        "footprint %,d MiB (%.1f bytes per user)%n",
+        snapshot.memoryFootprintBytes() >> 20,
+        snapshot.memoryFootprintBytes() / (double) snapshot.size());
+
+    prefixes = new byte[1024][];
+    for (int i = 0; i < prefixes.length; i++) {
+      String source =
+          i % 4 == 0
+              ? LAST_NAMES[random.nextInt(LAST_NAMES.length)]
+              : sampleHandles[random.nextInt(sampleHandles.length)];
+      prefixes[i] =
+          AutocompleteSnapshot.fold(source.substring(0, Math.min(prefixLength, source.length())));
+    }
+  }
+
+  /** Looks up the best eight users for the next prefix. */
+  @Benchmark
+  public int lookup() {
+    byte[] prefix = prefixes[next++ & (prefixes.length - 1)];
+    return snapshot.lookup(prefix, 8, id -> false).size();
+  }
+
+  private static String randomHandle(Random random) {
+    int length = 4 + random.nextInt(12);
+    StringBuilder handle = new StringBuilder(length);
+    for (int i = 0; i < length; i++) {
+      handle.append(HANDLE_CHARS.charAt(random.nextInt(i == 0 ? 26 : HANDLE_CHARS.length())));
+    }
+    return handle.toString();
+  }
+}
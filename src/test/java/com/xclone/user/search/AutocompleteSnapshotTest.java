@@ -0,0 +1,117 @@
+package com.xclone.user.search;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Predicate;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+public class AutocompleteSnapshotTest {
+  private static final Predicate<UUID> NONE = id -> false;
+
+  private static AutocompleteEntry entry(String handle, String displayName, int popularity) {
+    return new AutocompleteEntry(UUID.randomUUID(), handle, displayName, popularity);
+  }
+
+  private static AutocompleteSnapshot snapshotOf(AutocompleteEntry... entries) {
+    AutocompleteSnapshot.Builder builder = new AutocompleteSnapshot.Builder();
+    for (AutocompleteEntry entry : entries) {
+      builder.add(entry);
+    }
+    return builder.build();
+  }
+
+  private static List<String> handles(List<AutocompleteMatch> matches) {
+    return matches.stream().map(match -> match.entry().handle()).toList();
+  }
+
+  @Nested
+  class lookupTests {
+    @Test
+    void lookup_matchesHandlePrefix_caseInsensitively() {
+      AutocompleteSnapshot snapshot =
+          snapshotOf(entry("Alice", "A", 0), entry("alfred", "B", 0), entry("bob", "C", 0));
+
+      List<AutocompleteMatch> matches = snapshot.lookup(AutocompleteSnapshot.fold("AL"), 10, NONE);
+
+      assertThat(handles(matches)).containsExactly("Alice", "alfred");
+      assertThat(matches.getFirst().entry().displayName()).isEqualTo("A");
+    }
+
+    @Test
+    void lookup_matchesDisplayNameWords() {
+      AutocompleteSnapshot snapshot =
+          snapshotOf(entry("jd", "Jane Doe", 0), entry("other", "Someone Else", 0));
+
+      assertThat(handles(snapshot.lookup(AutocompleteSnapshot.fold("doe"), 10, NONE)))
+          .containsExactly("jd");
+      assertThat(handles(snapshot.lookup(AutocompleteSnapshot.fold("jane d"), 10, NONE)))
+          .containsExactly("jd");
+    }
+
+    @Test
+    void lookup_userMatchingSeveralKeys_isReturnedOnce() {
+      AutocompleteSnapshot snapshot = snapshotOf(entry("sam", "Sam Samson", 0));
+
+      assertThat(snapshot.lookup(AutocompleteSnapshot.fold("sam"), 10, NONE)).hasSize(1);
+    }
+
+    @Test
+    void lookup_ranksByPopularityThenKeyLength() {
+      AutocompleteSnapshot snapshot =
+          snapshotOf(entry("anna_long", "x", 0), entry("ann", "y", 0), entry("annabel", "z", 5));
+
+      assertThat(handles(snapshot.lookup(AutocompleteSnapshot.fold("ann"), 10, NONE)))
+          .containsExactly("annabel", "ann", "anna_long");
+    }
+
+    @Test
+    void lookup_excludedUsers_areSkipped() {
+      AutocompleteEntry stale = entry("carol", "c", 0);
+      AutocompleteSnapshot snapshot = snapshotOf(stale, entry("carl", "c", 0));
+
+      assertThat(handles(snapshot.lookup(AutocompleteSnapshot.fold("car"), 10, stale.id()::equals)))
+          .containsExactly("carl");
+    }
+
+    @Test
+    void lookup_noMatch_returnsEmpty() {
+      AutocompleteSnapshot snapshot = snapshotOf(entry("dave", "d", 0));
+
+      assertThat(snapshot.lookup(AutocompleteSnapshot.fold("zz"), 10, NONE)).isEmpty();
+      assertThat(AutocompleteSnapshot.EMPTY.lookup(AutocompleteSnapshot.fold("a"), 10, NONE))
+          .isEmpty();
+    }
+
+    @Test
+    void lookup_rangeWiderThanScanLimit_usesPrecomputedBest() {
+      AutocompleteSnapshot.Builder builder = new AutocompleteSnapshot.Builder();
+      int users = AutocompleteSnapshot.SCAN_LIMIT * 2;
+      for (int i = 0; i < users; i++) {
+        builder.add(entry("user" + i, "name", i));
+      }
+      AutocompleteSnapshot snapshot = builder.build();
+
+      List<AutocompleteMatch> matches = snapshot.lookup(AutocompleteSnapshot.fold("u"), 3, NONE);
+
+      assertThat(handles(matches))
+          .containsExactly("user" + (users - 1), "user" + (users - 2), "user" + (users - 3));
+    }
+  }
+
+  @Test
+  void copyTo_keepsUsersNotExcluded() {
+    AutocompleteEntry removed = entry("erin", "e", 0);
+    AutocompleteSnapshot snapshot = snapshotOf(removed, entry("eric", "e", 0));
+    AutocompleteSnapshot.Builder builder = new AutocompleteSnapshot.Builder();
+
+    snapshot.copyTo(builder, removed.id()::equals);
+    AutocompleteSnapshot copy = builder.build();
+
+    assertThat(copy.size()).isEqualTo(1);
+    assertThat(handles(copy.lookup(AutocompleteSnapshot.fold("er"), 10, NONE)))
+        .containsExactly("eric");
+  }
+}
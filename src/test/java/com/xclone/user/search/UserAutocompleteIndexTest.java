@@ -0,0 +1,242 @@
+package com.xclone.user.search;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+import com.xclone.config.AutocompleteProperties;
+import com.xclone.support.fixtures.UserFixtures;
+import com.xclone.user.cache.UserProfileCache;
+import com.xclone.user.dto.UserSuggestion;
+import com.xclone.user.event.UserChangedEvent;
+import com.xclone.user.event.UserChangedEvent.ChangeType;
+import com.xclone.user.model.entity.User;
+import com.xclone.user.model.enums.UserStatus;
+import com.xclone.user.repository.UserAutocompleteRow;
+import com.xclone.user.repository.UserRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.transaction.PlatformTransactionManager;
+
+@ExtendWith(MockitoExtension.class)
+public class UserAutocompleteIndexTest {
+  @Mock UserRepository userRepository;
+  @Mock UserProfileCache profileCache;
+  @Mock RedisMessageListenerContainer listenerContainer;
+  @Mock PlatformTransactionManager transactionManager;
+
+  UserAutocompleteIndex index;
+  User alice;
+
+  @BeforeEach
+  void setup() {
+    index =
+        new UserAutocompleteIndex(
+            userRepository,
+            profileCache,
+            listenerContainer,
+            new AutocompleteProperties(),
+            transactionManager,
+            new SimpleMeterRegistry());
+    alice = UserFixtures.createUserWithHandle("alice");
+    alice.setId(UUID.randomUUID());
+    alice.setDisplayName("Alice Liddell");
+  }
+
+  private void loadWith(User... users) {
+    when(userRepository.streamAutocompleteRows(UserStatus.ACTIVE))
+        .thenReturn(
+            Stream.of(users)
+                .map(user -> new Row(user.getId(), user.getHandle(), user.getDisplayName(), 0)));
+    index.load();
+  }
+
+  private void reread(User user, long followerCount) {
+    when(userRepository.findAutocompleteRow(user.getId(), UserStatus.ACTIVE))
+        .thenReturn(
+            Optional.of(
+                new Row(user.getId(), user.getHandle(), user.getDisplayName(), followerCount)));
+  }
+
+  private void rereadInactive(User user) {
+    when(userRepository.findAutocompleteRow(user.getId(), UserStatus.ACTIVE))
+        .thenReturn(Optional.empty());
+  }
+
+  private byte[] message(UUID userId) {
+    return ByteBuffer.allocate(UserProfileCache.MESSAGE_LENGTH)
+        .putLong(0)
+        .putLong(1)
+        .putLong(userId.getMostSignificantBits())
+        .putLong(userId.getLeastSignificantBits())
+        .array();
+  }
+
+  private List<String> suggestedHandles(String prefix) {
+    return index.suggest(prefix, 10).stream().map(UserSuggestion::handle).toList();
+  }
+
+  @Test
+  void load_marksReadyAndSuggestsLoadedUsers() {
+    assertThat(index.isReady()).isFalse();
+
+    loadWith(alice);
+
+    assertThat(index.isReady()).isTrue();
+    assertThat(index.suggest("lid", 10))
+        .containsExactly(new UserSuggestion(alice.getId(), "alice", "Alice Liddell"));
+  }
+
+  @Test
+  void onUserChanged_profileChange_replacesIndexedHandle() {
+    loadWith(alice);
+    alice.setHandle("wonderland");
+    reread(alice, 0);
+
+    index.onUserChanged(new UserChangedEvent(alice.getId(), ChangeType.PROFILE));
+
+    assertThat(suggestedHandles("ali")).isEmpty();
+    assertThat(suggestedHandles("wond")).containsExactly("wonderland");
+  }
+
+  @Test
+  void onUserChanged_signup_addsUser() {
+    loadWith();
+    reread(alice, 0);
+
+    index.onUserChanged(new UserChangedEvent(alice.getId(), ChangeType.CREATED));
+
+    assertThat(suggestedHandles("al")).containsExactly("alice");
+  }
+
+  @Test
+  void onUserChanged_deactivatedUser_isRemoved() {
+    loadWith(alice);
+    rereadInactive(alice);
+
+    index.onUserChanged(new UserChangedEvent(alice.getId(), ChangeType.STATUS));
+
+    assertThat(suggestedHandles("al")).isEmpty();
+  }
+
+  @Test
+  void load_ranksMoreFollowedUsersFirst() {
+    UUID aliceId = UUID.randomUUID();
+    UUID alfredId = UUID.randomUUID();
+    when(userRepository.streamAutocompleteRows(UserStatus.ACTIVE))
+        .thenReturn(
+            Stream.of(new Row(aliceId, "alice", "Alice", 3), new Row(alfredId, "alfred", "Al", 7)));
+
+    index.load();
+
+    assertThat(suggestedHandles("al")).containsExactly("alfred", "alice");
+  }
+
+  @Test
+  void onMessage_changeOnAnotherNode_removesDeactivatedUser() {
+    loadWith(alice);
+    rereadInactive(alice);
+
+    index.onMessage(
+        new DefaultMessage(UserProfileCache.CHANNEL.getBytes(), message(alice.getId())), null);
+
+    assertThat(suggestedHandles("al")).isEmpty();
+  }
+
+  @Test
+  void onMessage_publishedByThisNode_isSkipped() {
+    loadWith(alice);
+    byte[] body = message(alice.getId());
+    when(profileCache.isPublishedHere(body)).thenReturn(true);
+
+    index.onMessage(new DefaultMessage(UserProfileCache.CHANNEL.getBytes(), body), null);
+
+    verify(userRepository, never()).findAutocompleteRow(any(), any());
+    assertThat(suggestedHandles("al")).containsExactly("alice");
+  }
+
+  @Test
+  void onUserChanged_signup_usesFollowerCountAsPopularity() {
+    User alfred = UserFixtures.createUserWithHandle("alfred");
+    alfred.setId(UUID.randomUUID());
+    loadWith(alice);
+    reread(alfred, 5);
+
+    index.onUserChanged(new UserChangedEvent(alfred.getId(), ChangeType.CREATED));
+
+    assertThat(suggestedHandles("al")).containsExactly("alfred", "alice");
+  }
+
+  @Test
+  void reloadIfReady_replacesSnapshotWithTheDatabaseUsers() {
+    User bob = UserFixtures.createUserWithHandle("bob");
+    bob.setId(UUID.randomUUID());
+    loadWith(alice);
+    // Signed up on a node whose message was lost
+    when(userRepository.streamAutocompleteRows(UserStatus.ACTIVE))
+        .thenReturn(Stream.of(new Row(bob.getId(), "bob", "displayName", 0)));
+
+    index.reloadIfReady();
+
+    assertThat(suggestedHandles("al")).isEmpty();
+    assertThat(suggestedHandles("b")).containsExactly("bob");
+  }
+
+  @Test
+  void onUserChanged_roleChange_isIgnored() {
+    index.onUserChanged(new UserChangedEvent(alice.getId(), ChangeType.ROLE));
+
+    verifyNoInteractions(userRepository);
+  }
+
+  @Test
+  void compact_mergesPendingChangesIntoSnapshot() {
+    User bob = UserFixtures.createUserWithHandle("bob");
+    bob.setId(UUID.randomUUID());
+    loadWith(alice, bob);
+    rereadInactive(bob);
+    index.onUserChanged(new UserChangedEvent(bob.getId(), ChangeType.STATUS));
+
+    index.compact();
+
+    assertThat(suggestedHandles("a")).containsExactly("alice");
+    assertThat(suggestedHandles("b")).isEmpty();
+  }
+
+  private record Row(UUID id, String handle, String displayName, long followerCount)
+      implements UserAutocompleteRow {
+    @Override
+    public UUID getId() {
+      return id;
+    }
+
+    @Override
+    public String getHandle() {
+      return handle;
+    }
+
+    @Override
+    public String getDisplayName() {
+      return displayName;
+    }
+
+    @Override
+    public long getFollowerCount() {
+      return followerCount;
+    }
+  }
+}
@@ -2,17 +2,42 @@ package com.xclone.user.service;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyFloat;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
+import com.xclone.common.connection.CursorType;
+import com.xclone.common.connection.KeysetPaginator;
+import com.xclone.common.connection.TimeIdKey;
+import com.xclone.common.connection.TotalCounter;
 import com.xclone.exception.custom.DuplicateHandleException;
+import com.xclone.exception.custom.InvalidCursorException;
+import com.xclone.exception.custom.ProfileVersionConflictException;
 import com.xclone.integration.validation.ValidationIT;
+import com.xclone.support.fixtures.ConnectionFixtures;
 import com.xclone.support.fixtures.UserFixtures;
+import com.xclone.user.cache.UserProfileCache;
 import com.xclone.user.dto.UserProfile;
+import com.xclone.user.dto.UserSuggestion;
 import com.xclone.user.dto.connection.UserConnection;
 import com.xclone.user.dto.request.UpdateUserInput;
+import com.xclone.user.event.UserChangedEvent;
+import com.xclone.user.event.UserChangedEvent.ChangeType;
+import com.xclone.user.event.UserDeactivatedEvent;
 import com.xclone.user.model.entity.User;
+import com.xclone.user.model.enums.UserStatus;
+import com.xclone.user.repository.UserProfileRow;
 import com.xclone.user.repository.UserRepository;
+import com.xclone.user.repository.UserSearchHit;
+import com.xclone.user.search.UserAutocompleteIndex;
 import com.xclone.validation.ObjectNotEmpty;
+import java.sql.SQLException;
+import java.time.Instant;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -22,7 +47,10 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
 
 /**
  * The unit testing for the following functions has been skipped as they are thin services and
@@ -31,95 +59,245 @@ import org.mockito.junit.jupiter.MockitoExtension;
  * <ul>
  *   <li>me
  *   <li>getUserByHandle
- *   <li>getUsersByHandle
  *   <li>deleteProfile
  * </ul>
  */
 @ExtendWith(MockitoExtension.class)
 public class UserServiceTest {
   @Mock UserRepository userRepository;
+  @Mock UserProfileCache profileCache;
+  @Mock UserAutocompleteIndex autocompleteIndex;
+  @Mock ApplicationEventPublisher eventPublisher;
+  @Spy KeysetPaginator paginator = ConnectionFixtures.getDefaultPaginator();
+  @Spy TotalCounter totalCounter = ConnectionFixtures.getDefaultTotalCounter();
 
   @InjectMocks UserService userService;
 
-  /** Tests getUsersByHandle to confirm UserConnection mapping */
+  /** Tests searchUsers to confirm query routing, keyset paging and UserConnection mapping */
   @Nested
-  class getUsersByHandleTests {
+  class searchUsersTests {
     @Test
-    public void getUsersByHandle_multipleUsers_returnsUserConnection() {
+    public void searchUsers_multipleUsers_returnsUserConnection() {
       String query = "exam";
-      List<String> handles = List.of("exampleHandle", "exampleHandle1", "exampleHandle2");
-      List<User> generatedUsers =
-          handles.stream()
-              .map(
-                  handle -> {
-                    User user = UserFixtures.getDefaultUserWithRandomId();
-                    user.setHandle(handle);
-                    user.setId(UUID.randomUUID());
-                    return user;
-                  })
-              .toList();
-      List<UUID> generatedUserIds = generatedUsers.stream().map(User::getId).toList();
-
-      when(userRepository.findAllByHandleContaining(query)).thenReturn(generatedUsers);
-
-      UserConnection returnedUsers = userService.getUsersByHandle(query);
-      List<UUID> returnedUserIds =
-          returnedUsers.edges().stream().map(user -> user.node().id()).toList();
-
-      assertThat(returnedUsers.totalCount()).isEqualTo(3);
-      // Edges
-      assertThat(returnedUserIds).isEqualTo(generatedUserIds);
-      // Page info
-      assertThat(returnedUsers.pageInfo().startCursor())
-          .isEqualTo(generatedUserIds.getFirst().toString());
+      List<UserSearchHit> hits =
+          List.of(hit("exampleHandle", 1, 0.5f), hit("exampleHandle1", 1, 0.4f));
+      when(userRepository.searchActive(
+              eq(query), eq("exam%"), eq("%exam%"), eq(2), eq(0f), any(), anyInt(), eq(21)))
+          .thenReturn(hits);
+
+      UserConnection returnedUsers = userService.searchUsers(query, null, null, false);
+
+      assertThat(returnedUsers.edges())
+          .extracting(edge -> edge.node().handle())
+          .containsExactly("exampleHandle", "exampleHandle1");
       assertThat(returnedUsers.pageInfo().endCursor())
-          .isEqualTo(generatedUserIds.getLast().toString());
+          .isEqualTo(returnedUsers.edges().getLast().cursor());
       assertThat(returnedUsers.pageInfo().hasNextPage()).isFalse();
       assertThat(returnedUsers.pageInfo().hasPreviousPage()).isFalse();
     }
 
     @Test
-    public void getUsersByHandle_singleUser_returnsUserConnection() {
-      String query = "exampleHandle1";
-      List<String> handles = List.of("exampleHandle1");
-      List<User> generatedUser =
-          handles.stream()
-              .map(
-                  handle -> {
-                    User user = UserFixtures.getDefaultUserWithRandomId();
-                    user.setHandle(handle);
-                    return user;
-                  })
-              .toList();
-      UUID firstUserId = generatedUser.getFirst().getId();
-      when(userRepository.findAllByHandleContaining(query)).thenReturn(generatedUser);
-
-      UserConnection returnedUsers = userService.getUsersByHandle(query);
-
-      assertThat(returnedUsers.totalCount()).isEqualTo(1);
-      // Edges
-      assertThat(returnedUsers.edges().getFirst().node().id()).isEqualTo(firstUserId);
-      // Page info
-      assertThat(returnedUsers.pageInfo().startCursor()).isEqualTo(firstUserId.toString());
-      assertThat(returnedUsers.pageInfo().endCursor()).isEqualTo(firstUserId.toString());
-      assertThat(returnedUsers.pageInfo().hasNextPage()).isFalse();
-      assertThat(returnedUsers.pageInfo().hasPreviousPage()).isFalse();
+    public void searchUsers_moreHitsThanPageSize_returnsNextPageCursor() {
+      List<UserSearchHit> hits =
+          List.of(hit("example1", 1, 0.6f), hit("example2", 1, 0.5f), hit("example3", 0, 0.4f));
+      when(userRepository.searchActive(
+              any(), any(), any(), anyInt(), anyFloat(), any(), anyInt(), eq(3)))
+          .thenReturn(hits);
+
+      UserConnection page = userService.searchUsers("example", 2, null, false);
+
+      assertThat(page.edges()).hasSize(2);
+      assertThat(page.pageInfo().hasNextPage()).isTrue();
+      UserSearchKey cursor =
+          ConnectionFixtures.getDefaultCursorCodec()
+              .decode(UserSearchKey.TYPE, page.pageInfo().endCursor(), "after");
+      assertThat(cursor).isEqualTo(new UserSearchKey(1, 0.5f, hits.get(1).getId()));
     }
 
     @Test
-    public void getUsersByHandle_noUsers_returnsUserConnection() {
-      String query = "random";
-      List<User> generatedUsers = List.of();
-      when(userRepository.findAllByHandleContaining(query)).thenReturn(generatedUsers);
+    public void searchUsers_afterCursor_continuesFromCursor() {
+      UUID lastId = UUID.randomUUID();
+      String after =
+          ConnectionFixtures.getDefaultCursorCodec()
+              .encode(UserSearchKey.TYPE, new UserSearchKey(1, 0.5f, lastId));
+      when(userRepository.searchActive(
+              any(), any(), any(), eq(1), eq(0.5f), eq(lastId), anyInt(), anyInt()))
+          .thenReturn(List.of());
+
+      UserConnection page = userService.searchUsers("example", 2, after, false);
+
+      assertThat(page.edges()).isEmpty();
+      assertThat(page.pageInfo().hasPreviousPage()).isTrue();
+    }
 
-      UserConnection returnedUsers = userService.getUsersByHandle(query);
+    @Test
+    public void searchUsers_shortQuery_searchesHandlePrefixOnly() {
+      when(userRepository.searchActiveByHandlePrefix(
+              eq("Ab"), eq("ab%"), anyInt(), anyFloat(), any(), anyInt(), anyInt()))
+          .thenReturn(List.of(hit("abc", 1, 0.2f)));
 
-      assertThat(returnedUsers.totalCount()).isEqualTo(0);
-      // Page info
-      assertThat(returnedUsers.pageInfo().startCursor()).isNull();
-      assertThat(returnedUsers.pageInfo().endCursor()).isNull();
-      assertThat(returnedUsers.pageInfo().hasNextPage()).isFalse();
-      assertThat(returnedUsers.pageInfo().hasPreviousPage()).isFalse();
+      UserConnection page = userService.searchUsers(" Ab ", null, null, false);
+
+      assertThat(page.edges()).hasSize(1);
+      verify(userRepository, never())
+          .searchActive(any(), any(), any(), anyInt(), anyFloat(), any(), anyInt(), anyInt());
+    }
+
+    @Test
+    public void searchUsers_likeWildcardsInQuery_areEscaped() {
+      when(userRepository.searchActive(
+              eq("a_b%"),
+              eq("a\\_b\\%%"),
+              eq("%a\\_b\\%%"),
+              anyInt(),
+              anyFloat(),
+              any(),
+              anyInt(),
+              anyInt()))
+          .thenReturn(List.of());
+
+      assertThat(userService.searchUsers("a_b%", null, null, false).edges()).isEmpty();
+    }
+
+    @Test
+    public void searchUsers_totalCountRequested_countsCandidates() {
+      when(userRepository.searchActive(
+              any(), any(), any(), anyInt(), anyFloat(), any(), anyInt(), anyInt()))
+          .thenReturn(List.of(hit("example1", 1, 0.6f)));
+      when(userRepository.countActive(
+              "example", "example%", "%example%", UserService.MAX_SEARCH_CANDIDATES))
+          .thenReturn(42L);
+
+      UserConnection page = userService.searchUsers("example", 1, null, true);
+
+      assertThat(page.totalCount()).isEqualTo(42);
+    }
+
+    @Test
+    public void searchUsers_totalCountNotRequested_skipsCount() {
+      when(userRepository.searchActiveByHandlePrefix(
+              any(), any(), anyInt(), anyFloat(), any(), anyInt(), anyInt()))
+          .thenReturn(List.of(hit("ab", 1, 0.6f)));
+
+      UserConnection page = userService.searchUsers("ab", null, null, false);
+
+      assertThat(page.totalCount()).isNull();
+      verify(userRepository, never()).countActiveByHandlePrefix(any(), anyInt());
+    }
+
+    @Test
+    public void searchUsers_blankQuery_returnsEmptyConnection() {
+      UserConnection page = userService.searchUsers("  ", null, null, true);
+
+      assertThat(page.totalCount()).isEqualTo(0);
+      assertThat(page.pageInfo().startCursor()).isNull();
+      assertThat(page.pageInfo().hasNextPage()).isFalse();
+    }
+
+    @Test
+    public void searchUsers_invalidCursor_throwsInvalidCursor() {
+      assertThatThrownBy(() -> userService.searchUsers("example", null, "not-a-cursor", false))
+          .isInstanceOf(InvalidCursorException.class);
+    }
+
+    @Test
+    public void searchUsers_cursorOfAnotherConnection_throwsInvalidCursor() {
+      String after =
+          ConnectionFixtures.getDefaultCursorCodec()
+              .encode(
+                  CursorType.timeId("Followers"), new TimeIdKey(Instant.now(), UUID.randomUUID()));
+
+      assertThatThrownBy(() -> userService.searchUsers("example", null, after, false))
+          .isInstanceOf(InvalidCursorException.class);
+    }
+
+    private UserSearchHit hit(String handle, int prefixMatch, float score) {
+      return new TestHit(UUID.randomUUID(), handle, prefixMatch, score);
+    }
+  }
+
+  /** Tests autocompleteUsers to confirm the index is preferred over the database */
+  @Nested
+  class autocompleteUsersTests {
+    @Test
+    public void autocompleteUsers_indexReady_servesFromIndex() {
+      UserSuggestion suggestion = new UserSuggestion(UUID.randomUUID(), "alice", "Alice");
+      when(autocompleteIndex.isReady()).thenReturn(true);
+      when(autocompleteIndex.suggest("al", 5)).thenReturn(List.of(suggestion));
+
+      assertThat(userService.autocompleteUsers("al", 5)).containsExactly(suggestion);
+      verifyNoInteractions(userRepository);
+    }
+
+    @Test
+    public void autocompleteUsers_indexNotReady_fallsBackToHandlePrefixSearch() {
+      when(autocompleteIndex.isReady()).thenReturn(false);
+      when(userRepository.searchActiveByHandlePrefix(
+              eq("al"), eq("al%"), anyInt(), anyFloat(), any(), anyInt(), eq(8)))
+          .thenReturn(List.of(new TestHit(UUID.randomUUID(), "alice", 1, 0.4f)));
+
+      assertThat(userService.autocompleteUsers("al", null))
+          .extracting(UserSuggestion::handle)
+          .containsExactly("alice");
+    }
+
+    @Test
+    public void autocompleteUsers_blankPrefix_returnsEmpty() {
+      assertThat(userService.autocompleteUsers(" ", null)).isEmpty();
+      verifyNoInteractions(autocompleteIndex);
+    }
+  }
+
+  private record TestHit(UUID id, String handle, int prefixMatch, float score)
+      implements UserSearchHit {
+    @Override
+    public UUID getId() {
+      return id;
+    }
+
+    @Override
+    public String getHandle() {
+      return handle;
+    }
+
+    @Override
+    public String getDisplayName() {
+      return "displayName";
+    }
+
+    @Override
+    public String getBio() {
+      return null;
+    }
+
+    @Override
+    public String getProfileImage() {
+      return null;
+    }
+
+    @Override
+    public Instant getCreatedAt() {
+      return Instant.EPOCH;
+    }
+
+    @Override
+    public Instant getUpdatedAt() {
+      return null;
+    }
+
+    @Override
+    public int getVersion() {
+      return 0;
+    }
+
+    @Override
+    public int getPrefixMatch() {
+      return prefixMatch;
+    }
+
+    @Override
+    public float getScore() {
+      return score;
     }
   }
 
@@ -139,94 +317,205 @@ public class UserServiceTest {
       existingUserId = existingUser.getId().toString();
     }
 
+    private TestRow updated(UpdateUserInput input) {
+      User user = existingUser.toBuilder().build();
+      if (input.displayName() != null) {
+        user.setDisplayName(input.displayName());
+      }
+      if (input.handle() != null) {
+        user.setHandle(input.handle());
+      }
+      if (input.bio() != null) {
+        user.setBio(input.bio());
+      }
+      if (input.profileImage() != null) {
+        user.setProfileImage(input.profileImage());
+      }
+      return new TestRow(user.toUserProfile());
+    }
+
     @Test
     void updatesSingleField_returnsUserProfile() {
       UpdateUserInput input = new UpdateUserInput("NewName", null, null, null);
-      String originalDisplayName = existingUser.getDisplayName();
+      TestRow row = updated(input);
 
-      when(userRepository.findById(existingUser.getId())).thenReturn(Optional.of(existingUser));
-      UserProfile returnedUser = userService.updateProfile(existingUserId, input);
+      when(userRepository.updateProfile(existingUser.getId(), "NewName", null, null, null, null))
+          .thenReturn(Optional.of(row));
+      UserProfile returnedUser = userService.updateProfile(existingUserId, input, null);
 
-      assertThat(returnedUser.displayName()).isNotEqualTo(originalDisplayName);
-      assertThat(returnedUser).isEqualTo(existingUser.toUserProfile());
+      assertThat(returnedUser.displayName()).isEqualTo("NewName");
+      assertThat(returnedUser).isEqualTo(row.profile());
+      verify(eventPublisher)
+          .publishEvent(new UserChangedEvent(existingUser.getId(), ChangeType.PROFILE));
     }
 
     @Test
-    void updatesUserHandle_newHandle_returnsUserProfile() {
-      String newHandle = "new";
-      UpdateUserInput input = new UpdateUserInput(null, newHandle, null, null);
-      String originalHandle = existingUser.getHandle();
+    void updatesAllFields_passesEveryFieldToSingleUpdate() {
+      UpdateUserInput input =
+          new UpdateUserInput(
+              "NewName", "new", "This is an updated Bio", "https://www.thisisanewprofileuri.com");
+      TestRow row = updated(input);
 
-      when(userRepository.findById(existingUser.getId())).thenReturn(Optional.of(existingUser));
-      when(userRepository.existsByHandleAndIdNot(newHandle, existingUser.getId()))
-          .thenReturn(false);
+      when(userRepository.updateProfile(
+              existingUser.getId(),
+              "NewName",
+              "new",
+              "This is an updated Bio",
+              "https://www.thisisanewprofileuri.com",
+              null))
+          .thenReturn(Optional.of(row));
 
-      UserProfile returnedUser = userService.updateProfile(existingUserId, input);
+      UserProfile returnedUser = userService.updateProfile(existingUserId, input, null);
 
-      assertThat(returnedUser.handle()).isNotEqualTo(originalHandle);
-      assertThat(returnedUser).isEqualTo(existingUser.toUserProfile());
+      assertThat(returnedUser).isEqualTo(row.profile());
+      verify(userRepository, never()).findById(any());
     }
 
     @Test
-    void updatesAllFields_returnsUserProfile() {
-      String newHandle = "new";
-      UpdateUserInput input =
-          new UpdateUserInput(
-              "NewName",
-              newHandle,
-              "This is an updated Bio",
-              "https://www.thisisanewprofileuri.com");
-      User originalUser = existingUser.toBuilder().build();
-
-      when(userRepository.findById(existingUser.getId())).thenReturn(Optional.of(existingUser));
-      when(userRepository.existsByHandleAndIdNot(newHandle, existingUser.getId()))
-          .thenReturn(false);
+    void currentExpectedVersion_isPassedToUpdate() {
+      UpdateUserInput input = new UpdateUserInput("NewName", null, null, null);
+      TestRow row = updated(input);
 
-      UserProfile returnedUser = userService.updateProfile(existingUserId, input);
+      when(userRepository.updateProfile(existingUser.getId(), "NewName", null, null, null, 3))
+          .thenReturn(Optional.of(row));
 
-      assertThat(returnedUser.displayName()).isNotEqualTo(originalUser.getDisplayName());
-      assertThat(returnedUser.handle()).isNotEqualTo(originalUser.getHandle());
-      assertThat(returnedUser.bio()).isNotEqualTo(originalUser.getBio());
-      assertThat(returnedUser.profileImage()).isNotEqualTo(originalUser.getProfileImage());
-      assertThat(returnedUser).isEqualTo(existingUser.toUserProfile());
+      assertThat(userService.updateProfile(existingUserId, input, 3)).isEqualTo(row.profile());
     }
 
     @Test
-    void updatesUserHandle_userSubmitsCurrentHandleAsUpdateInput_returnsUserProfile() {
-      String existingHandle = existingUser.getHandle();
-      UpdateUserInput input = new UpdateUserInput(null, existingHandle, null, null);
-
-      when(userRepository.findById(existingUser.getId())).thenReturn(Optional.of(existingUser));
-      when(userRepository.existsByHandleAndIdNot(existingHandle, existingUser.getId()))
-          .thenReturn(false);
+    void staleExpectedVersion_returnsVersionConflict() {
+      UpdateUserInput input = new UpdateUserInput("NewName", null, null, null);
 
-      UserProfile returnedUser = userService.updateProfile(existingUserId, input);
+      when(userRepository.updateProfile(existingUser.getId(), "NewName", null, null, null, 2))
+          .thenReturn(Optional.empty());
+      when(userRepository.existsById(existingUser.getId())).thenReturn(true);
 
-      assertThat(returnedUser).isEqualTo(existingUser.toUserProfile());
+      assertThatThrownBy(() -> userService.updateProfile(existingUserId, input, 2))
+          .isInstanceOf(ProfileVersionConflictException.class);
+      verify(eventPublisher, never()).publishEvent(any());
     }
 
     @Test
     void updatesUserHandle_existingHandle_returnsDuplicateHandle() {
-      String existingHandle = "existing";
-      UpdateUserInput input = new UpdateUserInput(null, existingHandle, null, null);
+      UpdateUserInput input = new UpdateUserInput(null, "existing", null, null);
 
-      when(userRepository.findById(existingUser.getId())).thenReturn(Optional.of(existingUser));
-      when(userRepository.existsByHandleAndIdNot(existingHandle, existingUser.getId()))
-          .thenReturn(true);
-      assertThatThrownBy(() -> userService.updateProfile(existingUserId, input))
+      when(userRepository.updateProfile(existingUser.getId(), null, "existing", null, null, null))
+          .thenThrow(
+              new DataIntegrityViolationException(
+                  "could not execute statement",
+                  new SQLException("duplicate key value violates unique constraint", "23505")));
+
+      assertThatThrownBy(() -> userService.updateProfile(existingUserId, input, null))
           .isInstanceOf(DuplicateHandleException.class)
           .hasMessage("This handle is already taken");
+      verify(eventPublisher, never())
+          .publishEvent(new UserChangedEvent(existingUser.getId(), ChangeType.PROFILE));
+    }
+
+    @Test
+    void otherIntegrityViolation_isRethrown() {
+      UpdateUserInput input = new UpdateUserInput("NewName", null, null, null);
+      DataIntegrityViolationException violation =
+          new DataIntegrityViolationException(
+              "could not execute statement", new SQLException("value too long", "22001"));
+
+      when(userRepository.updateProfile(existingUser.getId(), "NewName", null, null, null, null))
+          .thenThrow(violation);
+
+      assertThatThrownBy(() -> userService.updateProfile(existingUserId, input, null))
+          .isSameAs(violation);
     }
 
     @Test
     void invalidUserId_returnsIllegalState() {
       UpdateUserInput input = new UpdateUserInput("NewName", null, null, null);
 
-      when(userRepository.findById(existingUser.getId())).thenReturn(Optional.empty());
+      when(userRepository.updateProfile(existingUser.getId(), "NewName", null, null, null, null))
+          .thenReturn(Optional.empty());
 
-      assertThatThrownBy(() -> userService.updateProfile(existingUserId, input))
+      assertThatThrownBy(() -> userService.updateProfile(existingUserId, input, null))
           .isInstanceOf(IllegalStateException.class)
           .hasMessage("Authenticated user not found in database: " + existingUserId);
     }
   }
+
+  private record TestRow(UserProfile profile) implements UserProfileRow {
+    @Override
+    public UUID getId() {
+      return profile.id();
+    }
+
+    @Override
+    public String getHandle() {
+      return profile.handle();
+    }
+
+    @Override
+    public String getDisplayName() {
+      return profile.displayName();
+    }
+
+    @Override
+    public String getBio() {
+      return profile.bio();
+    }
+
+    @Override
+    public String getProfileImage() {
+      return profile.profileImage();
+    }
+
+    @Override
+    public Instant getCreatedAt() {
+      return profile.createdAt().toInstant();
+    }
+
+    @Override
+    public Instant getUpdatedAt() {
+      return profile.updatedAt() == null ? null : profile.updatedAt().toInstant();
+    }
+
+    @Override
+    public int getVersion() {
+      return profile.version();
+    }
+  }
+
+  @Nested
+  class updateStatusTests {
+    @Test
+    void suspendsUser_publishesStatusChange() {
+      User existingUser = UserFixtures.getDefaultUserWithRandomId();
+      when(userRepository.findById(existingUser.getId())).thenReturn(Optional.of(existingUser));
+
+      userService.updateStatus(existingUser.getId().toString(), UserStatus.SUSPENDED);
+
+      assertThat(existingUser.getStatus()).isEqualTo(UserStatus.SUSPENDED);
+      verify(eventPublisher)
+          .publishEvent(new UserChangedEvent(existingUser.getId(), ChangeType.STATUS));
+      verify(eventPublisher)
+          .publishEvent(new UserDeactivatedEvent(existingUser.getId(), UserStatus.SUSPENDED));
+    }
+
+    @Test
+    void reactivatesUser_doesNotPublishDeactivation() {
+      User existingUser = UserFixtures.getDefaultUserWithRandomId();
+      existingUser.setStatus(UserStatus.SUSPENDED);
+      when(userRepository.findById(existingUser.getId())).thenReturn(Optional.of(existingUser));
+
+      userService.updateStatus(existingUser.getId().toString(), UserStatus.ACTIVE);
+
+      verify(eventPublisher, never()).publishEvent(any(UserDeactivatedEvent.class));
+    }
+
+    @Test
+    void invalidUserId_returnsIllegalState() {
+      UUID userId = UUID.randomUUID();
+      when(userRepository.findById(userId)).thenReturn(Optional.empty());
+
+      assertThatThrownBy(() -> userService.updateStatus(userId.toString(), UserStatus.SUSPENDED))
+          .isInstanceOf(IllegalStateException.class)
+          .hasMessage("Authenticated user not found in database: " + userId);
+    }
+  }
 }